@@ -0,0 +1,120 @@
+package com.prince.serverless.accessor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.GenericApplicationContext;
+
+import com.amazonaws.services.sqs.model.PurgeQueueRequest;
+
+import com.prince.serverless.benchmark.BenchmarkSupport;
+import com.prince.serverless.config.AmazonSQSClientConfig;
+import com.prince.serverless.local.InMemoryAmazonSQS;
+import com.prince.serverless.util.EnvelopeDecoder;
+import com.prince.serverless.util.PayloadEncoder;
+
+/**
+ * Load test of {@link AmazonSQSConsumer} against in-memory SQS, reported per message. Every
+ * invocation consumes a queue filled with email payloads, with handlers which decode the payload
+ * and simulate the latency of an email provider.
+ *
+ * @author Prince Raj
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OperationsPerInvocation(AmazonSQSConsumerBenchmark.MESSAGES)
+public class AmazonSQSConsumerBenchmark {
+
+    static final int MESSAGES = 2000;
+
+    @Param({"1", "8", "32"})
+    private int handlerThreads;
+
+    @Param({"0", "1000"})
+    private long handlerLatencyMicros;
+
+    private GenericApplicationContext context;
+
+    private AmazonSQSClientAccessor sqsClientAccessor;
+
+    private AmazonSQSClientConfig sqsClientConfig;
+
+    private InMemoryAmazonSQS sqsClient;
+
+    private List<String> messageBodies;
+
+    private AmazonSQSConsumer consumer;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkSupport.createContext();
+        sqsClientAccessor = context.getBean(AmazonSQSClientAccessor.class);
+        sqsClient = context.getBean(InMemoryAmazonSQS.class);
+
+        sqsClientConfig = context.getBean(AmazonSQSClientConfig.class);
+        sqsClientConfig.setConsumerHandlerThreads(handlerThreads);
+        sqsClientConfig.setWaitTime(1);
+
+        PayloadEncoder payloadEncoder = context.getBean(PayloadEncoder.class);
+        messageBodies = new ArrayList<>(MESSAGES);
+        for (int i = 0; i < MESSAGES; i++) {
+            messageBodies.add(payloadEncoder.encodeEmail("01-Jul-2019", "user" + i + "@example.com"));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void fillQueue() {
+        for (int i = 0; i < MESSAGES; i += 10) {
+            sqsClientAccessor.sendMessageBatch(messageBodies.subList(i, i + 10), "email-group");
+        }
+
+        consumer = new AmazonSQSConsumer(sqsClientAccessor, sqsClientConfig, message -> {
+            EnvelopeDecoder.decode(message.getBody());
+            if (handlerLatencyMicros > 0) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(handlerLatencyMicros));
+            }
+            return true;
+        });
+    }
+
+    @TearDown(Level.Invocation)
+    public void stopConsumer() throws InterruptedException {
+        consumer.stop(5, TimeUnit.SECONDS);
+        sqsClient.purgeQueue(new PurgeQueueRequest(sqsClientConfig.getQueueUrl()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long consume() {
+        consumer.start();
+        while (consumer.getDeletedCount() < MESSAGES) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+
+        return consumer.getDeletedCount();
+    }
+}
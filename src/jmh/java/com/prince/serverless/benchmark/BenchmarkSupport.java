@@ -0,0 +1,97 @@
+package com.prince.serverless.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.context.support.GenericApplicationContext;
+
+import com.google.common.io.CharStreams;
+
+import com.prince.serverless.local.LocalSpringConfig;
+import com.prince.serverless.util.Constants;
+import com.prince.serverless.util.FileUtils;
+
+/**
+ * Input data and application context shared by benchmarks.
+ *
+ * @author Prince Raj
+ */
+public final class BenchmarkSupport {
+
+    // rows per input file, benchmarks over a file report time and allocation per row
+    public static final int ROWS = 10000;
+
+    public static final String INPUT_FILE_KEY =
+            Constants.BASE_INPUT_FOLDER_NAME + "20190701/ActiveUserFile_20190701.csv000";
+
+    private BenchmarkSupport() {}
+
+    /**
+     * Create input file content. Every 10th row has no email id and every 7th row has no mobile
+     * number, and send flags vary, so that some rows are not applicable on one or both channels.
+     *
+     * @param rows number of rows, excluding header
+     * @return input file content
+     */
+    public static byte[] createInputFile(int rows) {
+        return createInputFile(rows, false);
+    }
+
+    /**
+     * Create input file content, as by {@link #createInputFile(int)}. With all the channels, every
+     * 2nd row asks for android push and the others for ios push, and every 4th row for in-app.
+     *
+     * @param rows number of rows, excluding header
+     * @param allChannels true to add send flags of push and in-app channels
+     * @return input file content
+     */
+    public static byte[] createInputFile(int rows, boolean allChannels) {
+        StringBuilder builder = new StringBuilder(rows * 64);
+        builder.append(String.join(",", allChannels ? Constants.CHANNELS_INPUT_FILE_HEADERS
+                : Constants.INPUT_FILE_HEADERS)).append('\n');
+
+        for (int i = 0; i < rows; i++) {
+            String emailId = i % 10 == 9 ? "" : "user" + i + "@example.com";
+            String mobileNumber = i % 7 == 6 ? "" : String.valueOf(9000000000L + i);
+
+            builder.append("userid").append(i).append(',').append(emailId).append(',')
+                    .append(mobileNumber).append(",01-Jul-2019,").append(i % 5 == 4 ? 0 : 1)
+                    .append(',').append(i % 3 == 2 ? 0 : 1);
+            if (allChannels) {
+                builder.append(',').append(i % 2 == 0 ? 1 : 0).append(',')
+                        .append(i % 2 == 1 ? 1 : 0).append(',').append(i % 4 == 0 ? 1 : 0);
+            }
+            builder.append('\n');
+        }
+
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Create application context with in-memory stand-ins of S3 and SQS.
+     *
+     * @return refreshed application context
+     */
+    public static GenericApplicationContext createContext() {
+        GenericApplicationContext context = new GenericApplicationContext();
+        new LocalSpringConfig().initialize(context);
+        context.refresh();
+
+        return context;
+    }
+
+    /**
+     * @return admin email body template
+     * @throws IOException IO exception
+     */
+    public static String loadEmailBodyTemplate() throws IOException {
+        InputStream inputStream = BenchmarkSupport.class.getClassLoader()
+                .getResourceAsStream(Constants.NOTIFICATION_ACTIVITY_BODY_TEMPLATE);
+
+        try (BufferedReader reader = FileUtils.getBufferedReader(inputStream)) {
+            return CharStreams.toString(reader);
+        }
+    }
+}
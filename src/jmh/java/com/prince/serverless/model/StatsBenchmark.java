@@ -0,0 +1,46 @@
+package com.prince.serverless.model;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of {@link Stats} updates, with success, failed and not applicable updates in turn.
+ *
+ * @author Prince Raj
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatsBenchmark {
+
+    private Stats stats;
+
+    @Setup
+    public void setup() {
+        stats = new Stats();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(3)
+    public Stats update() {
+        stats.incrementSuccessUsersCount();
+        stats.incrementFailedUsersCount();
+        stats.incrementNotApplicableUsersCount();
+
+        return stats;
+    }
+}
@@ -0,0 +1,72 @@
+package com.prince.serverless.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.support.GenericApplicationContext;
+
+import com.prince.serverless.benchmark.BenchmarkSupport;
+import com.prince.serverless.util.InputFileParser;
+
+/**
+ * Benchmark of building {@link com.prince.serverless.model.FileItem} of applicable rows, reported
+ * per row. Rows are parsed as well, so cost of building is the difference from parse benchmark of
+ * {@link InputFileParser}.
+ *
+ * @author Prince Raj
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(BenchmarkSupport.ROWS)
+public class FileItemBenchmark {
+
+    private GenericApplicationContext context;
+
+    private NotificationServiceImpl notificationService;
+
+    private byte[] inputFile;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkSupport.createContext();
+        notificationService = context.getBean(NotificationServiceImpl.class);
+        inputFile = BenchmarkSupport.createInputFile(BenchmarkSupport.ROWS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void buildFileItems(Blackhole blackhole) throws IOException {
+        try (InputFileParser parser = new InputFileParser(new ByteArrayInputStream(inputFile))) {
+            parser.readHeader();
+
+            InputFileParser.Row row = parser.getRow();
+            while (parser.nextRow()) {
+                if (row.isApplicable()) {
+                    blackhole.consume(notificationService.getFileItem(row));
+                }
+            }
+        }
+    }
+}
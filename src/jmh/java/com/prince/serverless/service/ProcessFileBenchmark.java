@@ -0,0 +1,107 @@
+package com.prince.serverless.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.GenericApplicationContext;
+
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.sqs.model.PurgeQueueRequest;
+
+import com.prince.serverless.benchmark.BenchmarkSupport;
+import com.prince.serverless.config.AmazonS3ClientConfig;
+import com.prince.serverless.config.AmazonSQSClientConfig;
+import com.prince.serverless.local.InMemoryAmazonS3;
+import com.prince.serverless.local.InMemoryAmazonSQS;
+import com.prince.serverless.model.EventResponse;
+import com.prince.serverless.util.Constants;
+
+/**
+ * End-to-end benchmark of {@link NotificationService#processFile(String)} against in-memory S3
+ * and SQS, reported per row of input file. With a send latency, which dominates processing
+ * against SQS, async mode of SQS accessor keeps many send requests in flight. With all the
+ * channels, rows are sent on push and in-app channels as well, which are dispatched in parallel
+ * with email and sms.
+ *
+ * @author Prince Raj
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OperationsPerInvocation(BenchmarkSupport.ROWS)
+public class ProcessFileBenchmark {
+
+    private static final String ASYNC_ENABLED_PROPERTY = "com.example.aws.sqs.async.enabled";
+
+    @Param({"0", "2000"})
+    private long sendLatencyMicros;
+
+    @Param({"false", "true"})
+    private boolean asyncEnabled;
+
+    @Param({"false", "true"})
+    private boolean allChannels;
+
+    private GenericApplicationContext context;
+
+    private NotificationService notificationService;
+
+    private InMemoryAmazonS3 s3Client;
+
+    private InMemoryAmazonSQS sqsClient;
+
+    private String bucketName;
+
+    private String queueUrl;
+
+    @Setup
+    public void setup() {
+        System.setProperty(ASYNC_ENABLED_PROPERTY, String.valueOf(asyncEnabled));
+        context = BenchmarkSupport.createContext();
+        notificationService = context.getBean(NotificationServiceImpl.class);
+        s3Client = context.getBean(InMemoryAmazonS3.class);
+        sqsClient = context.getBean(InMemoryAmazonSQS.class);
+        sqsClient.setSendLatencyMicros(sendLatencyMicros);
+        bucketName = context.getBean(AmazonS3ClientConfig.class).getBucketName();
+        queueUrl = context.getBean(AmazonSQSClientConfig.class).getQueueUrl();
+
+        s3Client.putObjectBytes(bucketName, BenchmarkSupport.INPUT_FILE_KEY,
+                BenchmarkSupport.createInputFile(BenchmarkSupport.ROWS, allChannels));
+    }
+
+    @TearDown(Level.Invocation)
+    public void clearOutput() {
+        for (S3ObjectSummary summary : s3Client
+                .listObjects(bucketName, Constants.BASE_OUTPUT_FOLDER_NAME).getObjectSummaries()) {
+            s3Client.deleteObject(bucketName, summary.getKey());
+        }
+        sqsClient.purgeQueue(new PurgeQueueRequest(queueUrl));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        System.clearProperty(ASYNC_ENABLED_PROPERTY);
+    }
+
+    @Benchmark
+    public EventResponse processFile() throws Exception {
+        return notificationService.processFile(BenchmarkSupport.INPUT_FILE_KEY);
+    }
+}
@@ -0,0 +1,59 @@
+package com.prince.serverless.service;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.prince.serverless.model.Stats;
+import com.prince.serverless.util.ChannelType;
+import com.prince.serverless.util.NotificationStatus;
+
+/**
+ * Benchmark of {@link StatsRecorder} updates by threads sharing a recorder, as dispatch workers
+ * and the write stage do, and of snapshots taken meanwhile.
+ *
+ * @author Prince Raj
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class StatsRecorderBenchmark {
+
+    private StatsRecorder statsRecorder;
+
+    @Setup
+    public void setup() {
+        statsRecorder = new StatsRecorder(Collections.emptyMap());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public void update() {
+        statsRecorder.recordUser(ChannelType.EMAIL, NotificationStatus.SUCCESS);
+        statsRecorder.recordSendLatency(ChannelType.EMAIL, 1_500_000);
+        statsRecorder.recordUser(ChannelType.SMS, NotificationStatus.NOT_APPLICABLE);
+        statsRecorder.recordSendLatency(ChannelType.SMS, 40_000_000);
+    }
+
+    @Benchmark
+    public Map<ChannelType, Stats> snapshot() {
+        return statsRecorder.snapshot();
+    }
+}
@@ -0,0 +1,78 @@
+package com.prince.serverless.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.opencsv.CSVReader;
+
+import com.prince.serverless.benchmark.BenchmarkSupport;
+
+/**
+ * Benchmark of parsing input file rows, reported per row. Reading with opencsv is included as a
+ * baseline.
+ *
+ * @author Prince Raj
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(BenchmarkSupport.ROWS)
+public class InputFileParserBenchmark {
+
+    private byte[] inputFile;
+
+    @Setup
+    public void setup() {
+        inputFile = BenchmarkSupport.createInputFile(BenchmarkSupport.ROWS);
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) throws IOException {
+        try (InputFileParser parser = new InputFileParser(new ByteArrayInputStream(inputFile))) {
+            blackhole.consume(parser.readHeader());
+
+            // fields are read as by notification service
+            InputFileParser.Row row = parser.getRow();
+            while (parser.nextRow()) {
+                if (row.isApplicable()) {
+                    blackhole.consume(row.getUserId());
+                    blackhole.consume(row.getEmailId());
+                    blackhole.consume(row.getMobileNumber());
+                    blackhole.consume(row.getDate());
+                } else {
+                    blackhole.consume(row.getUserId());
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void parseWithOpenCsv(Blackhole blackhole) throws IOException {
+        try (CSVReader reader = new CSVReader(new InputStreamReader(
+                new ByteArrayInputStream(inputFile), StandardCharsets.UTF_8))) {
+            String[] items;
+            while ((items = reader.readNext()) != null) {
+                blackhole.consume(items);
+            }
+        }
+    }
+}
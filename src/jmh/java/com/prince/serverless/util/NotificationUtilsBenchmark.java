@@ -0,0 +1,125 @@
+package com.prince.serverless.util;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.GenericApplicationContext;
+
+import com.prince.serverless.benchmark.BenchmarkSupport;
+import com.prince.serverless.model.FileItem;
+
+/**
+ * Benchmark of building message payloads of users with {@link PayloadEncoder}, compared to building
+ * them from a map with {@link JsonUtils#toJson(Object)}, and of populating placeholders of admin
+ * email templates.
+ *
+ * @author Prince Raj
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NotificationUtilsBenchmark {
+
+    private GenericApplicationContext context;
+
+    private NotificationUtils notificationUtils;
+
+    private FileItem fileItem;
+
+    private String emailBodyTemplate;
+
+    private Map<String, String> dataMap;
+
+    @Setup
+    public void setup() throws IOException {
+        context = BenchmarkSupport.createContext();
+        notificationUtils = context.getBean(NotificationUtils.class);
+
+        fileItem = new FileItem();
+        fileItem.setUserId("userid12345");
+        fileItem.setEmailId("hello@example.com");
+        fileItem.setMobileNumber("9999999999");
+        fileItem.setDate("12-May-2019");
+        fileItem.setSendEmail(true);
+        fileItem.setSendSms(true);
+        fileItem.setSendAndroidPush(true);
+
+        emailBodyTemplate = BenchmarkSupport.loadEmailBodyTemplate();
+
+        // data map as populated for admin email
+        dataMap = new HashMap<>();
+        dataMap.put(Constants.NAME, "hello@example.com");
+        dataMap.put(Constants.DATE, "01-Jul-2019 10:00:00 IST");
+        dataMap.put(Constants.TOTAL_EXECUTION_TIME, "12");
+        dataMap.put(Constants.FILE_NAME, "ActiveUserFile_20190701.csv000");
+        dataMap.put(Constants.FILE_TYPE, "ActiveUserFile");
+        dataMap.put("email" + Constants.TOTAL_USERS_COUNT, "1000000");
+        dataMap.put("email" + Constants.SUCCESS_USERS_COUNT, "900000");
+        dataMap.put("email" + Constants.FAILED_USERS_COUNT, "1000");
+        dataMap.put("email" + Constants.NOT_APPLICABLE_USERS_COUNT, "99000");
+        dataMap.put("email" + Constants.DUPLICATE_USERS_COUNT, "500");
+        dataMap.put("email" + Constants.SUPPRESSED_USERS_COUNT, "2000");
+        dataMap.put("sms" + Constants.TOTAL_USERS_COUNT, "1000000");
+        dataMap.put("sms" + Constants.SUCCESS_USERS_COUNT, "800000");
+        dataMap.put("sms" + Constants.FAILED_USERS_COUNT, "2000");
+        dataMap.put("sms" + Constants.NOT_APPLICABLE_USERS_COUNT, "198000");
+        dataMap.put("sms" + Constants.DUPLICATE_USERS_COUNT, "300");
+        dataMap.put("sms" + Constants.SUPPRESSED_USERS_COUNT, "1000");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String emailPayload() {
+        return notificationUtils.getPayload(ChannelType.EMAIL, fileItem);
+    }
+
+    @Benchmark
+    public String smsPayload() {
+        return notificationUtils.getPayload(ChannelType.SMS, fileItem);
+    }
+
+    @Benchmark
+    public String androidPushPayload() {
+        return notificationUtils.getPayload(ChannelType.ANDROID_PUSH, fileItem);
+    }
+
+    @Benchmark
+    public String emailPayloadFromMap() {
+        Map<String, Object> payloadMap = new HashMap<>();
+        payloadMap.put(Constants.DATE, fileItem.getDate());
+        payloadMap.put(Constants.EMAIL_ID, fileItem.getEmailId());
+
+        return JsonUtils.toJson(payloadMap);
+    }
+
+    @Benchmark
+    public String populateSubjectPlaceholders() {
+        return notificationUtils.populatePlaceholders(
+                Constants.NOTIFICATION_ACTIVITY_SUBJECT_TEMPLATE, dataMap);
+    }
+
+    @Benchmark
+    public String populateBodyPlaceholders() {
+        return notificationUtils.populatePlaceholders(emailBodyTemplate, dataMap);
+    }
+}
@@ -0,0 +1,90 @@
+package com.prince.serverless.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.prince.serverless.benchmark.BenchmarkSupport;
+
+/**
+ * Benchmark of compressing an output file, reported per file. Compressing with a single
+ * GZIPOutputStream is included as a baseline. Returns compressed size, so that ratio of block
+ * sizes can be compared too.
+ *
+ * @author Prince Raj
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelGzipOutputStreamBenchmark {
+
+    // write size of the writer of csv writer
+    private static final int WRITE_SIZE = 8192;
+
+    private static final int ROWS = BenchmarkSupport.ROWS * 10;
+
+    @Param({"1", "4"})
+    private int parallelism;
+
+    @Param({"262144", "1048576"})
+    private int blockSize;
+
+    private byte[] outputFile;
+
+    @Setup
+    public void setup() {
+        // output rows are input rows followed by notification statuses
+        String inputFile =
+                new String(BenchmarkSupport.createInputFile(ROWS), StandardCharsets.UTF_8);
+        StringBuilder outputFile = new StringBuilder();
+        for (String line : inputFile.split("\n")) {
+            outputFile.append(line).append(",SUCCESS,NOT_APPLICABLE\n");
+        }
+        this.outputFile = outputFile.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public long compress() throws IOException {
+        CountingOutputStream countingStream = new CountingOutputStream(new NullOutputStream());
+        write(new ParallelGzipOutputStream(countingStream, Deflater.DEFAULT_COMPRESSION,
+                blockSize, parallelism));
+
+        return countingStream.getByteCount();
+    }
+
+    @Benchmark
+    public long compressWithGzipOutputStream() throws IOException {
+        CountingOutputStream countingStream = new CountingOutputStream(new NullOutputStream());
+        write(new GZIPOutputStream(countingStream, WRITE_SIZE));
+
+        return countingStream.getByteCount();
+    }
+
+    private void write(OutputStream outputStream) throws IOException {
+        try (OutputStream stream = outputStream) {
+            for (int offset = 0; offset < outputFile.length; offset += WRITE_SIZE) {
+                stream.write(outputFile, offset, Math.min(WRITE_SIZE, outputFile.length - offset));
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.prince.serverless.local;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.apache.http.HttpStatus;
+
+import com.amazonaws.services.lambda.AbstractAWSLambda;
+import com.amazonaws.services.lambda.model.InvocationType;
+import com.amazonaws.services.lambda.model.InvokeRequest;
+import com.amazonaws.services.lambda.model.InvokeResult;
+import com.amazonaws.services.lambda.model.ResourceNotFoundException;
+import com.amazonaws.util.BinaryUtils;
+
+/**
+ * In-memory stand-in for Lambda, for benchmarks and local runs without AWS.
+ *
+ * Supports asynchronous invocations of functions registered as payload consumers. Invocations run
+ * on a pool of background threads, in the order they are made if there is a single thread.
+ *
+ * @author Prince Raj
+ */
+public class InMemoryAWSLambda extends AbstractAWSLambda {
+
+    private final Map<String, Consumer<String>> functions = new ConcurrentHashMap<>();
+
+    private final ExecutorService executorService;
+
+    private final AtomicInteger pendingInvocations = new AtomicInteger();
+
+    public InMemoryAWSLambda() {
+        this(1);
+    }
+
+    /**
+     * @param concurrency max invocations running at a time
+     */
+    public InMemoryAWSLambda(int concurrency) {
+        executorService = Executors.newFixedThreadPool(Math.max(1, concurrency));
+    }
+
+    /**
+     * @param functionName function name or arn
+     * @param function consumer of invocation payload
+     */
+    public void registerFunction(String functionName, Consumer<String> function) {
+        functions.put(functionName, function);
+    }
+
+    /**
+     * Wait until there is no pending invocation, including the ones made by invocations.
+     *
+     * @param timeout timeout
+     * @param unit unit of timeout
+     * @return true if there is no pending invocation
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (pendingInvocations) {
+            while (pendingInvocations.get() > 0) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return false;
+                }
+                pendingInvocations.wait(remaining);
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public InvokeResult invoke(InvokeRequest request) {
+        Consumer<String> function = functions.get(request.getFunctionName());
+        if (function == null) {
+            throw new ResourceNotFoundException("Function not found: " + request.getFunctionName());
+        }
+        if (!InvocationType.Event.toString().equals(request.getInvocationType())) {
+            throw new UnsupportedOperationException("Only Event invocations are supported");
+        }
+
+        String payload = new String(BinaryUtils.copyAllBytesFrom(request.getPayload()),
+                StandardCharsets.UTF_8);
+
+        pendingInvocations.incrementAndGet();
+        executorService.execute(() -> {
+            try {
+                function.accept(payload);
+            } finally {
+                synchronized (pendingInvocations) {
+                    pendingInvocations.decrementAndGet();
+                    pendingInvocations.notifyAll();
+                }
+            }
+        });
+
+        return new InvokeResult().withStatusCode(HttpStatus.SC_ACCEPTED);
+    }
+
+    @Override
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+}
@@ -0,0 +1,388 @@
+package com.prince.serverless.local;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpStatus;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.CopyPartRequest;
+import com.amazonaws.services.s3.model.CopyPartResult;
+import com.amazonaws.services.s3.model.DeleteObjectRequest;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.Md5Utils;
+
+/**
+ * In-memory stand-in for S3, for benchmarks and local runs without AWS.
+ *
+ * Supports the operations used by the accessors: object metadata, ranged and ETag constrained gets,
+ * puts, multipart uploads including copied parts, listing and deletes. Objects are kept in memory,
+ * keyed by bucket and object key, and buckets are created on first use.
+ *
+ * @author Prince Raj
+ */
+@SuppressWarnings("unused")
+public class InMemoryAmazonS3 extends AbstractAmazonS3 {
+
+    private final ConcurrentMap<String, ConcurrentNavigableMap<String, StoredObject>> buckets =
+            new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, ConcurrentMap<Integer, byte[]>> multipartUploads =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Content of the object, without copying it through a stream.
+     *
+     * @param bucketName bucket name
+     * @param key object key
+     * @return object content, null if object doesn't exist
+     */
+    public byte[] getObjectBytes(String bucketName, String key) {
+        StoredObject object = getBucket(bucketName).get(key);
+        return object == null ? null : object.content;
+    }
+
+    /**
+     * Put object content, without copying it through a stream.
+     *
+     * @param bucketName bucket name
+     * @param key object key
+     * @param content object content
+     */
+    public void putObjectBytes(String bucketName, String key, byte[] content) {
+        getBucket(bucketName).put(key, new StoredObject(content, eTag(content)));
+    }
+
+    @Override
+    public ObjectMetadata getObjectMetadata(String bucketName, String key) {
+        return getObjectMetadata(new GetObjectMetadataRequest(bucketName, key));
+    }
+
+    @Override
+    public ObjectMetadata getObjectMetadata(GetObjectMetadataRequest request) {
+        StoredObject object = getRequiredObject(request.getBucketName(), request.getKey());
+        return object.getMetadata(object.content.length);
+    }
+
+    @Override
+    public boolean doesObjectExist(String bucketName, String objectName) {
+        return getBucket(bucketName).containsKey(objectName);
+    }
+
+    @Override
+    public S3Object getObject(String bucketName, String key) {
+        return getObject(new GetObjectRequest(bucketName, key));
+    }
+
+    @Override
+    public S3Object getObject(GetObjectRequest request) {
+        StoredObject object = getRequiredObject(request.getBucketName(), request.getKey());
+
+        // like the s3 client, null is returned if constraints are not met
+        List<String> matchingETags = request.getMatchingETagConstraints();
+        if (!matchingETags.isEmpty() && !matchingETags.contains(object.eTag)) {
+            return null;
+        }
+
+        int start = 0;
+        int end = object.content.length;
+        long[] range = request.getRange();
+        if (range != null) {
+            start = (int) Math.min(range[0], object.content.length);
+            end = (int) Math.min(range[1] + 1, object.content.length);
+        }
+
+        S3Object s3Object = new S3Object();
+        s3Object.setBucketName(request.getBucketName());
+        s3Object.setKey(request.getKey());
+        s3Object.setObjectMetadata(object.getMetadata(end - start));
+        s3Object.setObjectContent(new ByteArrayInputStream(object.content, start, end - start));
+
+        return s3Object;
+    }
+
+    @Override
+    public PutObjectResult putObject(String bucketName, String key, String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(bytes.length);
+
+        return putObject(new PutObjectRequest(bucketName, key, new ByteArrayInputStream(bytes),
+                metadata));
+    }
+
+    /**
+     * Put object, honoring If-Match and If-None-Match headers of the request like S3 does for
+     * conditional writes.
+     */
+    @Override
+    public PutObjectResult putObject(PutObjectRequest request) {
+        byte[] content = readContent(request.getInputStream(), request.getFile(), 0, -1);
+        StoredObject object = new StoredObject(content, eTag(content));
+
+        Map<String, String> headers = request.getCustomRequestHeaders();
+        String ifMatch = headers != null ? headers.get(Headers.GET_OBJECT_IF_MATCH) : null;
+        String ifNoneMatch = headers != null ? headers.get(Headers.GET_OBJECT_IF_NONE_MATCH) : null;
+        getBucket(request.getBucketName()).compute(request.getKey(), (key, current) -> {
+            if ((ifMatch != null && (current == null || !ifMatch.equals(current.eTag)))
+                    || (ifNoneMatch != null && current != null)) {
+                throw newException(HttpStatus.SC_PRECONDITION_FAILED, "PreconditionFailed");
+            }
+            return object;
+        });
+
+        PutObjectResult result = new PutObjectResult();
+        result.setETag(object.eTag);
+        result.setMetadata(object.getMetadata(content.length));
+
+        return result;
+    }
+
+    @Override
+    public InitiateMultipartUploadResult initiateMultipartUpload(
+            InitiateMultipartUploadRequest request) {
+        String uploadId = UUID.randomUUID().toString();
+        multipartUploads.put(uploadId, new ConcurrentHashMap<>());
+
+        InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+        result.setBucketName(request.getBucketName());
+        result.setKey(request.getKey());
+        result.setUploadId(uploadId);
+
+        return result;
+    }
+
+    @Override
+    public UploadPartResult uploadPart(UploadPartRequest request) {
+        ConcurrentMap<Integer, byte[]> parts = getRequiredUpload(request.getUploadId());
+
+        byte[] content = readContent(request.getInputStream(), request.getFile(),
+                request.getFileOffset(), request.getPartSize());
+        parts.put(request.getPartNumber(), content);
+
+        UploadPartResult result = new UploadPartResult();
+        result.setPartNumber(request.getPartNumber());
+        result.setETag(BinaryUtils.toHex(Md5Utils.computeMD5Hash(content)));
+
+        return result;
+    }
+
+    @Override
+    public CopyPartResult copyPart(CopyPartRequest request) {
+        ConcurrentMap<Integer, byte[]> parts = getRequiredUpload(request.getUploadId());
+
+        StoredObject source =
+                getRequiredObject(request.getSourceBucketName(), request.getSourceKey());
+        parts.put(request.getPartNumber(), source.content);
+
+        CopyPartResult result = new CopyPartResult();
+        result.setPartNumber(request.getPartNumber());
+        result.setETag(eTag(source.content));
+
+        return result;
+    }
+
+    @Override
+    public CompleteMultipartUploadResult completeMultipartUpload(
+            CompleteMultipartUploadRequest request) {
+        ConcurrentMap<Integer, byte[]> parts = getRequiredUpload(request.getUploadId());
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        ByteArrayOutputStream digests = new ByteArrayOutputStream();
+        for (PartETag partETag : request.getPartETags()) {
+            byte[] part = parts.get(partETag.getPartNumber());
+            if (part == null) {
+                throw newException(HttpStatus.SC_BAD_REQUEST, "InvalidPart");
+            }
+
+            content.write(part, 0, part.length);
+            byte[] digest = Md5Utils.computeMD5Hash(part);
+            digests.write(digest, 0, digest.length);
+        }
+        multipartUploads.remove(request.getUploadId());
+
+        // multipart ETag is digest of part digests, suffixed by number of parts
+        String eTag = BinaryUtils.toHex(Md5Utils.computeMD5Hash(digests.toByteArray())) + "-"
+                + request.getPartETags().size();
+        getBucket(request.getBucketName()).put(request.getKey(),
+                new StoredObject(content.toByteArray(), eTag));
+
+        CompleteMultipartUploadResult result = new CompleteMultipartUploadResult();
+        result.setBucketName(request.getBucketName());
+        result.setKey(request.getKey());
+        result.setETag(eTag);
+
+        return result;
+    }
+
+    @Override
+    public void abortMultipartUpload(AbortMultipartUploadRequest request) {
+        if (multipartUploads.remove(request.getUploadId()) == null) {
+            throw newException(HttpStatus.SC_NOT_FOUND, "NoSuchUpload");
+        }
+    }
+
+    @Override
+    public ObjectListing listObjects(String bucketName, String prefix) {
+        return listObjects(new ListObjectsRequest().withBucketName(bucketName).withPrefix(prefix));
+    }
+
+    @Override
+    public ObjectListing listObjects(ListObjectsRequest request) {
+        String prefix = request.getPrefix() == null ? "" : request.getPrefix();
+        int maxKeys = request.getMaxKeys() == null ? 1000 : request.getMaxKeys();
+
+        // keys are sorted, so listing starts after marker and stops at first key out of prefix
+        ConcurrentNavigableMap<String, StoredObject> bucket = getBucket(request.getBucketName());
+        ConcurrentNavigableMap<String, StoredObject> keys = request.getMarker() == null
+                ? bucket.tailMap(prefix, true) : bucket.tailMap(request.getMarker(), false);
+
+        ObjectListing listing = new ObjectListing();
+        listing.setBucketName(request.getBucketName());
+        listing.setPrefix(request.getPrefix());
+        listing.setMarker(request.getMarker());
+        listing.setMaxKeys(maxKeys);
+
+        for (Map.Entry<String, StoredObject> entry : keys.entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            if (listing.getObjectSummaries().size() == maxKeys) {
+                listing.setTruncated(true);
+                break;
+            }
+
+            S3ObjectSummary summary = new S3ObjectSummary();
+            summary.setBucketName(request.getBucketName());
+            summary.setKey(entry.getKey());
+            summary.setSize(entry.getValue().content.length);
+            summary.setETag(entry.getValue().eTag);
+            summary.setLastModified(entry.getValue().lastModified);
+            listing.getObjectSummaries().add(summary);
+            listing.setNextMarker(entry.getKey());
+        }
+
+        return listing;
+    }
+
+    @Override
+    public void deleteObject(String bucketName, String key) {
+        getBucket(bucketName).remove(key);
+    }
+
+    @Override
+    public void deleteObject(DeleteObjectRequest request) {
+        deleteObject(request.getBucketName(), request.getKey());
+    }
+
+    private ConcurrentNavigableMap<String, StoredObject> getBucket(String bucketName) {
+        return buckets.computeIfAbsent(bucketName, name -> new ConcurrentSkipListMap<>());
+    }
+
+    private StoredObject getRequiredObject(String bucketName, String key) {
+        StoredObject object = getBucket(bucketName).get(key);
+        if (object == null) {
+            throw newException(HttpStatus.SC_NOT_FOUND, "NoSuchKey");
+        }
+
+        return object;
+    }
+
+    private ConcurrentMap<Integer, byte[]> getRequiredUpload(String uploadId) {
+        ConcurrentMap<Integer, byte[]> parts = multipartUploads.get(uploadId);
+        if (parts == null) {
+            throw newException(HttpStatus.SC_NOT_FOUND, "NoSuchUpload");
+        }
+
+        return parts;
+    }
+
+    private byte[] readContent(InputStream inputStream, File file, long fileOffset, long length) {
+        try {
+            if (file != null) {
+                try (InputStream fileInputStream = new FileInputStream(file)) {
+                    IOUtils.skipFully(fileInputStream, fileOffset);
+                    return readContent(fileInputStream, length);
+                }
+            }
+
+            return readContent(inputStream, length);
+        } catch (IOException ex) {
+            throw new SdkClientException("Failed to read object content", ex);
+        }
+    }
+
+    private byte[] readContent(InputStream inputStream, long length) throws IOException {
+        return length < 0 ? IOUtils.toByteArray(inputStream)
+                : IOUtils.toByteArray(inputStream, length);
+    }
+
+    private static String eTag(byte[] content) {
+        return BinaryUtils.toHex(Md5Utils.computeMD5Hash(content));
+    }
+
+    private static AmazonS3Exception newException(int statusCode, String errorCode) {
+        AmazonS3Exception exception = new AmazonS3Exception(errorCode);
+        exception.setStatusCode(statusCode);
+        exception.setErrorCode(errorCode);
+
+        return exception;
+    }
+
+    private static class StoredObject {
+
+        private final byte[] content;
+
+        private final String eTag;
+
+        private final Date lastModified = new Date();
+
+        private StoredObject(byte[] content, String eTag) {
+            this.content = content;
+            this.eTag = eTag;
+        }
+
+        private ObjectMetadata getMetadata(long contentLength) {
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(contentLength);
+            metadata.setHeader(Headers.ETAG, eTag);
+            metadata.setLastModified(lastModified);
+
+            return metadata;
+        }
+    }
+}
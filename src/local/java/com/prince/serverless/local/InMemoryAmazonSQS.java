@@ -0,0 +1,358 @@
+package com.prince.serverless.local;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.amazonaws.services.sqs.AbstractAmazonSQS;
+import com.amazonaws.services.sqs.model.BatchRequestTooLongException;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResult;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResultEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityRequest;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityResult;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResultEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageResult;
+import com.amazonaws.services.sqs.model.EmptyBatchRequestException;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.MessageNotInflightException;
+import com.amazonaws.services.sqs.model.MessageSystemAttributeName;
+import com.amazonaws.services.sqs.model.PurgeQueueRequest;
+import com.amazonaws.services.sqs.model.PurgeQueueResult;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import com.amazonaws.services.sqs.model.SendMessageBatchResultEntry;
+import com.amazonaws.services.sqs.model.SendMessageRequest;
+import com.amazonaws.services.sqs.model.SendMessageResult;
+import com.amazonaws.services.sqs.model.TooManyEntriesInBatchRequestException;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.Md5Utils;
+
+/**
+ * In-memory stand-in for SQS, for benchmarks and local runs without AWS.
+ *
+ * Supports sending, receiving with long polling and visibility timeout, changing visibility timeout,
+ * deleting and purging messages. Queues are keyed by queue url and created on first use. Batch limits of SQS are
+ * enforced, so batching code behaves as it does against SQS. Send requests can be given a latency,
+ * to compare senders where request latency rather than CPU dominates, as it does against SQS.
+ *
+ * @author Prince Raj
+ */
+@SuppressWarnings("unused")
+public class InMemoryAmazonSQS extends AbstractAmazonSQS {
+
+    private static final int MAX_BATCH_SIZE = 10;
+
+    private static final int MAX_BATCH_BYTES = 256 * 1024;
+
+    private static final int DEFAULT_VISIBILITY_TIMEOUT_SECONDS = 30;
+
+    private final ConcurrentMap<String, InMemoryQueue> queues = new ConcurrentHashMap<>();
+
+    private volatile long sendLatencyMicros;
+
+    /**
+     * @param sendLatencyMicros time every send request takes, 0 by default
+     */
+    public void setSendLatencyMicros(long sendLatencyMicros) {
+        this.sendLatencyMicros = sendLatencyMicros;
+    }
+
+    public long getSendLatencyMicros() {
+        return sendLatencyMicros;
+    }
+
+    /**
+     * Number of messages in the queue, including messages which are not visible.
+     *
+     * @param queueUrl queue url
+     * @return number of messages
+     */
+    public int getMessageCount(String queueUrl) {
+        return getQueue(queueUrl).size();
+    }
+
+    @Override
+    public SendMessageResult sendMessage(SendMessageRequest request) {
+        awaitSendLatency();
+        Message message = getQueue(request.getQueueUrl()).add(request.getMessageBody(),
+                request.getMessageGroupId());
+
+        return new SendMessageResult().withMessageId(message.getMessageId())
+                .withMD5OfMessageBody(message.getMD5OfBody());
+    }
+
+    @Override
+    public SendMessageBatchResult sendMessageBatch(SendMessageBatchRequest request) {
+        awaitSendLatency();
+        return addBatch(request);
+    }
+
+    /**
+     * Send messages of a batch request without the send latency, which the caller takes care of.
+     *
+     * @param request send message batch request
+     * @return send message batch result
+     */
+    SendMessageBatchResult addBatch(SendMessageBatchRequest request) {
+        List<SendMessageBatchRequestEntry> entries = request.getEntries();
+        validateBatchSize(entries.size());
+
+        int totalBytes = 0;
+        for (SendMessageBatchRequestEntry entry : entries) {
+            totalBytes += entry.getMessageBody().getBytes(StandardCharsets.UTF_8).length;
+        }
+        if (totalBytes > MAX_BATCH_BYTES) {
+            throw new BatchRequestTooLongException("Batch requests cannot be longer than "
+                    + MAX_BATCH_BYTES + " bytes");
+        }
+
+        InMemoryQueue queue = getQueue(request.getQueueUrl());
+        SendMessageBatchResult result = new SendMessageBatchResult();
+        for (SendMessageBatchRequestEntry entry : entries) {
+            Message message = queue.add(entry.getMessageBody(), entry.getMessageGroupId());
+            result.getSuccessful().add(new SendMessageBatchResultEntry().withId(entry.getId())
+                    .withMessageId(message.getMessageId())
+                    .withMD5OfMessageBody(message.getMD5OfBody()));
+        }
+
+        return result;
+    }
+
+    @Override
+    public ReceiveMessageResult receiveMessage(ReceiveMessageRequest request) {
+        int maxMessages = request.getMaxNumberOfMessages() == null ? 1
+                : request.getMaxNumberOfMessages();
+        int visibilityTimeout = request.getVisibilityTimeout() == null
+                ? DEFAULT_VISIBILITY_TIMEOUT_SECONDS : request.getVisibilityTimeout();
+        int waitTime = request.getWaitTimeSeconds() == null ? 0 : request.getWaitTimeSeconds();
+
+        List<Message> messages;
+        try {
+            messages = getQueue(request.getQueueUrl()).receive(maxMessages,
+                    TimeUnit.SECONDS.toMillis(visibilityTimeout),
+                    TimeUnit.SECONDS.toMillis(waitTime));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            messages = new ArrayList<>();
+        }
+
+        return new ReceiveMessageResult().withMessages(messages);
+    }
+
+    @Override
+    public DeleteMessageResult deleteMessage(DeleteMessageRequest request) {
+        // like SQS, deleting a message which is already deleted or visible again succeeds
+        getQueue(request.getQueueUrl()).delete(request.getReceiptHandle());
+
+        return new DeleteMessageResult();
+    }
+
+    @Override
+    public DeleteMessageBatchResult deleteMessageBatch(DeleteMessageBatchRequest request) {
+        List<DeleteMessageBatchRequestEntry> entries = request.getEntries();
+        validateBatchSize(entries.size());
+
+        InMemoryQueue queue = getQueue(request.getQueueUrl());
+        DeleteMessageBatchResult result = new DeleteMessageBatchResult();
+        for (DeleteMessageBatchRequestEntry entry : entries) {
+            queue.delete(entry.getReceiptHandle());
+            result.getSuccessful().add(new DeleteMessageBatchResultEntry().withId(entry.getId()));
+        }
+
+        return result;
+    }
+
+    @Override
+    public ChangeMessageVisibilityResult changeMessageVisibility(
+            ChangeMessageVisibilityRequest request) {
+        boolean changed = getQueue(request.getQueueUrl()).changeVisibility(
+                request.getReceiptHandle(),
+                TimeUnit.SECONDS.toMillis(request.getVisibilityTimeout()));
+        if (!changed) {
+            throw new MessageNotInflightException("Message is not in flight");
+        }
+
+        return new ChangeMessageVisibilityResult();
+    }
+
+    @Override
+    public ChangeMessageVisibilityBatchResult changeMessageVisibilityBatch(
+            ChangeMessageVisibilityBatchRequest request) {
+        List<ChangeMessageVisibilityBatchRequestEntry> entries = request.getEntries();
+        validateBatchSize(entries.size());
+
+        InMemoryQueue queue = getQueue(request.getQueueUrl());
+        ChangeMessageVisibilityBatchResult result = new ChangeMessageVisibilityBatchResult();
+        for (ChangeMessageVisibilityBatchRequestEntry entry : entries) {
+            if (queue.changeVisibility(entry.getReceiptHandle(),
+                    TimeUnit.SECONDS.toMillis(entry.getVisibilityTimeout()))) {
+                result.getSuccessful().add(
+                        new ChangeMessageVisibilityBatchResultEntry().withId(entry.getId()));
+            } else {
+                result.getFailed().add(new BatchResultErrorEntry().withId(entry.getId())
+                        .withCode("AWS.SimpleQueueService.MessageNotInflight")
+                        .withMessage("Message is not in flight").withSenderFault(true));
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public PurgeQueueResult purgeQueue(PurgeQueueRequest request) {
+        getQueue(request.getQueueUrl()).purge();
+        return new PurgeQueueResult();
+    }
+
+    private void awaitSendLatency() {
+        if (sendLatencyMicros > 0) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(sendLatencyMicros));
+        }
+    }
+
+    private void validateBatchSize(int size) {
+        if (size == 0) {
+            throw new EmptyBatchRequestException("Batch request doesn't contain any entries");
+        }
+        if (size > MAX_BATCH_SIZE) {
+            throw new TooManyEntriesInBatchRequestException("Maximum number of entries per "
+                    + "request are " + MAX_BATCH_SIZE);
+        }
+    }
+
+    private InMemoryQueue getQueue(String queueUrl) {
+        return queues.computeIfAbsent(queueUrl, url -> new InMemoryQueue());
+    }
+
+    /**
+     * Queue of messages, guarded by its monitor. Received messages are kept as in flight until they
+     * are deleted or their visibility timeout expires.
+     */
+    private static class InMemoryQueue {
+
+        private final Deque<Message> visibleMessages = new ArrayDeque<>();
+
+        // receipt handle to in flight message, in order of receipt
+        private final Map<String, InFlightMessage> inFlightMessages = new LinkedHashMap<>();
+
+        private synchronized Message add(String body, String groupId) {
+            Message message = new Message().withMessageId(UUID.randomUUID().toString())
+                    .withBody(body).withMD5OfBody(BinaryUtils
+                            .toHex(Md5Utils.computeMD5Hash(body.getBytes(StandardCharsets.UTF_8))));
+            if (groupId != null) {
+                message.addAttributesEntry(MessageSystemAttributeName.MessageGroupId.toString(),
+                        groupId);
+            }
+
+            visibleMessages.addLast(message);
+            notifyAll();
+
+            return message;
+        }
+
+        private synchronized List<Message> receive(int maxMessages, long visibilityTimeoutMillis,
+                long waitTimeMillis) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + waitTimeMillis;
+
+            restoreExpiredMessages();
+            long remaining = waitTimeMillis;
+            while (visibleMessages.isEmpty() && remaining > 0) {
+                wait(remaining);
+                restoreExpiredMessages();
+                remaining = deadline - System.currentTimeMillis();
+            }
+
+            List<Message> messages = new ArrayList<>();
+            long invisibleUntil = System.currentTimeMillis() + visibilityTimeoutMillis;
+            while (messages.size() < maxMessages && !visibleMessages.isEmpty()) {
+                Message message = visibleMessages.pollFirst();
+
+                // every receive gets a new receipt handle
+                Message received = message.clone().withReceiptHandle(UUID.randomUUID().toString());
+                inFlightMessages.put(received.getReceiptHandle(),
+                        new InFlightMessage(message, invisibleUntil));
+                messages.add(received);
+            }
+
+            return messages;
+        }
+
+        private synchronized void delete(String receiptHandle) {
+            inFlightMessages.remove(receiptHandle);
+        }
+
+        private synchronized boolean changeVisibility(String receiptHandle,
+                long visibilityTimeoutMillis) {
+            restoreExpiredMessages();
+
+            InFlightMessage inFlightMessage = inFlightMessages.get(receiptHandle);
+            if (inFlightMessage == null) {
+                return false;
+            }
+
+            if (visibilityTimeoutMillis == 0) {
+                inFlightMessages.remove(receiptHandle);
+                visibleMessages.addLast(inFlightMessage.message);
+                notifyAll();
+            } else {
+                inFlightMessage.invisibleUntil =
+                        System.currentTimeMillis() + visibilityTimeoutMillis;
+            }
+
+            return true;
+        }
+
+        private synchronized void purge() {
+            visibleMessages.clear();
+            inFlightMessages.clear();
+        }
+
+        private synchronized int size() {
+            return visibleMessages.size() + inFlightMessages.size();
+        }
+
+        private void restoreExpiredMessages() {
+            long now = System.currentTimeMillis();
+            Iterator<InFlightMessage> iterator = inFlightMessages.values().iterator();
+            while (iterator.hasNext()) {
+                InFlightMessage inFlightMessage = iterator.next();
+                if (inFlightMessage.invisibleUntil <= now) {
+                    iterator.remove();
+                    visibleMessages.addLast(inFlightMessage.message);
+                }
+            }
+        }
+    }
+
+    private static class InFlightMessage {
+
+        private final Message message;
+
+        private long invisibleUntil;
+
+        private InFlightMessage(Message message, long invisibleUntil) {
+            this.message = message;
+            this.invisibleUntil = invisibleUntil;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.prince.serverless.local;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.sqs.AbstractAmazonSQSAsync;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+
+/**
+ * In-memory stand-in for the async SQS client, sending to the queues of an {@link
+ * InMemoryAmazonSQS}. Send latency of the queues is waited on a timer rather than on a thread per
+ * request, like a client with non-blocking IO, so that many requests can be in flight at once.
+ *
+ * @author Prince Raj
+ */
+@SuppressWarnings("unused")
+public class InMemoryAmazonSQSAsync extends AbstractAmazonSQSAsync {
+
+    private final InMemoryAmazonSQS sqsClient;
+
+    private final ScheduledExecutorService executorService;
+
+    /**
+     * @param sqsClient stand-in whose queues messages are sent to
+     */
+    public InMemoryAmazonSQSAsync(InMemoryAmazonSQS sqsClient) {
+        this.sqsClient = sqsClient;
+        this.executorService = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "in-memory-sqs-async");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public Future<SendMessageBatchResult> sendMessageBatchAsync(SendMessageBatchRequest request) {
+        return sendMessageBatchAsync(request, null);
+    }
+
+    @Override
+    public Future<SendMessageBatchResult> sendMessageBatchAsync(SendMessageBatchRequest request,
+            AsyncHandler<SendMessageBatchRequest, SendMessageBatchResult> asyncHandler) {
+        CompletableFuture<SendMessageBatchResult> future = new CompletableFuture<>();
+        executorService.schedule(() -> {
+            SendMessageBatchResult result;
+            try {
+                result = sqsClient.addBatch(request);
+            } catch (RuntimeException ex) {
+                if (asyncHandler != null) {
+                    asyncHandler.onError(ex);
+                }
+                future.completeExceptionally(ex);
+                return;
+            }
+
+            if (asyncHandler != null) {
+                asyncHandler.onSuccess(request, result);
+            }
+            future.complete(result);
+        }, sqsClient.getSendLatencyMicros(), TimeUnit.MICROSECONDS);
+
+        return future;
+    }
+
+    @Override
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+}
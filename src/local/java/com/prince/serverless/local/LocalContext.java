@@ -0,0 +1,88 @@
+package com.prince.serverless.local;
+
+import java.util.UUID;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+
+/**
+ * Lambda context for local runs, with the time limit of an invocation starting at creation.
+ *
+ * @author Prince Raj
+ */
+public class LocalContext implements Context {
+
+    private static final int MEMORY_LIMIT_IN_MB = 1024;
+
+    private final String functionName;
+
+    private final String awsRequestId = UUID.randomUUID().toString();
+
+    private final long deadline;
+
+    /**
+     * @param functionName function name, which is also used as function arn
+     * @param timeoutMillis time limit of the invocation
+     */
+    public LocalContext(String functionName, long timeoutMillis) {
+        this.functionName = functionName;
+        this.deadline = System.currentTimeMillis() + timeoutMillis;
+    }
+
+    @Override
+    public String getAwsRequestId() {
+        return awsRequestId;
+    }
+
+    @Override
+    public String getLogGroupName() {
+        return "/aws/lambda/" + functionName;
+    }
+
+    @Override
+    public String getLogStreamName() {
+        return awsRequestId;
+    }
+
+    @Override
+    public String getFunctionName() {
+        return functionName;
+    }
+
+    @Override
+    public String getFunctionVersion() {
+        return "$LATEST";
+    }
+
+    @Override
+    public String getInvokedFunctionArn() {
+        return functionName;
+    }
+
+    @Override
+    public CognitoIdentity getIdentity() {
+        return null;
+    }
+
+    @Override
+    public ClientContext getClientContext() {
+        return null;
+    }
+
+    @Override
+    public int getRemainingTimeInMillis() {
+        return (int) Math.max(0, deadline - System.currentTimeMillis());
+    }
+
+    @Override
+    public int getMemoryLimitInMB() {
+        return MEMORY_LIMIT_IN_MB;
+    }
+
+    @Override
+    public LambdaLogger getLogger() {
+        return System.out::println;
+    }
+}
@@ -0,0 +1,116 @@
+package com.prince.serverless.local;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.context.support.GenericApplicationContext;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.s3.event.S3EventNotification;
+import com.amazonaws.services.s3.event.S3EventNotification.S3EventNotificationRecord;
+
+import com.prince.serverless.accessor.AmazonLambdaClientAccessor;
+import com.prince.serverless.accessor.AmazonS3ClientAccessor;
+import com.prince.serverless.accessor.AmazonSQSClientAccessor;
+import com.prince.serverless.config.AmazonLambdaClientConfig;
+import com.prince.serverless.config.AmazonS3ClientConfig;
+import com.prince.serverless.config.AmazonSQSClientConfig;
+import com.prince.serverless.config.FunctionalSpringConfig;
+import com.prince.serverless.service.NotificationService;
+
+/**
+ * Spring configuration for benchmarks and local runs. Beans are same as {@link
+ * FunctionalSpringConfig}, except that accessors use in-memory stand-ins of S3, SQS and Lambda,
+ * which are registered as beans as well. The stand-in of Lambda runs {@link
+ * NotificationService#processFile(String, Context)} for S3 events sent to {@link #FUNCTION_NAME}.
+ *
+ * @author Prince Raj
+ */
+public class LocalSpringConfig extends FunctionalSpringConfig {
+
+    public static final String FUNCTION_NAME = "local-notification-function";
+
+    private static final long DEFAULT_FUNCTION_TIMEOUT_MILLIS = 15 * 60 * 1000;
+
+    private final Logger log = LogManager.getLogger(this.getClass());
+
+    private final long functionTimeoutMillis;
+
+    private final int functionConcurrency;
+
+    public LocalSpringConfig() {
+        this(DEFAULT_FUNCTION_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param functionTimeoutMillis time limit of invocations of the local function
+     */
+    public LocalSpringConfig(long functionTimeoutMillis) {
+        this(functionTimeoutMillis, 1);
+    }
+
+    /**
+     * @param functionTimeoutMillis time limit of invocations of the local function
+     * @param functionConcurrency max invocations of the local function running at a time, e.g.
+     *        shards of a file
+     */
+    public LocalSpringConfig(long functionTimeoutMillis, int functionConcurrency) {
+        this.functionTimeoutMillis = functionTimeoutMillis;
+        this.functionConcurrency = functionConcurrency;
+    }
+
+    @Override
+    public void initialize(GenericApplicationContext context) {
+        super.initialize(context);
+
+        // stand-ins
+        context.registerBean(InMemoryAmazonS3.class, InMemoryAmazonS3::new);
+        context.registerBean(InMemoryAmazonSQS.class, InMemoryAmazonSQS::new);
+        context.registerBean(InMemoryAmazonSQSAsync.class,
+                () -> new InMemoryAmazonSQSAsync(context.getBean(InMemoryAmazonSQS.class)));
+        context.registerBean(InMemoryAWSLambda.class, () -> {
+            InMemoryAWSLambda lambda = new InMemoryAWSLambda(functionConcurrency);
+            lambda.registerFunction(FUNCTION_NAME,
+                    payload -> invokeFunction(context.getBean(NotificationService.class),
+                            payload));
+            return lambda;
+        });
+
+        // accessors, overriding the ones using AWS clients
+        context.registerBean(AmazonS3ClientAccessor.class,
+                () -> new AmazonS3ClientAccessor(context.getBean(AmazonS3ClientConfig.class),
+                        context.getBean(InMemoryAmazonS3.class)));
+        context.registerBean(AmazonSQSClientAccessor.class,
+                () -> new AmazonSQSClientAccessor(context.getBean(AmazonSQSClientConfig.class),
+                        context.getBean(InMemoryAmazonSQS.class),
+                        context.getBean(InMemoryAmazonSQSAsync.class)));
+        context.registerBean(AmazonLambdaClientAccessor.class,
+                () -> new AmazonLambdaClientAccessor(
+                        context.getBean(AmazonLambdaClientConfig.class),
+                        context.getBean(InMemoryAWSLambda.class)));
+    }
+
+    /**
+     * @return context of a new invocation of the local function
+     */
+    public Context newInvocationContext() {
+        return new LocalContext(FUNCTION_NAME, functionTimeoutMillis);
+    }
+
+    private void invokeFunction(NotificationService notificationService, String payload) {
+        List<String> objectKeys = new ArrayList<>();
+        for (S3EventNotificationRecord record : S3EventNotification.parseJson(payload)
+                .getRecords()) {
+            objectKeys.add(record.getS3().getObject().getKey());
+        }
+
+        try {
+            notificationService.processFiles(objectKeys, newInvocationContext());
+        } catch (InterruptedException ex) {
+            log.error("Invocation of function: {} is interrupted", FUNCTION_NAME, ex);
+            Thread.currentThread().interrupt();
+        }
+    }
+}
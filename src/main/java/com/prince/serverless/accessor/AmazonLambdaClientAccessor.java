@@ -0,0 +1,76 @@
+package com.prince.serverless.accessor;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.http.HttpStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.amazonaws.regions.Regions;
+import com.amazonaws.services.lambda.AWSLambda;
+import com.amazonaws.services.lambda.AWSLambdaClientBuilder;
+import com.amazonaws.services.lambda.model.InvocationType;
+import com.amazonaws.services.lambda.model.InvokeRequest;
+import com.amazonaws.services.lambda.model.InvokeResult;
+
+import com.prince.serverless.config.AmazonLambdaClientConfig;
+import com.prince.serverless.exception.EngineServiceException;
+
+/**
+ * Lambda client accessor to invoke Lambda functions
+ *
+ * @author Prince Raj
+ */
+@Component
+public class AmazonLambdaClientAccessor {
+
+    private final AmazonLambdaClientConfig lambdaClientConfig;
+
+    private AWSLambda lambdaClient;
+
+    @Autowired
+    public AmazonLambdaClientAccessor(AmazonLambdaClientConfig lambdaClientConfig) {
+        this.lambdaClientConfig = lambdaClientConfig;
+    }
+
+    /**
+     * @param lambdaClientConfig lambda client config
+     * @param lambdaClient lambda client to use instead of a client created from config, e.g. a
+     *        stand-in
+     */
+    public AmazonLambdaClientAccessor(AmazonLambdaClientConfig lambdaClientConfig,
+            AWSLambda lambdaClient) {
+        this.lambdaClientConfig = lambdaClientConfig;
+        this.lambdaClient = lambdaClient;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (lambdaClient == null) {
+            lambdaClient = AWSLambdaClientBuilder.standard()
+                    .withRegion(Regions.fromName(lambdaClientConfig.getRegion())).build();
+        }
+    }
+
+    /**
+     * Invoke function asynchronously. The invocation is queued by Lambda, and retried by Lambda if
+     * the function fails.
+     *
+     * @param functionName function name or arn
+     * @param payload json payload
+     */
+    public void invokeAsync(String functionName, String payload) {
+        InvokeRequest request = new InvokeRequest().withFunctionName(functionName)
+                .withInvocationType(InvocationType.Event)
+                .withPayload(ByteBuffer.wrap(payload.getBytes(StandardCharsets.UTF_8)));
+
+        InvokeResult result = lambdaClient.invoke(request);
+        if (result.getStatusCode() != HttpStatus.SC_ACCEPTED) {
+            throw new EngineServiceException("Invocation of function: " + functionName
+                    + " is not accepted, status: " + result.getStatusCode());
+        }
+    }
+}
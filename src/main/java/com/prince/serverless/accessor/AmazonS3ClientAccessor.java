@@ -1,11 +1,16 @@
 package com.prince.serverless.accessor;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.annotation.PostConstruct;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpStatus;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -16,15 +21,32 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CopyPartRequest;
+import com.amazonaws.services.s3.model.CopyPartResult;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
 import com.amazonaws.services.s3.transfer.TransferManager;
 import com.amazonaws.services.s3.transfer.TransferManagerBuilder;
 import com.amazonaws.services.s3.transfer.Upload;
 
 import com.prince.serverless.config.AmazonS3ClientConfig;
+import com.prince.serverless.exception.EngineServiceException;
 import com.prince.serverless.exception.S3ObjectNotFoundException;
+import com.prince.serverless.model.VersionedContent;
 import com.prince.serverless.util.FileUtils;
+import com.prince.serverless.util.ProcessingStage;
+import com.prince.serverless.util.StageTimer;
 
 /**
  * S3 client accessor to perform CRUD operations on S3 bucket
@@ -35,6 +57,9 @@ import com.prince.serverless.util.FileUtils;
 @SuppressWarnings("unused")
 public class AmazonS3ClientAccessor {
 
+    // max parts of a multipart upload
+    private static final int MAX_PARTS = 10000;
+
     private final Logger log = LogManager.getLogger(this.getClass());
 
     private final AmazonS3ClientConfig s3ClientConfig;
@@ -48,20 +73,316 @@ public class AmazonS3ClientAccessor {
         this.s3ClientConfig = s3ClientConfig;
     }
 
+    /**
+     * @param s3ClientConfig s3 client config
+     * @param s3Client s3 client to use instead of a client created from config, e.g. a stand-in
+     */
+    public AmazonS3ClientAccessor(AmazonS3ClientConfig s3ClientConfig, AmazonS3 s3Client) {
+        this.s3ClientConfig = s3ClientConfig;
+        this.s3Client = s3Client;
+    }
+
     @PostConstruct
     public void init() {
-        s3Client = AmazonS3ClientBuilder.standard()
-                .withRegion(Regions.fromName(s3ClientConfig.getRegion())).build();
+        if (s3ClientConfig.isRangedReadEnabled() && (s3ClientConfig.getReadPartSize() < 1
+                || s3ClientConfig.getReadMaxBufferedBytes() < 2)) {
+            throw new IllegalStateException("Ranged read needs a positive part size and at least"
+                    + " 2 max buffered bytes, part size: " + s3ClientConfig.getReadPartSize()
+                    + ", max buffered bytes: " + s3ClientConfig.getReadMaxBufferedBytes());
+        }
+
+        if (s3Client == null) {
+            s3Client = AmazonS3ClientBuilder.standard()
+                    .withRegion(Regions.fromName(s3ClientConfig.getRegion())).build();
+        }
 
         transferManager = TransferManagerBuilder.standard().withS3Client(s3Client).build();
     }
 
     public BufferedReader readFromS3(String objectKey) throws IOException {
-        if (doesObjectExists(objectKey)) {
-            S3Object s3Object = s3Client.getObject(s3ClientConfig.getBucketName(), objectKey);
-            return FileUtils.getBufferedReader(s3Object.getObjectContent(), objectKey);
+        return FileUtils.getBufferedReader(getInputStream(objectKey));
+    }
+
+    /**
+     * Get an input stream of the object content, decompressed according to its leading bytes.
+     *
+     * @param objectKey object key
+     * @return input stream
+     * @throws IOException IO exception
+     */
+    public InputStream getInputStream(String objectKey) throws IOException {
+        return getInputStream(objectKey, StageTimer.NONE);
+    }
+
+    /**
+     * Get an input stream of the object content as in {@link #getInputStream(String)}, timing the
+     * requests.
+     *
+     * @param objectKey object key
+     * @param stageTimer times metadata and get requests
+     * @return input stream
+     * @throws IOException IO exception
+     */
+    public InputStream getInputStream(String objectKey, StageTimer stageTimer)
+            throws IOException {
+        long startTime = stageTimer.start();
+        ObjectMetadata metadata = getRequiredObjectMetadata(objectKey);
+        stageTimer.stop(ProcessingStage.S3_HEAD, startTime);
+
+        startTime = stageTimer.start();
+        InputStream inputStream = getInputStream(objectKey, metadata.getETag(), 0,
+                metadata.getContentLength(), metadata.getContentLength());
+        stageTimer.stop(ProcessingStage.S3_GET, startTime);
+
+        return FileUtils.getInputStream(inputStream, s3ClientConfig.getDecompressionParallelism(),
+                s3ClientConfig.getDecompressionChunkSize());
+    }
+
+    /**
+     * Get an input stream of the object content starting at given offset. The content is not
+     * decompressed, so offset is in bytes of the stored object.
+     *
+     * @param objectKey object key
+     * @param eTag expected etag of object
+     * @param startOffset offset of first byte to read
+     * @return input stream
+     */
+    public InputStream getInputStream(String objectKey, String eTag, long startOffset) {
+        return getInputStream(objectKey, eTag, startOffset, StageTimer.NONE);
+    }
+
+    /**
+     * Get an input stream of the object content starting at given offset as in {@link
+     * #getInputStream(String, String, long)}, timing the requests.
+     *
+     * @param objectKey object key
+     * @param eTag expected etag of object
+     * @param startOffset offset of first byte to read
+     * @param stageTimer times metadata and get requests
+     * @return input stream
+     */
+    public InputStream getInputStream(String objectKey, String eTag, long startOffset,
+            StageTimer stageTimer) {
+        return getInputStream(objectKey, eTag, startOffset, Long.MAX_VALUE, stageTimer);
+    }
+
+    /**
+     * Get an input stream of a range of the object content as in {@link
+     * #getInputStream(String, String, long)}, timing the requests.
+     *
+     * @param objectKey object key
+     * @param eTag expected etag of object
+     * @param startOffset offset of first byte to read
+     * @param endOffset offset after last byte to read, content is read until its end if larger
+     * @param stageTimer times metadata and get requests
+     * @return input stream
+     */
+    public InputStream getInputStream(String objectKey, String eTag, long startOffset,
+            long endOffset, StageTimer stageTimer) {
+        long startTime = stageTimer.start();
+        ObjectMetadata metadata = getRequiredObjectMetadata(objectKey);
+        stageTimer.stop(ProcessingStage.S3_HEAD, startTime);
+        if (!eTag.equals(metadata.getETag())) {
+            throw new EngineServiceException("S3 object: " + objectKey + " is modified");
+        }
+
+        startTime = stageTimer.start();
+        InputStream inputStream = getInputStream(objectKey, eTag, startOffset,
+                Math.min(endOffset, metadata.getContentLength()), metadata.getContentLength());
+        stageTimer.stop(ProcessingStage.S3_GET, startTime);
+
+        return inputStream;
+    }
+
+    /**
+     * Get etag of the object.
+     *
+     * @param objectKey object key
+     * @return etag
+     */
+    public String getETag(String objectKey) {
+        return getRequiredObjectMetadata(objectKey).getETag();
+    }
+
+    /**
+     * Check if the object content is compressed, according to its leading bytes.
+     *
+     * @param objectKey object key
+     * @param eTag expected etag of object
+     * @return true if content is gzip or zip compressed
+     * @throws IOException IO exception
+     */
+    public boolean isCompressed(String objectKey, String eTag) throws IOException {
+        try (InputStream inputStream = getInputStream(objectKey, eTag, 0, FileUtils.MAGIC_LENGTH,
+                StageTimer.NONE)) {
+            return FileUtils.isCompressed(inputStream);
+        }
+    }
+
+    /**
+     * Get size of the object.
+     *
+     * @param objectKey object key
+     * @return size in bytes
+     */
+    public long getContentLength(String objectKey) {
+        return getRequiredObjectMetadata(objectKey).getContentLength();
+    }
+
+    /**
+     * Read the whole object content in memory.
+     *
+     * @param objectKey object key
+     * @return object content, null if object doesn't exist
+     * @throws IOException IO exception
+     */
+    public byte[] readBytesFromS3(String objectKey) throws IOException {
+        ObjectMetadata metadata = getObjectMetadata(objectKey);
+        if (metadata == null) {
+            return null;
+        }
+
+        try (InputStream inputStream = getInputStream(objectKey, metadata.getETag(), 0,
+                metadata.getContentLength(), metadata.getContentLength())) {
+            return IOUtils.toByteArray(inputStream);
+        }
+    }
+
+    /**
+     * Read the whole object content in memory with a single get, along with the etag of that
+     * content.
+     *
+     * @param objectKey object key
+     * @return object content and etag, null if object doesn't exist
+     * @throws IOException IO exception
+     */
+    public VersionedContent readVersionedBytesFromS3(String objectKey) throws IOException {
+        final S3Object s3Object;
+        try {
+            s3Object = s3Client.getObject(s3ClientConfig.getBucketName(), objectKey);
+        } catch (AmazonS3Exception e) {
+            if (e.getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+                return null;
+            }
+            throw e;
+        }
+
+        try (InputStream inputStream = s3Object.getObjectContent()) {
+            return new VersionedContent(IOUtils.toByteArray(inputStream),
+                    s3Object.getObjectMetadata().getETag());
+        }
+    }
+
+    /**
+     * Write the object content only if the object isn't modified since it was read, using a
+     * conditional put.
+     *
+     * @param objectKey object key
+     * @param content object content
+     * @param eTag etag of object as read, null if object is to be created
+     * @return true if written, false if object is modified or created meanwhile
+     */
+    public boolean writeToS3IfUnmodified(String objectKey, byte[] content, String eTag) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(content.length);
+
+        PutObjectRequest request = new PutObjectRequest(s3ClientConfig.getBucketName(),
+                objectKey, new ByteArrayInputStream(content), metadata);
+        if (eTag != null) {
+            request.putCustomRequestHeader(Headers.GET_OBJECT_IF_MATCH, eTag);
         } else {
-            throw new S3ObjectNotFoundException("File doesn't exists");
+            request.putCustomRequestHeader(Headers.GET_OBJECT_IF_NONE_MATCH, "*");
+        }
+
+        try {
+            s3Client.putObject(request);
+        } catch (AmazonS3Exception e) {
+            // conflict if a concurrent conditional write is in progress
+            if (e.getStatusCode() == HttpStatus.SC_PRECONDITION_FAILED
+                    || e.getStatusCode() == HttpStatus.SC_CONFLICT) {
+                return false;
+            }
+            throw e;
+        }
+
+        return true;
+    }
+
+    /**
+     * Write the object content with a single put.
+     *
+     * @param objectKey object key
+     * @param content object content
+     */
+    public void writeToS3(String objectKey, byte[] content) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(content.length);
+
+        s3Client.putObject(new PutObjectRequest(s3ClientConfig.getBucketName(), objectKey,
+                new ByteArrayInputStream(content), metadata));
+    }
+
+    /**
+     * Get an output stream which uploads the object while it is being written. The object is
+     * created once the stream is closed.
+     *
+     * @param objectKey object key
+     * @return output stream
+     */
+    public AmazonS3MultipartOutputStream writeToS3(String objectKey) {
+        return new AmazonS3MultipartOutputStream(s3Client, s3ClientConfig.getBucketName(),
+                objectKey, s3ClientConfig.getWritePartSize(),
+                s3ClientConfig.getWriteParallelism() + 1);
+    }
+
+    /**
+     * Discard a multipart upload which is left incomplete.
+     *
+     * @param objectKey object key
+     * @param uploadId upload id
+     */
+    public void abortMultipartUpload(String objectKey, String uploadId) {
+        try {
+            s3Client.abortMultipartUpload(new AbortMultipartUploadRequest(
+                    s3ClientConfig.getBucketName(), objectKey, uploadId));
+        } catch (AmazonClientException ex) {
+            log.error("Exception in aborting multipart upload of s3 object: {}, reason: {}",
+                    objectKey, ex.getMessage());
+        }
+    }
+
+    /**
+     * Create the object from the content of source objects, in order. Sources are copied within S3
+     * as parts of a multipart upload if every source but the last is large enough to be a part,
+     * else their content is streamed through.
+     *
+     * @param sourceKeys object keys of sources
+     * @param objectKey object key
+     * @throws IOException IO exception
+     */
+    public void concatenateInS3(List<String> sourceKeys, String objectKey) throws IOException {
+        boolean copyable = sourceKeys.size() > 1 && sourceKeys.size() <= MAX_PARTS;
+        for (int i = 0; copyable && i < sourceKeys.size() - 1; i++) {
+            copyable = getRequiredObjectMetadata(sourceKeys.get(i)).getContentLength()
+                    >= AmazonS3MultipartOutputStream.MIN_PART_SIZE;
+        }
+
+        if (copyable) {
+            copyParts(sourceKeys, objectKey);
+        } else {
+            AmazonS3MultipartOutputStream outputStream = writeToS3(objectKey);
+            try {
+                for (String sourceKey : sourceKeys) {
+                    try (InputStream inputStream = getInputStream(sourceKey, getETag(sourceKey),
+                            0)) {
+                        IOUtils.copy(inputStream, outputStream);
+                    }
+                }
+                outputStream.close();
+            } catch (IOException | RuntimeException ex) {
+                outputStream.abort();
+                throw ex;
+            }
         }
     }
 
@@ -76,25 +397,129 @@ public class AmazonS3ClientAccessor {
         }
     }
 
+    /**
+     * List objects whose keys start with the prefix, in order of keys.
+     *
+     * @param prefix key prefix
+     * @return summaries of the objects
+     */
+    public List<S3ObjectSummary> listObjects(String prefix) {
+        List<S3ObjectSummary> summaries = new ArrayList<>();
+        ListObjectsRequest request = new ListObjectsRequest()
+                .withBucketName(s3ClientConfig.getBucketName()).withPrefix(prefix);
+
+        ObjectListing listing;
+        do {
+            listing = s3Client.listObjects(request);
+            summaries.addAll(listing.getObjectSummaries());
+
+            // next marker is returned only with a delimiter, so listing continues after last key
+            if (!summaries.isEmpty()) {
+                request.setMarker(summaries.get(summaries.size() - 1).getKey());
+            }
+        } while (listing.isTruncated());
+
+        return summaries;
+    }
+
     public void deleteFromS3(String objectKey) {
         if (doesObjectExists(objectKey)) {
             s3Client.deleteObject(s3ClientConfig.getBucketName(), objectKey);
         }
     }
 
+    private void copyParts(List<String> sourceKeys, String objectKey) {
+        String bucketName = s3ClientConfig.getBucketName();
+        String uploadId = s3Client.initiateMultipartUpload(
+                new InitiateMultipartUploadRequest(bucketName, objectKey)).getUploadId();
+        try {
+            List<PartETag> partETags = new ArrayList<>();
+            for (int i = 0; i < sourceKeys.size(); i++) {
+                CopyPartResult result = s3Client.copyPart(new CopyPartRequest()
+                        .withSourceBucketName(bucketName).withSourceKey(sourceKeys.get(i))
+                        .withDestinationBucketName(bucketName).withDestinationKey(objectKey)
+                        .withUploadId(uploadId).withPartNumber(i + 1));
+                partETags.add(result.getPartETag());
+            }
+
+            s3Client.completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName,
+                    objectKey, uploadId, partETags));
+        } catch (AmazonClientException ex) {
+            abortMultipartUpload(objectKey, uploadId);
+            throw ex;
+        }
+    }
+
+    private InputStream getInputStream(String objectKey, String eTag, long startOffset,
+            long endOffset, long contentLength) {
+        if (startOffset >= endOffset) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        final InputStream inputStream;
+        if (s3ClientConfig.isRangedReadEnabled()
+                && endOffset - startOffset > s3ClientConfig.getReadPartSize()) {
+            inputStream = getRangedInputStream(objectKey, eTag, startOffset, endOffset);
+        } else {
+            GetObjectRequest request = new GetObjectRequest(s3ClientConfig.getBucketName(),
+                    objectKey).withMatchingETagConstraint(eTag);
+            if (endOffset < contentLength) {
+                request.setRange(startOffset, endOffset - 1);
+            } else if (startOffset > 0) {
+                request.setRange(startOffset);
+            }
+
+            S3Object s3Object = s3Client.getObject(request);
+            if (s3Object == null) {
+                throw new EngineServiceException("S3 object: " + objectKey + " is modified");
+            }
+            inputStream = s3Object.getObjectContent();
+        }
+
+        return inputStream;
+    }
+
+    private InputStream getRangedInputStream(String objectKey, String eTag, long startOffset,
+            long endOffset) {
+        long maxBufferedBytes = s3ClientConfig.getReadMaxBufferedBytes();
+
+        // parts being fetched plus the part being read, capped by max buffered bytes, but the
+        // stream needs at least one of each
+        long maxParts = Math.max(2, Math.min(s3ClientConfig.getReadParallelism() + 1L,
+                maxBufferedBytes / s3ClientConfig.getReadPartSize()));
+
+        // parts are shrunk if two of them don't fit in max buffered bytes
+        long partSize = Math.min(s3ClientConfig.getReadPartSize(), maxBufferedBytes / maxParts);
+
+        return new AmazonS3RangedInputStream(s3Client, s3ClientConfig.getBucketName(), objectKey,
+                eTag, startOffset, endOffset, partSize, (int) maxParts);
+    }
+
     private boolean doesObjectExists(String objectKey) {
-        boolean exists;
+        return getObjectMetadata(objectKey) != null;
+    }
+
+    private ObjectMetadata getRequiredObjectMetadata(String objectKey) {
+        ObjectMetadata metadata = getObjectMetadata(objectKey);
+        if (metadata == null) {
+            throw new S3ObjectNotFoundException("File doesn't exists");
+        }
+
+        return metadata;
+    }
+
+    private ObjectMetadata getObjectMetadata(String objectKey) {
+        ObjectMetadata metadata;
         try {
-            s3Client.getObjectMetadata(s3ClientConfig.getBucketName(), objectKey);
-            exists = true;
+            metadata = s3Client.getObjectMetadata(s3ClientConfig.getBucketName(), objectKey);
         } catch (AmazonS3Exception e) {
             if (e.getStatusCode() == HttpStatus.SC_NOT_FOUND) {
-                exists = false;
+                metadata = null;
             } else {
                 throw e;
             }
         }
 
-        return exists;
+        return metadata;
     }
 }
@@ -0,0 +1,335 @@
+package com.prince.serverless.accessor;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+
+/**
+ * Output stream which uploads an S3 object using multipart upload. Parts are uploaded on a thread
+ * pool as soon as they are filled, so upload overlaps with the producer of this stream.
+ *
+ * Closing the stream completes the upload. Output smaller than a part is uploaded with a single
+ * put, and no object is created if nothing is written. On failure, {@link #abort()} should be
+ * called before closing, so that uploaded parts are discarded.
+ *
+ * At most {@code maxParts} parts are held in memory at a time, including the part being filled.
+ *
+ * An upload can span streams: state of the upload is saved from {@link #getUploadId()}, {@link
+ * #awaitUploadedParts()} and {@link #getBufferedBytes()}, the stream is suspended, and a later
+ * stream restores the state and continues writing.
+ *
+ * @author Prince Raj
+ */
+public class AmazonS3MultipartOutputStream extends OutputStream {
+
+    // S3 limit for size of every part except the last one
+    public static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    private final Logger log = LogManager.getLogger(this.getClass());
+
+    private final AmazonS3 s3Client;
+
+    private final String bucketName;
+
+    private final String objectKey;
+
+    private final int partSize;
+
+    private final int maxParts;
+
+    private final List<Future<PartETag>> partETags = new ArrayList<>();
+
+    private ExecutorService executorService;
+
+    private Semaphore partPermits;
+
+    private String uploadId;
+
+    private byte[] buffer;
+
+    private int position;
+
+    private boolean closed;
+
+    /**
+     * @param s3Client s3 client
+     * @param bucketName bucket name
+     * @param objectKey object key
+     * @param partSize size of each part, at least {@link #MIN_PART_SIZE}
+     * @param maxParts max parts uploaded or buffered at a time, at least 2
+     */
+    public AmazonS3MultipartOutputStream(AmazonS3 s3Client, String bucketName, String objectKey,
+            int partSize, int maxParts) {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.objectKey = objectKey;
+        this.partSize = Math.max(partSize, MIN_PART_SIZE);
+        this.maxParts = Math.max(2, maxParts);
+        this.buffer = new byte[this.partSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (position == buffer.length) {
+            uploadPart();
+        }
+
+        buffer[position++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        ensureOpen();
+        while (length > 0) {
+            if (position == buffer.length) {
+                uploadPart();
+            }
+
+            int count = Math.min(length, buffer.length - position);
+            System.arraycopy(bytes, offset, buffer, position, count);
+            position += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * Complete the upload with the parts written so far, see {@link #complete()}.
+     *
+     * @throws IOException if upload of any part fails
+     */
+    @Override
+    public void close() throws IOException {
+        complete();
+    }
+
+    /**
+     * Complete the upload with the parts written so far. Closing the stream after complete has no
+     * effect, so the upload can be completed, and timed, within a try-with-resources statement.
+     *
+     * @throws IOException if upload of any part fails
+     */
+    public void complete() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        try {
+            if (uploadId == null) {
+                putObject();
+            } else {
+                if (position > 0) {
+                    submitPart();
+                }
+                completeUpload();
+            }
+        } catch (IOException | RuntimeException ex) {
+            abortUpload();
+            throw ex;
+        } finally {
+            shutdown();
+        }
+    }
+
+    /**
+     * Restore state of an upload, so that writing continues where a previous stream left off. Should
+     * be called before anything is written.
+     *
+     * @param uploadId upload id of previous stream, null if it had not started the upload
+     * @param uploadedPartETags etags of parts uploaded by previous stream
+     * @param bufferedBytes bytes written to previous stream but not uploaded
+     * @throws IOException IO exception
+     */
+    public void restore(String uploadId, List<PartETag> uploadedPartETags, byte[] bufferedBytes)
+            throws IOException {
+        ensureOpen();
+        if (uploadId != null) {
+            this.uploadId = uploadId;
+            startUploader();
+            for (PartETag partETag : uploadedPartETags) {
+                partETags.add(CompletableFuture.completedFuture(partETag));
+            }
+        }
+
+        write(bufferedBytes);
+    }
+
+    /**
+     * Upload id, null if upload is not started as output is still smaller than a part.
+     *
+     * @return upload id
+     */
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    /**
+     * Wait for the parts submitted so far to be uploaded.
+     *
+     * @return etags of uploaded parts, in order of part number
+     * @throws IOException if upload of any part fails
+     */
+    public List<PartETag> awaitUploadedParts() throws IOException {
+        List<PartETag> eTags = new ArrayList<>(partETags.size());
+        for (Future<PartETag> partETag : partETags) {
+            try {
+                eTags.add(partETag.get());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while uploading s3 object part");
+            } catch (ExecutionException ex) {
+                throw new IOException("Failed to upload s3 object part", ex.getCause());
+            }
+        }
+
+        return eTags;
+    }
+
+    /**
+     * Bytes written but not yet submitted for upload, as the part is not filled yet.
+     *
+     * @return copy of buffered bytes
+     */
+    public byte[] getBufferedBytes() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    /**
+     * Stop the stream, leaving the upload incomplete so that another stream can continue it with
+     * {@link #restore(String, List, byte[])}. Closing the stream after suspend has no effect.
+     */
+    public void suspend() {
+        if (!closed) {
+            closed = true;
+            shutdown();
+        }
+    }
+
+    /**
+     * Discard the parts written so far. Closing the stream after abort has no effect.
+     */
+    public void abort() {
+        if (!closed) {
+            closed = true;
+            abortUpload();
+            shutdown();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream is closed");
+        }
+    }
+
+    private void uploadPart() throws IOException {
+        if (uploadId == null) {
+            initiateUpload();
+        }
+
+        submitPart();
+        buffer = new byte[partSize];
+        position = 0;
+    }
+
+    private void initiateUpload() {
+        uploadId = s3Client.initiateMultipartUpload(
+                new InitiateMultipartUploadRequest(bucketName, objectKey)).getUploadId();
+        startUploader();
+    }
+
+    private void startUploader() {
+        // one slot is always kept for the part being filled
+        partPermits = new Semaphore(maxParts - 1);
+        executorService = Executors.newFixedThreadPool(maxParts - 1, runnable -> {
+            Thread thread = new Thread(runnable, "s3-multipart-upload");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private void submitPart() throws IOException {
+        try {
+            partPermits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while uploading s3 object part");
+        }
+
+        byte[] bytes = buffer;
+        int length = position;
+        int partNumber = partETags.size() + 1;
+
+        partETags.add(executorService.submit(() -> {
+            try {
+                UploadPartRequest request = new UploadPartRequest().withBucketName(bucketName)
+                        .withKey(objectKey).withUploadId(uploadId).withPartNumber(partNumber)
+                        .withInputStream(new ByteArrayInputStream(bytes, 0, length))
+                        .withPartSize(length);
+                return s3Client.uploadPart(request).getPartETag();
+            } finally {
+                partPermits.release();
+            }
+        }));
+    }
+
+    private void completeUpload() throws IOException {
+        List<PartETag> eTags = awaitUploadedParts();
+
+        s3Client.completeMultipartUpload(
+                new CompleteMultipartUploadRequest(bucketName, objectKey, uploadId, eTags));
+    }
+
+    private void putObject() {
+        if (position > 0) {
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(position);
+            s3Client.putObject(new PutObjectRequest(bucketName, objectKey,
+                    new ByteArrayInputStream(buffer, 0, position), metadata));
+        }
+    }
+
+    private void abortUpload() {
+        if (uploadId != null) {
+            try {
+                s3Client.abortMultipartUpload(
+                        new AbortMultipartUploadRequest(bucketName, objectKey, uploadId));
+            } catch (AmazonClientException ex) {
+                log.error("Exception in aborting multipart upload of s3 object: {}, reason: {}",
+                        objectKey, ex.getMessage());
+            }
+        }
+    }
+
+    private void shutdown() {
+        buffer = null;
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.prince.serverless.accessor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+
+import com.prince.serverless.exception.EngineServiceException;
+
+/**
+ * Input stream over an S3 object which fetches the object in byte range parts on a thread pool and
+ * returns them in order. Parts ahead of the one being read are prefetched, so network fetch
+ * overlaps with the consumer of this stream.
+ *
+ * At most {@code maxParts} parts are held in memory at a time, including the part being read.
+ *
+ * @author Prince Raj
+ */
+public class AmazonS3RangedInputStream extends InputStream {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final Logger log = LogManager.getLogger(this.getClass());
+
+    private final AmazonS3 s3Client;
+
+    private final String bucketName;
+
+    private final String objectKey;
+
+    private final String eTag;
+
+    private final long endOffset;
+
+    private final long partSize;
+
+    private final int maxParts;
+
+    private final ExecutorService executorService;
+
+    private final Deque<Future<byte[]>> parts = new ArrayDeque<>();
+
+    // start offset of the next part to be fetched
+    private long nextPartOffset;
+
+    private byte[] currentPart;
+
+    private int position;
+
+    private boolean closed;
+
+    /**
+     * @param s3Client s3 client
+     * @param bucketName bucket name
+     * @param objectKey object key
+     * @param eTag etag of object, so that parts of a replaced object are not mixed
+     * @param startOffset offset of first byte to read
+     * @param endOffset offset after last byte to read, e.g. length of object
+     * @param partSize size of each ranged get
+     * @param maxParts max parts fetched or buffered at a time, at least 2
+     * @throws IllegalArgumentException if max parts is less than 2
+     */
+    public AmazonS3RangedInputStream(AmazonS3 s3Client, String bucketName, String objectKey,
+            String eTag, long startOffset, long endOffset, long partSize, int maxParts) {
+        if (maxParts < 2) {
+            throw new IllegalArgumentException("Max parts: " + maxParts + " is less than 2");
+        }
+
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.objectKey = objectKey;
+        this.eTag = eTag;
+        this.nextPartOffset = startOffset;
+        this.endOffset = endOffset;
+        this.partSize = partSize;
+        this.maxParts = maxParts;
+        this.executorService = Executors.newFixedThreadPool(maxParts - 1, runnable -> {
+            Thread thread = new Thread(runnable, "s3-ranged-get");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // one slot is always kept for the part being read
+        while (parts.size() < maxParts - 1 && fetchNextPart()) {
+            // prefetch
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureCurrentPart()) {
+            return -1;
+        }
+
+        return currentPart[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!ensureCurrentPart()) {
+            return -1;
+        }
+
+        int count = Math.min(length, currentPart.length - position);
+        System.arraycopy(currentPart, position, bytes, offset, count);
+        position += count;
+
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return currentPart == null ? 0 : currentPart.length - position;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            currentPart = null;
+            parts.clear();
+            executorService.shutdownNow();
+        }
+    }
+
+    private boolean ensureCurrentPart() throws IOException {
+        if (closed) {
+            throw new IOException("Stream is closed");
+        }
+
+        while (currentPart == null || position >= currentPart.length) {
+            Future<byte[]> part = parts.pollFirst();
+            if (part == null) {
+                return false;
+            }
+
+            try {
+                currentPart = part.get();
+                position = 0;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while reading s3 object part");
+            } catch (ExecutionException ex) {
+                throw new IOException("Failed to read s3 object part", ex.getCause());
+            }
+
+            // slot of the consumed part is free now
+            fetchNextPart();
+        }
+
+        return true;
+    }
+
+    private boolean fetchNextPart() {
+        if (nextPartOffset >= endOffset) {
+            return false;
+        }
+
+        long start = nextPartOffset;
+        long end = Math.min(start + partSize, endOffset) - 1;
+        nextPartOffset = end + 1;
+
+        parts.addLast(executorService.submit(() -> getPart(start, end)));
+        return true;
+    }
+
+    private byte[] getPart(long start, long end) throws IOException {
+        GetObjectRequest request = new GetObjectRequest(bucketName, objectKey)
+                .withRange(start, end);
+        if (eTag != null) {
+            request.withMatchingETagConstraint(eTag);
+        }
+
+        for (int attempt = 1;; attempt++) {
+            try (S3Object s3Object = s3Client.getObject(request)) {
+                if (s3Object == null) {
+                    throw new EngineServiceException("S3 object: " + objectKey
+                            + " is modified while reading");
+                }
+
+                byte[] bytes = new byte[(int) (end - start + 1)];
+                IOUtils.readFully(s3Object.getObjectContent(), bytes);
+                return bytes;
+            } catch (AmazonClientException | IOException ex) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw ex;
+                }
+                log.warn("Retrying ranged get of s3 object: {}, range: {}-{}, reason: {}",
+                        objectKey, start, end, ex.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.prince.serverless.accessor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.prince.serverless.util.ProcessingStage;
+import com.prince.serverless.util.StageTimer;
+
+/**
+ * Buffers messages of one message group and sends them to SQS in batches. A batch is flushed when
+ * it reaches the max batch size, when adding a message would exceed the SQS batch payload limit or
+ * when the oldest buffered message is older than the max batch age.
+ *
+ * Callback of every message is invoked with the outcome of its own batch entry, once the batch
+ * containing it is sent. Callbacks are invoked on the thread which flushes the batch. With a retry
+ * scheduler, a batch is sent once and its failed entries are retried by the scheduler, so
+ * callbacks of retried messages are invoked later on the thread of the scheduler. With a retry
+ * scheduler and async mode of the accessor, flushing a batch doesn't wait for its response, and
+ * callbacks are invoked on a thread of the async client. Callbacks of a batch are invoked with
+ * false if its send fails with an exception, so that every message gets an outcome.
+ *
+ * @author Prince Raj
+ */
+public class AmazonSQSBatchSender {
+
+    // SQS limit for total payload of a batch request
+    private static final int MAX_BATCH_BYTES = 256 * 1024;
+
+    // SQS limit for number of entries in a batch request
+    private static final int MAX_BATCH_SIZE = 10;
+
+    private final Logger log = LogManager.getLogger(this.getClass());
+
+    private final AmazonSQSClientAccessor sqsClientAccessor;
+
+    private final String groupId;
+
+    private final int maxBatchSize;
+
+    private final long maxBatchAgeMillis;
+
+    private final Runnable throttleCallback;
+
+    private final AmazonSQSRetryScheduler retryScheduler;
+
+    private final StageTimer stageTimer;
+
+    private List<String> messageBodies;
+
+    private List<Consumer<Boolean>> callbacks;
+
+    private int batchBytes;
+
+    private long batchStartTime;
+
+    public AmazonSQSBatchSender(AmazonSQSClientAccessor sqsClientAccessor, String groupId,
+            int maxBatchSize, long maxBatchAgeMillis) {
+        this(sqsClientAccessor, groupId, maxBatchSize, maxBatchAgeMillis, () -> {}, null,
+                StageTimer.NONE);
+    }
+
+    /**
+     * @param sqsClientAccessor sqs client accessor
+     * @param groupId message group id
+     * @param maxBatchSize max messages in a batch
+     * @param maxBatchAgeMillis max time a message waits in a batch which is not full
+     * @param throttleCallback invoked every time the queue throttles a batch
+     * @param retryScheduler retries failed entries, null to retry whole batches before returning
+     * @param stageTimer times send requests
+     */
+    public AmazonSQSBatchSender(AmazonSQSClientAccessor sqsClientAccessor, String groupId,
+            int maxBatchSize, long maxBatchAgeMillis, Runnable throttleCallback,
+            AmazonSQSRetryScheduler retryScheduler, StageTimer stageTimer) {
+        this.sqsClientAccessor = sqsClientAccessor;
+        this.throttleCallback = throttleCallback;
+        this.retryScheduler = retryScheduler;
+        this.stageTimer = stageTimer;
+        this.groupId = groupId;
+        this.maxBatchSize = Math.max(1, Math.min(maxBatchSize, MAX_BATCH_SIZE));
+        this.maxBatchAgeMillis = maxBatchAgeMillis;
+        this.messageBodies = new ArrayList<>(this.maxBatchSize);
+        this.callbacks = new ArrayList<>(this.maxBatchSize);
+    }
+
+    /**
+     * Add message to the current batch, sending the batch if it is full or expired.
+     *
+     * @param messageBody message body
+     * @param callback invoked with true if the message is accepted by the queue, false otherwise
+     */
+    public void send(String messageBody, Consumer<Boolean> callback) {
+        int messageBytes = utf8Length(messageBody);
+
+        List<String> fullBodies = null;
+        List<Consumer<Boolean>> fullCallbacks = null;
+        List<String> expiredBodies = null;
+        List<Consumer<Boolean>> expiredCallbacks = null;
+
+        synchronized (this) {
+            // message doesn't fit in the current batch payload, so send the current batch first
+            if (!messageBodies.isEmpty() && batchBytes + messageBytes > MAX_BATCH_BYTES) {
+                fullBodies = messageBodies;
+                fullCallbacks = callbacks;
+                resetBatch();
+            }
+
+            if (messageBodies.isEmpty()) {
+                batchStartTime = System.currentTimeMillis();
+            }
+            messageBodies.add(messageBody);
+            callbacks.add(callback);
+            batchBytes += messageBytes;
+
+            if (messageBodies.size() >= maxBatchSize || isExpired()) {
+                expiredBodies = messageBodies;
+                expiredCallbacks = callbacks;
+                resetBatch();
+            }
+        }
+
+        sendBatch(fullBodies, fullCallbacks);
+        sendBatch(expiredBodies, expiredCallbacks);
+    }
+
+    /**
+     * Send the current batch if the oldest buffered message is older than the max batch age.
+     */
+    public void flushIfExpired() {
+        List<String> bodies = null;
+        List<Consumer<Boolean>> batchCallbacks = null;
+
+        synchronized (this) {
+            if (!messageBodies.isEmpty() && isExpired()) {
+                bodies = messageBodies;
+                batchCallbacks = callbacks;
+                resetBatch();
+            }
+        }
+
+        sendBatch(bodies, batchCallbacks);
+    }
+
+    /**
+     * Send the current batch, whatever its size.
+     */
+    public void flush() {
+        List<String> bodies = null;
+        List<Consumer<Boolean>> batchCallbacks = null;
+
+        synchronized (this) {
+            if (!messageBodies.isEmpty()) {
+                bodies = messageBodies;
+                batchCallbacks = callbacks;
+                resetBatch();
+            }
+        }
+
+        sendBatch(bodies, batchCallbacks);
+    }
+
+    private boolean isExpired() {
+        return System.currentTimeMillis() - batchStartTime >= maxBatchAgeMillis;
+    }
+
+    private void resetBatch() {
+        messageBodies = new ArrayList<>(maxBatchSize);
+        callbacks = new ArrayList<>(maxBatchSize);
+        batchBytes = 0;
+    }
+
+    private void sendBatch(List<String> bodies, List<Consumer<Boolean>> batchCallbacks) {
+        if (bodies == null) {
+            return;
+        }
+
+        if (retryScheduler == null) {
+            long startTime = stageTimer.start();
+            List<Boolean> statuses =
+                    sqsClientAccessor.sendMessageBatch(bodies, groupId, throttleCallback);
+            stageTimer.stop(ProcessingStage.SQS_SEND, startTime);
+            for (int i = 0; i < batchCallbacks.size(); i++) {
+                batchCallbacks.get(i).accept(statuses.get(i));
+            }
+        } else {
+            sendBatch(bodies, batchCallbacks, 1);
+        }
+    }
+
+    private void sendBatch(List<String> bodies, List<Consumer<Boolean>> batchCallbacks,
+            int attempt) {
+        long startTime = stageTimer.start();
+        CompletableFuture<List<Boolean>> future;
+        try {
+            future = sqsClientAccessor.sendMessageBatchAsync(bodies, groupId, throttleCallback);
+        } catch (RuntimeException ex) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(ex);
+        }
+
+        future.whenComplete((statuses, ex) -> {
+            stageTimer.stop(ProcessingStage.SQS_SEND, startTime);
+            if (ex != null) {
+                log.error("Failed to send batch of {} messages of group: {}", bodies.size(),
+                        groupId, ex);
+                for (Consumer<Boolean> callback : batchCallbacks) {
+                    complete(callback, false);
+                }
+            } else {
+                onBatchSent(bodies, batchCallbacks, attempt, statuses);
+            }
+        });
+    }
+
+    private void onBatchSent(List<String> bodies, List<Consumer<Boolean>> batchCallbacks,
+            int attempt, List<Boolean> statuses) {
+        List<String> failedBodies = new ArrayList<>();
+        List<Consumer<Boolean>> failedCallbacks = new ArrayList<>();
+        for (int i = 0; i < batchCallbacks.size(); i++) {
+            if (statuses.get(i)) {
+                complete(batchCallbacks.get(i), true);
+            } else {
+                failedBodies.add(bodies.get(i));
+                failedCallbacks.add(batchCallbacks.get(i));
+            }
+        }
+
+        if (failedBodies.isEmpty()) {
+            return;
+        }
+
+        boolean scheduled;
+        try {
+            scheduled = retryScheduler.schedule(attempt, failedBodies.size(),
+                    () -> sendBatch(failedBodies, failedCallbacks, attempt + 1),
+                    () -> failedCallbacks.forEach(callback -> complete(callback, false)));
+        } catch (RuntimeException ex) {
+            log.error("Failed to schedule retry of {} messages of group: {}", failedBodies.size(),
+                    groupId, ex);
+            scheduled = false;
+        }
+        if (!scheduled) {
+            for (Consumer<Boolean> callback : failedCallbacks) {
+                complete(callback, false);
+            }
+        }
+    }
+
+    /**
+     * Invoke callback of a message, so that an exception in one callback doesn't leave the other
+     * messages of the batch without an outcome.
+     */
+    private void complete(Consumer<Boolean> callback, boolean status) {
+        try {
+            callback.accept(status);
+        } catch (RuntimeException ex) {
+            log.error("Exception in callback of message of group: {}", groupId, ex);
+        }
+    }
+
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch < 0x80) {
+                length++;
+            } else if (ch < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(ch)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+
+        return length;
+    }
+}
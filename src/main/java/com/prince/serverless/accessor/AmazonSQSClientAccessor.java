@@ -1,28 +1,50 @@
 package com.prince.serverless.accessor;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 
 import javax.annotation.PostConstruct;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Recover;
-import org.springframework.retry.annotation.Retryable;
+import org.springframework.retry.backoff.ExponentialBackOffPolicy;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
 import org.springframework.stereotype.Component;
 
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.handlers.AsyncHandler;
 import com.amazonaws.regions.Regions;
+import com.amazonaws.retry.RetryUtils;
 import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.AmazonSQSAsync;
+import com.amazonaws.services.sqs.AmazonSQSAsyncClientBuilder;
 import com.amazonaws.services.sqs.AmazonSQSClientBuilder;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResult;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResultEntry;
 import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
 import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
 import com.amazonaws.services.sqs.model.DeleteMessageRequest;
 import com.amazonaws.services.sqs.model.Message;
 import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
 import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
 import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import com.amazonaws.services.sqs.model.SendMessageBatchResultEntry;
 import com.amazonaws.services.sqs.model.SendMessageRequest;
 
 import com.prince.serverless.config.AmazonSQSClientConfig;
@@ -30,30 +52,200 @@ import com.prince.serverless.config.AmazonSQSClientConfig;
 /**
  * SQS client accessor to perform CRUD operations on SQS
  *
+ * Send operations are retried with exponential backoff using a retry template rather than
+ * {@code @Retryable}, so that the accessor doesn't need a retry proxy to be created. Backoff sleeps
+ * on the calling thread, so senders on the hot path send batches once with {@link
+ * #sendMessageBatchOnce(List, String, Runnable)} and retry with {@link AmazonSQSRetryScheduler}.
+ *
+ * In async mode, those batches are sent with the async client instead, so that a few threads can
+ * have many requests in flight. Requests in flight are bounded by {@link
+ * AmazonSQSClientConfig#getMaxInFlightRequests()}, senders wait for a slot once it is reached.
+ *
  * @author Prince Raj
  */
 @Component
 public class AmazonSQSClientAccessor {
 
+    // error codes of batch entries which are throttled
+    private static final Set<String> THROTTLING_ERROR_CODES = new HashSet<>(
+            Arrays.asList("RequestThrottled", "ThrottlingException", "Throttling"));
+
     private final Logger log = LogManager.getLogger(this.getClass());
 
     private final AmazonSQSClientConfig sqsClientConfig;
 
+    private final RetryTemplate retryTemplate;
+
+    // slots of requests in flight in async mode
+    private final Semaphore inFlightPermits;
+
     private AmazonSQS sqsClient;
 
+    private AmazonSQSAsync sqsAsyncClient;
+
     @Autowired
     public AmazonSQSClientAccessor(AmazonSQSClientConfig sqsClientConfig) {
         this.sqsClientConfig = sqsClientConfig;
+        this.retryTemplate = createRetryTemplate();
+        this.inFlightPermits = new Semaphore(Math.max(1, sqsClientConfig.getMaxInFlightRequests()));
+    }
+
+    /**
+     * @param sqsClientConfig sqs client config
+     * @param sqsClient sqs client to use instead of a client created from config, e.g. a stand-in
+     */
+    public AmazonSQSClientAccessor(AmazonSQSClientConfig sqsClientConfig, AmazonSQS sqsClient) {
+        this(sqsClientConfig);
+        this.sqsClient = sqsClient;
+    }
+
+    /**
+     * @param sqsClientConfig sqs client config
+     * @param sqsClient sqs client to use instead of a client created from config, e.g. a stand-in
+     * @param sqsAsyncClient async sqs client to use instead of a client created from config
+     */
+    public AmazonSQSClientAccessor(AmazonSQSClientConfig sqsClientConfig, AmazonSQS sqsClient,
+            AmazonSQSAsync sqsAsyncClient) {
+        this(sqsClientConfig, sqsClient);
+        this.sqsAsyncClient = sqsAsyncClient;
     }
 
     @PostConstruct
     public void init() {
-        sqsClient = AmazonSQSClientBuilder.standard()
-                .withRegion(Regions.fromName(sqsClientConfig.getRegion())).build();
+        if (sqsClient == null) {
+            sqsClient = AmazonSQSClientBuilder.standard()
+                    .withRegion(Regions.fromName(sqsClientConfig.getRegion())).build();
+        }
+        if (sqsAsyncClient == null && sqsClientConfig.isAsyncEnabled()) {
+            // client of SDK v1 blocks a thread per request, so it needs a thread per slot
+            int maxInFlightRequests = Math.max(1, sqsClientConfig.getMaxInFlightRequests());
+            sqsAsyncClient = AmazonSQSAsyncClientBuilder.standard()
+                    .withRegion(Regions.fromName(sqsClientConfig.getRegion()))
+                    .withClientConfiguration(
+                            new ClientConfiguration().withMaxConnections(maxInFlightRequests))
+                    .withExecutorFactory(() -> Executors.newFixedThreadPool(maxInFlightRequests))
+                    .build();
+        }
+    }
+
+    /**
+     * @return true if batches sent by {@link #sendMessageBatchAsync(List, String, Runnable)} are
+     *         sent with the async client
+     */
+    public boolean isAsyncEnabled() {
+        return sqsClientConfig.isAsyncEnabled() && sqsAsyncClient != null;
     }
 
-    @Retryable(backoff = @Backoff(delay = 100, multiplier = 2))
     public boolean sendMessage(String messageBody, String groupId) {
+        return retryTemplate.execute(context -> doSendMessage(messageBody, groupId),
+                context -> recover(context.getLastThrowable()));
+    }
+
+    /**
+     * Send messages in a single batch request. Entries are identified by their index in the given
+     * list, so the returned statuses are in the same order as the message bodies.
+     *
+     * @param messageBodies message bodies, at most 10
+     * @param groupId message group id
+     * @return per entry status, true if the entry is accepted by the queue
+     */
+    public List<Boolean> sendMessageBatch(List<String> messageBodies, String groupId) {
+        return sendMessageBatch(messageBodies, groupId, () -> {});
+    }
+
+    /**
+     * Send messages in a single batch request as in {@link #sendMessageBatch(List, String)},
+     * notifying when the queue throttles the request or any of its entries.
+     *
+     * @param messageBodies message bodies, at most 10
+     * @param groupId message group id
+     * @param throttleCallback invoked every time the request is throttled
+     * @return per entry status, true if the entry is accepted by the queue
+     */
+    public List<Boolean> sendMessageBatch(List<String> messageBodies, String groupId,
+            Runnable throttleCallback) {
+        return retryTemplate.execute(
+                context -> doSendMessageBatch(messageBodies, groupId, throttleCallback),
+                context -> recoverBatch(context.getLastThrowable(), messageBodies,
+                        groupId));
+    }
+
+    /**
+     * Send messages in a single batch request as in {@link #sendMessageBatch(List, String,
+     * Runnable)}, without retrying the request if it fails.
+     *
+     * @param messageBodies message bodies, at most 10
+     * @param groupId message group id
+     * @param throttleCallback invoked if the request is throttled
+     * @return per entry status, true if the entry is accepted by the queue
+     */
+    public List<Boolean> sendMessageBatchOnce(List<String> messageBodies, String groupId,
+            Runnable throttleCallback) {
+        try {
+            return doSendMessageBatch(messageBodies, groupId, throttleCallback);
+        } catch (AmazonClientException ex) {
+            return recoverBatch(ex, messageBodies, groupId);
+        }
+    }
+
+    /**
+     * Send messages in a single batch request as in {@link #sendMessageBatchOnce(List, String,
+     * Runnable)}, without waiting for the response in async mode. Waits while max requests are in
+     * flight. Future is completed on a thread of the async client.
+     *
+     * @param messageBodies message bodies, at most 10
+     * @param groupId message group id
+     * @param throttleCallback invoked if the request is throttled
+     * @return future of per entry status, true if the entry is accepted by the queue
+     */
+    public CompletableFuture<List<Boolean>> sendMessageBatchAsync(List<String> messageBodies,
+            String groupId, Runnable throttleCallback) {
+        if (!isAsyncEnabled()) {
+            return CompletableFuture.completedFuture(
+                    sendMessageBatchOnce(messageBodies, groupId, throttleCallback));
+        }
+
+        try {
+            inFlightPermits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.completedFuture(recoverBatch(ex, messageBodies, groupId));
+        }
+
+        CompletableFuture<List<Boolean>> future = new CompletableFuture<>();
+        AsyncHandler<SendMessageBatchRequest, SendMessageBatchResult> asyncHandler =
+                new AsyncHandler<SendMessageBatchRequest, SendMessageBatchResult>() {
+
+                    @Override
+                    public void onError(Exception ex) {
+                        inFlightPermits.release();
+                        if (ex instanceof AmazonServiceException
+                                && RetryUtils.isThrottlingException((AmazonServiceException) ex)) {
+                            throttleCallback.run();
+                        }
+                        future.complete(recoverBatch(ex, messageBodies, groupId));
+                    }
+
+                    @Override
+                    public void onSuccess(SendMessageBatchRequest request,
+                            SendMessageBatchResult result) {
+                        inFlightPermits.release();
+                        future.complete(getStatuses(result, messageBodies.size(),
+                                throttleCallback));
+                    }
+                };
+
+        try {
+            sqsAsyncClient.sendMessageBatchAsync(createSendMessageBatchRequest(messageBodies,
+                    groupId), asyncHandler);
+        } catch (RuntimeException ex) {
+            asyncHandler.onError(ex);
+        }
+
+        return future;
+    }
+
+    private boolean doSendMessage(String messageBody, String groupId) {
         SendMessageRequest request =
                 new SendMessageRequest().withQueueUrl(sqsClientConfig.getQueueUrl())
                         .withMessageBody(messageBody).withMessageGroupId(groupId);
@@ -62,21 +254,56 @@ public class AmazonSQSClientAccessor {
         return true;
     }
 
-    @Retryable(backoff = @Backoff(delay = 100, multiplier = 2))
-    public boolean sendMessageBatch(List<String> messageBodies, String groupId) {
+    private List<Boolean> doSendMessageBatch(List<String> messageBodies, String groupId,
+            Runnable throttleCallback) {
+        SendMessageBatchRequest request = createSendMessageBatchRequest(messageBodies, groupId);
+
+        final SendMessageBatchResult result;
+        try {
+            result = sqsClient.sendMessageBatch(request);
+        } catch (AmazonServiceException ex) {
+            if (RetryUtils.isThrottlingException(ex)) {
+                throttleCallback.run();
+            }
+            throw ex;
+        }
+
+        return getStatuses(result, messageBodies.size(), throttleCallback);
+    }
+
+    private SendMessageBatchRequest createSendMessageBatchRequest(List<String> messageBodies,
+            String groupId) {
         List<SendMessageBatchRequestEntry> messageEntries = new ArrayList<>();
 
-        for (String messageBody : messageBodies) {
+        for (int i = 0; i < messageBodies.size(); i++) {
             SendMessageBatchRequestEntry entry = new SendMessageBatchRequestEntry()
-                    .withMessageBody(messageBody).withMessageGroupId(groupId);
+                    .withId(String.valueOf(i)).withMessageBody(messageBodies.get(i))
+                    .withMessageGroupId(groupId);
             messageEntries.add(entry);
         }
 
-        SendMessageBatchRequest request = new SendMessageBatchRequest()
-                .withQueueUrl(sqsClientConfig.getQueueUrl()).withEntries(messageEntries);
+        return new SendMessageBatchRequest().withQueueUrl(sqsClientConfig.getQueueUrl())
+                .withEntries(messageEntries);
+    }
 
-        sqsClient.sendMessageBatch(request);
-        return true;
+    private List<Boolean> getStatuses(SendMessageBatchResult result, int entries,
+            Runnable throttleCallback) {
+        List<Boolean> statuses = new ArrayList<>(Collections.nCopies(entries, false));
+        for (SendMessageBatchResultEntry entry : result.getSuccessful()) {
+            statuses.set(Integer.parseInt(entry.getId()), true);
+        }
+
+        boolean throttled = false;
+        for (BatchResultErrorEntry entry : result.getFailed()) {
+            log.error("Failed to send message: {} to queue, code: {}, message: {}", entry.getId(),
+                    entry.getCode(), entry.getMessage());
+            throttled |= THROTTLING_ERROR_CODES.contains(entry.getCode());
+        }
+        if (throttled) {
+            throttleCallback.run();
+        }
+
+        return statuses;
     }
 
     public Message receiveMessage() {
@@ -114,25 +341,91 @@ public class AmazonSQSClientAccessor {
         return true;
     }
 
+    /**
+     * Delete messages in a single batch request.
+     *
+     * @param messages received messages, at most 10
+     * @return true if all the messages are deleted
+     */
     public boolean deleteMessageBatch(List<Message> messages) {
         List<DeleteMessageBatchRequestEntry> messageEntries = new ArrayList<>();
-        for (Message message : messages) {
+        for (int i = 0; i < messages.size(); i++) {
             DeleteMessageBatchRequestEntry entry = new DeleteMessageBatchRequestEntry()
-                    .withReceiptHandle(message.getReceiptHandle());
+                    .withId(String.valueOf(i)).withReceiptHandle(messages.get(i).getReceiptHandle());
             messageEntries.add(entry);
         }
 
         DeleteMessageBatchRequest request = new DeleteMessageBatchRequest()
                 .withQueueUrl(sqsClientConfig.getQueueUrl()).withEntries(messageEntries);
 
-        sqsClient.deleteMessageBatch(request);
-        return true;
+        DeleteMessageBatchResult result = sqsClient.deleteMessageBatch(request);
+        for (BatchResultErrorEntry entry : result.getFailed()) {
+            log.error("Failed to delete message: {} from queue, code: {}, message: {}",
+                    entry.getId(), entry.getCode(), entry.getMessage());
+        }
+
+        return result.getFailed().isEmpty();
+    }
+
+    /**
+     * Change visibility timeout of messages in a single batch request. Entries are identified by
+     * their index in the given list, so the returned statuses are in the same order as the messages.
+     *
+     * @param messages received messages, at most 10
+     * @param visibilityTimeout visibility timeout in seconds from now, 0 to make messages visible
+     * @return per entry status, true if visibility timeout of the message is changed
+     */
+    public List<Boolean> changeMessageVisibilityBatch(List<Message> messages,
+            int visibilityTimeout) {
+        List<ChangeMessageVisibilityBatchRequestEntry> messageEntries = new ArrayList<>();
+        for (int i = 0; i < messages.size(); i++) {
+            ChangeMessageVisibilityBatchRequestEntry entry =
+                    new ChangeMessageVisibilityBatchRequestEntry().withId(String.valueOf(i))
+                            .withReceiptHandle(messages.get(i).getReceiptHandle())
+                            .withVisibilityTimeout(visibilityTimeout);
+            messageEntries.add(entry);
+        }
+
+        ChangeMessageVisibilityBatchRequest request = new ChangeMessageVisibilityBatchRequest()
+                .withQueueUrl(sqsClientConfig.getQueueUrl()).withEntries(messageEntries);
+
+        ChangeMessageVisibilityBatchResult result =
+                sqsClient.changeMessageVisibilityBatch(request);
+
+        List<Boolean> statuses = new ArrayList<>(Collections.nCopies(messages.size(), false));
+        for (ChangeMessageVisibilityBatchResultEntry entry : result.getSuccessful()) {
+            statuses.set(Integer.parseInt(entry.getId()), true);
+        }
+
+        for (BatchResultErrorEntry entry : result.getFailed()) {
+            log.warn("Failed to change visibility of message: {}, code: {}, message: {}",
+                    entry.getId(), entry.getCode(), entry.getMessage());
+        }
+
+        return statuses;
     }
 
-    @Recover
-    public boolean recover(Exception ex) {
+    private boolean recover(Throwable ex) {
         log.error("Exception while sending message to queue: {}", ex.getMessage());
 
         return false;
     }
+
+    private List<Boolean> recoverBatch(Throwable ex, List<String> messageBodies, String groupId) {
+        log.error("Exception while sending message batch to queue: {}", ex.getMessage());
+
+        return new ArrayList<>(Collections.nCopies(messageBodies.size(), false));
+    }
+
+    private RetryTemplate createRetryTemplate() {
+        ExponentialBackOffPolicy backOffPolicy = new ExponentialBackOffPolicy();
+        backOffPolicy.setInitialInterval(100);
+        backOffPolicy.setMultiplier(2);
+
+        RetryTemplate template = new RetryTemplate();
+        template.setRetryPolicy(new SimpleRetryPolicy());
+        template.setBackOffPolicy(backOffPolicy);
+
+        return template;
+    }
 }
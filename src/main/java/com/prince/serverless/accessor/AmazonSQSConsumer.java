@@ -0,0 +1,399 @@
+package com.prince.serverless.accessor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.services.sqs.model.Message;
+
+import com.prince.serverless.config.AmazonSQSClientConfig;
+
+/**
+ * Consumes messages of the queue with a pool of handlers.
+ *
+ * <pre>
+ * receiver threads (long polling) -> bounded handoff queue -> handler threads -> delete batches
+ * </pre>
+ *
+ * Messages are received in batches by several receiver threads, which block while the handoff
+ * queue is full, so no more messages are received than handlers can keep up with. Handled messages
+ * are deleted in batches. Visibility timeout of messages which are received but not yet handled,
+ * including the ones waiting in the handoff queue, is extended before it expires, so that slow
+ * messages are not received again by another consumer.
+ *
+ * @author Prince Raj
+ */
+public class AmazonSQSConsumer {
+
+    // SQS limit for number of entries in a batch request
+    private static final int MAX_BATCH_SIZE = 10;
+
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+
+    private static final long RECEIVE_ERROR_BACKOFF_MILLIS = 1000;
+
+    private final Logger log = LogManager.getLogger(this.getClass());
+
+    private final AmazonSQSClientAccessor sqsClientAccessor;
+
+    private final AmazonSQSMessageHandler handler;
+
+    private final int receiverThreads;
+
+    private final int handlerThreads;
+
+    // visibility timeout in seconds, as received and as extended
+    private final int visibilityTimeout;
+
+    private final long deleteBatchAgeMillis;
+
+    private final BlockingQueue<Message> handoffQueue;
+
+    // receipt handle to message which is received but not yet handled
+    private final ConcurrentMap<String, InFlightMessage> inFlightMessages =
+            new ConcurrentHashMap<>();
+
+    private final AtomicLong receivedCount = new AtomicLong();
+
+    private final AtomicLong handledCount = new AtomicLong();
+
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private final AtomicLong deletedCount = new AtomicLong();
+
+    private List<Message> pendingDeletes = new ArrayList<>(MAX_BATCH_SIZE);
+
+    private long pendingDeletesStartTime;
+
+    private ExecutorService receiverPool;
+
+    private ExecutorService handlerPool;
+
+    private ScheduledExecutorService scheduler;
+
+    private volatile boolean receiving;
+
+    /**
+     * @param sqsClientAccessor accessor of the queue
+     * @param sqsClientConfig config of the queue and of the consumer
+     * @param handler message handler
+     */
+    public AmazonSQSConsumer(AmazonSQSClientAccessor sqsClientAccessor,
+            AmazonSQSClientConfig sqsClientConfig, AmazonSQSMessageHandler handler) {
+        this.sqsClientAccessor = sqsClientAccessor;
+        this.handler = handler;
+        this.receiverThreads = Math.max(1, sqsClientConfig.getConsumerReceiverThreads());
+        this.handlerThreads = Math.max(1, sqsClientConfig.getConsumerHandlerThreads());
+        this.visibilityTimeout = Math.max(1, sqsClientConfig.getVisibilityTimeout());
+        this.deleteBatchAgeMillis = Math.max(1, sqsClientConfig.getMaxBatchAgeMillis());
+        this.handoffQueue =
+                new ArrayBlockingQueue<>(Math.max(1, sqsClientConfig.getConsumerQueueSize()));
+    }
+
+    public synchronized void start() {
+        if (receiverPool != null) {
+            throw new IllegalStateException("Consumer is already started");
+        }
+
+        receiving = true;
+        receiverPool = Executors.newFixedThreadPool(receiverThreads);
+        handlerPool = Executors.newFixedThreadPool(handlerThreads);
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        for (int i = 0; i < receiverThreads; i++) {
+            receiverPool.execute(this::receive);
+        }
+        for (int i = 0; i < handlerThreads; i++) {
+            handlerPool.execute(this::handle);
+        }
+
+        long visibilityTimeoutMillis = TimeUnit.SECONDS.toMillis(visibilityTimeout);
+        scheduler.scheduleWithFixedDelay(this::extendVisibility, visibilityTimeoutMillis / 3,
+                visibilityTimeoutMillis / 3, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::flushDeletesIfExpired, deleteBatchAgeMillis,
+                deleteBatchAgeMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop receiving messages, and wait for the received messages to be handled and deleted.
+     * Messages which are not handled within the timeout are made visible again, so that they are
+     * received again without waiting for their visibility timeout.
+     *
+     * @param timeout max time to wait, which should be more than the long polling wait time
+     * @param unit unit of timeout
+     * @return true if all the received messages are handled
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean stop(long timeout, TimeUnit unit) throws InterruptedException {
+        synchronized (this) {
+            if (receiverPool == null || !receiving) {
+                return true;
+            }
+            receiving = false;
+        }
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        // receivers stop once their current long poll completes
+        receiverPool.shutdown();
+        if (!receiverPool.awaitTermination(remainingNanos(deadline), TimeUnit.NANOSECONDS)) {
+            receiverPool.shutdownNow();
+            receiverPool.awaitTermination(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        // handlers stop once the handoff queue is empty
+        handlerPool.shutdown();
+        boolean handled =
+                handlerPool.awaitTermination(remainingNanos(deadline), TimeUnit.NANOSECONDS);
+        if (!handled) {
+            handlerPool.shutdownNow();
+            handlerPool.awaitTermination(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        scheduler.shutdownNow();
+        flushDeletes();
+        releaseUnhandled();
+
+        log.info("Stopped consumer, received: {}, handled: {}, failed: {}, deleted: {}",
+                receivedCount.get(), handledCount.get(), failedCount.get(), deletedCount.get());
+
+        return handled;
+    }
+
+    public long getReceivedCount() {
+        return receivedCount.get();
+    }
+
+    public long getHandledCount() {
+        return handledCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getDeletedCount() {
+        return deletedCount.get();
+    }
+
+    private void receive() {
+        while (receiving) {
+            try {
+                List<Message> messages = sqsClientAccessor.receiveMessages();
+
+                long invisibleUntil =
+                        System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(visibilityTimeout);
+                for (Message message : messages) {
+                    inFlightMessages.put(message.getReceiptHandle(),
+                            new InFlightMessage(message, invisibleUntil));
+                }
+                receivedCount.addAndGet(messages.size());
+
+                for (Message message : messages) {
+                    handoffQueue.put(message);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                log.error("Exception while receiving messages from queue: {}", ex.getMessage());
+                if (!sleep(RECEIVE_ERROR_BACKOFF_MILLIS)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void handle() {
+        try {
+            while (true) {
+                Message message = handoffQueue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (message == null) {
+                    if (!receiving && receiverPool.isTerminated() && handoffQueue.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+
+                boolean success;
+                try {
+                    success = handler.handle(message);
+                } catch (InterruptedException ex) {
+                    throw ex;
+                } catch (Exception ex) {
+                    log.error("Exception while handling message: {}", message.getMessageId(),
+                            ex);
+                    success = false;
+                }
+
+                if (success) {
+                    // visibility is extended until the message is deleted
+                    handledCount.incrementAndGet();
+                    addPendingDelete(message);
+                } else {
+                    // message is received again once its visibility timeout expires
+                    failedCount.incrementAndGet();
+                    inFlightMessages.remove(message.getReceiptHandle());
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void addPendingDelete(Message message) {
+        List<Message> batch = null;
+        synchronized (this) {
+            if (pendingDeletes.isEmpty()) {
+                pendingDeletesStartTime = System.currentTimeMillis();
+            }
+            pendingDeletes.add(message);
+            if (pendingDeletes.size() >= MAX_BATCH_SIZE) {
+                batch = takePendingDeletes();
+            }
+        }
+
+        deleteBatch(batch);
+    }
+
+    private void flushDeletesIfExpired() {
+        List<Message> batch = null;
+        synchronized (this) {
+            if (!pendingDeletes.isEmpty() && System.currentTimeMillis()
+                    - pendingDeletesStartTime >= deleteBatchAgeMillis) {
+                batch = takePendingDeletes();
+            }
+        }
+
+        deleteBatch(batch);
+    }
+
+    private void flushDeletes() {
+        List<Message> batch = null;
+        synchronized (this) {
+            if (!pendingDeletes.isEmpty()) {
+                batch = takePendingDeletes();
+            }
+        }
+
+        deleteBatch(batch);
+    }
+
+    private List<Message> takePendingDeletes() {
+        List<Message> batch = pendingDeletes;
+        pendingDeletes = new ArrayList<>(MAX_BATCH_SIZE);
+
+        return batch;
+    }
+
+    private void deleteBatch(List<Message> batch) {
+        if (batch == null) {
+            return;
+        }
+
+        try {
+            // messages which are not deleted are received again, handlers should be idempotent
+            if (sqsClientAccessor.deleteMessageBatch(batch)) {
+                deletedCount.addAndGet(batch.size());
+            }
+        } catch (RuntimeException ex) {
+            log.error("Exception while deleting messages from queue: {}", ex.getMessage());
+        } finally {
+            for (Message message : batch) {
+                inFlightMessages.remove(message.getReceiptHandle());
+            }
+        }
+    }
+
+    private void extendVisibility() {
+        long now = System.currentTimeMillis();
+        long visibilityTimeoutMillis = TimeUnit.SECONDS.toMillis(visibilityTimeout);
+
+        // extend messages which would be visible within half of the visibility timeout
+        List<InFlightMessage> dueMessages = new ArrayList<>();
+        for (InFlightMessage inFlightMessage : inFlightMessages.values()) {
+            if (inFlightMessage.invisibleUntil - now < visibilityTimeoutMillis / 2) {
+                dueMessages.add(inFlightMessage);
+            }
+        }
+
+        for (int i = 0; i < dueMessages.size(); i += MAX_BATCH_SIZE) {
+            List<InFlightMessage> batch =
+                    dueMessages.subList(i, Math.min(i + MAX_BATCH_SIZE, dueMessages.size()));
+            List<Message> messages = new ArrayList<>(batch.size());
+            for (InFlightMessage inFlightMessage : batch) {
+                messages.add(inFlightMessage.message);
+            }
+
+            try {
+                List<Boolean> statuses =
+                        sqsClientAccessor.changeMessageVisibilityBatch(messages, visibilityTimeout);
+                for (int j = 0; j < batch.size(); j++) {
+                    if (statuses.get(j)) {
+                        batch.get(j).invisibleUntil = now + visibilityTimeoutMillis;
+                    }
+                }
+            } catch (RuntimeException ex) {
+                log.error("Exception while extending visibility of messages: {}",
+                        ex.getMessage());
+            }
+        }
+    }
+
+    private void releaseUnhandled() {
+        // messages in handoff queue are in flight as well
+        handoffQueue.clear();
+
+        List<Message> messages = new ArrayList<>();
+        for (InFlightMessage inFlightMessage : inFlightMessages.values()) {
+            messages.add(inFlightMessage.message);
+        }
+        inFlightMessages.clear();
+
+        for (int i = 0; i < messages.size(); i += MAX_BATCH_SIZE) {
+            try {
+                sqsClientAccessor.changeMessageVisibilityBatch(
+                        messages.subList(i, Math.min(i + MAX_BATCH_SIZE, messages.size())), 0);
+            } catch (RuntimeException ex) {
+                log.error("Exception while releasing messages: {}", ex.getMessage());
+            }
+        }
+    }
+
+    private static long remainingNanos(long deadline) {
+        return Math.max(0, deadline - System.nanoTime());
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static class InFlightMessage {
+
+        private final Message message;
+
+        private volatile long invisibleUntil;
+
+        private InFlightMessage(Message message, long invisibleUntil) {
+            this.message = message;
+            this.invisibleUntil = invisibleUntil;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.prince.serverless.accessor;
+
+import com.amazonaws.services.sqs.model.Message;
+
+/**
+ * Handler of messages received by {@link AmazonSQSConsumer}.
+ *
+ * @author Prince Raj
+ */
+@FunctionalInterface
+public interface AmazonSQSMessageHandler {
+
+    /**
+     * Handle a message. Handlers are invoked concurrently, and a message may be received more than
+     * once, so handling should be idempotent.
+     *
+     * @param message received message
+     * @return true if the message is handled and should be deleted, false to receive it again once
+     *         its visibility timeout expires
+     * @throws Exception exception, which is treated same as returning false
+     */
+    boolean handle(Message message) throws Exception;
+}
@@ -0,0 +1,194 @@
+package com.prince.serverless.accessor;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Schedules retries of failed sends on a background thread, so that the thread which sent them
+ * keeps making progress instead of sleeping through the backoff. Delay of a retry is picked at
+ * random up to an exponentially growing cap (full jitter), so that retries of batches which failed
+ * together are spread out. Messages retried by a scheduler are limited by its retry budget, so a
+ * queue which keeps failing can't hold up the file for long. Messages of a retry which throws, or
+ * which is dropped as the scheduler is shut down, are reported as failed, so that every message
+ * gets an outcome.
+ *
+ * @author Prince Raj
+ */
+public class AmazonSQSRetryScheduler {
+
+    private final Logger log = LogManager.getLogger(this.getClass());
+
+    private final int maxAttempts;
+
+    private final long initialDelayMillis;
+
+    private final long maxDelayMillis;
+
+    private final double multiplier;
+
+    private final AtomicLong remainingBudget;
+
+    private final AtomicLong retriedMessages = new AtomicLong();
+
+    private final AtomicLong exhaustedMessages = new AtomicLong();
+
+    private final ScheduledExecutorService executorService;
+
+    // retries which are scheduled but not yet run
+    private final Set<ScheduledRetry> pendingRetries = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param maxAttempts max attempts to send a message, including the first one
+     * @param initialDelayMillis max delay of the first retry
+     * @param maxDelayMillis max delay of any retry
+     * @param multiplier factor applied to max delay with every attempt
+     * @param budget max messages retried, counting every retry of a message
+     */
+    public AmazonSQSRetryScheduler(int maxAttempts, long initialDelayMillis, long maxDelayMillis,
+            double multiplier, long budget) {
+        this.maxAttempts = maxAttempts;
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.multiplier = multiplier;
+        this.remainingBudget = new AtomicLong(budget);
+        this.executorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sqs-send-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Schedule retry of failed messages.
+     *
+     * @param attempt attempts made so far to send the messages
+     * @param messages number of messages retried
+     * @param retry sends the messages again
+     * @param failure reports the messages as failed, if the retry throws or is dropped
+     * @return true if retry is scheduled, false if attempts or retry budget are exhausted, or the
+     *         scheduler is shut down
+     */
+    public boolean schedule(int attempt, int messages, Runnable retry, Runnable failure) {
+        if (attempt >= maxAttempts || !acquireBudget(messages)) {
+            exhaustedMessages.addAndGet(messages);
+            return false;
+        }
+
+        long delayCap = (long) Math.min(maxDelayMillis,
+                initialDelayMillis * Math.pow(multiplier, attempt - 1));
+        long delayMillis = ThreadLocalRandom.current().nextLong(delayCap + 1);
+
+        ScheduledRetry scheduledRetry = new ScheduledRetry(messages, retry, failure);
+        pendingRetries.add(scheduledRetry);
+        try {
+            executorService.schedule(scheduledRetry, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ex) {
+            // scheduler is shut down, the file is aborted
+            pendingRetries.remove(scheduledRetry);
+            exhaustedMessages.addAndGet(messages);
+            return false;
+        }
+
+        retriedMessages.addAndGet(messages);
+        return true;
+    }
+
+    /**
+     * @return messages retried so far, counting every retry of a message
+     */
+    public long getRetriedMessages() {
+        return retriedMessages.get();
+    }
+
+    /**
+     * @return messages which failed without a retry, as attempts or retry budget are exhausted, or
+     *         whose retry threw or was dropped
+     */
+    public long getExhaustedMessages() {
+        return exhaustedMessages.get();
+    }
+
+    /**
+     * Stop the scheduler, dropping retries which are not yet run and reporting their messages as
+     * failed.
+     */
+    public void shutdownNow() {
+        executorService.shutdownNow();
+        for (ScheduledRetry scheduledRetry : pendingRetries) {
+            scheduledRetry.fail();
+        }
+    }
+
+    /**
+     * Retry which runs once, unless its messages are reported as failed first.
+     */
+    private class ScheduledRetry implements Runnable {
+
+        private final int messages;
+
+        private final Runnable retry;
+
+        private final Runnable failure;
+
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private ScheduledRetry(int messages, Runnable retry, Runnable failure) {
+            this.messages = messages;
+            this.retry = retry;
+            this.failure = failure;
+        }
+
+        @Override
+        public void run() {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            pendingRetries.remove(this);
+
+            try {
+                retry.run();
+            } catch (RuntimeException ex) {
+                reportFailed(ex);
+            }
+        }
+
+        private void fail() {
+            if (done.compareAndSet(false, true)) {
+                pendingRetries.remove(this);
+                reportFailed(null);
+            }
+        }
+
+        private void reportFailed(RuntimeException cause) {
+            log.error("Reporting {} retried messages as failed", messages, cause);
+            exhaustedMessages.addAndGet(messages);
+            try {
+                failure.run();
+            } catch (RuntimeException ex) {
+                log.error("Exception while reporting retried messages as failed", ex);
+            }
+        }
+    }
+
+    private boolean acquireBudget(int messages) {
+        while (true) {
+            long remaining = remainingBudget.get();
+            if (remaining < messages) {
+                return false;
+            }
+            if (remainingBudget.compareAndSet(remaining, remaining - messages)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.prince.serverless.config;
+
+import lombok.Data;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * AWS Lambda client configuration
+ *
+ * @author Prince Raj
+ */
+@Component
+@Data
+public class AmazonLambdaClientConfig {
+
+    @Value("${com.example.aws.lambda.region:ap-south-1}")
+    private String region;
+}
@@ -5,6 +5,8 @@ import lombok.Data;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import com.prince.serverless.util.OutputMode;
+
 /**
  * AWS S3 client configuration
  *
@@ -19,4 +21,53 @@ public class AmazonS3ClientConfig {
 
     @Value("${com.example.aws.s3.region}")
     private String region;
+
+    // read object in parallel byte range parts instead of a single get
+    @Value("${com.example.aws.s3.read.ranged.enabled:true}")
+    private boolean rangedReadEnabled;
+
+    @Value("${com.example.aws.s3.read.part.size:8388608}")
+    private long readPartSize;
+
+    // max parts fetched in parallel
+    @Value("${com.example.aws.s3.read.parallelism:4}")
+    private int readParallelism;
+
+    // cap on memory used by fetched parts of an object
+    @Value("${com.example.aws.s3.read.max.buffered.bytes:67108864}")
+    private long readMaxBufferedBytes;
+
+    // max chunks of gzip members decompressed in parallel, 1 to decompress on the reading thread
+    @Value("${com.example.aws.s3.read.decompression.parallelism:4}")
+    private int decompressionParallelism;
+
+    // min compressed bytes of a chunk, chunks end where a member starts
+    @Value("${com.example.aws.s3.read.decompression.chunk.size:1048576}")
+    private int decompressionChunkSize;
+
+    @Value("${com.example.aws.s3.write.mode:STREAM}")
+    private OutputMode writeMode;
+
+    @Value("${com.example.aws.s3.write.part.size:8388608}")
+    private int writePartSize;
+
+    // max parts uploaded in parallel
+    @Value("${com.example.aws.s3.write.parallelism:4}")
+    private int writeParallelism;
+
+    // write output file as multi-member gzip, named with .gz extension
+    @Value("${com.example.aws.s3.write.compression.enabled:false}")
+    private boolean writeCompressionEnabled;
+
+    // 0-9, -1 for default
+    @Value("${com.example.aws.s3.write.compression.level:-1}")
+    private int writeCompressionLevel;
+
+    // uncompressed bytes of a gzip member
+    @Value("${com.example.aws.s3.write.compression.block.size:1048576}")
+    private int writeCompressionBlockSize;
+
+    // max blocks compressed in parallel
+    @Value("${com.example.aws.s3.write.compression.parallelism:4}")
+    private int writeCompressionParallelism;
 }
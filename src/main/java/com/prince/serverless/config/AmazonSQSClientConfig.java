@@ -23,9 +23,67 @@ public class AmazonSQSClientConfig {
     @Value("${com.example.aws.sqs.max.batch.size}")
     private int maxBatchSize;
 
+    @Value("${com.example.aws.sqs.max.batch.age.millis:1000}")
+    private long maxBatchAgeMillis;
+
     @Value("${com.example.aws.sqs.wait.time}")
     private int waitTime;
 
     @Value("${com.example.aws.sqs.visibility.timeout}")
     private int visibilityTimeout;
+
+    // indent message payloads, for debugging
+    @Value("${com.example.aws.sqs.payload.pretty:false}")
+    private boolean prettyPayload;
+
+    // pack recipients of a channel into envelope messages, instead of a message per recipient
+    @Value("${com.example.aws.sqs.envelope.enabled:false}")
+    private boolean envelopeEnabled;
+
+    @Value("${com.example.aws.sqs.envelope.max.recipients:1000}")
+    private int envelopeMaxRecipients;
+
+    // max bytes of an envelope before compression, SQS bills every 64 KB of payload as a request
+    @Value("${com.example.aws.sqs.envelope.max.bytes:65536}")
+    private int envelopeMaxBytes;
+
+    @Value("${com.example.aws.sqs.envelope.compressed:false}")
+    private boolean envelopeCompressed;
+
+    // send batches of notifications with the async client, without waiting for responses
+    @Value("${com.example.aws.sqs.async.enabled:false}")
+    private boolean asyncEnabled;
+
+    // max send requests in flight in async mode
+    @Value("${com.example.aws.sqs.async.max.in.flight:64}")
+    private int maxInFlightRequests;
+
+    // max attempts to send a message, retries are scheduled without blocking the sender
+    @Value("${com.example.aws.sqs.retry.max.attempts:3}")
+    private int retryMaxAttempts;
+
+    @Value("${com.example.aws.sqs.retry.initial.delay.millis:100}")
+    private long retryInitialDelayMillis;
+
+    @Value("${com.example.aws.sqs.retry.max.delay.millis:5000}")
+    private long retryMaxDelayMillis;
+
+    @Value("${com.example.aws.sqs.retry.multiplier:2}")
+    private double retryMultiplier;
+
+    // max messages retried per file, counting every retry of a message
+    @Value("${com.example.aws.sqs.retry.budget:10000}")
+    private long retryBudget;
+
+    // threads of consumer receiving messages with long polling
+    @Value("${com.example.aws.sqs.consumer.receiver.threads:2}")
+    private int consumerReceiverThreads;
+
+    // threads of consumer handling received messages
+    @Value("${com.example.aws.sqs.consumer.handler.threads:8}")
+    private int consumerHandlerThreads;
+
+    // received messages waiting for a handler thread
+    @Value("${com.example.aws.sqs.consumer.queue.size:100}")
+    private int consumerQueueSize;
 }
@@ -0,0 +1,121 @@
+package com.prince.serverless.config;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.AutowiredAnnotationBeanPostProcessor;
+import org.springframework.beans.factory.annotation.QualifierAnnotationAutowireCandidateResolver;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.annotation.CommonAnnotationBeanPostProcessor;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.io.support.ResourcePropertySource;
+
+import com.prince.serverless.accessor.AmazonLambdaClientAccessor;
+import com.prince.serverless.accessor.AmazonS3ClientAccessor;
+import com.prince.serverless.accessor.AmazonSQSClientAccessor;
+import com.prince.serverless.exception.EngineServiceException;
+import com.prince.serverless.service.CheckpointService;
+import com.prince.serverless.service.FolderService;
+import com.prince.serverless.service.NotificationServiceImpl;
+import com.prince.serverless.service.ShardService;
+import com.prince.serverless.service.SuppressionService;
+import com.prince.serverless.util.MetricsLogger;
+import com.prince.serverless.util.NotificationUtils;
+import com.prince.serverless.util.PayloadEncoder;
+import com.prince.serverless.util.TemplateEngine;
+
+/**
+ * Spring configuration which registers beans functionally, as an alternative to
+ * {@link SpringConfig} for faster cold starts.
+ *
+ * Beans are created by suppliers, so there is no classpath scanning, no parsing of configuration
+ * classes and no proxy creation. Only @Value and @PostConstruct annotations of the registered beans
+ * are processed. Every bean annotated with @Component should be registered here as well.
+ *
+ * @author Prince Raj
+ */
+public class FunctionalSpringConfig
+        implements ApplicationContextInitializer<GenericApplicationContext> {
+
+    private static final String PROPERTY_SOURCE = "classpath:application-${profile:dev}.properties";
+
+    @Override
+    public void initialize(GenericApplicationContext context) {
+        ConfigurableEnvironment environment = context.getEnvironment();
+        try {
+            String location = environment.resolveRequiredPlaceholders(PROPERTY_SOURCE);
+            environment.getPropertySources().addLast(new ResourcePropertySource(location));
+        } catch (IOException ex) {
+            throw new EngineServiceException("Failed to load properties", ex);
+        }
+
+        // processors for @Value and @PostConstruct
+        context.getDefaultListableBeanFactory()
+                .setAutowireCandidateResolver(new QualifierAnnotationAutowireCandidateResolver());
+        context.registerBean(AutowiredAnnotationBeanPostProcessor.class,
+                AutowiredAnnotationBeanPostProcessor::new);
+        context.registerBean(CommonAnnotationBeanPostProcessor.class,
+                CommonAnnotationBeanPostProcessor::new);
+
+        // configs
+        context.registerBean(AmazonS3ClientConfig.class, AmazonS3ClientConfig::new);
+        context.registerBean(AmazonSQSClientConfig.class, AmazonSQSClientConfig::new);
+        context.registerBean(AmazonLambdaClientConfig.class, AmazonLambdaClientConfig::new);
+        context.registerBean(ProcessingConfig.class, ProcessingConfig::new);
+        context.registerBean(RateLimitConfig.class, RateLimitConfig::new);
+        context.registerBean(MetricsConfig.class, MetricsConfig::new);
+        context.registerBean(SuppressionConfig.class, SuppressionConfig::new);
+
+        // accessors
+        context.registerBean(AmazonS3ClientAccessor.class,
+                () -> new AmazonS3ClientAccessor(context.getBean(AmazonS3ClientConfig.class)));
+        context.registerBean(AmazonSQSClientAccessor.class,
+                () -> new AmazonSQSClientAccessor(context.getBean(AmazonSQSClientConfig.class)));
+        context.registerBean(AmazonLambdaClientAccessor.class,
+                () -> new AmazonLambdaClientAccessor(
+                        context.getBean(AmazonLambdaClientConfig.class)));
+
+        // utils
+        context.registerBean(TemplateEngine.class, TemplateEngine::new);
+        context.registerBean(PayloadEncoder.class,
+                () -> new PayloadEncoder(context.getBean(AmazonSQSClientConfig.class)));
+        context.registerBean(NotificationUtils.class,
+                () -> new NotificationUtils(context.getBean(AmazonSQSClientConfig.class),
+                        context.getBean(AmazonSQSClientAccessor.class),
+                        context.getBean(TemplateEngine.class),
+                        context.getBean(PayloadEncoder.class),
+                        context.getBean(RateLimitConfig.class)));
+
+        // services
+        context.registerBean(CheckpointService.class,
+                () -> new CheckpointService(context.getBean(AmazonS3ClientConfig.class),
+                        context.getBean(AmazonS3ClientAccessor.class),
+                        context.getBean(AmazonLambdaClientConfig.class),
+                        context.getBean(AmazonLambdaClientAccessor.class),
+                        context.getBean(ProcessingConfig.class)));
+        context.registerBean(MetricsLogger.class,
+                () -> new MetricsLogger(context.getBean(MetricsConfig.class)));
+        context.registerBean(SuppressionService.class,
+                () -> new SuppressionService(context.getBean(AmazonS3ClientAccessor.class),
+                        context.getBean(SuppressionConfig.class)));
+        context.registerBean(ShardService.class,
+                () -> new ShardService(context.getBean(AmazonS3ClientConfig.class),
+                        context.getBean(AmazonS3ClientAccessor.class),
+                        context.getBean(AmazonLambdaClientConfig.class),
+                        context.getBean(AmazonLambdaClientAccessor.class),
+                        context.getBean(ProcessingConfig.class)));
+        context.registerBean(FolderService.class,
+                () -> new FolderService(context.getBean(AmazonS3ClientAccessor.class),
+                        context.getBean(ProcessingConfig.class)));
+        context.registerBean(NotificationServiceImpl.class,
+                () -> new NotificationServiceImpl(context.getBean(AmazonS3ClientConfig.class),
+                        context.getBean(AmazonS3ClientAccessor.class),
+                        context.getBean(ProcessingConfig.class),
+                        context.getBean(NotificationUtils.class),
+                        context.getBean(CheckpointService.class),
+                        context.getBean(MetricsLogger.class),
+                        context.getBean(SuppressionService.class),
+                        context.getBean(ShardService.class),
+                        context.getBean(FolderService.class)));
+    }
+}
@@ -0,0 +1,22 @@
+package com.prince.serverless.config;
+
+import lombok.Data;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Metrics configuration, metrics are logged in CloudWatch embedded metric format
+ *
+ * @author Prince Raj
+ */
+@Component
+@Data
+public class MetricsConfig {
+
+    @Value("${com.example.metrics.enabled:true}")
+    private boolean enabled;
+
+    @Value("${com.example.metrics.namespace:NotificationService}")
+    private String namespace;
+}
@@ -0,0 +1,98 @@
+package com.prince.serverless.config;
+
+import lombok.Data;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * File processing configuration
+ *
+ * @author Prince Raj
+ */
+@Component
+@Data
+public class ProcessingConfig {
+
+    // max files of an event, or parts of a folder, which are processed concurrently
+    @Value("${com.example.processing.max.concurrent.files:4}")
+    private int maxConcurrentFiles;
+
+    // number of threads sending notifications of each channel which a file has rows for
+    @Value("${com.example.processing.worker.threads:4}")
+    private int workerThreads;
+
+    // max rows waiting to be picked by worker threads of each channel
+    @Value("${com.example.processing.queue.size:1000}")
+    private int queueSize;
+
+    // max rows read from input file but not yet written to output file
+    @Value("${com.example.processing.max.pending.rows:10000}")
+    private int maxPendingRows;
+
+    // don't send a notification again to a user or address which an earlier row of the file sent
+    @Value("${com.example.processing.dedupe.enabled:true}")
+    private boolean dedupeEnabled;
+
+    // save progress of a file periodically, and continue it in another invocation before timeout
+    @Value("${com.example.processing.checkpoint.enabled:true}")
+    private boolean checkpointEnabled;
+
+    @Value("${com.example.processing.checkpoint.interval.millis:60000}")
+    private long checkpointIntervalMillis;
+
+    // remaining invocation time at which processing is handed off to another invocation
+    @Value("${com.example.processing.checkpoint.deadline.margin.millis:60000}")
+    private long checkpointDeadlineMarginMillis;
+
+    // max invocations which may process a single file
+    @Value("${com.example.processing.checkpoint.max.invocations:20}")
+    private int checkpointMaxInvocations;
+
+    // max times a failed file is retried from its checkpoint, before the checkpoint is discarded
+    @Value("${com.example.processing.checkpoint.max.retries:2}")
+    private int checkpointMaxRetries;
+
+    // time after the last save of a checkpoint, after which another invocation may take it over
+    @Value("${com.example.processing.checkpoint.lease.millis:180000}")
+    private long checkpointLeaseMillis;
+
+    // split files of at least min file size into shards, processed by concurrent invocations
+    @Value("${com.example.processing.shard.enabled:false}")
+    private boolean shardEnabled;
+
+    @Value("${com.example.processing.shard.min.file.size:1073741824}")
+    private long shardMinFileSize;
+
+    // bytes of input file per shard, which an invocation should process before timeout
+    @Value("${com.example.processing.shard.size:268435456}")
+    private long shardSize;
+
+    @Value("${com.example.processing.shard.max.count:64}")
+    private int shardMaxCount;
+
+    // max attempts to record a completed shard, as other shards may record theirs meanwhile
+    @Value("${com.example.processing.shard.max.write.attempts:20}")
+    private int shardMaxWriteAttempts;
+
+    // max times a failed shard is invoked again, before its rows are left out of output file
+    @Value("${com.example.processing.shard.max.retries:2}")
+    private int shardMaxRetries;
+
+    // shards not updated for longer than lambda timeout plus a margin are taken over as stale
+    @Value("${com.example.processing.shard.lease.millis:960000}")
+    private long shardLeaseMillis;
+
+    // process parts of an input folder together once its marker file arrives, with a single
+    // report of the folder, instead of a report per part. Parts are not processed on their own.
+    @Value("${com.example.processing.folder.enabled:false}")
+    private boolean folderEnabled;
+
+    // file written by exporters after all the parts of a folder
+    @Value("${com.example.processing.folder.marker.file.name:_SUCCESS}")
+    private String folderMarkerFileName;
+
+    // max attempts to record a completed part, as other parts may record theirs meanwhile
+    @Value("${com.example.processing.folder.max.write.attempts:20}")
+    private int folderMaxWriteAttempts;
+}
@@ -0,0 +1,60 @@
+package com.prince.serverless.config;
+
+import lombok.Data;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rate limit configuration of notification channels. Rates are recipients per second, 0 means
+ * the channel is not rate limited.
+ *
+ * @author Prince Raj
+ */
+@Component
+@Data
+public class RateLimitConfig {
+
+    @Value("${com.example.rate.limit.email.rate:0}")
+    private double emailRate;
+
+    // max recipients sent at once after the channel is idle
+    @Value("${com.example.rate.limit.email.burst:100}")
+    private int emailBurst;
+
+    @Value("${com.example.rate.limit.sms.rate:0}")
+    private double smsRate;
+
+    @Value("${com.example.rate.limit.sms.burst:100}")
+    private int smsBurst;
+
+    @Value("${com.example.rate.limit.android.push.rate:0}")
+    private double androidPushRate;
+
+    @Value("${com.example.rate.limit.android.push.burst:100}")
+    private int androidPushBurst;
+
+    @Value("${com.example.rate.limit.ios.push.rate:0}")
+    private double iosPushRate;
+
+    @Value("${com.example.rate.limit.ios.push.burst:100}")
+    private int iosPushBurst;
+
+    @Value("${com.example.rate.limit.in.app.rate:0}")
+    private double inAppRate;
+
+    @Value("${com.example.rate.limit.in.app.burst:100}")
+    private int inAppBurst;
+
+    // factor applied to current rate when queue throttles requests
+    @Value("${com.example.rate.limit.backoff.factor:0.5}")
+    private double backoffFactor;
+
+    // fraction of configured rate added to current rate every second while not throttled
+    @Value("${com.example.rate.limit.recovery.fraction:0.05}")
+    private double recoveryFraction;
+
+    // min fraction of configured rate which current rate is reduced to
+    @Value("${com.example.rate.limit.min.fraction:0.05}")
+    private double minFraction;
+}
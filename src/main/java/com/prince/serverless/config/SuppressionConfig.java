@@ -0,0 +1,32 @@
+package com.prince.serverless.config;
+
+import lombok.Data;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Suppression configuration, users notified on a channel by earlier files are not notified again
+ * on that channel within a window of days
+ *
+ * @author Prince Raj
+ */
+@Component
+@Data
+public class SuppressionConfig {
+
+    @Value("${com.example.suppression.enabled:false}")
+    private boolean enabled;
+
+    // days of the window, including the day of the file
+    @Value("${com.example.suppression.window.days:1}")
+    private int windowDays;
+
+    // max attempts to merge notified users into bitmap of the day, as other files may write it
+    @Value("${com.example.suppression.max.write.attempts:5}")
+    private int maxWriteAttempts;
+
+    // prefix of user ids, which are keyed in bitmaps by the number following it
+    @Value("${com.example.suppression.user.id.prefix:userid}")
+    private String userIdPrefix;
+}
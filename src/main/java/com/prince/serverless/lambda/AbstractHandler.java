@@ -2,36 +2,59 @@ package com.prince.serverless.lambda;
 
 import java.lang.reflect.ParameterizedType;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.BeanUtils;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextInitializer;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.support.GenericApplicationContext;
 
 /**
  * This abstract class configures Spring IoC automatically. To enable this support, concrete handler
- * classes extends this class with T type which should implement @Configuration interface.
+ * classes extends this class with T type which should either implement @Configuration interface,
+ * or be an ApplicationContextInitializer which registers beans functionally.
  *
- * @param <T> T class should implement @Configuration interface
+ * @param <T> T class should implement @Configuration interface or ApplicationContextInitializer
  * @see MainHandler
  * @author Prince Raj
  */
 @SuppressWarnings("unused")
 abstract class AbstractHandler<T> {
 
+    private final Logger log = LogManager.getLogger(this.getClass());
+
     // Spring IoC application context
     private ApplicationContext applicationContext;
 
+    @SuppressWarnings("unchecked")
     AbstractHandler() {
+        long startTime = System.currentTimeMillis();
+
         // Gets config class to create an Application context
         Class typeParameterClass = ((Class) ((ParameterizedType) getClass().getGenericSuperclass())
                 .getActualTypeArguments()[0]);
 
-        // Check if T has @Configuration annotation, if no throws an exception
-        if (!typeParameterClass.isAnnotationPresent(Configuration.class)) {
+        if (ApplicationContextInitializer.class.isAssignableFrom(typeParameterClass)) {
+            // Create Spring application context with functionally registered beans
+            GenericApplicationContext genericApplicationContext = new GenericApplicationContext();
+            ApplicationContextInitializer<GenericApplicationContext> initializer =
+                    (ApplicationContextInitializer<GenericApplicationContext>) BeanUtils
+                            .instantiateClass(typeParameterClass);
+            initializer.initialize(genericApplicationContext);
+            genericApplicationContext.refresh();
+
+            applicationContext = genericApplicationContext;
+        } else if (typeParameterClass.isAnnotationPresent(Configuration.class)) {
+            // Create Spring application context
+            applicationContext = new AnnotationConfigApplicationContext(typeParameterClass);
+        } else {
             throw new RuntimeException(typeParameterClass + " is not a @Configuration class");
         }
 
-        // Create Spring application context
-        applicationContext = new AnnotationConfigApplicationContext(typeParameterClass);
+        log.info("Spring application context initialized in {} ms",
+                System.currentTimeMillis() - startTime);
     }
 
     /**
@@ -1,13 +1,17 @@
 package com.prince.serverless.lambda;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.events.S3Event;
+import com.amazonaws.services.s3.event.S3EventNotification.S3EventNotificationRecord;
 
-import com.prince.serverless.config.SpringConfig;
+import com.prince.serverless.config.FunctionalSpringConfig;
 import com.prince.serverless.model.Error;
 import com.prince.serverless.model.EventResponse;
 import com.prince.serverless.model.ServiceResponse;
@@ -16,13 +20,14 @@ import com.prince.serverless.util.ExceptionHandler;
 
 /**
  * Handler class that should extend AbstractHandler<T> where T should be a Spring @Configuration
- * class for Spring DI manager
+ * class or an ApplicationContextInitializer for Spring DI manager. Functional configuration is used
+ * as it avoids classpath scanning on cold starts.
  *
  * @author Prince Raj
  */
 @SuppressWarnings("unused")
-public class MainHandler extends AbstractHandler<SpringConfig>
-        implements RequestHandler<S3Event, ServiceResponse<EventResponse>> {
+public class MainHandler extends AbstractHandler<FunctionalSpringConfig>
+        implements RequestHandler<S3Event, ServiceResponse<List<EventResponse>>> {
 
     private final Logger log = LogManager.getLogger(this.getClass());
 
@@ -36,28 +41,33 @@ public class MainHandler extends AbstractHandler<SpringConfig>
      * sit in "Service" instance that we will fetch from Spring IoC container and will enjoy from
      * all Spring IoC features.
      *
+     * S3 may batch notifications of several files in an event, all of them are processed.
+     *
      * @param s3Event S3 event object
      * @param context Context object
-     * @return Event response
+     * @return Event response of every file in the event
      * @see RequestHandler
      */
-    public ServiceResponse<EventResponse> handleRequest(S3Event s3Event, Context context) {
+    public ServiceResponse<List<EventResponse>> handleRequest(S3Event s3Event, Context context) {
         NotificationService businessService =
                 getApplicationContext().getBean(NotificationService.class);
 
-        EventResponse eventResponse = null;
+        List<EventResponse> eventResponses = null;
         Error error = null;
 
         try {
-            String objectKey = s3Event.getRecords().get(0).getS3().getObject().getKey();
-            eventResponse = businessService.processFile(objectKey);
+            List<String> objectKeys = new ArrayList<>();
+            for (S3EventNotificationRecord record : s3Event.getRecords()) {
+                objectKeys.add(record.getS3().getObject().getKey());
+            }
+            eventResponses = businessService.processFiles(objectKeys, context);
         } catch (Exception ex) {
             ex.printStackTrace();
             error = ExceptionHandler.handleException(ex);
         }
 
-        ServiceResponse<EventResponse> response = new ServiceResponse<>();
-        response.setData(eventResponse);
+        ServiceResponse<List<EventResponse>> response = new ServiceResponse<>();
+        response.setData(eventResponses);
         response.setError(error);
         response.setTimestamp(System.currentTimeMillis());
 
@@ -0,0 +1,58 @@
+package com.prince.serverless.model;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.Data;
+
+import com.prince.serverless.util.ChannelType;
+
+/**
+ * Progress of a file which is processed across invocations. All the rows before input offset are
+ * sent, written to output file and counted in stats.
+ *
+ * @author Prince Raj
+ */
+@Data
+public class Checkpoint {
+
+    // etag of input file, checkpoint is discarded if input file is replaced
+    private String inputETag;
+
+    // offset in input file of the first row which is not processed
+    private long inputOffset;
+
+    // rows processed so far, including header
+    private long rowNumber;
+
+    private Map<ChannelType, Stats> channelTypeStatsMap;
+
+    private String outputFilePath;
+
+    // multipart upload id of output file, null if upload is not started
+    private String uploadId;
+
+    // etags of uploaded parts of output file, in order of part number
+    private List<String> partETags;
+
+    // key of s3 object with output bytes which are not uploaded as a part
+    private String outputTailKey;
+
+    // execution time of previous invocations
+    private long executionTimeMillis;
+
+    // number of invocations which processed the file, including current one
+    private int invocationCount;
+
+    // number of times processing of the file failed and was retried from the checkpoint
+    private int retryCount;
+
+    // request id of the invocation processing the file, null once it stops processing
+    private String ownerId;
+
+    // time the owner took over or last saved the checkpoint
+    private long leaseTimeMillis;
+
+    // incremented on every save, so that output tail keys are unique
+    private long version;
+}
@@ -0,0 +1,27 @@
+package com.prince.serverless.model;
+
+import java.util.List;
+
+import lombok.Data;
+
+import com.prince.serverless.util.ChannelType;
+
+/**
+ * This represents a message to recipients of one channel, sharing the same date. A message with a
+ * single recipient payload is decoded as an envelope with one recipient.
+ *
+ * @author Prince Raj
+ */
+@Data
+public class Envelope {
+
+    // version of envelope format, 0 for single recipient payload
+    private int version;
+
+    private ChannelType channelType;
+
+    private String date;
+
+    // email ids or mobile numbers, as per channel
+    private List<String> recipients;
+}
@@ -5,9 +5,10 @@ import java.util.Map;
 import lombok.Data;
 
 import com.prince.serverless.util.ChannelType;
+import com.prince.serverless.util.ProcessingStage;
 
 /**
- * This represents response when file is completely processed which were in input event
+ * This represents response when a file in input event is processed
  *
  * @author Prince Raj
  */
@@ -16,7 +17,28 @@ public class EventResponse {
 
     private String fileName;
 
+    // in minutes, of this and previous invocations
     private long totalExecutionTime;
 
+    private long executionTimeMillis;
+
     private Map<ChannelType, Stats> channelTypeStatsMap;
+
+    // timings of stages in this invocation
+    private Map<ProcessingStage, LatencyHistogram> stageTimingsMap;
+
+    // current rate of rate limited channels, with requests throttled while the file is processed
+    private Map<ChannelType, RateLimitStats> rateLimitStatsMap;
+
+    // file is not completely processed, and is continued by another invocation
+    private boolean continued;
+
+    // number of shards the file is split into, 0 if file isn't split
+    private int shardCount;
+
+    // number of parts of the folder, 0 if file isn't a folder marker
+    private int partCount;
+
+    // for any exception while processing the file, error object will be populated
+    private Error error;
 }
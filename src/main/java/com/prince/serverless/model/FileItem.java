@@ -2,6 +2,10 @@ package com.prince.serverless.model;
 
 import lombok.Data;
 
+import org.apache.commons.lang3.StringUtils;
+
+import com.prince.serverless.util.ChannelType;
+
 /**
  * Individual line item in file
  *
@@ -36,4 +40,70 @@ public class FileItem {
 
     // send in-app or not
     private boolean sendInApp;
+
+    // bits of channels which an earlier row of the file sent to the same user or address
+    private int duplicateChannels;
+
+    // bits of channels which an earlier file sent to the user
+    private int suppressedChannels;
+
+    /**
+     * @param channelType channel type
+     * @return email id, mobile number or user id as per channel, null if the row doesn't ask for
+     *         the channel or has no recipient on it
+     */
+    public String getRecipient(ChannelType channelType) {
+        final boolean send;
+        final String recipient;
+        switch (channelType) {
+            case EMAIL:
+                send = sendEmail;
+                recipient = emailId;
+                break;
+            case SMS:
+                send = sendSms;
+                recipient = mobileNumber;
+                break;
+            case ANDROID_PUSH:
+                send = sendAndroidPush;
+                recipient = userId;
+                break;
+            case IOS_PUSH:
+                send = sendIosPush;
+                recipient = userId;
+                break;
+            case IN_APP:
+                send = sendInApp;
+                recipient = userId;
+                break;
+            default:
+                throw new IllegalArgumentException("Channel: " + channelType + " not supported");
+        }
+
+        return send && StringUtils.isNotEmpty(recipient) ? recipient : null;
+    }
+
+    public boolean isDuplicate(ChannelType channelType) {
+        return (duplicateChannels & getBit(channelType)) != 0;
+    }
+
+    public void setDuplicate(ChannelType channelType, boolean duplicate) {
+        duplicateChannels = setBit(duplicateChannels, channelType, duplicate);
+    }
+
+    public boolean isSuppressed(ChannelType channelType) {
+        return (suppressedChannels & getBit(channelType)) != 0;
+    }
+
+    public void setSuppressed(ChannelType channelType, boolean suppressed) {
+        suppressedChannels = setBit(suppressedChannels, channelType, suppressed);
+    }
+
+    private static int getBit(ChannelType channelType) {
+        return 1 << channelType.ordinal();
+    }
+
+    private static int setBit(int bits, ChannelType channelType, boolean value) {
+        return value ? bits | getBit(channelType) : bits & ~getBit(channelType);
+    }
 }
@@ -0,0 +1,29 @@
+package com.prince.serverless.model;
+
+import java.util.Map;
+
+import lombok.Data;
+
+import com.prince.serverless.util.ChannelType;
+
+/**
+ * Input file which is a part of a folder, along with its outcome once it is processed
+ *
+ * @author Prince Raj
+ */
+@Data
+public class FolderPart {
+
+    private String inputFilePath;
+
+    // etag of input file as listed, part isn't recorded if input file is replaced
+    private String inputETag;
+
+    // part is processed, whether it failed or not
+    private boolean completed;
+
+    // part failed, so its stats are missing in the report of the folder
+    private boolean failed;
+
+    private Map<ChannelType, Stats> channelTypeStatsMap;
+}
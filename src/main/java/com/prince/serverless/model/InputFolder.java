@@ -0,0 +1,27 @@
+package com.prince.serverless.model;
+
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * Input folder whose parts are processed together once its marker file arrives. Stats of the
+ * parts are reported to admin users once, by the invocation which completes the last part.
+ *
+ * @author Prince Raj
+ */
+@Data
+public class InputFolder {
+
+    // path of the folder, ending with a forward slash
+    private String folderPath;
+
+    // file name in report of the folder, e.g. InactiveUserFile_20190701.csv*
+    private String reportName;
+
+    // start time of the invocation which listed the parts
+    private long startTimeMillis;
+
+    // in order of keys
+    private List<FolderPart> parts;
+}
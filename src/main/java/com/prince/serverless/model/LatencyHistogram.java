@@ -0,0 +1,120 @@
+package com.prince.serverless.model;
+
+import java.util.Arrays;
+
+import lombok.Data;
+
+/**
+ * Histogram of latencies in microseconds, with log-linear buckets: values below {@link
+ * #SUB_BUCKETS} have a bucket each, and every power of two above is split into {@link
+ * #SUB_BUCKETS} buckets, so percentiles are within 12.5% of the recorded values. Histograms are
+ * mergeable, e.g. the ones of invocations which processed a file.
+ *
+ * @author Prince Raj
+ */
+@Data
+public class LatencyHistogram {
+
+    public static final int SUB_BUCKETS = 8;
+
+    private static final int SUB_BUCKET_BITS = 3;
+
+    // values of one hour or more share the last bucket
+    private static final int MAX_EXPONENT = 31;
+
+    public static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private long count;
+
+    private long totalMicros;
+
+    private long maxMicros;
+
+    // counts of buckets, up to the last bucket which isn't empty
+    private long[] bucketCounts = new long[0];
+
+    /**
+     * @param micros latency in microseconds
+     * @return index of bucket of the latency
+     */
+    public static int getBucketIndex(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) Math.max(0, micros);
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @param bucketIndex index of bucket
+     * @return max latency in microseconds of the bucket
+     */
+    public static long getBucketUpperBound(int bucketIndex) {
+        if (bucketIndex < SUB_BUCKETS) {
+            return bucketIndex;
+        }
+
+        int exponent = bucketIndex / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (SUB_BUCKETS + bucketIndex % SUB_BUCKETS) * width + width - 1;
+    }
+
+    /**
+     * Add counts of the given histogram to this one.
+     *
+     * @param histogram histogram, may be null
+     */
+    public void merge(LatencyHistogram histogram) {
+        if (histogram == null) {
+            return;
+        }
+
+        count += histogram.count;
+        totalMicros += histogram.totalMicros;
+        maxMicros = Math.max(maxMicros, histogram.maxMicros);
+
+        long[] otherCounts = histogram.bucketCounts;
+        if (otherCounts.length > bucketCounts.length) {
+            bucketCounts = Arrays.copyOf(bucketCounts, otherCounts.length);
+        }
+        for (int i = 0; i < otherCounts.length; i++) {
+            bucketCounts[i] += otherCounts[i];
+        }
+    }
+
+    /**
+     * @param percentile percentile, from 0 to 100
+     * @return latency in microseconds which the given percent of latencies don't exceed, capped by
+     *         max latency
+     */
+    public long getPercentileMicros(double percentile) {
+        long rank = (long) Math.ceil(count * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < bucketCounts.length; i++) {
+            seen += bucketCounts[i];
+            if (seen >= Math.max(1, rank)) {
+                return Math.min(getBucketUpperBound(i), maxMicros);
+            }
+        }
+
+        return maxMicros;
+    }
+
+    public long getP50Micros() {
+        return getPercentileMicros(50);
+    }
+
+    public long getP99Micros() {
+        return getPercentileMicros(99);
+    }
+
+    public long getMeanMicros() {
+        return count == 0 ? 0 : totalMicros / count;
+    }
+}
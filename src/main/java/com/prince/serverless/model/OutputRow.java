@@ -0,0 +1,70 @@
+package com.prince.serverless.model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Data;
+
+import com.prince.serverless.util.ChannelType;
+import com.prince.serverless.util.NotificationStatus;
+
+/**
+ * Individual line item in output file. Row is complete once status of every channel is known.
+ * Statuses known without sending are set before the row is dispatched, and the others by the
+ * channels which send them, each before completing its channel, so that the thread which completes
+ * the last channel sees all the statuses.
+ *
+ * @author Prince Raj
+ */
+@Data
+public class OutputRow {
+
+    private static final ChannelType[] CHANNEL_TYPES = ChannelType.values();
+
+    // position of row in input file
+    private final long sequence;
+
+    // user id
+    private final String userId;
+
+    // notification status by channel type ordinal
+    private final NotificationStatus[] statuses = new NotificationStatus[CHANNEL_TYPES.length];
+
+    // channels for which status is not known yet
+    private final AtomicInteger pendingChannels = new AtomicInteger();
+
+    public NotificationStatus getStatus(ChannelType channelType) {
+        return statuses[channelType.ordinal()];
+    }
+
+    public void setStatus(ChannelType channelType, NotificationStatus status) {
+        statuses[channelType.ordinal()] = status;
+    }
+
+    /**
+     * Set number of channels which are dispatched, before any of them is dispatched.
+     *
+     * @param count number of channels
+     */
+    public void setPendingChannels(int count) {
+        pendingChannels.set(count);
+    }
+
+    /**
+     * Mark status of one channel as known.
+     *
+     * @return true if it was the last pending channel of this row
+     */
+    public boolean completeChannel() {
+        return pendingChannels.decrementAndGet() == 0;
+    }
+
+    public String[] toItems() {
+        String[] items = new String[statuses.length + 1];
+        items[0] = userId;
+        for (int i = 0; i < statuses.length; i++) {
+            items[i + 1] = statuses[i].name();
+        }
+
+        return items;
+    }
+}
@@ -0,0 +1,18 @@
+package com.prince.serverless.model;
+
+import lombok.Data;
+
+/**
+ * Rate limit stats of a channel
+ *
+ * @author Prince Raj
+ */
+@Data
+public class RateLimitStats {
+
+    // current rate in recipients per second
+    private double rate;
+
+    // number of requests throttled by the queue
+    private long throttleCount;
+}
@@ -0,0 +1,37 @@
+package com.prince.serverless.model;
+
+import java.util.Map;
+
+import lombok.Data;
+
+import com.prince.serverless.util.ChannelType;
+
+/**
+ * Byte range of an input file which is processed by an invocation of its own, along with its
+ * outcome once it is processed
+ *
+ * @author Prince Raj
+ */
+@Data
+public class Shard {
+
+    // offset in input file of the first row of the shard
+    private long startOffset;
+
+    // offset in input file after the last row of the shard
+    private long endOffset;
+
+    // key of s3 object with output rows of the shard
+    private String outputKey;
+
+    // shard is processed, or failed after all its retries
+    private boolean completed;
+
+    // number of times the shard failed and was invoked again
+    private int retryCount;
+
+    // shard failed, so its rows are missing in output file
+    private boolean failed;
+
+    private Map<ChannelType, Stats> channelTypeStatsMap;
+}
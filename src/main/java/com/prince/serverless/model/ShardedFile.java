@@ -0,0 +1,29 @@
+package com.prince.serverless.model;
+
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * Input file which is split into shards processed by concurrent invocations. Output rows of the
+ * shards are merged into the output file by the invocation which completes the last shard.
+ *
+ * @author Prince Raj
+ */
+@Data
+public class ShardedFile {
+
+    // etag of input file, shards fail if input file is replaced
+    private String inputETag;
+
+    private String outputFilePath;
+
+    // start time of the invocation which split the file
+    private long startTimeMillis;
+
+    // time of the last update of the shards, stale shards are restarted by a later event
+    private long updateTimeMillis;
+
+    // in order of offsets, first shard writes output headers
+    private List<Shard> shards;
+}
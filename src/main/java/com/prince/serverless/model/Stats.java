@@ -3,21 +3,30 @@ package com.prince.serverless.model;
 import lombok.Data;
 
 /**
- * Stats class to indicate total, success, failed and not applicable users count for each channel
- * type
+ * Stats class to indicate total, success, failed, not applicable, duplicate and suppressed users
+ * count for each channel type, along with latencies of sending notifications
  *
  * @author Prince Raj
  */
 @Data
 public class Stats {
 
-    private int totalUsers = 0;
+    private long totalUsers = 0;
 
-    private int successUsers = 0;
+    private long successUsers = 0;
 
-    private int failedUsers = 0;
+    private long failedUsers = 0;
 
-    private int notApplicableUsers = 0;
+    private long notApplicableUsers = 0;
+
+    // users not sent to, as an earlier row of the file sent to the same user or address
+    private long duplicateUsers = 0;
+
+    // users not sent to, as an earlier file notified them within suppression window
+    private long suppressedUsers = 0;
+
+    // time from sending a notification until its outcome is known
+    private LatencyHistogram sendLatency;
 
     public void incrementSuccessUsersCount() {
         successUsers++;
@@ -33,4 +42,35 @@ public class Stats {
         notApplicableUsers++;
         totalUsers++;
     }
+
+    public void incrementDuplicateUsersCount() {
+        duplicateUsers++;
+        totalUsers++;
+    }
+
+    public void incrementSuppressedUsersCount() {
+        suppressedUsers++;
+        totalUsers++;
+    }
+
+    /**
+     * Add counts and latencies of stats of other rows, e.g. of another shard of the file.
+     *
+     * @param stats stats to add
+     */
+    public void merge(Stats stats) {
+        totalUsers += stats.totalUsers;
+        successUsers += stats.successUsers;
+        failedUsers += stats.failedUsers;
+        notApplicableUsers += stats.notApplicableUsers;
+        duplicateUsers += stats.duplicateUsers;
+        suppressedUsers += stats.suppressedUsers;
+
+        if (stats.sendLatency != null) {
+            if (sendLatency == null) {
+                sendLatency = new LatencyHistogram();
+            }
+            sendLatency.merge(stats.sendLatency);
+        }
+    }
 }
@@ -0,0 +1,17 @@
+package com.prince.serverless.model;
+
+import lombok.Data;
+
+/**
+ * Content of an S3 object along with its etag, so that the object can be replaced only if it isn't
+ * modified meanwhile
+ *
+ * @author Prince Raj
+ */
+@Data
+public class VersionedContent {
+
+    private final byte[] content;
+
+    private final String eTag;
+}
@@ -0,0 +1,354 @@
+package com.prince.serverless.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Objects;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.amazonaws.services.lambda.runtime.Context;
+
+import com.prince.serverless.accessor.AmazonLambdaClientAccessor;
+import com.prince.serverless.accessor.AmazonS3ClientAccessor;
+import com.prince.serverless.config.AmazonLambdaClientConfig;
+import com.prince.serverless.config.AmazonS3ClientConfig;
+import com.prince.serverless.config.ProcessingConfig;
+import com.prince.serverless.exception.EngineServiceException;
+import com.prince.serverless.model.Checkpoint;
+import com.prince.serverless.model.VersionedContent;
+import com.prince.serverless.util.Constants;
+import com.prince.serverless.util.JsonUtils;
+import com.prince.serverless.util.OutputMode;
+import com.prince.serverless.util.S3EventUtils;
+
+/**
+ * Persists checkpoints of files in S3, and hands off processing of a file to another invocation.
+ *
+ * <pre>
+ * Sample checkpoint files:
+ * s3://bucket/checkpoint/20190101/ActiveUserFile_20190701.csv000.checkpoint.json
+ * s3://bucket/checkpoint/20190101/ActiveUserFile_20190701.csv000.checkpoint.json.3.tail
+ * </pre>
+ *
+ * Checkpoint key depends only on input file path, so an invocation for the same input file, be it
+ * a continuation or a retry by Lambda, resumes from the checkpoint. A checkpoint is owned by the
+ * invocation which processes the file, and is taken over with a conditional put, so that
+ * invocations for the same file, e.g. for a duplicate event, don't send the same rows and upload
+ * the same parts at once. The owner renews its lease on every save and releases it once it stops.
+ *
+ * @author Prince Raj
+ */
+@Component
+public class CheckpointService {
+
+    private final Logger log = LogManager.getLogger(this.getClass());
+
+    private final AmazonS3ClientConfig s3ClientConfig;
+
+    private final AmazonS3ClientAccessor s3ClientAccessor;
+
+    private final AmazonLambdaClientConfig lambdaClientConfig;
+
+    private final AmazonLambdaClientAccessor lambdaClientAccessor;
+
+    private final ProcessingConfig processingConfig;
+
+    @Autowired
+    public CheckpointService(AmazonS3ClientConfig s3ClientConfig,
+            AmazonS3ClientAccessor s3ClientAccessor, AmazonLambdaClientConfig lambdaClientConfig,
+            AmazonLambdaClientAccessor lambdaClientAccessor, ProcessingConfig processingConfig) {
+        this.s3ClientConfig = s3ClientConfig;
+        this.s3ClientAccessor = s3ClientAccessor;
+        this.lambdaClientConfig = lambdaClientConfig;
+        this.lambdaClientAccessor = lambdaClientAccessor;
+        this.processingConfig = processingConfig;
+    }
+
+    /**
+     * Create checkpointer of a file, resuming from its checkpoint if there is one. Checkpoints need
+     * byte offsets of input file and an output file which can be continued, so they are not
+     * supported for compressed input files or output written to temp file. A checkpoint whose lease
+     * is held by another invocation isn't resumed, see {@link FileCheckpointer#isOwned()}.
+     *
+     * @param objectKey s3 object key, as in event
+     * @param inputFilePath input file path
+     * @param context lambda context, null if not invoked by Lambda
+     * @return checkpointer, null if checkpoints are not supported
+     * @throws IOException IO exception
+     */
+    FileCheckpointer createCheckpointer(String objectKey, String inputFilePath, Context context)
+            throws IOException {
+        if (!processingConfig.isCheckpointEnabled() || context == null) {
+            return null;
+        }
+        if (s3ClientConfig.getWriteMode() != OutputMode.STREAM) {
+            log.info("Checkpoints are not supported for input file: {}", inputFilePath);
+            return null;
+        }
+
+        String inputETag = s3ClientAccessor.getETag(inputFilePath);
+        if (s3ClientAccessor.isCompressed(inputFilePath, inputETag)) {
+            log.info("Checkpoints are not supported for compressed input file: {}",
+                    inputFilePath);
+            return null;
+        }
+        String checkpointKey = getCheckpointKey(inputFilePath);
+        VersionedContent content = s3ClientAccessor.readVersionedBytesFromS3(checkpointKey);
+        Checkpoint checkpoint = load(inputFilePath, inputETag, content);
+        String ownerId = context.getAwsRequestId();
+
+        boolean resumed = checkpoint != null;
+        if (resumed) {
+            // Lambda retries an invocation with the same request id
+            if (checkpoint.getOwnerId() != null && !checkpoint.getOwnerId().equals(ownerId)
+                    && System.currentTimeMillis() - checkpoint.getLeaseTimeMillis()
+                            < processingConfig.getCheckpointLeaseMillis()) {
+                log.warn("Input file: {} is being processed by invocation: {}", inputFilePath,
+                        checkpoint.getOwnerId());
+                return new FileCheckpointer(this, processingConfig, objectKey, inputFilePath,
+                        context, checkpoint, true, false);
+            }
+
+            if (checkpoint.getInvocationCount() >= processingConfig.getCheckpointMaxInvocations()) {
+                discard(inputFilePath, checkpoint);
+                throw new EngineServiceException("Input file: " + inputFilePath + " is not "
+                        + "processed in " + checkpoint.getInvocationCount() + " invocations");
+            }
+
+            checkpoint.setInvocationCount(checkpoint.getInvocationCount() + 1);
+            checkpoint.setOwnerId(ownerId);
+            checkpoint.setLeaseTimeMillis(System.currentTimeMillis());
+            if (!s3ClientAccessor.writeToS3IfUnmodified(checkpointKey, toJson(checkpoint),
+                    content.getETag())) {
+                log.warn("Input file: {} is resumed by another invocation", inputFilePath);
+                return new FileCheckpointer(this, processingConfig, objectKey, inputFilePath,
+                        context, checkpoint, true, false);
+            }
+
+            log.info("Resuming input file: {} from row: {}", inputFilePath,
+                    checkpoint.getRowNumber());
+        } else {
+            checkpoint = new Checkpoint();
+            checkpoint.setInputETag(inputETag);
+            checkpoint.setChannelTypeStatsMap(new HashMap<>());
+            checkpoint.setPartETags(Collections.emptyList());
+            checkpoint.setInvocationCount(1);
+            checkpoint.setOwnerId(ownerId);
+        }
+
+        return new FileCheckpointer(this, processingConfig, objectKey, inputFilePath, context,
+                checkpoint, resumed, true);
+    }
+
+    /**
+     * Save checkpoint along with output bytes which are not uploaded, renewing its lease. Output
+     * bytes are saved under a new key every time, so that the saved checkpoint always refers to
+     * complete output bytes.
+     *
+     * @param inputFilePath input file path
+     * @param checkpoint checkpoint
+     * @param outputTail output bytes which are not uploaded as a part
+     * @throws IOException IO exception
+     * @throws EngineServiceException if checkpoint is taken over by another invocation
+     */
+    void save(String inputFilePath, Checkpoint checkpoint, byte[] outputTail) throws IOException {
+        String checkpointKey = getCheckpointKey(inputFilePath);
+        String previousTailKey = checkpoint.getOutputTailKey();
+
+        checkpoint.setVersion(checkpoint.getVersion() + 1);
+        String tailKey = checkpointKey + Constants.DOT + checkpoint.getVersion()
+                + Constants.CHECKPOINT_TAIL_FILE_EXTENSION;
+        s3ClientAccessor.writeToS3(tailKey, outputTail);
+        checkpoint.setOutputTailKey(tailKey);
+
+        // first save of a file creates its checkpoint
+        checkpoint.setLeaseTimeMillis(System.currentTimeMillis());
+        if (!writeIfOwned(inputFilePath, checkpoint.getOwnerId(), checkpoint,
+                previousTailKey == null)) {
+            s3ClientAccessor.deleteFromS3(tailKey);
+            throw new EngineServiceException("Checkpoint of input file: " + inputFilePath
+                    + " is taken over by another invocation");
+        }
+
+        if (previousTailKey != null) {
+            s3ClientAccessor.deleteFromS3(previousTailKey);
+        }
+    }
+
+    /**
+     * @param checkpoint checkpoint
+     * @return output bytes which are not uploaded as a part
+     * @throws IOException IO exception
+     */
+    byte[] loadOutputTail(Checkpoint checkpoint) throws IOException {
+        byte[] outputTail = s3ClientAccessor.readBytesFromS3(checkpoint.getOutputTailKey());
+        if (outputTail == null) {
+            throw new EngineServiceException("Checkpoint output: " + checkpoint.getOutputTailKey()
+                    + " doesn't exists");
+        }
+
+        return outputTail;
+    }
+
+    /**
+     * Delete checkpoint once the file is processed.
+     *
+     * @param inputFilePath input file path
+     * @param checkpoint checkpoint
+     */
+    void delete(String inputFilePath, Checkpoint checkpoint) {
+        s3ClientAccessor.deleteFromS3(getCheckpointKey(inputFilePath));
+        if (checkpoint.getOutputTailKey() != null) {
+            s3ClientAccessor.deleteFromS3(checkpoint.getOutputTailKey());
+        }
+    }
+
+    /**
+     * Release checkpoint of an invocation which stops processing the file, so that another
+     * invocation may take it over without waiting for its lease to expire.
+     *
+     * @param inputFilePath input file path
+     * @param checkpoint saved checkpoint
+     * @return false if checkpoint is taken over by another invocation
+     * @throws IOException IO exception
+     */
+    boolean release(String inputFilePath, Checkpoint checkpoint) throws IOException {
+        String ownerId = checkpoint.getOwnerId();
+        checkpoint.setOwnerId(null);
+        if (!writeIfOwned(inputFilePath, ownerId, checkpoint, false)) {
+            log.warn("Checkpoint of input file: {} is taken over by another invocation",
+                    inputFilePath);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Invoke the current function asynchronously with an S3 event of the input file, so that it
+     * resumes from the checkpoint.
+     *
+     * @param objectKey s3 object key, as in event
+     * @param context lambda context
+     */
+    void continueProcessing(String objectKey, Context context) {
+        String functionName = context.getInvokedFunctionArn();
+        log.info("Continuing s3 object: {} in another invocation of function: {}", objectKey,
+                functionName);
+
+        lambdaClientAccessor.invokeAsync(functionName,
+                S3EventUtils.toS3EventJson(s3ClientConfig.getBucketName(),
+                        lambdaClientConfig.getRegion(), objectKey,
+                        Constants.CONTINUATION_EVENT_NAME));
+    }
+
+    /**
+     * Continue processing from the saved checkpoint in another invocation after processing of the
+     * file failed, as Lambda doesn't retry an invocation which handles the failure. Checkpoint is
+     * discarded instead once the file has failed more than {@link
+     * ProcessingConfig#getCheckpointMaxRetries()} times. Checkpoints taken over by another
+     * invocation are left to it.
+     *
+     * @param objectKey s3 object key, as in event
+     * @param inputFilePath input file path
+     * @param checkpoint checkpoint of the failed invocation, which may be ahead of the saved one
+     * @param context lambda context
+     * @throws IOException IO exception
+     */
+    void retry(String objectKey, String inputFilePath, Checkpoint checkpoint, Context context)
+            throws IOException {
+        VersionedContent content =
+                s3ClientAccessor.readVersionedBytesFromS3(getCheckpointKey(inputFilePath));
+        Checkpoint savedCheckpoint = content != null ? fromJson(content.getContent()) : null;
+        if (savedCheckpoint == null
+                || !Objects.equals(checkpoint.getOwnerId(), savedCheckpoint.getOwnerId())) {
+            log.warn("Not retrying input file: {} as its checkpoint is taken over by another "
+                    + "invocation", inputFilePath);
+            return;
+        }
+
+        savedCheckpoint.setRetryCount(savedCheckpoint.getRetryCount() + 1);
+        if (savedCheckpoint.getRetryCount() > processingConfig.getCheckpointMaxRetries()) {
+            log.error("Discarding checkpoint of input file: {} as it failed {} times",
+                    inputFilePath, savedCheckpoint.getRetryCount());
+            discard(inputFilePath, savedCheckpoint);
+            return;
+        }
+
+        if (!release(inputFilePath, savedCheckpoint)) {
+            return;
+        }
+        log.warn("Retrying input file: {} from row: {}", inputFilePath,
+                savedCheckpoint.getRowNumber());
+        continueProcessing(objectKey, context);
+    }
+
+    private Checkpoint load(String inputFilePath, String inputETag, VersionedContent content) {
+        if (content == null) {
+            return null;
+        }
+
+        Checkpoint checkpoint = fromJson(content.getContent());
+
+        if (!inputETag.equals(checkpoint.getInputETag())) {
+            log.warn("Discarding checkpoint of input file: {} as the file is replaced",
+                    inputFilePath);
+            discard(inputFilePath, checkpoint);
+            return null;
+        }
+
+        return checkpoint;
+    }
+
+    /**
+     * Write checkpoint with a conditional put, as long as the saved checkpoint is owned by the
+     * given invocation.
+     *
+     * @param ownerId request id of the invocation which owns the saved checkpoint
+     * @param create true if checkpoint may be created, as the file is not saved yet
+     * @return false if checkpoint is taken over by another invocation, or deleted by it
+     */
+    private boolean writeIfOwned(String inputFilePath, String ownerId, Checkpoint checkpoint,
+            boolean create) throws IOException {
+        String checkpointKey = getCheckpointKey(inputFilePath);
+        VersionedContent content = s3ClientAccessor.readVersionedBytesFromS3(checkpointKey);
+        if (content == null) {
+            return create && s3ClientAccessor.writeToS3IfUnmodified(checkpointKey,
+                    toJson(checkpoint), null);
+        }
+
+        return Objects.equals(ownerId, fromJson(content.getContent()).getOwnerId())
+                && s3ClientAccessor.writeToS3IfUnmodified(checkpointKey, toJson(checkpoint),
+                        content.getETag());
+    }
+
+    /**
+     * Delete checkpoint along with output of the file, which is not going to be completed.
+     */
+    private void discard(String inputFilePath, Checkpoint checkpoint) {
+        if (checkpoint.getUploadId() != null) {
+            s3ClientAccessor.abortMultipartUpload(checkpoint.getOutputFilePath(),
+                    checkpoint.getUploadId());
+        }
+        delete(inputFilePath, checkpoint);
+    }
+
+    private String getCheckpointKey(String inputFilePath) {
+        return Constants.BASE_CHECKPOINT_FOLDER_NAME
+                + inputFilePath.substring(Constants.BASE_INPUT_FOLDER_NAME.length())
+                + Constants.CHECKPOINT_FILE_EXTENSION;
+    }
+
+    private static byte[] toJson(Checkpoint checkpoint) {
+        return JsonUtils.toJson(checkpoint).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Checkpoint fromJson(byte[] content) {
+        return JsonUtils.fromJson(new String(content, StandardCharsets.UTF_8), Checkpoint.class);
+    }
+}
@@ -0,0 +1,213 @@
+package com.prince.serverless.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.s3.model.PartETag;
+
+import com.prince.serverless.accessor.AmazonS3MultipartOutputStream;
+import com.prince.serverless.config.ProcessingConfig;
+import com.prince.serverless.model.Checkpoint;
+import com.prince.serverless.model.Stats;
+import com.prince.serverless.util.ChannelType;
+
+/**
+ * Checkpoints of a single file in an invocation. A checkpoint is saved every {@link
+ * ProcessingConfig#getCheckpointIntervalMillis()}, and processing is handed off to another
+ * invocation once remaining time of the invocation is less than {@link
+ * ProcessingConfig#getCheckpointDeadlineMarginMillis()}.
+ *
+ * @author Prince Raj
+ */
+class FileCheckpointer {
+
+    private final Logger log = LogManager.getLogger(this.getClass());
+
+    private final CheckpointService checkpointService;
+
+    private final ProcessingConfig processingConfig;
+
+    private final String objectKey;
+
+    private final String inputFilePath;
+
+    private final Context context;
+
+    private final Checkpoint checkpoint;
+
+    private final boolean resumed;
+
+    private final boolean owned;
+
+    private final long previousExecutionTimeMillis;
+
+    private final long startTime = System.currentTimeMillis();
+
+    private long lastSaveTime = startTime;
+
+    private boolean saved;
+
+    private boolean suspended;
+
+    FileCheckpointer(CheckpointService checkpointService, ProcessingConfig processingConfig,
+            String objectKey, String inputFilePath, Context context, Checkpoint checkpoint,
+            boolean resumed, boolean owned) {
+        this.checkpointService = checkpointService;
+        this.processingConfig = processingConfig;
+        this.objectKey = objectKey;
+        this.inputFilePath = inputFilePath;
+        this.context = context;
+        this.checkpoint = checkpoint;
+        this.resumed = resumed;
+        this.owned = owned;
+        this.saved = resumed;
+        this.previousExecutionTimeMillis = checkpoint.getExecutionTimeMillis();
+    }
+
+    /**
+     * @return true if file is resumed from a checkpoint of a previous invocation
+     */
+    boolean isResumed() {
+        return resumed;
+    }
+
+    /**
+     * @return false if checkpoint is owned by another invocation, so the file shouldn't be
+     *         processed by this one
+     */
+    boolean isOwned() {
+        return owned;
+    }
+
+    /**
+     * @return true if a checkpoint is saved, by this or a previous invocation
+     */
+    boolean isSaved() {
+        return saved;
+    }
+
+    Checkpoint getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * @return true if checkpoint interval has elapsed or the invocation is about to time out
+     */
+    boolean isSaveDue() {
+        return System.currentTimeMillis() - lastSaveTime >= processingConfig
+                .getCheckpointIntervalMillis() || isDeadlineNear();
+    }
+
+    /**
+     * @return true if the invocation is about to time out
+     */
+    boolean isDeadlineNear() {
+        return context.getRemainingTimeInMillis() < processingConfig
+                .getCheckpointDeadlineMarginMillis();
+    }
+
+    /**
+     * Restore output file written by previous invocations.
+     *
+     * @param outputStream output stream which is not written yet
+     * @throws IOException IO exception
+     */
+    void restoreOutput(AmazonS3MultipartOutputStream outputStream) throws IOException {
+        List<PartETag> partETags = new ArrayList<>();
+        for (String eTag : checkpoint.getPartETags()) {
+            partETags.add(new PartETag(partETags.size() + 1, eTag));
+        }
+
+        outputStream.restore(checkpoint.getUploadId(), partETags,
+                checkpointService.loadOutputTail(checkpoint));
+    }
+
+    /**
+     * Save checkpoint. All the rows before the given offset should be written to output stream.
+     * Fails if checkpoint is taken over by another invocation, which processes the file instead.
+     *
+     * @param inputOffset offset in input file of the first row which is not processed
+     * @param rowNumber rows processed so far, including header
+     * @param channelTypeStatsMap stats of processed rows
+     * @param outputStream output stream
+     * @throws IOException if upload of any output part fails
+     */
+    void save(long inputOffset, long rowNumber, Map<ChannelType, Stats> channelTypeStatsMap,
+            AmazonS3MultipartOutputStream outputStream) throws IOException {
+        List<String> partETags = new ArrayList<>();
+        for (PartETag partETag : outputStream.awaitUploadedParts()) {
+            partETags.add(partETag.getETag());
+        }
+
+        checkpoint.setInputOffset(inputOffset);
+        checkpoint.setRowNumber(rowNumber);
+        checkpoint.setChannelTypeStatsMap(channelTypeStatsMap);
+        checkpoint.setUploadId(outputStream.getUploadId());
+        checkpoint.setPartETags(partETags);
+        checkpoint.setExecutionTimeMillis(getExecutionTimeMillis());
+
+        checkpointService.save(inputFilePath, checkpoint, outputStream.getBufferedBytes());
+        saved = true;
+        lastSaveTime = System.currentTimeMillis();
+
+        log.info("Saved checkpoint of input file: {} at row: {}", inputFilePath, rowNumber);
+    }
+
+    /**
+     * Mark processing of the file as stopped at the saved checkpoint.
+     */
+    void suspend() {
+        suspended = true;
+    }
+
+    /**
+     * @return true if processing of the file is stopped at the saved checkpoint
+     */
+    boolean isSuspended() {
+        return suspended;
+    }
+
+    /**
+     * Continue processing from the saved checkpoint in another invocation, unless the checkpoint is
+     * taken over by another invocation meanwhile.
+     *
+     * @throws IOException IO exception
+     */
+    void handOff() throws IOException {
+        if (checkpointService.release(inputFilePath, checkpoint)) {
+            checkpointService.continueProcessing(objectKey, context);
+        }
+    }
+
+    /**
+     * Continue processing from the saved checkpoint in another invocation, after processing of the
+     * file failed.
+     *
+     * @throws IOException IO exception
+     */
+    void retry() throws IOException {
+        checkpointService.retry(objectKey, inputFilePath, checkpoint, context);
+    }
+
+    /**
+     * Delete checkpoint once file is processed.
+     */
+    void complete() {
+        if (isSaved()) {
+            checkpointService.delete(inputFilePath, checkpoint);
+        }
+    }
+
+    /**
+     * @return execution time of this and previous invocations
+     */
+    long getExecutionTimeMillis() {
+        return previousExecutionTimeMillis + System.currentTimeMillis() - startTime;
+    }
+}
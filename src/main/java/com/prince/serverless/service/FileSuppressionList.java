@@ -0,0 +1,189 @@
+package com.prince.serverless.service;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.roaringbitmap.RoaringBitmap;
+
+import com.prince.serverless.model.FileItem;
+import com.prince.serverless.model.OutputRow;
+import com.prince.serverless.util.ChannelType;
+import com.prince.serverless.util.NotificationStatus;
+import com.prince.serverless.util.ProcessingStage;
+import com.prince.serverless.util.StageTimer;
+
+/**
+ * Suppression list of a file. Rows are checked against bitmaps of users notified by earlier files
+ * within the window, which are loaded on the first check of a channel. Users notified by the file
+ * are collected in memory, and merged into bitmaps of the day of the file when saved.
+ *
+ * Rows are checked by the parse stage and notified users are recorded by the write stage, so
+ * recording and saving are synchronized. Files processed concurrently don't see users notified by
+ * each other until they are saved.
+ *
+ * @author Prince Raj
+ */
+class FileSuppressionList {
+
+    private static final ChannelType[] CHANNEL_TYPES = ChannelType.values();
+
+    private final Logger log = LogManager.getLogger(this.getClass());
+
+    private final SuppressionService suppressionService;
+
+    // day of the file first
+    private final List<LocalDate> windowDays;
+
+    private final StageTimer stageTimer;
+
+    // bitmaps of days of the window, by channel type
+    private final Map<ChannelType, List<RoaringBitmap>> bitmaps =
+            new EnumMap<>(ChannelType.class);
+
+    // users notified by the file which are not saved yet, by channel type
+    private final Map<ChannelType, RoaringBitmap> notifiedUserKeys =
+            new EnumMap<>(ChannelType.class);
+
+    // rows whose user id has no key, so they are neither checked nor recorded
+    private long unkeyedRows;
+
+    /**
+     * @param suppressionService suppression service
+     * @param windowDays days of the window, day of the file first
+     * @param stageTimer times loading and saving of bitmaps
+     */
+    FileSuppressionList(SuppressionService suppressionService, List<LocalDate> windowDays,
+            StageTimer stageTimer) {
+        this.suppressionService = suppressionService;
+        this.windowDays = windowDays;
+        this.stageTimer = stageTimer;
+    }
+
+    /**
+     * Parse stage: mark the channels of a row whose user is notified by earlier files. Channels
+     * which are not applicable or duplicates are not checked.
+     *
+     * @param fileItem item of a row
+     * @throws IOException IO exception
+     */
+    void filter(FileItem fileItem) throws IOException {
+        int checkedChannels = 0;
+        for (ChannelType channelType : CHANNEL_TYPES) {
+            if (fileItem.getRecipient(channelType) != null && !fileItem.isDuplicate(channelType)) {
+                checkedChannels |= 1 << channelType.ordinal();
+            }
+        }
+        if (checkedChannels == 0) {
+            return;
+        }
+
+        long userKey = suppressionService.getUserKey(fileItem.getUserId());
+        if (userKey < 0) {
+            unkeyedRows++;
+            return;
+        }
+
+        for (ChannelType channelType : CHANNEL_TYPES) {
+            if ((checkedChannels & 1 << channelType.ordinal()) != 0) {
+                fileItem.setSuppressed(channelType, isNotified(channelType, (int) userKey));
+            }
+        }
+    }
+
+    /**
+     * Write stage: record the channels which notified the user of a row.
+     *
+     * @param outputRow completed row
+     */
+    synchronized void record(OutputRow outputRow) {
+        Long userKey = null;
+        for (ChannelType channelType : CHANNEL_TYPES) {
+            if (outputRow.getStatus(channelType) != NotificationStatus.SUCCESS) {
+                continue;
+            }
+
+            if (userKey == null) {
+                userKey = suppressionService.getUserKey(outputRow.getUserId());
+            }
+            if (userKey < 0) {
+                return;
+            }
+
+            notifiedUserKeys.computeIfAbsent(channelType, key -> new RoaringBitmap())
+                    .add(userKey.intValue());
+        }
+    }
+
+    /**
+     * Merge users notified so far into bitmaps of the day of the file. Users which are not merged,
+     * as other files kept writing the bitmap, are kept for the next save.
+     *
+     * @throws IOException IO exception
+     * @throws InterruptedException if interrupted while waiting to retry
+     */
+    synchronized void save() throws IOException, InterruptedException {
+        for (ChannelType channelType : new ArrayList<>(notifiedUserKeys.keySet())) {
+            RoaringBitmap userKeys = notifiedUserKeys.get(channelType);
+
+            long startTime = stageTimer.start();
+            boolean merged = suppressionService.merge(channelType, windowDays.get(0), userKeys);
+            stageTimer.stop(ProcessingStage.SUPPRESSION_SAVE, startTime);
+
+            if (merged) {
+                notifiedUserKeys.remove(channelType);
+            } else {
+                log.warn("Failed to save notified users: {} of channel: {} in suppression bitmap",
+                        userKeys.getLongCardinality(), channelType);
+            }
+        }
+    }
+
+    /**
+     * @return rows whose user id has no key, so they are not suppressed
+     */
+    long getUnkeyedRows() {
+        return unkeyedRows;
+    }
+
+    private boolean isNotified(ChannelType channelType, int userKey) throws IOException {
+        List<RoaringBitmap> channelBitmaps = bitmaps.get(channelType);
+        if (channelBitmaps == null) {
+            channelBitmaps = load(channelType);
+            bitmaps.put(channelType, channelBitmaps);
+        }
+
+        for (RoaringBitmap bitmap : channelBitmaps) {
+            if (bitmap.contains(userKey)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private List<RoaringBitmap> load(ChannelType channelType) throws IOException {
+        long startTime = stageTimer.start();
+
+        List<RoaringBitmap> channelBitmaps = new ArrayList<>();
+        long users = 0;
+        for (LocalDate day : windowDays) {
+            RoaringBitmap bitmap = suppressionService.load(channelType, day);
+            if (bitmap != null) {
+                channelBitmaps.add(bitmap);
+                users += bitmap.getLongCardinality();
+            }
+        }
+
+        stageTimer.stop(ProcessingStage.SUPPRESSION_LOAD, startTime);
+        log.info("Loaded suppression bitmaps of channel: {} with users: {} for days: {}",
+                channelType, users, windowDays);
+
+        return channelBitmaps;
+    }
+}
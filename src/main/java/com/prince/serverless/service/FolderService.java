@@ -0,0 +1,275 @@
+package com.prince.serverless.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.google.common.base.Strings;
+
+import com.prince.serverless.accessor.AmazonS3ClientAccessor;
+import com.prince.serverless.config.ProcessingConfig;
+import com.prince.serverless.exception.EngineServiceException;
+import com.prince.serverless.model.FolderPart;
+import com.prince.serverless.model.InputFolder;
+import com.prince.serverless.model.VersionedContent;
+import com.prince.serverless.util.Constants;
+import com.prince.serverless.util.JsonUtils;
+import com.prince.serverless.util.ReportType;
+
+/**
+ * Lists the parts of an input folder once its marker file arrives, e.g. files written by an
+ * export as InactiveUserFile_20190701.csv000, InactiveUserFile_20190701.csv001 and so on, and
+ * records the parts as they complete.
+ *
+ * <pre>
+ * Sample folder files:
+ * s3://bucket/input/20190101/_SUCCESS
+ * s3://bucket/folder/20190101.parts.json
+ * </pre>
+ *
+ * Parts of a folder are kept in a single object, which is updated with conditional puts as parts
+ * complete, so that exactly one invocation completes the last part and reports the folder. The
+ * object is kept once the folder completes, so that a duplicate event of the marker file doesn't
+ * process the folder again.
+ *
+ * @author Prince Raj
+ */
+@Component
+public class FolderService {
+
+    private static final long MAX_RETRY_DELAY_MILLIS = 100;
+
+    private final Logger log = LogManager.getLogger(this.getClass());
+
+    private final AmazonS3ClientAccessor s3ClientAccessor;
+
+    private final ProcessingConfig processingConfig;
+
+    @Autowired
+    public FolderService(AmazonS3ClientAccessor s3ClientAccessor,
+            ProcessingConfig processingConfig) {
+        this.s3ClientAccessor = s3ClientAccessor;
+        this.processingConfig = processingConfig;
+    }
+
+    /**
+     * @param filePath file path of an s3 event
+     * @return true if file path is of a marker file of an input folder
+     */
+    boolean isMarker(String filePath) {
+        return processingConfig.isFolderEnabled() && isInFolder(filePath)
+                && Paths.get(filePath).getFileName().toString()
+                        .equals(processingConfig.getFolderMarkerFileName());
+    }
+
+    /**
+     * List input files of supported types in folder of the marker file. Files in sub folders are
+     * not parts of the folder.
+     *
+     * @param markerFilePath file path of marker file
+     * @return input folder, with no parts if folder has no input files
+     */
+    InputFolder list(String markerFilePath) {
+        String folderPath = getFolderPath(markerFilePath);
+
+        List<FolderPart> parts = new ArrayList<>();
+        String commonPrefix = null;
+        for (S3ObjectSummary summary : s3ClientAccessor.listObjects(folderPath)) {
+            String fileName = summary.getKey().substring(folderPath.length());
+            if (fileName.contains(Constants.FORWARD_SLASH) || !ReportType.isSupported(fileName)) {
+                continue;
+            }
+
+            FolderPart part = new FolderPart();
+            part.setInputFilePath(summary.getKey());
+            part.setInputETag(summary.getETag());
+            parts.add(part);
+
+            commonPrefix = commonPrefix == null ? fileName
+                    : Strings.commonPrefix(commonPrefix, fileName);
+        }
+
+        InputFolder inputFolder = new InputFolder();
+        inputFolder.setFolderPath(folderPath);
+        inputFolder.setReportName(getReportName(folderPath, commonPrefix, parts.size()));
+        inputFolder.setStartTimeMillis(System.currentTimeMillis());
+        inputFolder.setParts(parts);
+
+        return inputFolder;
+    }
+
+    /**
+     * Save parts of a folder, before they are processed.
+     *
+     * @param inputFolder input folder
+     * @return false if the same parts are already processed or being processed, e.g. for a
+     *         duplicate event
+     * @throws IOException IO exception
+     */
+    boolean start(InputFolder inputFolder) throws IOException {
+        String folderFileKey = getFolderFileKey(inputFolder.getFolderPath());
+
+        VersionedContent currentContent = s3ClientAccessor.readVersionedBytesFromS3(folderFileKey);
+        String eTag = null;
+        if (currentContent != null) {
+            InputFolder currentFolder = fromJson(currentContent.getContent());
+            if (getPartKeys(inputFolder).equals(getPartKeys(currentFolder))) {
+                return false;
+            }
+
+            log.warn("Discarding parts of input folder: {} as its files are replaced",
+                    inputFolder.getFolderPath());
+            eTag = currentContent.getETag();
+        }
+
+        return s3ClientAccessor.writeToS3IfUnmodified(folderFileKey, toJson(inputFolder), eTag);
+    }
+
+    /**
+     * @param folderPath folder path
+     * @return input folder, null if folder isn't processed as a whole
+     * @throws IOException IO exception
+     */
+    InputFolder load(String folderPath) throws IOException {
+        VersionedContent content =
+                s3ClientAccessor.readVersionedBytesFromS3(getFolderFileKey(folderPath));
+        return content != null ? fromJson(content.getContent()) : null;
+    }
+
+    /**
+     * Check if input file is a pending part of a folder, e.g. when it is continued by another
+     * invocation than the one which processes the folder.
+     *
+     * @param inputFilePath input file path
+     * @param inputETag etag of input file which is processed
+     * @return true if input file is a part of a folder which isn't completed yet
+     * @throws IOException IO exception
+     */
+    boolean isPart(String inputFilePath, String inputETag) throws IOException {
+        if (!processingConfig.isFolderEnabled() || !isInFolder(inputFilePath)) {
+            return false;
+        }
+
+        InputFolder inputFolder = load(getFolderPath(inputFilePath));
+        return inputFolder != null && getPendingPart(inputFolder, inputFilePath, inputETag) >= 0;
+    }
+
+    /**
+     * Record a processed part, whether it failed or not.
+     *
+     * @param part processed part
+     * @return input folder if the part is the last one to complete, else null
+     * @throws IOException IO exception
+     * @throws InterruptedException if interrupted while waiting to retry
+     */
+    InputFolder complete(FolderPart part) throws IOException, InterruptedException {
+        String inputFilePath = part.getInputFilePath();
+        String folderFileKey = getFolderFileKey(getFolderPath(inputFilePath));
+
+        for (int attempt = 1; attempt <= processingConfig.getFolderMaxWriteAttempts(); attempt++) {
+            VersionedContent content = s3ClientAccessor.readVersionedBytesFromS3(folderFileKey);
+            if (content == null) {
+                throw new EngineServiceException("Parts of input folder of file: "
+                        + inputFilePath + " don't exist");
+            }
+
+            InputFolder inputFolder = fromJson(content.getContent());
+            int index = getPendingPart(inputFolder, inputFilePath, part.getInputETag());
+            if (index < 0) {
+                log.warn("Part: {} of input folder: {} is already completed or replaced",
+                        inputFilePath, inputFolder.getFolderPath());
+                return null;
+            }
+
+            part.setCompleted(true);
+            inputFolder.getParts().set(index, part);
+            if (s3ClientAccessor.writeToS3IfUnmodified(folderFileKey, toJson(inputFolder),
+                    content.getETag())) {
+                boolean last = inputFolder.getParts().stream().allMatch(FolderPart::isCompleted);
+                return last ? inputFolder : null;
+            }
+
+            log.info("Parts of input folder: {} are written by another part, attempt: {}",
+                    inputFolder.getFolderPath(), attempt);
+            Thread.sleep(ThreadLocalRandom.current().nextLong(MAX_RETRY_DELAY_MILLIS * attempt));
+        }
+
+        throw new EngineServiceException("Failed to complete part: " + inputFilePath
+                + " of its input folder");
+    }
+
+    /**
+     * @return true if file is in a folder under base input folder, e.g. a dated folder
+     */
+    private boolean isInFolder(String filePath) {
+        return filePath.startsWith(Constants.BASE_INPUT_FOLDER_NAME)
+                && filePath.lastIndexOf(Constants.FORWARD_SLASH)
+                        >= Constants.BASE_INPUT_FOLDER_NAME.length();
+    }
+
+    private int getPendingPart(InputFolder inputFolder, String inputFilePath, String inputETag) {
+        for (int i = 0; i < inputFolder.getParts().size(); i++) {
+            FolderPart part = inputFolder.getParts().get(i);
+            if (part.getInputFilePath().equals(inputFilePath)) {
+                return !part.isCompleted() && part.getInputETag().equals(inputETag) ? i : -1;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Name of the parts in report of the folder, e.g. InactiveUserFile_20190701.csv* for parts
+     * InactiveUserFile_20190701.csv000 and InactiveUserFile_20190701.csv001, or name of the
+     * folder if parts have nothing in common.
+     */
+    private String getReportName(String folderPath, String commonPrefix, int partCount) {
+        if (partCount == 1) {
+            return commonPrefix;
+        }
+        if (Strings.isNullOrEmpty(commonPrefix)) {
+            return Paths.get(folderPath).getFileName().toString();
+        }
+
+        return commonPrefix.replaceFirst("\\d+$", "") + Constants.FOLDER_PARTS_WILDCARD;
+    }
+
+    private List<String> getPartKeys(InputFolder inputFolder) {
+        List<String> partKeys = new ArrayList<>();
+        for (FolderPart part : inputFolder.getParts()) {
+            partKeys.add(part.getInputFilePath() + Constants.DOT + part.getInputETag());
+        }
+
+        return partKeys;
+    }
+
+    private String getFolderPath(String filePath) {
+        Path parent = Paths.get(filePath).getParent();
+        return parent.toString() + Constants.FORWARD_SLASH;
+    }
+
+    private String getFolderFileKey(String folderPath) {
+        return Constants.BASE_FOLDER_STATE_FOLDER_NAME
+                + folderPath.substring(Constants.BASE_INPUT_FOLDER_NAME.length(),
+                        folderPath.length() - 1)
+                + Constants.FOLDER_FILE_EXTENSION;
+    }
+
+    private static byte[] toJson(InputFolder inputFolder) {
+        return JsonUtils.toJson(inputFolder).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static InputFolder fromJson(byte[] content) {
+        return JsonUtils.fromJson(new String(content, StandardCharsets.UTF_8), InputFolder.class);
+    }
+}
@@ -0,0 +1,424 @@
+package com.prince.serverless.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.opencsv.CSVWriter;
+
+import com.prince.serverless.accessor.AmazonSQSRetryScheduler;
+import com.prince.serverless.config.ProcessingConfig;
+import com.prince.serverless.exception.EngineServiceException;
+import com.prince.serverless.model.FileItem;
+import com.prince.serverless.model.OutputRow;
+import com.prince.serverless.model.Stats;
+import com.prince.serverless.util.ChannelType;
+import com.prince.serverless.util.NotificationStatus;
+import com.prince.serverless.util.NotificationUtils;
+import com.prince.serverless.util.ProcessingStage;
+import com.prince.serverless.util.RecipientSender;
+import com.prince.serverless.util.StageTimer;
+
+/**
+ * Staged pipeline to send notifications for rows of a single file.
+ *
+ * <pre>
+ * parse stage (caller thread)              -> bounded queue of each channel of the row
+ * dispatch stage (worker pool per channel) -> recipient sender of channel -> completed rows queue
+ * write stage (single thread)              -> reorder buffer -> output file
+ * </pre>
+ *
+ * Each channel of a row is dispatched in parallel by workers of the channel, which batch and rate
+ * limit on their own, so a slow or throttled channel doesn't hold up the others. Statuses which
+ * are known without sending, e.g. of channels which are not applicable, are set by the parse
+ * stage, and a row is completed by whichever channel learns its outcome last. Workers of a channel
+ * are started by the first row dispatched to it.
+ *
+ * Rows are written in input order and users are counted by the write stage, so both stay exact
+ * whatever order rows complete in. Send latencies are recorded by whichever thread learns the
+ * outcome of a notification, and stats can be snapshot by any thread meanwhile. Number of rows
+ * read but not yet written is bounded by {@link ProcessingConfig#getMaxPendingRows()}, which
+ * bounds the memory used by the queues and the reorder buffer.
+ *
+ * Messages which are not sent are retried in the background by a retry scheduler of the file, so
+ * a failing batch doesn't hold up the dispatch stage. Their rows are written once the retries
+ * succeed or give up.
+ *
+ * @author Prince Raj
+ */
+class NotificationPipeline {
+
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+
+    private static final long DRAIN_POLL_MILLIS = 10;
+
+    // marker which tells a worker thread to stop
+    private static final DispatchTask END_OF_INPUT = new DispatchTask(null, null);
+
+    private static final ChannelType[] CHANNEL_TYPES = ChannelType.values();
+
+    private final ProcessingConfig processingConfig;
+
+    private final NotificationUtils notificationUtils;
+
+    private final CSVWriter csvWriter;
+
+    private final AmazonSQSRetryScheduler retryScheduler;
+
+    private final StageTimer stageTimer;
+
+    private final FileSuppressionList suppressionList;
+
+    // dispatchers by channel type ordinal
+    private final ChannelDispatcher[] dispatchers;
+
+    private final BlockingQueue<OutputRow> completedRows = new LinkedBlockingQueue<>();
+
+    private final Semaphore pendingRowPermits;
+
+    private final StatsRecorder statsRecorder;
+
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    private final ExecutorService executorService;
+
+    private Future<?> writerFuture;
+
+    // number of rows submitted by parse stage, read by write stage once input is finished
+    private volatile long submittedRows = -1;
+
+    private long sequence = 0;
+
+    /**
+     * @param processingConfig processing config
+     * @param notificationUtils notification utils
+     * @param csvWriter writer of output file
+     * @param initialStats stats of rows processed before, e.g. by a previous invocation
+     * @param stageTimer times stages of the file
+     * @param suppressionList records users notified by the file, null if suppression is disabled
+     */
+    NotificationPipeline(ProcessingConfig processingConfig, NotificationUtils notificationUtils,
+            CSVWriter csvWriter, Map<ChannelType, Stats> initialStats, StageTimer stageTimer,
+            FileSuppressionList suppressionList) {
+        this.processingConfig = processingConfig;
+        this.notificationUtils = notificationUtils;
+        this.csvWriter = csvWriter;
+        this.retryScheduler = notificationUtils.createRetryScheduler();
+        this.stageTimer = stageTimer;
+        this.suppressionList = suppressionList;
+        this.dispatchers = new ChannelDispatcher[CHANNEL_TYPES.length];
+        for (ChannelType channelType : CHANNEL_TYPES) {
+            dispatchers[channelType.ordinal()] = new ChannelDispatcher(channelType);
+        }
+        this.pendingRowPermits = new Semaphore(processingConfig.getMaxPendingRows());
+        // writer and workers of the channels which the file has rows for
+        this.executorService = Executors.newCachedThreadPool();
+        this.statsRecorder = new StatsRecorder(initialStats);
+    }
+
+    void start() {
+        writerFuture = executorService.submit(this::write);
+    }
+
+    /**
+     * Parse stage: hand over a row to the dispatch stage of each of its channels. Blocks while the
+     * pipeline is full.
+     *
+     * @param fileItem row of input file
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void submit(FileItem fileItem) throws InterruptedException {
+        acquirePendingRowPermit();
+
+        OutputRow outputRow = new OutputRow(sequence++, fileItem.getUserId());
+        int pendingChannels = 0;
+        int pendingCount = 0;
+        for (ChannelType channelType : CHANNEL_TYPES) {
+            NotificationStatus status = notificationUtils.getUnsentStatus(channelType, fileItem);
+            if (status != null) {
+                outputRow.setStatus(channelType, status);
+            } else {
+                pendingChannels |= 1 << channelType.ordinal();
+                pendingCount++;
+            }
+        }
+
+        if (pendingCount == 0) {
+            completedRows.add(outputRow);
+            return;
+        }
+
+        // set before any channel is dispatched, as channels complete the row on their own threads
+        outputRow.setPendingChannels(pendingCount);
+        DispatchTask task = new DispatchTask(fileItem, outputRow);
+        for (ChannelDispatcher dispatcher : dispatchers) {
+            if ((pendingChannels & 1 << dispatcher.channelType.ordinal()) != 0) {
+                dispatcher.submit(task);
+            }
+        }
+    }
+
+    /**
+     * Parse stage: hand over a row which is not applicable for any channel directly to the write
+     * stage. Blocks while the pipeline is full.
+     *
+     * @param userId user id
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void submitNotApplicable(String userId) throws InterruptedException {
+        acquirePendingRowPermit();
+
+        OutputRow outputRow = new OutputRow(sequence++, userId);
+        for (ChannelType channelType : CHANNEL_TYPES) {
+            outputRow.setStatus(channelType, NotificationStatus.NOT_APPLICABLE);
+        }
+        completedRows.add(outputRow);
+    }
+
+    /**
+     * Wait for all the submitted rows to be sent and written, then stop the pipeline.
+     *
+     * @return stats of all the written rows
+     * @throws InterruptedException if interrupted while waiting
+     */
+    Map<ChannelType, Stats> finish() throws InterruptedException {
+        try {
+            // channels finish their queues in parallel
+            for (ChannelDispatcher dispatcher : dispatchers) {
+                dispatcher.endInput();
+            }
+            for (ChannelDispatcher dispatcher : dispatchers) {
+                dispatcher.awaitWorkers();
+            }
+
+            // send remaining batches
+            for (ChannelDispatcher dispatcher : dispatchers) {
+                dispatcher.recipientSender.flush();
+            }
+
+            // wait for retries as well, rows are written once their messages are sent or failed
+            submittedRows = sequence;
+            await(writerFuture);
+        } finally {
+            executorService.shutdownNow();
+            retryScheduler.shutdownNow();
+        }
+
+        return statsRecorder.snapshot();
+    }
+
+    /**
+     * Wait for all the submitted rows to be sent and written, keeping the pipeline running. Should
+     * be called by the parse stage, so that no row is submitted meanwhile.
+     *
+     * @return stats of all the written rows
+     * @throws InterruptedException if interrupted while waiting
+     */
+    Map<ChannelType, Stats> drain() throws InterruptedException {
+        // permits are released once rows are written, after stats are updated
+        while (pendingRowPermits.availablePermits() < processingConfig.getMaxPendingRows()) {
+            checkFailure();
+
+            // send partially filled batches, rows picked by workers meanwhile are sent next time
+            for (ChannelDispatcher dispatcher : dispatchers) {
+                dispatcher.recipientSender.flush();
+            }
+            Thread.sleep(DRAIN_POLL_MILLIS);
+        }
+
+        return statsRecorder.snapshot();
+    }
+
+    /**
+     * Stop the pipeline without waiting for pending rows.
+     */
+    void abort() {
+        executorService.shutdownNow();
+        retryScheduler.shutdownNow();
+    }
+
+    /**
+     * @return retry scheduler of the file
+     */
+    AmazonSQSRetryScheduler getRetryScheduler() {
+        return retryScheduler;
+    }
+
+    private void acquirePendingRowPermit() throws InterruptedException {
+        while (!pendingRowPermits.tryAcquire(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            checkFailure();
+        }
+    }
+
+    private void recordSendLatency(ChannelType channelType, NotificationStatus status,
+            long sendTime) {
+        // only notifications which are sent have a latency
+        if (status == NotificationStatus.SUCCESS || status == NotificationStatus.FAILURE) {
+            statsRecorder.recordSendLatency(channelType, System.nanoTime() - sendTime);
+        }
+    }
+
+    private void onChannelCompleted(OutputRow outputRow) {
+        if (outputRow.completeChannel()) {
+            completedRows.add(outputRow);
+        }
+    }
+
+    private void write() {
+        // rows which are completed but not yet written because an earlier row is still pending
+        Map<Long, OutputRow> reorderBuffer = new HashMap<>();
+        long nextSequence = 0;
+
+        try {
+            while (submittedRows < 0 || nextSequence < submittedRows) {
+                OutputRow outputRow = completedRows.poll(POLL_TIMEOUT_MILLIS,
+                        TimeUnit.MILLISECONDS);
+                if (outputRow == null) {
+                    // input may be slow, so don't let partially filled batches wait forever
+                    for (ChannelDispatcher dispatcher : dispatchers) {
+                        dispatcher.recipientSender.flushIfExpired();
+                    }
+                    continue;
+                }
+
+                reorderBuffer.put(outputRow.getSequence(), outputRow);
+                while ((outputRow = reorderBuffer.remove(nextSequence)) != null) {
+                    for (ChannelType channelType : CHANNEL_TYPES) {
+                        statsRecorder.recordUser(channelType, outputRow.getStatus(channelType));
+                    }
+                    if (suppressionList != null) {
+                        suppressionList.record(outputRow);
+                    }
+                    long startTime = stageTimer.start();
+                    csvWriter.writeNext(outputRow.toItems());
+                    stageTimer.stop(ProcessingStage.CSV_WRITE, startTime);
+
+                    nextSequence++;
+                    pendingRowPermits.release();
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException ex) {
+            failure.compareAndSet(null, ex);
+            throw ex;
+        }
+    }
+
+    private void await(Future<?> future) throws InterruptedException {
+        while (true) {
+            checkFailure();
+            try {
+                future.get(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException ex) {
+                // keep waiting, unless some other stage has failed
+            } catch (ExecutionException ex) {
+                throw new EngineServiceException("Notification pipeline failed", ex.getCause());
+            }
+        }
+    }
+
+    private void checkFailure() {
+        Throwable throwable = failure.get();
+        if (throwable != null) {
+            throw new EngineServiceException("Notification pipeline failed", throwable);
+        }
+    }
+
+    /**
+     * Dispatch stage of a channel, with its own queue, workers and recipient sender.
+     */
+    private class ChannelDispatcher {
+
+        private final ChannelType channelType;
+
+        private final RecipientSender recipientSender;
+
+        private final BlockingQueue<DispatchTask> queue;
+
+        // accessed by the parse stage only
+        private final List<Future<?>> workerFutures = new ArrayList<>();
+
+        private ChannelDispatcher(ChannelType channelType) {
+            this.channelType = channelType;
+            this.recipientSender = notificationUtils.createRecipientSender(channelType,
+                    retryScheduler, stageTimer);
+            this.queue = new ArrayBlockingQueue<>(processingConfig.getQueueSize());
+        }
+
+        private void submit(DispatchTask task) throws InterruptedException {
+            if (workerFutures.isEmpty()) {
+                for (int i = 0; i < processingConfig.getWorkerThreads(); i++) {
+                    workerFutures.add(executorService.submit(this::dispatch));
+                }
+            }
+
+            offer(task);
+        }
+
+        private void endInput() throws InterruptedException {
+            for (int i = 0; i < workerFutures.size(); i++) {
+                offer(END_OF_INPUT);
+            }
+        }
+
+        private void awaitWorkers() throws InterruptedException {
+            for (Future<?> workerFuture : workerFutures) {
+                await(workerFuture);
+            }
+        }
+
+        private void offer(DispatchTask task) throws InterruptedException {
+            while (!queue.offer(task, POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+            }
+        }
+
+        private void dispatch() {
+            try {
+                DispatchTask task;
+                while ((task = queue.take()) != END_OF_INPUT) {
+                    OutputRow outputRow = task.outputRow;
+
+                    long sendTime = System.nanoTime();
+                    notificationUtils.send(channelType, task.fileItem, recipientSender,
+                            status -> {
+                                recordSendLatency(channelType, status, sendTime);
+                                outputRow.setStatus(channelType, status);
+                                onChannelCompleted(outputRow);
+                            });
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException ex) {
+                failure.compareAndSet(null, ex);
+                throw ex;
+            }
+        }
+    }
+
+    private static class DispatchTask {
+
+        private final FileItem fileItem;
+
+        private final OutputRow outputRow;
+
+        private DispatchTask(FileItem fileItem, OutputRow outputRow) {
+            this.fileItem = fileItem;
+            this.outputRow = outputRow;
+        }
+    }
+}
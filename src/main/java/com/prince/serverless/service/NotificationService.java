@@ -1,5 +1,9 @@
 package com.prince.serverless.service;
 
+import java.util.List;
+
+import com.amazonaws.services.lambda.runtime.Context;
+
 import com.prince.serverless.model.EventResponse;
 
 /**
@@ -16,4 +20,32 @@ public interface NotificationService {
      * @throws Exception exception
      */
     EventResponse processFile(String objectKey) throws Exception;
+
+    /**
+     * Process input s3 file as in {@link #processFile(String)}, within the time limit of a Lambda
+     * invocation. Progress is saved periodically, and the file is handed off to another invocation
+     * before the time limit, which resumes from the saved progress.
+     *
+     * If folders are enabled, object key of the marker file of a folder processes all the parts of
+     * the folder, with a single report of the folder.
+     *
+     * @param objectKey s3 object key
+     * @param context lambda context
+     * @return event response of this invocation
+     * @throws Exception exception
+     */
+    EventResponse processFile(String objectKey, Context context) throws Exception;
+
+    /**
+     * Process input s3 files of an event as in {@link #processFile(String, Context)}, up to {@link
+     * com.prince.serverless.config.ProcessingConfig#getMaxConcurrentFiles()} files at a time. A file
+     * which fails doesn't affect the other files, its error is reported in its event response.
+     *
+     * @param objectKeys s3 object keys
+     * @param context lambda context
+     * @return event responses, in order of object keys
+     * @throws InterruptedException if interrupted while waiting for files to be processed
+     */
+    List<EventResponse> processFiles(List<String> objectKeys, Context context)
+            throws InterruptedException;
 }
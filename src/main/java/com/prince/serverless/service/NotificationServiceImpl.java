@@ -1,20 +1,29 @@
 package com.prince.serverless.service;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.logging.log4j.LogManager;
@@ -23,23 +32,42 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import com.amazonaws.services.lambda.runtime.Context;
+import com.google.common.base.CaseFormat;
 import com.google.common.io.CharStreams;
-import com.opencsv.CSVReader;
 import com.opencsv.CSVWriter;
 
 import com.prince.serverless.accessor.AmazonS3ClientAccessor;
+import com.prince.serverless.accessor.AmazonS3MultipartOutputStream;
+import com.prince.serverless.accessor.AmazonSQSRetryScheduler;
 import com.prince.serverless.config.AmazonS3ClientConfig;
+import com.prince.serverless.config.ProcessingConfig;
+import com.prince.serverless.exception.EngineServiceException;
+import com.prince.serverless.model.Checkpoint;
 import com.prince.serverless.model.Communication;
 import com.prince.serverless.model.EventResponse;
 import com.prince.serverless.model.FileDetails;
 import com.prince.serverless.model.FileItem;
+import com.prince.serverless.model.FolderPart;
+import com.prince.serverless.model.InputFolder;
+import com.prince.serverless.model.LatencyHistogram;
+import com.prince.serverless.model.RateLimitStats;
+import com.prince.serverless.model.Shard;
+import com.prince.serverless.model.ShardedFile;
 import com.prince.serverless.model.Stats;
 import com.prince.serverless.util.ChannelType;
 import com.prince.serverless.util.Constants;
+import com.prince.serverless.util.DuplicateFilter;
+import com.prince.serverless.util.ExceptionHandler;
 import com.prince.serverless.util.FileUtils;
-import com.prince.serverless.util.NotificationStatus;
+import com.prince.serverless.util.InputFileParser;
+import com.prince.serverless.util.MetricsLogger;
 import com.prince.serverless.util.NotificationUtils;
+import com.prince.serverless.util.OutputMode;
+import com.prince.serverless.util.ProcessingStage;
 import com.prince.serverless.util.ReportType;
+import com.prince.serverless.util.S3EventUtils;
+import com.prince.serverless.util.StageTimer;
 
 /**
  * This class is responsible to send messages to users for active/inactive notification activity.
@@ -55,8 +83,15 @@ import com.prince.serverless.util.ReportType;
  * Sample output files:
  * s3://bucket/output/20190101/InactiveUserFile_20190701_<millis>.output.csv000
  * s3://bucket/output/20190101/ActiveUserFile_20190701_<millis>.output.csv000
+ *
+ * Sample output file, if output is compressed:
+ * s3://bucket/output/20190101/ActiveUserFile_20190701_<millis>.output.csv000.gz
  * </pre>
  *
+ * If folders are enabled, parts of a folder, e.g. ActiveUserFile_20190701.csv000 and
+ * ActiveUserFile_20190701.csv001, are processed together once marker file of the folder arrives,
+ * with an output file per part and a single report of the folder.
+ *
  * @author Prince Raj
  */
 @Component
@@ -69,8 +104,20 @@ public class NotificationServiceImpl implements NotificationService {
 
     private final AmazonS3ClientAccessor s3ClientAccessor;
 
+    private final ProcessingConfig processingConfig;
+
     private final NotificationUtils notificationUtils;
 
+    private final CheckpointService checkpointService;
+
+    private final MetricsLogger metricsLogger;
+
+    private final SuppressionService suppressionService;
+
+    private final ShardService shardService;
+
+    private final FolderService folderService;
+
     @Value("${com.example.admin.enabled.email:false}")
     private boolean adminEmailEnabled;
 
@@ -80,17 +127,114 @@ public class NotificationServiceImpl implements NotificationService {
     @Value("${com.example.admin.email.template}")
     private int emailTemplate;
 
+    // admin email body template, loaded once from classpath
+    private volatile String notificationActivityEmailBody;
+
     @Autowired
     public NotificationServiceImpl(AmazonS3ClientConfig s3ClientConfig,
-            AmazonS3ClientAccessor s3ClientAccessor, NotificationUtils notificationUtils) {
+            AmazonS3ClientAccessor s3ClientAccessor, ProcessingConfig processingConfig,
+            NotificationUtils notificationUtils, CheckpointService checkpointService,
+            MetricsLogger metricsLogger, SuppressionService suppressionService,
+            ShardService shardService, FolderService folderService) {
         this.s3ClientConfig = s3ClientConfig;
         this.s3ClientAccessor = s3ClientAccessor;
+        this.processingConfig = processingConfig;
         this.notificationUtils = notificationUtils;
+        this.checkpointService = checkpointService;
+        this.metricsLogger = metricsLogger;
+        this.suppressionService = suppressionService;
+        this.shardService = shardService;
+        this.folderService = folderService;
+    }
+
+    @Override
+    public List<EventResponse> processFiles(List<String> objectKeys, Context context)
+            throws InterruptedException {
+        // same file may be notified more than once in an event
+        List<String> distinctObjectKeys = new ArrayList<>(new LinkedHashSet<>(objectKeys));
+
+        List<EventResponse> responses = new ArrayList<>();
+        if (distinctObjectKeys.size() == 1) {
+            responses.add(processFileSafely(distinctObjectKeys.get(0), context));
+            return responses;
+        }
+
+        List<Callable<EventResponse>> tasks = new ArrayList<>();
+        for (String objectKey : distinctObjectKeys) {
+            tasks.add(() -> processFileSafely(objectKey, context));
+        }
+
+        return processConcurrently(tasks);
+    }
+
+    /**
+     * Process files up to max concurrent files at a time.
+     *
+     * @param tasks tasks which process a file each, and don't throw
+     * @return event responses, in order of tasks
+     */
+    private List<EventResponse> processConcurrently(List<Callable<EventResponse>> tasks)
+            throws InterruptedException {
+        List<EventResponse> responses = new ArrayList<>();
+
+        int threads = Math.min(tasks.size(), processingConfig.getMaxConcurrentFiles());
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.max(threads, 1));
+        try {
+            for (Future<EventResponse> future : executorService.invokeAll(tasks)) {
+                responses.add(future.get());
+            }
+        } catch (ExecutionException ex) {
+            // tasks don't throw
+            throw new EngineServiceException("Failed to process files", ex.getCause());
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        return responses;
+    }
+
+    private void retryFromCheckpoint(FileCheckpointer checkpointer, Exception failure) {
+        try {
+            checkpointer.retry();
+        } catch (Exception ex) {
+            failure.addSuppressed(ex);
+        }
+    }
+
+    private EventResponse processFileSafely(String objectKey, Context context) {
+        try {
+            return processFile(objectKey, context);
+        } catch (Exception ex) {
+            log.error("Failed to process s3 object: {}", objectKey, ex);
+
+            EventResponse response = new EventResponse();
+            response.setFileName(FilenameUtils.getName(objectKey));
+            response.setError(ExceptionHandler.handleException(ex));
+
+            return response;
+        }
     }
 
     @Override
     public EventResponse processFile(String objectKey) throws Exception {
+        return processFile(objectKey, null);
+    }
+
+    @Override
+    public EventResponse processFile(String objectKey, Context context) throws Exception {
+        return processFile(objectKey, context, null);
+    }
+
+    /**
+     * @param folderPart part of a folder processed by the invocation of the folder, null if the
+     *        file isn't
+     */
+    private EventResponse processFile(String objectKey, Context context, FolderPart folderPart)
+            throws Exception {
         long startTime = System.currentTimeMillis();
+        StageTimer stageTimer = new StageTimer();
+        Map<ChannelType, RateLimitStats> initialRateLimitStats =
+                notificationUtils.getRateLimitStats();
 
         log.info("Starting Notification activity for s3 bucket: {} and object: {}",
                 s3ClientConfig.getBucketName(), objectKey);
@@ -100,7 +244,20 @@ public class NotificationServiceImpl implements NotificationService {
         String lastFolderName = fileDetails.getLastFolderName();
         String inputFilePath = fileDetails.getFilePath();
 
+        // shard of a file which is split by another invocation
+        if (shardService.isShard(inputFilePath)) {
+            return processShard(objectKey, inputFilePath, context, startTime, stageTimer,
+                    initialRateLimitStats);
+        }
+
+        // marker of a folder whose parts are processed together
+        if (folderService.isMarker(inputFilePath)) {
+            return processFolder(inputFilePath, context, startTime, stageTimer,
+                    initialRateLimitStats);
+        }
+
         Map<ChannelType, Stats> channelTypeStatsMap = new HashMap<>();
+        FileCheckpointer checkpointer = null;
 
         // validate file path
         if (inputFilePath.startsWith(Constants.BASE_INPUT_FOLDER_NAME)) {
@@ -108,75 +265,696 @@ public class NotificationServiceImpl implements NotificationService {
             // check validity of file name
             ReportType reportType = ReportType.getReportType(fileName);
 
-            // create output temp files
+            // resume from checkpoint of a previous invocation, if any
+            checkpointer = checkpointService.createCheckpointer(objectKey, inputFilePath, context);
+
+            // another invocation is resuming the file, e.g. for a duplicate event
+            if (checkpointer != null && !checkpointer.isOwned()) {
+                return getEventResponse(fileName, System.currentTimeMillis() - startTime,
+                        new HashMap<>(), new HashMap<>(), context, stageTimer,
+                        initialRateLimitStats, false);
+            }
+
+            // parts of folders are started by the invocation of the marker file of their folder
+            boolean resumed = checkpointer != null && checkpointer.isResumed();
+            if (processingConfig.isFolderEnabled() && folderPart == null && !resumed) {
+                log.info("Input file: {} is processed with its folder", inputFilePath);
+                return getEventResponse(fileName, System.currentTimeMillis() - startTime,
+                        new HashMap<>(), new HashMap<>(), context, stageTimer,
+                        initialRateLimitStats, false);
+            }
+
+            // large files are split into shards, unless a previous invocation started the file
+            if (!resumed) {
+                EventResponse response = splitFile(objectKey, fileDetails, context, startTime,
+                        stageTimer, initialRateLimitStats);
+                if (response != null) {
+                    return response;
+                }
+            }
+
+            // create output file, or continue the one of previous invocation
             String outputFileName = getOutputFileName(fileName);
-            String tempOutputFilePath = createTempFile(outputFileName);
+            String outputFilePath = getOutputFilePath(outputFileName, lastFolderName);
+            if (checkpointer != null) {
+                if (checkpointer.isResumed()) {
+                    outputFilePath = checkpointer.getCheckpoint().getOutputFilePath();
+                } else {
+                    checkpointer.getCheckpoint().setOutputFilePath(outputFilePath);
+                }
+            }
 
-            try (CSVReader csvReader = getCSVReader(inputFilePath);
-                    CSVWriter csvWriter = getCSVWriter(tempOutputFilePath)) {
+            String tempOutputFilePath = null;
+            if (s3ClientConfig.getWriteMode() == OutputMode.TEMP_FILE) {
+                tempOutputFilePath = createTempFile(outputFileName);
+            } else {
+                log.info("Streaming output file to s3 path: {}", outputFilePath);
+            }
 
-                // validate headers
-                String[] items = csvReader.readNext();
-                boolean status = validateHeaders(items);
-                if (status) {
-                    // write output headers
-                    csvWriter.writeNext(Constants.OUTPUT_FILE_HEADERS);
+            try (InputFileParser parser =
+                    getInputFileParser(inputFilePath, checkpointer, stageTimer);
+                    OutputStream outputStream = getOutputStream(outputFilePath, tempOutputFilePath,
+                            checkpointer);
+                    CSVWriter csvWriter = getCSVWriter(outputStream, outputFilePath)) {
+                try {
+                    // users notified by earlier files aren't notified again
+                    FileSuppressionList suppressionList =
+                            suppressionService.createSuppressionList(lastFolderName, stageTimer);
 
-                    while ((items = csvReader.readNext()) != null) {
-                        FileItem fileItem = getFileItem(items);
+                    channelTypeStatsMap = processFileRows(parser, csvWriter, outputStream,
+                            inputFilePath, checkpointer, suppressionList, stageTimer);
 
-                        // send notifications to user
-                        sendNotifications(csvWriter, fileItem, reportType, channelTypeStatsMap);
+                    if (checkpointer != null && checkpointer.isSuspended()) {
+                        // output is continued by next invocation
+                        ((AmazonS3MultipartOutputStream) outputStream).suspend();
+                    } else if (outputStream instanceof AmazonS3MultipartOutputStream) {
+                        // complete the upload here, so that it is timed
+                        csvWriter.flush();
+                        long uploadStartTime = stageTimer.start();
+                        ((AmazonS3MultipartOutputStream) outputStream).complete();
+                        stageTimer.stop(ProcessingStage.UPLOAD, uploadStartTime);
                     }
+                } catch (Exception ex) {
+                    if (outputStream instanceof AmazonS3MultipartOutputStream) {
+                        if (checkpointer != null && checkpointer.isSaved()) {
+                            // keep output of checkpoint, so that a retry resumes from it
+                            ((AmazonS3MultipartOutputStream) outputStream).suspend();
+                        } else {
+                            // discard partially uploaded output
+                            ((AmazonS3MultipartOutputStream) outputStream).abort();
+                        }
+                    }
+                    throw ex;
+                }
+            } catch (Exception ex) {
+                if (checkpointer != null && checkpointer.isSaved()) {
+                    // failure is reported in the response, so lambda doesn't retry the invocation
+                    retryFromCheckpoint(checkpointer, ex);
+                }
+                throw ex;
+            }
+
+            if (checkpointer != null) {
+                if (checkpointer.isSuspended()) {
+                    checkpointer.handOff();
                 } else {
-                    log.error("Input file: {} is not in correct format", inputFilePath);
+                    checkpointer.complete();
                 }
             }
 
             // upload output file to S3
-            if (!FileUtils.isEmpty(tempOutputFilePath)) {
-                String outputFilePath = getOutputFilePath(outputFileName, lastFolderName);
+            if (tempOutputFilePath != null && !FileUtils.isEmpty(tempOutputFilePath)) {
                 log.info("Uploading output file to s3 path: {}", outputFilePath);
+                long uploadStartTime = stageTimer.start();
                 s3ClientAccessor.uploadToS3(tempOutputFilePath, outputFilePath);
+                stageTimer.stop(ProcessingStage.UPLOAD, uploadStartTime);
             }
         } else {
             log.error("Input file: {} is not supported", inputFilePath);
         }
 
-        long endTime = System.currentTimeMillis();
-        long totalExecutionTime = (endTime - startTime) / 1000 / 60;
+        long executionTimeMillis = checkpointer != null ? checkpointer.getExecutionTimeMillis()
+                : System.currentTimeMillis() - startTime;
+
+        boolean continued = checkpointer != null && checkpointer.isSuspended();
+        if (!continued) {
+            String inputETag = folderPart != null ? folderPart.getInputETag()
+                    : checkpointer != null ? checkpointer.getCheckpoint().getInputETag() : null;
+            reportFile(inputFilePath, inputETag, folderPart != null, fileName,
+                    executionTimeMillis, channelTypeStatsMap, stageTimer);
+        }
+
+        EventResponse response = getEventResponse(fileName, executionTimeMillis,
+                channelTypeStatsMap, channelTypeStatsMap, context, stageTimer,
+                initialRateLimitStats, continued);
+
+        if (continued) {
+            log.info("Suspended Notification activity for s3 bucket: {} and object: {}, with "
+                    + "stats: {}", s3ClientConfig.getBucketName(), objectKey, response);
+        } else {
+            log.info("Completed Notification activity for s3 bucket: {} and object: {}, with "
+                    + "stats: {}", s3ClientConfig.getBucketName(), objectKey, response);
+        }
+
+        return response;
+    }
+
+    /**
+     * Split a large file into shards, and hand them off to other invocations.
+     *
+     * @return response of the file, null if file isn't split
+     */
+    private EventResponse splitFile(String objectKey, FileDetails fileDetails, Context context,
+            long startTime, StageTimer stageTimer,
+            Map<ChannelType, RateLimitStats> initialRateLimitStats)
+            throws IOException, InterruptedException {
+        String fileName = fileDetails.getFileName();
+        String inputFilePath = fileDetails.getFilePath();
+        String outputFilePath = getOutputFilePath(getOutputFileName(fileName),
+                fileDetails.getLastFolderName());
+
+        long splitStartTime = stageTimer.start();
+        ShardedFile shardedFile = shardService.split(inputFilePath, outputFilePath, context);
+        stageTimer.stop(ProcessingStage.SHARD_SPLIT, splitStartTime);
+        if (shardedFile == null) {
+            return null;
+        }
+
+        boolean merged = false;
+        if (!shardService.start(objectKey, inputFilePath, shardedFile, context)) {
+            log.warn("Input file: {} is already being processed in shards", inputFilePath);
+        } else if (shardedFile.getShards().stream().allMatch(Shard::isCompleted)) {
+            // merge of stale shards failed
+            mergeShards(inputFilePath, fileName, shardedFile, stageTimer);
+            merged = true;
+        }
+
+        // stats are logged by the invocation which merges the shards
+        EventResponse response = getEventResponse(fileName,
+                System.currentTimeMillis() - startTime, new HashMap<>(), new HashMap<>(),
+                context, stageTimer, initialRateLimitStats, !merged);
+        response.setShardCount(shardedFile.getShards().size());
+
+        log.info("Split Notification activity for s3 bucket: {} and object: {}, with stats: {}",
+                s3ClientConfig.getBucketName(), objectKey, response);
+
+        return response;
+    }
+
+    /**
+     * Process a shard of a file, writing its output rows to an object of its own. The invocation
+     * which completes the last shard merges output and stats of all the shards, and sends them to
+     * admin users. Duplicates are filtered within each shard, and shards processed concurrently
+     * don't suppress users notified by each other.
+     */
+    private EventResponse processShard(String objectKey, String shardFilePath, Context context,
+            long startTime, StageTimer stageTimer,
+            Map<ChannelType, RateLimitStats> initialRateLimitStats) throws Exception {
+        String inputFilePath = shardService.getInputFilePath(shardFilePath);
+        int shardIndex = shardService.getShardIndex(shardFilePath);
+        Path path = Paths.get(inputFilePath);
+        String fileName = path.getFileName().toString();
+
+        ShardedFile shardedFile = shardService.load(inputFilePath);
+        Shard shard = shardedFile != null && shardIndex < shardedFile.getShards().size()
+                ? shardedFile.getShards().get(shardIndex) : null;
+        if (shard == null || shard.isCompleted()) {
+            log.warn("Shard: {} of input file: {} is already processed", shardIndex,
+                    inputFilePath);
+            return getEventResponse(fileName, System.currentTimeMillis() - startTime,
+                    new HashMap<>(), new HashMap<>(), context, stageTimer, initialRateLimitStats,
+                    false);
+        }
+
+        log.info("Starting shard: {} of input file: {} from offset: {} to offset: {}", shardIndex,
+                inputFilePath, shard.getStartOffset(), shard.getEndOffset());
+
+        FileSuppressionList suppressionList = suppressionService.createSuppressionList(
+                path.getParent().getFileName().toString(), stageTimer);
+
+        Exception failure = null;
+        try (InputFileParser parser = new InputFileParser(
+                s3ClientAccessor.getInputStream(inputFilePath, shardedFile.getInputETag(),
+                        shard.getStartOffset(), shard.getEndOffset(), stageTimer),
+                shard.getStartOffset());
+                AmazonS3MultipartOutputStream outputStream =
+                        s3ClientAccessor.writeToS3(shard.getOutputKey());
+                CSVWriter csvWriter =
+                        getCSVWriter(outputStream, shardedFile.getOutputFilePath())) {
+            try {
+                if (shardIndex == 0) {
+                    csvWriter.writeNext(Constants.OUTPUT_FILE_HEADERS);
+                }
+
+                shard.setChannelTypeStatsMap(processRows(parser, csvWriter, outputStream,
+                        inputFilePath, new HashMap<>(), null, suppressionList, stageTimer));
+
+                csvWriter.flush();
+                long uploadStartTime = stageTimer.start();
+                outputStream.complete();
+                stageTimer.stop(ProcessingStage.UPLOAD, uploadStartTime);
+            } catch (Exception ex) {
+                // discard partially uploaded output
+                outputStream.abort();
+                throw ex;
+            }
+        } catch (Exception ex) {
+            log.error("Failed to process shard: {} of input file: {}", shardIndex, inputFilePath,
+                    ex);
+
+            // shard is left pending while it is retried by another invocation
+            boolean retried;
+            try {
+                retried = shardService.retry(objectKey, inputFilePath, shardedFile, shardIndex,
+                        shard, context);
+            } catch (Exception retryEx) {
+                ex.addSuppressed(retryEx);
+                throw ex;
+            }
+            if (retried) {
+                throw ex;
+            }
+
+            shard.setFailed(true);
+            failure = ex;
+        }
+
+        ShardedFile completedFile =
+                shardService.complete(inputFilePath, shardedFile, shardIndex, shard);
+
+        // stats of the file are logged once, by the invocation which merges the shards
+        Map<ChannelType, Stats> channelTypeStatsMap = shard.getChannelTypeStatsMap() != null
+                ? shard.getChannelTypeStatsMap() : new HashMap<>();
+        Map<ChannelType, Stats> metricsStatsMap = new HashMap<>();
+        long executionTimeMillis = System.currentTimeMillis() - startTime;
+        if (completedFile != null) {
+            channelTypeStatsMap = mergeShards(inputFilePath, fileName, completedFile, stageTimer);
+            metricsStatsMap = channelTypeStatsMap;
+            executionTimeMillis = System.currentTimeMillis() - completedFile.getStartTimeMillis();
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+
+        EventResponse response = getEventResponse(fileName, executionTimeMillis,
+                channelTypeStatsMap, metricsStatsMap, context, stageTimer, initialRateLimitStats,
+                completedFile == null);
+        response.setShardCount(shardedFile.getShards().size());
+
+        log.info("Completed shard: {} of input file: {}, with stats: {}", shardIndex,
+                inputFilePath, response);
+
+        return response;
+    }
+
+    /**
+     * Merge output rows and stats of all the shards of a file, and send the stats to admin users.
+     * Rows of failed shards are missing in output file.
+     */
+    private Map<ChannelType, Stats> mergeShards(String inputFilePath, String fileName,
+            ShardedFile shardedFile, StageTimer stageTimer)
+            throws IOException, InterruptedException {
+        Map<ChannelType, Stats> channelTypeStatsMap = new HashMap<>();
+        List<String> outputKeys = new ArrayList<>();
+        List<Integer> failedShards = new ArrayList<>();
+        for (int i = 0; i < shardedFile.getShards().size(); i++) {
+            Shard shard = shardedFile.getShards().get(i);
+            if (shard.isFailed()) {
+                failedShards.add(i);
+                continue;
+            }
+
+            outputKeys.add(shard.getOutputKey());
+            for (Map.Entry<ChannelType, Stats> entry : shard.getChannelTypeStatsMap().entrySet()) {
+                channelTypeStatsMap.computeIfAbsent(entry.getKey(), key -> new Stats())
+                        .merge(entry.getValue());
+            }
+        }
+
+        if (!failedShards.isEmpty()) {
+            log.error("Shards: {} of input file: {} failed, their rows are missing in output "
+                    + "file: {}", failedShards, inputFilePath, shardedFile.getOutputFilePath());
+        }
+
+        log.info("Merging shards of input file: {} into output file: {}", inputFilePath,
+                shardedFile.getOutputFilePath());
+        long mergeStartTime = stageTimer.start();
+        s3ClientAccessor.concatenateInS3(outputKeys, shardedFile.getOutputFilePath());
+        stageTimer.stop(ProcessingStage.SHARD_MERGE, mergeStartTime);
+
+        reportFile(inputFilePath, shardedFile.getInputETag(), false, fileName,
+                System.currentTimeMillis() - shardedFile.getStartTimeMillis(),
+                channelTypeStatsMap, stageTimer);
+
+        shardService.delete(inputFilePath, shardedFile);
+
+        return channelTypeStatsMap;
+    }
+
+    /**
+     * Process the parts of the folder of a marker file, up to max concurrent files at a time.
+     * Parts write their output files as usual, while their stats are sent to admin users once for
+     * the folder, by the invocation which completes the last part, e.g. an invocation which
+     * continues a part or merges its shards. Parts processed concurrently don't suppress users
+     * notified by each other.
+     */
+    private EventResponse processFolder(String markerFilePath, Context context, long startTime,
+            StageTimer stageTimer, Map<ChannelType, RateLimitStats> initialRateLimitStats)
+            throws Exception {
+        InputFolder inputFolder = folderService.list(markerFilePath);
+        String folderPath = inputFolder.getFolderPath();
+        List<FolderPart> parts = inputFolder.getParts();
+
+        boolean started = false;
+        if (parts.isEmpty()) {
+            log.warn("Input folder: {} has no input files", folderPath);
+        } else if (!folderService.start(inputFolder)) {
+            log.warn("Input folder: {} is already processed", folderPath);
+        } else {
+            log.info("Processing parts: {} of input folder: {}", parts.size(), folderPath);
+            started = true;
+
+            List<Callable<EventResponse>> tasks = new ArrayList<>();
+            for (FolderPart part : parts) {
+                tasks.add(() -> processPartSafely(part, context));
+            }
+            processConcurrently(tasks);
+        }
+
+        // stats of the parts are logged as metrics by their invocations
+        Map<ChannelType, Stats> channelTypeStatsMap = new HashMap<>();
+        long executionTimeMillis = System.currentTimeMillis() - startTime;
+        boolean continued = false;
+        if (started) {
+            InputFolder processedFolder = folderService.load(folderPath);
+            continued = !processedFolder.getParts().stream().allMatch(FolderPart::isCompleted);
+            if (!continued) {
+                channelTypeStatsMap = mergeParts(processedFolder);
+                executionTimeMillis =
+                        System.currentTimeMillis() - processedFolder.getStartTimeMillis();
+            }
+        }
+
+        EventResponse response = getEventResponse(inputFolder.getReportName(),
+                executionTimeMillis, channelTypeStatsMap, new HashMap<>(), context, stageTimer,
+                initialRateLimitStats, continued);
+        response.setPartCount(parts.size());
+
+        log.info("Processed parts of input folder: {} for s3 bucket: {}, with stats: {}",
+                folderPath, s3ClientConfig.getBucketName(), response);
+
+        return response;
+    }
+
+    private EventResponse processPartSafely(FolderPart part, Context context) {
+        try {
+            return processFile(S3EventUtils.encodeObjectKey(part.getInputFilePath()), context,
+                    part);
+        } catch (Exception ex) {
+            log.error("Failed to process part: {} of its input folder", part.getInputFilePath(),
+                    ex);
+
+            EventResponse response = new EventResponse();
+            response.setFileName(FilenameUtils.getName(part.getInputFilePath()));
+            response.setError(ExceptionHandler.handleException(ex));
+
+            // failed part is completed, so that the folder is reported without its stats
+            FolderPart failedPart = new FolderPart();
+            failedPart.setInputFilePath(part.getInputFilePath());
+            failedPart.setInputETag(part.getInputETag());
+            failedPart.setFailed(true);
+            try {
+                InputFolder completedFolder = folderService.complete(failedPart);
+                if (completedFolder != null) {
+                    reportFolder(completedFolder, new StageTimer());
+                }
+            } catch (Exception completeEx) {
+                log.error("Failed to complete failed part: {} of its input folder",
+                        part.getInputFilePath(), completeEx);
+            }
+
+            return response;
+        }
+    }
+
+    /**
+     * Send stats of a processed file to admin users. Stats of a part of a folder are recorded in
+     * the folder instead, and stats of all the parts are sent once the last part completes.
+     *
+     * @param inputETag etag of input file, null if not known
+     * @param folderPart true if file is processed as a part of a folder, else it is checked
+     *        whether the file is continued or split as a part of a folder
+     */
+    private void reportFile(String inputFilePath, String inputETag, boolean folderPart,
+            String fileName, long executionTimeMillis,
+            Map<ChannelType, Stats> channelTypeStatsMap, StageTimer stageTimer)
+            throws IOException, InterruptedException {
+        if (inputETag != null && (folderPart || folderService.isPart(inputFilePath, inputETag))) {
+            FolderPart part = new FolderPart();
+            part.setInputFilePath(inputFilePath);
+            part.setInputETag(inputETag);
+            part.setChannelTypeStatsMap(channelTypeStatsMap);
+
+            InputFolder completedFolder = folderService.complete(part);
+            if (completedFolder != null) {
+                reportFolder(completedFolder, stageTimer);
+            }
+            return;
+        }
 
         // send email to admin with current stats
-        sendEmailToAdmin(fileName, totalExecutionTime, channelTypeStatsMap);
+        long emailStartTime = stageTimer.start();
+        sendEmailToAdmin(fileName, executionTimeMillis, channelTypeStatsMap);
+        stageTimer.stop(ProcessingStage.ADMIN_EMAIL, emailStartTime);
+    }
+
+    /**
+     * Send merged stats of all the parts of a folder to admin users.
+     */
+    private void reportFolder(InputFolder inputFolder, StageTimer stageTimer) throws IOException {
+        long emailStartTime = stageTimer.start();
+        sendEmailToAdmin(inputFolder.getReportName(),
+                System.currentTimeMillis() - inputFolder.getStartTimeMillis(),
+                mergeParts(inputFolder));
+        stageTimer.stop(ProcessingStage.ADMIN_EMAIL, emailStartTime);
+
+        log.info("Completed parts: {} of input folder: {}", inputFolder.getParts().size(),
+                inputFolder.getFolderPath());
+    }
+
+    /**
+     * Merge stats of the parts of a folder. Stats of failed parts are missing.
+     */
+    private Map<ChannelType, Stats> mergeParts(InputFolder inputFolder) {
+        Map<ChannelType, Stats> channelTypeStatsMap = new HashMap<>();
+        List<String> failedParts = new ArrayList<>();
+        for (FolderPart part : inputFolder.getParts()) {
+            if (part.isFailed()) {
+                failedParts.add(part.getInputFilePath());
+                continue;
+            }
+
+            for (Map.Entry<ChannelType, Stats> entry : part.getChannelTypeStatsMap().entrySet()) {
+                channelTypeStatsMap.computeIfAbsent(entry.getKey(), key -> new Stats())
+                        .merge(entry.getValue());
+            }
+        }
+
+        if (!failedParts.isEmpty()) {
+            log.error("Parts: {} of input folder: {} failed, their stats are missing in its "
+                    + "report", failedParts, inputFolder.getFolderPath());
+        }
+
+        return channelTypeStatsMap;
+    }
+
+    /**
+     * Log metrics of the file, and create its response.
+     *
+     * @param metricsStatsMap stats which are logged as metrics
+     */
+    private EventResponse getEventResponse(String fileName, long executionTimeMillis,
+            Map<ChannelType, Stats> channelTypeStatsMap,
+            Map<ChannelType, Stats> metricsStatsMap, Context context, StageTimer stageTimer,
+            Map<ChannelType, RateLimitStats> initialRateLimitStats, boolean continued) {
+        // stage timings are of this invocation only
+        Map<ProcessingStage, LatencyHistogram> stageTimingsMap = stageTimer.snapshot();
+        metricsLogger.logFileMetrics(getFunctionName(context), fileName, executionTimeMillis,
+                metricsStatsMap, stageTimingsMap);
 
         EventResponse response = new EventResponse();
         response.setFileName(fileName);
-        response.setTotalExecutionTime(totalExecutionTime);
+        response.setTotalExecutionTime(executionTimeMillis / 1000 / 60);
+        response.setExecutionTimeMillis(executionTimeMillis);
         response.setChannelTypeStatsMap(channelTypeStatsMap);
-
-        log.info("Completed Notification activity for s3 bucket: {} and object: {}, with stats: {}",
-                s3ClientConfig.getBucketName(), objectKey, response);
+        response.setStageTimingsMap(stageTimingsMap);
+        response.setRateLimitStatsMap(getRateLimitStats(initialRateLimitStats));
+        response.setContinued(continued);
 
         return response;
     }
 
-    private void sendNotifications(CSVWriter csvWriter, FileItem fileItem, ReportType reportType,
-            Map<ChannelType, Stats> channelTypeStatsMap) {
-        NotificationStatus emailStatus = notificationUtils.sendEmail(fileItem);
-        updateStats(ChannelType.EMAIL, emailStatus, channelTypeStatsMap);
+    /**
+     * Rate limiters are shared by the files processed concurrently, so throttled requests of a file
+     * include the ones of other files processed meanwhile.
+     */
+    private Map<ChannelType, RateLimitStats> getRateLimitStats(
+            Map<ChannelType, RateLimitStats> initialRateLimitStats) {
+        Map<ChannelType, RateLimitStats> rateLimitStatsMap = notificationUtils.getRateLimitStats();
+        for (Map.Entry<ChannelType, RateLimitStats> entry : rateLimitStatsMap.entrySet()) {
+            RateLimitStats initialStats = initialRateLimitStats.get(entry.getKey());
+            entry.getValue().setThrottleCount(entry.getValue().getThrottleCount()
+                    - initialStats.getThrottleCount());
+        }
+
+        return rateLimitStatsMap;
+    }
+
+    private Map<ChannelType, Stats> processFileRows(InputFileParser parser, CSVWriter csvWriter,
+            OutputStream outputStream, String inputFilePath, FileCheckpointer checkpointer,
+            FileSuppressionList suppressionList, StageTimer stageTimer) throws Exception {
+        Map<ChannelType, Stats> channelTypeStatsMap = new HashMap<>();
 
-        NotificationStatus smsStatus = notificationUtils.sendSms(fileItem);
-        updateStats(ChannelType.SMS, smsStatus, channelTypeStatsMap);
+        // header is processed by the invocation which started the file
+        boolean resumed = checkpointer != null && checkpointer.isResumed();
+        boolean status = true;
+        if (resumed) {
+            channelTypeStatsMap = checkpointer.getCheckpoint().getChannelTypeStatsMap();
+        } else {
+            // validate headers
+            String[] items = parser.readHeader();
+            status = validateHeaders(items);
+            if (status) {
+                // write output headers
+                csvWriter.writeNext(Constants.OUTPUT_FILE_HEADERS);
+            }
+        }
 
-        String[] items = {fileItem.getUserId(), emailStatus.name(), smsStatus.name()};
-        csvWriter.writeNext(items);
+        if (status) {
+            channelTypeStatsMap = processRows(parser, csvWriter, outputStream, inputFilePath,
+                    channelTypeStatsMap, checkpointer, suppressionList, stageTimer);
+        } else {
+            log.error("Input file: {} is not in correct format", inputFilePath);
+        }
+
+        return channelTypeStatsMap;
     }
 
-    private void sendEmailToAdmin(String fileName, long totalExecutionTime,
+    /**
+     * Send notifications of the rows, and write their output rows.
+     *
+     * @param initialStats stats of rows processed before, e.g. by a previous invocation
+     * @param checkpointer checkpointer, null if checkpoints are not supported
+     * @param suppressionList suppression list, null if suppression is disabled
+     * @return stats including the initial stats
+     */
+    private Map<ChannelType, Stats> processRows(InputFileParser parser, CSVWriter csvWriter,
+            OutputStream outputStream, String inputFilePath, Map<ChannelType, Stats> initialStats,
+            FileCheckpointer checkpointer, FileSuppressionList suppressionList,
+            StageTimer stageTimer) throws Exception {
+        DuplicateFilter duplicateFilter = null;
+        if (processingConfig.isDedupeEnabled()) {
+            duplicateFilter = new DuplicateFilter();
+            if (checkpointer != null && checkpointer.isResumed()) {
+                restoreDuplicateFilter(duplicateFilter, inputFilePath,
+                        checkpointer.getCheckpoint());
+            }
+        }
+
+        Map<ChannelType, Stats> channelTypeStatsMap;
+        NotificationPipeline pipeline = new NotificationPipeline(processingConfig,
+                notificationUtils, csvWriter, initialStats, stageTimer, suppressionList);
+        pipeline.start();
+        try {
+            InputFileParser.Row row = parser.getRow();
+            long parseStartTime = stageTimer.start();
+            while (parser.nextRow()) {
+                FileItem fileItem = row.isApplicable() ? getFileItem(row) : null;
+                if (fileItem != null && duplicateFilter != null) {
+                    duplicateFilter.filter(row, fileItem);
+                }
+                if (fileItem != null && suppressionList != null) {
+                    suppressionList.filter(fileItem);
+                }
+                stageTimer.stop(ProcessingStage.PARSE, parseStartTime);
+
+                if (fileItem != null) {
+                    // send notifications to user
+                    pipeline.submit(fileItem);
+                } else {
+                    pipeline.submitNotApplicable(row.getUserId());
+                }
+
+                if (checkpointer != null && checkpointer.isSaveDue()) {
+                    saveCheckpoint(parser, pipeline, csvWriter, outputStream, checkpointer,
+                            suppressionList);
+                    if (checkpointer.isDeadlineNear()) {
+                        // rest of the file is processed by next invocation
+                        checkpointer.suspend();
+                        break;
+                    }
+                }
+
+                parseStartTime = stageTimer.start();
+            }
+
+            channelTypeStatsMap = pipeline.finish();
+
+            if (suppressionList != null) {
+                suppressionList.save();
+                if (suppressionList.getUnkeyedRows() > 0) {
+                    log.warn("Rows: {} of input file: {} are not suppressed, as their user id "
+                            + "isn't the user id prefix followed by a number",
+                            suppressionList.getUnkeyedRows(), inputFilePath);
+                }
+            }
+
+            if (duplicateFilter != null) {
+                log.info("Duplicate filter of input file: {} has keys: {} taking bytes: {}",
+                        inputFilePath, duplicateFilter.size(), duplicateFilter.getMemoryBytes());
+            }
+
+            AmazonSQSRetryScheduler retryScheduler = pipeline.getRetryScheduler();
+            if (retryScheduler.getRetriedMessages() > 0) {
+                log.warn("Retried messages: {} of input file: {}, messages failed after "
+                        + "retries: {}", retryScheduler.getRetriedMessages(), inputFilePath,
+                        retryScheduler.getExhaustedMessages());
+            }
+        } catch (Exception ex) {
+            pipeline.abort();
+            throw ex;
+        }
+
+        return channelTypeStatsMap;
+    }
+
+    /**
+     * Filter the rows processed by previous invocations again, so that their notifications are
+     * remembered. Keys are not saved in checkpoint, as they may take hundreds of MB.
+     */
+    private void restoreDuplicateFilter(DuplicateFilter duplicateFilter, String inputFilePath,
+            Checkpoint checkpoint) throws IOException {
+        long startTime = System.currentTimeMillis();
+
+        InputStream inputStream =
+                s3ClientAccessor.getInputStream(inputFilePath, checkpoint.getInputETag(), 0);
+        try (InputFileParser parser = new InputFileParser(inputStream)) {
+            parser.readHeader();
+
+            InputFileParser.Row row = parser.getRow();
+            while (parser.getOffset() < checkpoint.getInputOffset() && parser.nextRow()) {
+                if (row.isApplicable()) {
+                    duplicateFilter.filter(row, getFileItem(row));
+                }
+            }
+        }
+
+        log.info("Restored duplicate filter of input file: {} with keys: {} in millis: {}",
+                inputFilePath, duplicateFilter.size(), System.currentTimeMillis() - startTime);
+    }
+
+    private void saveCheckpoint(InputFileParser parser, NotificationPipeline pipeline,
+            CSVWriter csvWriter, OutputStream outputStream, FileCheckpointer checkpointer,
+            FileSuppressionList suppressionList) throws InterruptedException, IOException {
+        // wait until all the rows read so far are sent and written
+        Map<ChannelType, Stats> channelTypeStatsMap = pipeline.drain();
+        csvWriter.flush();
+
+        // rows before checkpoint are not processed again, so their users are saved first
+        if (suppressionList != null) {
+            suppressionList.save();
+        }
+
+        checkpointer.save(parser.getOffset(), parser.getRowNumber(), channelTypeStatsMap,
+                (AmazonS3MultipartOutputStream) outputStream);
+    }
+
+    private void sendEmailToAdmin(String fileName, long executionTimeMillis,
             Map<ChannelType, Stats> channelTypeStatsMap) throws IOException {
         if (adminEmailEnabled) {
             Map<String, String> dataMap = new HashMap<>();
-            populateDataMap(fileName, totalExecutionTime, dataMap, channelTypeStatsMap);
+            populateDataMap(fileName, executionTimeMillis, dataMap, channelTypeStatsMap);
             String body = getNotificationActivityEmailBody();
 
             for (String emailId : adminEmailIds) {
@@ -194,7 +972,7 @@ public class NotificationServiceImpl implements NotificationService {
         }
     }
 
-    private void populateDataMap(String fileName, long totalExecutionTime,
+    private void populateDataMap(String fileName, long executionTimeMillis,
             Map<String, String> dataMap, Map<ChannelType, Stats> channelTypeStatsMap) {
         // date in IST timezone
         DateFormat sdf = new SimpleDateFormat("dd-MMM-yyyy HH:mm:ss zzz");
@@ -202,35 +980,59 @@ public class NotificationServiceImpl implements NotificationService {
         String date = sdf.format(new Date());
         dataMap.put(Constants.DATE, date);
 
-        dataMap.put(Constants.TOTAL_EXECUTION_TIME, String.valueOf(totalExecutionTime));
+        // in minutes, with fractions so that short runs don't show 0
+        dataMap.put(Constants.TOTAL_EXECUTION_TIME,
+                String.format("%.2f", executionTimeMillis / 60000.0));
         dataMap.put(Constants.FILE_NAME, fileName);
         dataMap.put(Constants.FILE_TYPE, fileName.split(Constants.UNDERSCORE)[0]);
 
         for (ChannelType channelType : ChannelType.values()) {
-            Stats stats = channelTypeStatsMap.get(channelType);
+            Stats stats = channelTypeStatsMap.getOrDefault(channelType, new Stats());
             String totalUsers = String.valueOf(stats.getTotalUsers());
             String successUsers = String.valueOf(stats.getSuccessUsers());
             String failedUsers = String.valueOf(stats.getFailedUsers());
             String notApplicableUsers = String.valueOf(stats.getNotApplicableUsers());
+            String duplicateUsers = String.valueOf(stats.getDuplicateUsers());
+            String suppressedUsers = String.valueOf(stats.getSuppressedUsers());
 
-            switch (channelType) {
-                case EMAIL:
-                    dataMap.put(Constants.EMAIL_TOTAL_USERS_COUNT, totalUsers);
-                    dataMap.put(Constants.EMAIL_SUCCESS_USERS_COUNT, successUsers);
-                    dataMap.put(Constants.EMAIL_FAILED_USERS_COUNT, failedUsers);
-                    dataMap.put(Constants.EMAIL_NOT_APPLICABLE_USERS_COUNT, notApplicableUsers);
-                    break;
-                case SMS:
-                    dataMap.put(Constants.SMS_TOTAL_USERS_COUNT, totalUsers);
-                    dataMap.put(Constants.SMS_SUCCESS_USERS_COUNT, successUsers);
-                    dataMap.put(Constants.SMS_FAILED_USERS_COUNT, failedUsers);
-                    dataMap.put(Constants.SMS_NOT_APPLICABLE_USERS_COUNT, notApplicableUsers);
-                    break;
-            }
+            LatencyHistogram sendLatency = stats.getSendLatency() != null ? stats.getSendLatency()
+                    : new LatencyHistogram();
+            String sendLatencyP50 = formatMillis(sendLatency.getP50Micros());
+            String sendLatencyP99 = formatMillis(sendLatency.getP99Micros());
+
+            // keys of channel, e.g. emailTotalUsersCount and androidPushTotalUsersCount
+            String prefix = CaseFormat.UPPER_UNDERSCORE.to(CaseFormat.LOWER_CAMEL,
+                    channelType.name());
+            dataMap.put(prefix + Constants.TOTAL_USERS_COUNT, totalUsers);
+            dataMap.put(prefix + Constants.SUCCESS_USERS_COUNT, successUsers);
+            dataMap.put(prefix + Constants.FAILED_USERS_COUNT, failedUsers);
+            dataMap.put(prefix + Constants.NOT_APPLICABLE_USERS_COUNT, notApplicableUsers);
+            dataMap.put(prefix + Constants.DUPLICATE_USERS_COUNT, duplicateUsers);
+            dataMap.put(prefix + Constants.SUPPRESSED_USERS_COUNT, suppressedUsers);
+            dataMap.put(prefix + Constants.SEND_LATENCY_P50, sendLatencyP50);
+            dataMap.put(prefix + Constants.SEND_LATENCY_P99, sendLatencyP99);
         }
     }
 
+    private static String getFunctionName(Context context) {
+        return context != null ? context.getFunctionName() : Constants.LOCAL_FUNCTION_NAME;
+    }
+
+    private static String formatMillis(long micros) {
+        return String.format("%.1f", micros / 1000.0);
+    }
+
     private String getNotificationActivityEmailBody() throws IOException {
+        String body = notificationActivityEmailBody;
+        if (body == null) {
+            body = loadNotificationActivityEmailBody();
+            notificationActivityEmailBody = body;
+        }
+
+        return body;
+    }
+
+    private String loadNotificationActivityEmailBody() throws IOException {
         InputStream inputStream = this.getClass().getClassLoader()
                 .getResourceAsStream(Constants.NOTIFICATION_ACTIVITY_BODY_TEMPLATE);
 
@@ -242,27 +1044,6 @@ public class NotificationServiceImpl implements NotificationService {
         return body;
     }
 
-    private void updateStats(ChannelType channelType, NotificationStatus notificationStatus,
-            Map<ChannelType, Stats> channelTypeStatsMap) {
-        Stats stats = channelTypeStatsMap.get(channelType);
-        if (stats == null) {
-            stats = new Stats();
-            channelTypeStatsMap.put(channelType, stats);
-        }
-
-        switch (notificationStatus) {
-            case SUCCESS:
-                stats.incrementSuccessUsersCount();
-                break;
-            case FAILURE:
-                stats.incrementFailedUsersCount();
-                break;
-            case NOT_APPLICABLE:
-                stats.incrementNotApplicableUsersCount();
-                break;
-        }
-    }
-
     private FileDetails getFileDetails(String objectKey) throws UnsupportedEncodingException {
         // Object key may have spaces or unicode non-ASCII characters
         String filePath = objectKey.replace('+', ' ');
@@ -287,40 +1068,91 @@ public class NotificationServiceImpl implements NotificationService {
     }
 
     private String getOutputFileName(String fileName) {
-        return FilenameUtils.getBaseName(fileName) + Constants.UNDERSCORE
+        String outputFileName = FilenameUtils.getBaseName(fileName) + Constants.UNDERSCORE
                 + System.currentTimeMillis() + Constants.DOT + Constants.OUTPUT_FILE_SEPARATOR
                 + Constants.DOT + FilenameUtils.getExtension(fileName);
+        if (s3ClientConfig.isWriteCompressionEnabled()) {
+            outputFileName += Constants.GZIP_FILE_EXTENSION;
+        }
+
+        return outputFileName;
     }
 
     private boolean validateHeaders(String[] items) {
-        return Arrays.equals(Constants.INPUT_FILE_HEADERS, items);
+        return InputFileParser.isValidHeader(items);
+    }
+
+    private InputFileParser getInputFileParser(String filePath, FileCheckpointer checkpointer,
+            StageTimer stageTimer) throws IOException {
+        if (checkpointer == null) {
+            return new InputFileParser(s3ClientAccessor.getInputStream(filePath, stageTimer));
+        }
+
+        // stored bytes are read from checkpoint offset, so parser offsets are offsets of the file
+        Checkpoint checkpoint = checkpointer.getCheckpoint();
+        InputStream inputStream = s3ClientAccessor.getInputStream(filePath,
+                checkpoint.getInputETag(), checkpoint.getInputOffset(), stageTimer);
+
+        return new InputFileParser(inputStream, checkpoint.getInputOffset(),
+                checkpoint.getRowNumber());
     }
 
-    private CSVReader getCSVReader(String filePath) throws IOException {
-        return new CSVReader(s3ClientAccessor.readFromS3(filePath));
+    private OutputStream getOutputStream(String outputFilePath, String tempOutputFilePath,
+            FileCheckpointer checkpointer) throws IOException {
+        final OutputStream outputStream;
+        if (tempOutputFilePath != null) {
+            // output of both modes is compressed by csv writer, not according to temp file name
+            outputStream = new BufferedOutputStream(new FileOutputStream(tempOutputFilePath, true));
+        } else {
+            AmazonS3MultipartOutputStream s3OutputStream =
+                    s3ClientAccessor.writeToS3(outputFilePath);
+            if (checkpointer != null && checkpointer.isResumed()) {
+                try {
+                    checkpointer.restoreOutput(s3OutputStream);
+                } catch (IOException | RuntimeException ex) {
+                    s3OutputStream.suspend();
+                    throw ex;
+                }
+            }
+
+            outputStream = s3OutputStream;
+        }
+
+        return outputStream;
     }
 
-    private CSVWriter getCSVWriter(String filePath) throws IOException {
-        return new CSVWriter(FileUtils.getBufferedWriter(filePath, true),
+    /**
+     * Get csv writer of output file. Output is gzip compressed if output file path has gzip
+     * extension, so that a file is compressed or not in all of its invocations and shards as
+     * decided when it was started. Compressed members end at every flush, so output written by
+     * invocations or shards concatenates into a valid gzip file.
+     */
+    private CSVWriter getCSVWriter(OutputStream outputStream, String outputFilePath) {
+        if (outputFilePath.endsWith(Constants.GZIP_FILE_EXTENSION)) {
+            outputStream = FileUtils.getCompressedOutputStream(outputStream,
+                    s3ClientConfig.getWriteCompressionLevel(),
+                    s3ClientConfig.getWriteCompressionBlockSize(),
+                    s3ClientConfig.getWriteCompressionParallelism());
+        }
+
+        return new CSVWriter(FileUtils.getBufferedWriter(outputStream),
                 CSVWriter.DEFAULT_SEPARATOR, CSVWriter.NO_QUOTE_CHARACTER,
                 CSVWriter.NO_ESCAPE_CHARACTER, CSVWriter.DEFAULT_LINE_END);
     }
 
-    private FileItem getFileItem(String[] items) {
-        int index = 0;
-
+    // package-private for benchmarks
+    FileItem getFileItem(InputFileParser.Row row) {
         FileItem fileItem = new FileItem();
-        fileItem.setUserId(items[index++]);
-        fileItem.setEmailId(items[index++]);
-        fileItem.setMobileNumber(items[index++]);
-        fileItem.setDate(items[index++]);
-        fileItem.setSendEmail(parseBoolean(items[index++]));
-        fileItem.setSendSms(parseBoolean(items[index]));
+        fileItem.setUserId(row.getUserId());
+        fileItem.setEmailId(row.getEmailId());
+        fileItem.setMobileNumber(row.getMobileNumber());
+        fileItem.setDate(row.getDate());
+        fileItem.setSendEmail(row.isSendEmail());
+        fileItem.setSendSms(row.isSendSms());
+        fileItem.setSendAndroidPush(row.isSendAndroidPush());
+        fileItem.setSendIosPush(row.isSendIosPush());
+        fileItem.setSendInApp(row.isSendInApp());
 
         return fileItem;
     }
-
-    private boolean parseBoolean(String val) {
-        return "1".equals(val);
-    }
 }
@@ -0,0 +1,454 @@
+package com.prince.serverless.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.amazonaws.services.lambda.runtime.Context;
+
+import com.prince.serverless.accessor.AmazonLambdaClientAccessor;
+import com.prince.serverless.accessor.AmazonS3ClientAccessor;
+import com.prince.serverless.config.AmazonLambdaClientConfig;
+import com.prince.serverless.config.AmazonS3ClientConfig;
+import com.prince.serverless.config.ProcessingConfig;
+import com.prince.serverless.exception.EngineServiceException;
+import com.prince.serverless.model.Shard;
+import com.prince.serverless.model.ShardedFile;
+import com.prince.serverless.model.VersionedContent;
+import com.prince.serverless.util.Constants;
+import com.prince.serverless.util.InputFileParser;
+import com.prince.serverless.util.JsonUtils;
+import com.prince.serverless.util.S3EventUtils;
+import com.prince.serverless.util.StageTimer;
+
+/**
+ * Splits large input files into shards at row boundaries, and hands off every shard to an
+ * invocation of its own, so that a file is processed as fast as its largest shard.
+ *
+ * <pre>
+ * Sample shard files:
+ * s3://bucket/shard/20190101/InactiveUserFile_20190701.csv000.shards.json
+ * s3://bucket/shard/20190101/InactiveUserFile_20190701.csv000.3.output
+ * </pre>
+ *
+ * Shards of a file are kept in a single object, which is updated with conditional puts as shards
+ * complete, so that exactly one invocation completes the last shard and merges the output. Shard
+ * invocations are sent S3 events of keys which don't exist, e.g.
+ * shard/20190101/InactiveUserFile_20190701.csv000.3.shard for the 4th shard.
+ *
+ * @author Prince Raj
+ */
+@Component
+public class ShardService {
+
+    // bytes read at a time while looking for header or row boundaries
+    private static final int SCAN_SIZE = 64 * 1024;
+
+    private static final long MAX_RETRY_DELAY_MILLIS = 100;
+
+    private static final byte LF = '\n';
+
+    private final Logger log = LogManager.getLogger(this.getClass());
+
+    private final AmazonS3ClientConfig s3ClientConfig;
+
+    private final AmazonS3ClientAccessor s3ClientAccessor;
+
+    private final AmazonLambdaClientConfig lambdaClientConfig;
+
+    private final AmazonLambdaClientAccessor lambdaClientAccessor;
+
+    private final ProcessingConfig processingConfig;
+
+    @Autowired
+    public ShardService(AmazonS3ClientConfig s3ClientConfig,
+            AmazonS3ClientAccessor s3ClientAccessor, AmazonLambdaClientConfig lambdaClientConfig,
+            AmazonLambdaClientAccessor lambdaClientAccessor, ProcessingConfig processingConfig) {
+        this.s3ClientConfig = s3ClientConfig;
+        this.s3ClientAccessor = s3ClientAccessor;
+        this.lambdaClientConfig = lambdaClientConfig;
+        this.lambdaClientAccessor = lambdaClientAccessor;
+        this.processingConfig = processingConfig;
+    }
+
+    /**
+     * Split input file into shards of about {@link ProcessingConfig#getShardSize()} bytes, which
+     * end at line feeds. Shards need byte offsets of rows, so compressed input files are not split,
+     * and rows should not have line feeds in quoted fields.
+     *
+     * @param inputFilePath input file path
+     * @param outputFilePath output file path
+     * @param context lambda context, null if not invoked by Lambda
+     * @return sharded file, null if file isn't split
+     * @throws IOException IO exception
+     */
+    ShardedFile split(String inputFilePath, String outputFilePath, Context context)
+            throws IOException {
+        if (!processingConfig.isShardEnabled() || context == null) {
+            return null;
+        }
+
+        String inputETag = s3ClientAccessor.getETag(inputFilePath);
+        long contentLength = s3ClientAccessor.getContentLength(inputFilePath);
+        if (contentLength < processingConfig.getShardMinFileSize()) {
+            return null;
+        }
+        if (s3ClientAccessor.isCompressed(inputFilePath, inputETag)) {
+            log.info("Shards are not supported for compressed input file: {}", inputFilePath);
+            return null;
+        }
+
+        // files with invalid headers are not split, so that they are reported as usual
+        long headerEndOffset;
+        try (InputFileParser parser = new InputFileParser(s3ClientAccessor
+                .getInputStream(inputFilePath, inputETag, 0, SCAN_SIZE, StageTimer.NONE))) {
+            if (!InputFileParser.isValidHeader(parser.readHeader())) {
+                return null;
+            }
+            headerEndOffset = parser.getOffset();
+        }
+
+        long rowsLength = contentLength - headerEndOffset;
+        long shardSize = Math.max(1, processingConfig.getShardSize());
+        int shardCount = (int) Math.min(processingConfig.getShardMaxCount(),
+                (rowsLength + shardSize - 1) / shardSize);
+        if (shardCount < 2) {
+            return null;
+        }
+
+        List<Shard> shards = new ArrayList<>();
+        long startOffset = headerEndOffset;
+        for (int i = 1; i <= shardCount; i++) {
+            long endOffset = i == shardCount ? contentLength
+                    : getRowStartOffset(inputFilePath, inputETag,
+                            headerEndOffset + rowsLength * i / shardCount, contentLength);
+
+            // rows longer than a shard leave no row for the next shard
+            if (endOffset > startOffset) {
+                Shard shard = new Shard();
+                shard.setStartOffset(startOffset);
+                shard.setEndOffset(endOffset);
+                shard.setOutputKey(getShardOutputKey(inputFilePath, shards.size()));
+                shards.add(shard);
+
+                startOffset = endOffset;
+            }
+        }
+
+        ShardedFile shardedFile = new ShardedFile();
+        shardedFile.setInputETag(inputETag);
+        shardedFile.setOutputFilePath(outputFilePath);
+        shardedFile.setStartTimeMillis(System.currentTimeMillis());
+        shardedFile.setShards(shards);
+
+        return shardedFile;
+    }
+
+    /**
+     * Save shards of a file, and invoke the current function asynchronously with an S3 event of
+     * every shard. Shards of the same file which aren't updated for {@link
+     * ProcessingConfig#getShardLeaseMillis()} are taken over instead, keeping completed shards, so
+     * that only pending and failed shards are invoked again. Stale shards may all be completed if
+     * their merge failed, so the caller should merge them.
+     *
+     * @param objectKey s3 object key of input file, as in event
+     * @param inputFilePath input file path
+     * @param shardedFile sharded file, whose shards are replaced by the stale ones if taken over
+     * @param context lambda context
+     * @return false if shards of the same file are being processed, e.g. for a duplicate event
+     * @throws IOException IO exception
+     */
+    boolean start(String objectKey, String inputFilePath, ShardedFile shardedFile,
+            Context context) throws IOException {
+        String shardedFileKey = getShardedFileKey(inputFilePath);
+
+        VersionedContent currentContent = s3ClientAccessor.readVersionedBytesFromS3(shardedFileKey);
+        String eTag = null;
+        if (currentContent != null) {
+            ShardedFile currentFile = fromJson(currentContent.getContent());
+            if (!shardedFile.getInputETag().equals(currentFile.getInputETag())) {
+                log.warn("Discarding shards of input file: {} as the file is replaced",
+                        inputFilePath);
+            } else if (isStale(currentFile)) {
+                // e.g. a shard timed out, or its retries failed to be invoked
+                log.warn("Restarting shards of input file: {} as they aren't updated since: {}",
+                        inputFilePath, currentFile.getUpdateTimeMillis());
+                shardedFile.setShards(restart(currentFile.getShards()));
+            } else {
+                return false;
+            }
+            eTag = currentContent.getETag();
+        }
+
+        shardedFile.setUpdateTimeMillis(System.currentTimeMillis());
+        if (!s3ClientAccessor.writeToS3IfUnmodified(shardedFileKey, toJson(shardedFile), eTag)) {
+            return false;
+        }
+
+        String functionName = context.getInvokedFunctionArn();
+        log.info("Splitting s3 object: {} into shards: {} processed by function: {}", objectKey,
+                shardedFile.getShards().size(), functionName);
+
+        for (int i = 0; i < shardedFile.getShards().size(); i++) {
+            if (!shardedFile.getShards().get(i).isCompleted()) {
+                invokeShard(functionName, getShardKey(objectKey, i));
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Leave a failed shard pending and invoke the current function asynchronously with its S3 event
+     * again, as Lambda doesn't retry an invocation which handles the failure. Shards which have
+     * failed {@link ProcessingConfig#getShardMaxRetries()} times are not retried.
+     *
+     * @param shardObjectKey s3 object key of the shard, as in event
+     * @param inputFilePath input file path
+     * @param startedFile sharded file, as loaded before the shard is processed
+     * @param index index of the shard
+     * @param shard failed shard
+     * @param context lambda context, null if not invoked by Lambda
+     * @return false if the shard isn't retried, so it should be completed as failed
+     * @throws IOException IO exception
+     * @throws InterruptedException if interrupted while waiting to retry
+     */
+    boolean retry(String shardObjectKey, String inputFilePath, ShardedFile startedFile,
+            int index, Shard shard, Context context) throws IOException, InterruptedException {
+        if (context == null || shard.getRetryCount() >= processingConfig.getShardMaxRetries()) {
+            return false;
+        }
+
+        int retryCount = shard.getRetryCount() + 1;
+        ShardedFile shardedFile = update(inputFilePath, startedFile, index,
+                file -> file.getShards().get(index).setRetryCount(retryCount));
+        if (shardedFile != null) {
+            log.warn("Retrying shard: {} of input file: {}, retry: {}", index, inputFilePath,
+                    retryCount);
+            invokeShard(context.getInvokedFunctionArn(), shardObjectKey);
+        }
+
+        return true;
+    }
+
+    /**
+     * @param filePath file path of an s3 event
+     * @return true if file path is of a shard
+     */
+    boolean isShard(String filePath) {
+        return filePath.startsWith(Constants.BASE_SHARD_FOLDER_NAME)
+                && filePath.endsWith(Constants.SHARD_FILE_EXTENSION);
+    }
+
+    /**
+     * @param shardFilePath file path of a shard
+     * @return input file path of the shard
+     */
+    String getInputFilePath(String shardFilePath) {
+        String path = getShardPath(shardFilePath);
+        return Constants.BASE_INPUT_FOLDER_NAME
+                + path.substring(Constants.BASE_SHARD_FOLDER_NAME.length(),
+                        path.lastIndexOf(Constants.DOT));
+    }
+
+    /**
+     * @param shardFilePath file path of a shard
+     * @return index of the shard
+     */
+    int getShardIndex(String shardFilePath) {
+        String path = getShardPath(shardFilePath);
+        return Integer.parseInt(path.substring(path.lastIndexOf(Constants.DOT) + 1));
+    }
+
+    /**
+     * @param inputFilePath input file path
+     * @return sharded file, null if file isn't being processed in shards
+     * @throws IOException IO exception
+     */
+    ShardedFile load(String inputFilePath) throws IOException {
+        // read with a single get, as shards may update the state between a head and a get
+        VersionedContent content =
+                s3ClientAccessor.readVersionedBytesFromS3(getShardedFileKey(inputFilePath));
+        return content != null ? fromJson(content.getContent()) : null;
+    }
+
+    /**
+     * Record a processed shard, whether it failed or not.
+     *
+     * @param inputFilePath input file path
+     * @param startedFile sharded file, as loaded before the shard is processed
+     * @param index index of the shard
+     * @param shard processed shard
+     * @return sharded file if the shard is the last one to complete, else null
+     * @throws IOException IO exception
+     * @throws InterruptedException if interrupted while waiting to retry
+     */
+    ShardedFile complete(String inputFilePath, ShardedFile startedFile, int index, Shard shard)
+            throws IOException, InterruptedException {
+        shard.setCompleted(true);
+        ShardedFile shardedFile = update(inputFilePath, startedFile, index,
+                file -> file.getShards().set(index, shard));
+
+        boolean last = shardedFile != null
+                && shardedFile.getShards().stream().allMatch(Shard::isCompleted);
+        return last ? shardedFile : null;
+    }
+
+    /**
+     * Delete shards of a file once their output is merged.
+     *
+     * @param inputFilePath input file path
+     * @param shardedFile sharded file
+     */
+    void delete(String inputFilePath, ShardedFile shardedFile) {
+        for (Shard shard : shardedFile.getShards()) {
+            s3ClientAccessor.deleteFromS3(shard.getOutputKey());
+        }
+        s3ClientAccessor.deleteFromS3(getShardedFileKey(inputFilePath));
+    }
+
+    /**
+     * Update a pending shard with conditional puts, retrying as other shards may update theirs
+     * meanwhile.
+     *
+     * @return updated sharded file, null if the input file is replaced, the shards are restarted
+     *         or the shard is completed
+     */
+    private ShardedFile update(String inputFilePath, ShardedFile startedFile, int index,
+            Consumer<ShardedFile> update) throws IOException, InterruptedException {
+        String shardedFileKey = getShardedFileKey(inputFilePath);
+
+        for (int attempt = 1; attempt <= processingConfig.getShardMaxWriteAttempts(); attempt++) {
+            VersionedContent content = s3ClientAccessor.readVersionedBytesFromS3(shardedFileKey);
+            if (content == null) {
+                throw new EngineServiceException("Shards of input file: " + inputFilePath
+                        + " don't exist");
+            }
+
+            ShardedFile shardedFile = fromJson(content.getContent());
+            if (!startedFile.getInputETag().equals(shardedFile.getInputETag())) {
+                log.warn("Discarding shard: {} of input file: {} as the file is replaced", index,
+                        inputFilePath);
+                return null;
+            }
+            if (startedFile.getStartTimeMillis() != shardedFile.getStartTimeMillis()) {
+                log.warn("Discarding shard: {} of input file: {} as its shards are restarted",
+                        index, inputFilePath);
+                return null;
+            }
+            if (shardedFile.getShards().get(index).isCompleted()) {
+                log.warn("Shard: {} of input file: {} is already completed", index,
+                        inputFilePath);
+                return null;
+            }
+
+            update.accept(shardedFile);
+            shardedFile.setUpdateTimeMillis(System.currentTimeMillis());
+            if (s3ClientAccessor.writeToS3IfUnmodified(shardedFileKey, toJson(shardedFile),
+                    content.getETag())) {
+                return shardedFile;
+            }
+
+            log.info("Shards of input file: {} are written by another shard, attempt: {}",
+                    inputFilePath, attempt);
+            Thread.sleep(ThreadLocalRandom.current().nextLong(MAX_RETRY_DELAY_MILLIS * attempt));
+        }
+
+        throw new EngineServiceException("Failed to update shard: " + index
+                + " of input file: " + inputFilePath);
+    }
+
+    /**
+     * Leave output of completed shards of stale shards as is, and make the failed ones pending.
+     */
+    private List<Shard> restart(List<Shard> staleShards) {
+        for (Shard shard : staleShards) {
+            if (shard.isFailed()) {
+                shard.setCompleted(false);
+                shard.setFailed(false);
+                shard.setChannelTypeStatsMap(null);
+            }
+            shard.setRetryCount(0);
+        }
+
+        return staleShards;
+    }
+
+    private boolean isStale(ShardedFile shardedFile) {
+        return System.currentTimeMillis() - shardedFile.getUpdateTimeMillis() > processingConfig
+                .getShardLeaseMillis();
+    }
+
+    private void invokeShard(String functionName, String shardObjectKey) {
+        lambdaClientAccessor.invokeAsync(functionName,
+                S3EventUtils.toS3EventJson(s3ClientConfig.getBucketName(),
+                        lambdaClientConfig.getRegion(), shardObjectKey,
+                        Constants.SHARD_EVENT_NAME));
+    }
+
+    /**
+     * Offset of the row following the line feed at or after given offset - 1, so that a row
+     * starting at the offset starts the next shard.
+     */
+    private long getRowStartOffset(String inputFilePath, String inputETag, long offset,
+            long contentLength) throws IOException {
+        long scanOffset = offset - 1;
+        while (scanOffset < contentLength) {
+            byte[] bytes;
+            try (InputStream inputStream = s3ClientAccessor.getInputStream(inputFilePath,
+                    inputETag, scanOffset, scanOffset + SCAN_SIZE, StageTimer.NONE)) {
+                bytes = IOUtils.toByteArray(inputStream);
+            }
+
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] == LF) {
+                    return scanOffset + i + 1;
+                }
+            }
+            scanOffset += bytes.length;
+        }
+
+        return contentLength;
+    }
+
+    private String getShardPath(String shardFilePath) {
+        return shardFilePath.substring(0,
+                shardFilePath.length() - Constants.SHARD_FILE_EXTENSION.length());
+    }
+
+    private String getShardKey(String objectKey, int index) {
+        return Constants.BASE_SHARD_FOLDER_NAME
+                + objectKey.substring(Constants.BASE_INPUT_FOLDER_NAME.length()) + Constants.DOT
+                + index + Constants.SHARD_FILE_EXTENSION;
+    }
+
+    private String getShardedFileKey(String inputFilePath) {
+        return Constants.BASE_SHARD_FOLDER_NAME
+                + inputFilePath.substring(Constants.BASE_INPUT_FOLDER_NAME.length())
+                + Constants.SHARDED_FILE_EXTENSION;
+    }
+
+    private String getShardOutputKey(String inputFilePath, int index) {
+        return Constants.BASE_SHARD_FOLDER_NAME
+                + inputFilePath.substring(Constants.BASE_INPUT_FOLDER_NAME.length())
+                + Constants.DOT + index + Constants.SHARD_OUTPUT_FILE_EXTENSION;
+    }
+
+    private static byte[] toJson(ShardedFile shardedFile) {
+        return JsonUtils.toJson(shardedFile).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static ShardedFile fromJson(byte[] content) {
+        return JsonUtils.fromJson(new String(content, StandardCharsets.UTF_8), ShardedFile.class);
+    }
+}
@@ -0,0 +1,100 @@
+package com.prince.serverless.service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.prince.serverless.model.LatencyHistogram;
+import com.prince.serverless.model.Stats;
+import com.prince.serverless.util.ChannelType;
+import com.prince.serverless.util.LatencyRecorder;
+import com.prince.serverless.util.NotificationStatus;
+
+/**
+ * Stats of a file which any number of threads can update and snapshot concurrently. Counters are
+ * laid out per channel and status, and are striped so that threads updating them don't contend.
+ * Snapshots are taken without stopping updates, so counters of a snapshot taken meanwhile may be
+ * a few rows apart.
+ *
+ * @author Prince Raj
+ */
+class StatsRecorder {
+
+    private static final ChannelType[] CHANNEL_TYPES = ChannelType.values();
+
+    private static final NotificationStatus[] NOTIFICATION_STATUSES = NotificationStatus.values();
+
+    private final Map<ChannelType, Stats> initialStats;
+
+    // users count by channel type and notification status ordinals
+    private final LongAdder[][] userCounts =
+            new LongAdder[CHANNEL_TYPES.length][NOTIFICATION_STATUSES.length];
+
+    private final LatencyRecorder[] sendLatencies = new LatencyRecorder[CHANNEL_TYPES.length];
+
+    /**
+     * @param initialStats stats of rows processed before, e.g. by a previous invocation
+     */
+    StatsRecorder(Map<ChannelType, Stats> initialStats) {
+        this.initialStats = initialStats;
+
+        for (int i = 0; i < CHANNEL_TYPES.length; i++) {
+            for (int j = 0; j < NOTIFICATION_STATUSES.length; j++) {
+                userCounts[i][j] = new LongAdder();
+            }
+            sendLatencies[i] = new LatencyRecorder();
+        }
+    }
+
+    void recordUser(ChannelType channelType, NotificationStatus notificationStatus) {
+        userCounts[channelType.ordinal()][notificationStatus.ordinal()].increment();
+    }
+
+    /**
+     * @param channelType channel type
+     * @param latencyNanos time from sending a notification until its outcome is known
+     */
+    void recordSendLatency(ChannelType channelType, long latencyNanos) {
+        sendLatencies[channelType.ordinal()].record(latencyNanos);
+    }
+
+    /**
+     * @return stats of every channel, including the initial stats
+     */
+    Map<ChannelType, Stats> snapshot() {
+        Map<ChannelType, Stats> channelTypeStatsMap = new EnumMap<>(ChannelType.class);
+        for (ChannelType channelType : CHANNEL_TYPES) {
+            LongAdder[] counts = userCounts[channelType.ordinal()];
+            long successUsers = counts[NotificationStatus.SUCCESS.ordinal()].sum();
+            long failedUsers = counts[NotificationStatus.FAILURE.ordinal()].sum();
+            long notApplicableUsers = counts[NotificationStatus.NOT_APPLICABLE.ordinal()].sum();
+            long duplicateUsers = counts[NotificationStatus.DUPLICATE.ordinal()].sum();
+            long suppressedUsers = counts[NotificationStatus.SUPPRESSED.ordinal()].sum();
+
+            LatencyHistogram sendLatency = sendLatencies[channelType.ordinal()].snapshot();
+
+            Stats initial = initialStats.get(channelType);
+            if (initial != null) {
+                successUsers += initial.getSuccessUsers();
+                failedUsers += initial.getFailedUsers();
+                notApplicableUsers += initial.getNotApplicableUsers();
+                duplicateUsers += initial.getDuplicateUsers();
+                suppressedUsers += initial.getSuppressedUsers();
+                sendLatency.merge(initial.getSendLatency());
+            }
+
+            Stats stats = new Stats();
+            stats.setSuccessUsers(successUsers);
+            stats.setFailedUsers(failedUsers);
+            stats.setNotApplicableUsers(notApplicableUsers);
+            stats.setDuplicateUsers(duplicateUsers);
+            stats.setSuppressedUsers(suppressedUsers);
+            stats.setTotalUsers(successUsers + failedUsers + notApplicableUsers + duplicateUsers
+                    + suppressedUsers);
+            stats.setSendLatency(sendLatency);
+            channelTypeStatsMap.put(channelType, stats);
+        }
+
+        return channelTypeStatsMap;
+    }
+}
@@ -1,11 +1,12 @@
 package com.prince.serverless.util;
 
 /**
- * Channel types via which user can be communicated
+ * Channel types via which user can be communicated. Status columns of output file are in order of
+ * channel types.
  *
  * @author Prince Raj
  */
 public enum ChannelType {
 
-    EMAIL, SMS
+    EMAIL, SMS, ANDROID_PUSH, IOS_PUSH, IN_APP
 }
@@ -17,6 +17,8 @@ public interface Constants {
 
     String MOBILE = "mobile";
 
+    String USER_ID = "userid";
+
     String TEMPLATE_ID = "templateId";
 
     String TOTAL_EXECUTION_TIME = "totalExecutionTime";
@@ -33,7 +35,12 @@ public interface Constants {
 
     String[] INPUT_FILE_HEADERS = {"userid", "emailid", "mobile", "date", "sendemail", "sendsms"};
 
-    String[] OUTPUT_FILE_HEADERS = {"userid", "sendemailstatus", "sendsmsstatus"};
+    // input files may have send flags of push and in-app channels as well
+    String[] CHANNELS_INPUT_FILE_HEADERS = {"userid", "emailid", "mobile", "date", "sendemail",
+            "sendsms", "sendandroidpush", "sendiospush", "sendinapp"};
+
+    String[] OUTPUT_FILE_HEADERS = {"userid", "sendemailstatus", "sendsmsstatus",
+            "sendandroidpushstatus", "sendiospushstatus", "sendinappstatus"};
 
     String UNDERSCORE = "_";
 
@@ -47,33 +54,91 @@ public interface Constants {
 
     String BASE_OUTPUT_FOLDER_NAME = ACTIVITY_NAME + FORWARD_SLASH + "output" + FORWARD_SLASH;
 
+    String BASE_CHECKPOINT_FOLDER_NAME =
+            ACTIVITY_NAME + FORWARD_SLASH + "checkpoint" + FORWARD_SLASH;
+
+    String CHECKPOINT_FILE_EXTENSION = ".checkpoint.json";
+
+    String CHECKPOINT_TAIL_FILE_EXTENSION = ".tail";
+
+    String BASE_SUPPRESSION_FOLDER_NAME =
+            ACTIVITY_NAME + FORWARD_SLASH + "suppression" + FORWARD_SLASH;
+
+    String SUPPRESSION_FILE_EXTENSION = ".bitmap";
+
+    String BASE_SHARD_FOLDER_NAME = ACTIVITY_NAME + FORWARD_SLASH + "shard" + FORWARD_SLASH;
+
+    String SHARDED_FILE_EXTENSION = ".shards.json";
+
+    String SHARD_FILE_EXTENSION = ".shard";
+
+    String SHARD_OUTPUT_FILE_EXTENSION = ".output";
+
+    String BASE_FOLDER_STATE_FOLDER_NAME =
+            ACTIVITY_NAME + FORWARD_SLASH + "folder" + FORWARD_SLASH;
+
+    String FOLDER_FILE_EXTENSION = ".parts.json";
+
+    // file name in report of parts of a folder, in place of their differing suffixes
+    String FOLDER_PARTS_WILDCARD = "*";
+
+    String CONTINUATION_EVENT_NAME = "Notification:Continuation";
+
+    String SHARD_EVENT_NAME = "Notification:Shard";
+
     String OUTPUT_FILE_SEPARATOR = "output";
 
+    String GZIP_FILE_EXTENSION = ".gz";
+
     String SUBJECT = "subject";
 
     String BODY = "message";
 
     String TEMPLATE_LOG_TAG = "Template";
 
+    String ENVELOPE_VERSION = "version";
+
+    String ENVELOPE_CHANNEL = "channel";
+
+    String ENVELOPE_RECIPIENTS = "recipients";
+
+    String ENVELOPE_ENCODING = "encoding";
+
+    String ENVELOPE_DATA = "envelope";
+
+    String GZIP_ENCODING = "gzip";
+
+    int ENVELOPE_FORMAT_VERSION = 1;
+
     String EMAIL_GROUP_ID = "email-group";
 
     String SMS_GROUP_ID = "sms-group";
 
+    String ANDROID_PUSH_GROUP_ID = "android-push-group";
+
+    String IOS_PUSH_GROUP_ID = "ios-push-group";
+
+    String IN_APP_GROUP_ID = "in-app-group";
+
     String ADMIN_GROUP_ID = "admin-group";
 
-    String EMAIL_TOTAL_USERS_COUNT = "emailTotalUsersCount";
+    // function name in metrics when not invoked by Lambda
+    String LOCAL_FUNCTION_NAME = "local";
+
+    // suffixes of stats of a channel in admin email, e.g. emailTotalUsersCount
+    String TOTAL_USERS_COUNT = "TotalUsersCount";
 
-    String EMAIL_SUCCESS_USERS_COUNT = "emailSuccessUsersCount";
+    String SUCCESS_USERS_COUNT = "SuccessUsersCount";
 
-    String EMAIL_FAILED_USERS_COUNT = "emailFailedUsersCount";
+    String FAILED_USERS_COUNT = "FailedUsersCount";
 
-    String EMAIL_NOT_APPLICABLE_USERS_COUNT = "emailNotApplicableUsersCount";
+    String NOT_APPLICABLE_USERS_COUNT = "NotApplicableUsersCount";
 
-    String SMS_TOTAL_USERS_COUNT = "smsTotalUsersCount";
+    String DUPLICATE_USERS_COUNT = "DuplicateUsersCount";
 
-    String SMS_SUCCESS_USERS_COUNT = "smsSuccessUsersCount";
+    String SUPPRESSED_USERS_COUNT = "SuppressedUsersCount";
 
-    String SMS_FAILED_USERS_COUNT = "smsFailedUsersCount";
+    String SEND_LATENCY_P50 = "SendLatencyP50";
 
-    String SMS_NOT_APPLICABLE_USERS_COUNT = "smsNotApplicableUsersCount";
+    String SEND_LATENCY_P99 = "SendLatencyP99";
 }
@@ -0,0 +1,110 @@
+package com.prince.serverless.util;
+
+import com.prince.serverless.model.FileItem;
+
+/**
+ * Finds rows of a file which repeat a notification of an earlier row. A notification of a channel
+ * is a duplicate if an earlier row sent the same channel to the same user id or to the same address
+ * (email id or mobile number). Rows without a user id are keyed by address only, and channels
+ * addressed by user id are keyed by user id only. Rows are remembered by 64-bit fingerprints of
+ * these keys in a {@link LongHashSet}, so millions of recipients fit in a few hundred MB.
+ * Duplicates are decided in input order, so rows should be filtered by a single thread. Not
+ * thread-safe.
+ *
+ * @author Prince Raj
+ */
+public class DuplicateFilter {
+
+    private static final int INITIAL_SIZE = 64 * 1024;
+
+    // keys of every kind share the set, so fingerprints are salted by kind
+    private static final long EMAIL_USER_SALT = 0x5851F42D4C957F2DL;
+
+    private static final long EMAIL_ADDRESS_SALT = 0x14057B7EF767814FL;
+
+    private static final long SMS_USER_SALT = 0x2545F4914F6CDD1DL;
+
+    private static final long SMS_ADDRESS_SALT = 0x61C8864680B583EBL;
+
+    private static final long ANDROID_PUSH_USER_SALT = 0x3C6EF372FE94F82BL;
+
+    private static final long IOS_PUSH_USER_SALT = 0x510E527FADE682D1L;
+
+    private static final long IN_APP_USER_SALT = 0x1F83D9ABFB41BD6BL;
+
+    private final LongHashSet keys = new LongHashSet(INITIAL_SIZE);
+
+    /**
+     * Mark the channels of a row which repeat a notification of an earlier row, and remember the
+     * notifications of the other channels.
+     *
+     * @param row row of input file
+     * @param fileItem item of the row
+     */
+    public void filter(InputFileParser.Row row, FileItem fileItem) {
+        long userIdFingerprint = row.getUserIdFingerprint();
+
+        // blank user ids would all share a key
+        boolean hasUserId = row.hasUserId();
+
+        if (fileItem.isSendEmail() && row.hasEmailId()) {
+            long addressKey = row.getEmailIdFingerprint() ^ EMAIL_ADDRESS_SALT;
+            fileItem.setDuplicate(ChannelType.EMAIL,
+                    hasUserId ? isDuplicate(userIdFingerprint ^ EMAIL_USER_SALT, addressKey)
+                            : isDuplicate(addressKey));
+        }
+
+        if (fileItem.isSendSms() && row.hasMobileNumber()) {
+            long addressKey = row.getMobileNumberFingerprint() ^ SMS_ADDRESS_SALT;
+            fileItem.setDuplicate(ChannelType.SMS,
+                    hasUserId ? isDuplicate(userIdFingerprint ^ SMS_USER_SALT, addressKey)
+                            : isDuplicate(addressKey));
+        }
+
+        if (!hasUserId) {
+            return;
+        }
+        if (fileItem.isSendAndroidPush()) {
+            fileItem.setDuplicate(ChannelType.ANDROID_PUSH,
+                    isDuplicate(userIdFingerprint ^ ANDROID_PUSH_USER_SALT));
+        }
+        if (fileItem.isSendIosPush()) {
+            fileItem.setDuplicate(ChannelType.IOS_PUSH,
+                    isDuplicate(userIdFingerprint ^ IOS_PUSH_USER_SALT));
+        }
+        if (fileItem.isSendInApp()) {
+            fileItem.setDuplicate(ChannelType.IN_APP,
+                    isDuplicate(userIdFingerprint ^ IN_APP_USER_SALT));
+        }
+    }
+
+    /**
+     * @return number of keys remembered
+     */
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * @return bytes taken by the keys
+     */
+    public long getMemoryBytes() {
+        return keys.getTableBytes();
+    }
+
+    private boolean isDuplicate(long userKey, long addressKey) {
+        if (keys.contains(userKey) || keys.contains(addressKey)) {
+            return true;
+        }
+
+        // address of a duplicate isn't remembered, as nothing is sent to it
+        keys.add(userKey);
+        keys.add(addressKey);
+        return false;
+    }
+
+    private boolean isDuplicate(long key) {
+        // false if the key is added
+        return !keys.add(key);
+    }
+}
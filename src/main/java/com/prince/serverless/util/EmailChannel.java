@@ -0,0 +1,30 @@
+package com.prince.serverless.util;
+
+/**
+ * Email notifications, addressed by email id.
+ *
+ * @author Prince Raj
+ */
+public class EmailChannel implements NotificationChannel {
+
+    private final PayloadEncoder payloadEncoder;
+
+    public EmailChannel(PayloadEncoder payloadEncoder) {
+        this.payloadEncoder = payloadEncoder;
+    }
+
+    @Override
+    public ChannelType getChannelType() {
+        return ChannelType.EMAIL;
+    }
+
+    @Override
+    public String getGroupId() {
+        return Constants.EMAIL_GROUP_ID;
+    }
+
+    @Override
+    public String encode(String date, String emailId) {
+        return payloadEncoder.encodeEmail(date, emailId);
+    }
+}
@@ -0,0 +1,150 @@
+package com.prince.serverless.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import com.prince.serverless.exception.EngineServiceException;
+import com.prince.serverless.model.Envelope;
+
+/**
+ * Decoder of user message payloads for consumers of the queue. Decodes envelopes encoded by {@link
+ * PayloadEncoder#encodeEnvelope(ChannelType, String, List, boolean)}, compressed or not, as well
+ * as single recipient payloads of all the channels, so consumers handle both formats the same
+ * way.
+ *
+ * Envelope header has the channel, date and format version of its recipients. It has no template
+ * id, as single recipient payloads of user messages carry none and consumers pick the template of
+ * a message as they do now. A template id would be another header field, with a new version.
+ *
+ * @author Prince Raj
+ */
+public class EnvelopeDecoder {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private EnvelopeDecoder() {}
+
+    /**
+     * @param messageBody message body
+     * @return envelope of recipients
+     * @throws EngineServiceException if message body is not a user message payload
+     */
+    public static Envelope decode(String messageBody) {
+        try (JsonParser parser = JSON_FACTORY.createParser(messageBody)) {
+            return decode(parser);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new EngineServiceException("Failed to decode message payload", e);
+        }
+    }
+
+    private static Envelope decode(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new EngineServiceException("Message payload is not a json object");
+        }
+
+        Envelope envelope = new Envelope();
+        String encoding = null;
+        String data = null;
+        String emailId = null;
+        String mobileNumber = null;
+        String userId = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+
+            switch (fieldName) {
+                case Constants.ENVELOPE_VERSION:
+                    envelope.setVersion(parser.getIntValue());
+                    break;
+                case Constants.ENVELOPE_CHANNEL:
+                    envelope.setChannelType(ChannelType.valueOf(parser.getText()));
+                    break;
+                case Constants.DATE:
+                    envelope.setDate(parser.getValueAsString());
+                    break;
+                case Constants.ENVELOPE_RECIPIENTS:
+                    envelope.setRecipients(readRecipients(parser));
+                    break;
+                case Constants.ENVELOPE_ENCODING:
+                    encoding = parser.getText();
+                    break;
+                case Constants.ENVELOPE_DATA:
+                    data = parser.getText();
+                    break;
+                case Constants.EMAIL_ID:
+                    emailId = parser.getValueAsString();
+                    break;
+                case Constants.MOBILE:
+                    mobileNumber = parser.getValueAsString();
+                    break;
+                case Constants.USER_ID:
+                    userId = parser.getValueAsString();
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        if (encoding != null) {
+            if (!Constants.GZIP_ENCODING.equals(encoding) || data == null) {
+                throw new EngineServiceException("Envelope encoding: " + encoding
+                        + " is not supported");
+            }
+
+            try (JsonParser dataParser = JSON_FACTORY.createParser(gunzip(data))) {
+                return decode(dataParser);
+            }
+        }
+
+        if (envelope.getRecipients() == null) {
+            // single recipient payload
+            if (emailId != null) {
+                envelope.setChannelType(ChannelType.EMAIL);
+                envelope.setRecipients(Collections.singletonList(emailId));
+            } else if (mobileNumber != null) {
+                envelope.setChannelType(ChannelType.SMS);
+                envelope.setRecipients(Collections.singletonList(mobileNumber));
+            } else if (userId != null) {
+                // channel is a field of payloads addressed by user id
+                envelope.setRecipients(Collections.singletonList(userId));
+            } else {
+                throw new EngineServiceException("Message payload has no recipient");
+            }
+        }
+
+        if (envelope.getChannelType() == null) {
+            throw new EngineServiceException("Envelope has no channel");
+        }
+
+        return envelope;
+    }
+
+    private static List<String> readRecipients(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+            throw new EngineServiceException("Envelope recipients is not an array");
+        }
+
+        List<String> recipients = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            recipients.add(parser.getText());
+        }
+
+        return recipients;
+    }
+
+    private static InputStream gunzip(String data) throws IOException {
+        byte[] bytes = Base64.getDecoder().decode(data);
+        return new GZIPInputStream(new ByteArrayInputStream(bytes));
+    }
+}
@@ -0,0 +1,195 @@
+package com.prince.serverless.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import com.google.common.base.Utf8;
+
+import com.prince.serverless.accessor.AmazonSQSBatchSender;
+
+/**
+ * Packs recipients with the same date into envelope messages, see {@link
+ * PayloadEncoder#encodeEnvelope(ChannelType, String, List, boolean)}. An envelope is sent when it
+ * reaches the max recipients or max bytes, when a recipient with another date is sent or when it
+ * is older than the max age.
+ *
+ * Queue accepts or rejects an envelope as a whole, so callbacks of all its recipients are invoked
+ * with the outcome of the envelope.
+ *
+ * @author Prince Raj
+ */
+public class EnvelopeSender implements RecipientSender {
+
+    // SQS limit for message payload
+    private static final int MAX_MESSAGE_BYTES = 256 * 1024;
+
+    // upper bound of bytes of envelope fields other than recipients
+    private static final int HEADER_BYTES = 128;
+
+    // quotes and separator of a recipient
+    private static final int RECIPIENT_OVERHEAD_BYTES = 3;
+
+    private final AmazonSQSBatchSender batchSender;
+
+    private final PayloadEncoder payloadEncoder;
+
+    private final ChannelType channelType;
+
+    private final int maxRecipients;
+
+    private final int maxBytes;
+
+    private final boolean compressed;
+
+    private final long maxAgeMillis;
+
+    private final StageTimer stageTimer;
+
+    private PendingEnvelope envelope = new PendingEnvelope(null);
+
+    /**
+     * @param batchSender batch sender of channel message group
+     * @param payloadEncoder payload encoder
+     * @param channelType channel of recipients
+     * @param maxRecipients max recipients in an envelope
+     * @param maxBytes max bytes of an envelope before compression
+     * @param compressed true to compress envelopes
+     * @param maxAgeMillis max time a recipient waits in an envelope which is not full
+     * @param stageTimer times encoding of envelopes
+     */
+    public EnvelopeSender(AmazonSQSBatchSender batchSender, PayloadEncoder payloadEncoder,
+            ChannelType channelType, int maxRecipients, int maxBytes, boolean compressed,
+            long maxAgeMillis, StageTimer stageTimer) {
+        this.batchSender = batchSender;
+        this.payloadEncoder = payloadEncoder;
+        this.channelType = channelType;
+        this.maxRecipients = Math.max(1, maxRecipients);
+        this.maxBytes = Math.min(maxBytes, MAX_MESSAGE_BYTES);
+        this.compressed = compressed;
+        this.maxAgeMillis = maxAgeMillis;
+        this.stageTimer = stageTimer;
+    }
+
+    @Override
+    public void send(String date, String recipient, Consumer<Boolean> callback) {
+        int recipientBytes = Utf8.encodedLength(recipient) + RECIPIENT_OVERHEAD_BYTES;
+
+        PendingEnvelope fullEnvelope = null;
+        PendingEnvelope expiredEnvelope = null;
+
+        synchronized (this) {
+            // recipient doesn't fit in the current envelope, so send the current envelope first
+            if (!envelope.isEmpty() && (!Objects.equals(envelope.date, date)
+                    || envelope.bytes + recipientBytes > maxBytes)) {
+                fullEnvelope = takeEnvelope(date);
+            } else if (envelope.isEmpty()) {
+                envelope = new PendingEnvelope(date);
+            }
+
+            envelope.add(recipient, callback, recipientBytes);
+
+            if (envelope.recipients.size() >= maxRecipients || isExpired()) {
+                expiredEnvelope = takeEnvelope(null);
+            }
+        }
+
+        sendEnvelope(fullEnvelope);
+        sendEnvelope(expiredEnvelope);
+    }
+
+    @Override
+    public void flushIfExpired() {
+        PendingEnvelope expiredEnvelope = null;
+        synchronized (this) {
+            if (!envelope.isEmpty() && isExpired()) {
+                expiredEnvelope = takeEnvelope(null);
+            }
+        }
+
+        sendEnvelope(expiredEnvelope);
+        batchSender.flushIfExpired();
+    }
+
+    @Override
+    public void flush() {
+        PendingEnvelope pendingEnvelope = null;
+        synchronized (this) {
+            if (!envelope.isEmpty()) {
+                pendingEnvelope = takeEnvelope(null);
+            }
+        }
+
+        sendEnvelope(pendingEnvelope);
+        batchSender.flush();
+    }
+
+    private boolean isExpired() {
+        return System.currentTimeMillis() - envelope.startTime >= maxAgeMillis;
+    }
+
+    private PendingEnvelope takeEnvelope(String nextDate) {
+        PendingEnvelope pendingEnvelope = envelope;
+        envelope = new PendingEnvelope(nextDate);
+
+        return pendingEnvelope;
+    }
+
+    private void sendEnvelope(PendingEnvelope pendingEnvelope) {
+        if (pendingEnvelope != null) {
+            sendEnvelope(pendingEnvelope.date, pendingEnvelope.recipients,
+                    pendingEnvelope.callbacks);
+        }
+    }
+
+    private void sendEnvelope(String date, List<String> recipients,
+            List<Consumer<Boolean>> callbacks) {
+        long startTime = stageTimer.start();
+        String messageBody =
+                payloadEncoder.encodeEnvelope(channelType, date, recipients, compressed);
+        stageTimer.stop(ProcessingStage.ENCODE, startTime);
+
+        // escaped characters may take more bytes than estimated, so split the envelope if needed
+        if (recipients.size() > 1 && Utf8.encodedLength(messageBody) > MAX_MESSAGE_BYTES) {
+            int half = recipients.size() / 2;
+            sendEnvelope(date, recipients.subList(0, half), callbacks.subList(0, half));
+            sendEnvelope(date, recipients.subList(half, recipients.size()),
+                    callbacks.subList(half, callbacks.size()));
+            return;
+        }
+
+        batchSender.send(messageBody, success -> {
+            for (Consumer<Boolean> callback : callbacks) {
+                callback.accept(success);
+            }
+        });
+    }
+
+    private static class PendingEnvelope {
+
+        private final String date;
+
+        private final List<String> recipients = new ArrayList<>();
+
+        private final List<Consumer<Boolean>> callbacks = new ArrayList<>();
+
+        private final long startTime = System.currentTimeMillis();
+
+        private int bytes = HEADER_BYTES;
+
+        private PendingEnvelope(String date) {
+            this.date = date;
+        }
+
+        private boolean isEmpty() {
+            return recipients.isEmpty();
+        }
+
+        private void add(String recipient, Consumer<Boolean> callback, int recipientBytes) {
+            recipients.add(recipient);
+            callbacks.add(callback);
+            bytes += recipientBytes;
+        }
+    }
+}
@@ -13,14 +13,15 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.PushbackInputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.ReversedLinesFileReader;
 
 /**
@@ -31,8 +32,13 @@ import org.apache.commons.io.input.ReversedLinesFileReader;
 @SuppressWarnings({"unused", "WeakerAccess", "UnusedReturnValue"})
 public class FileUtils {
 
+    // bytes which identify compressed content
+    public static final int MAGIC_LENGTH = 4;
+
     private static final int BUFFER_SIZE = 8192;
 
+    private static final int COMPRESSION_BLOCK_SIZE = 1024 * 1024;
+
     private static final String CSV_EXT = ".csv";
 
     private static final String ZIP_EXT = ".zip";
@@ -171,24 +177,6 @@ public class FileUtils {
         return getBufferedReader(inputStream);
     }
 
-    /**
-     * Get a BufferedReader for the specified input stream and file path. The input file must be
-     * UTF-8 encoded.
-     *
-     * @param inputStream the input stram
-     * @param filePath the file path
-     * @return reader
-     * @throws IOException IO exception
-     */
-    public static BufferedReader getBufferedReader(InputStream inputStream, String filePath)
-            throws IOException {
-        inputStream = getInputStream(inputStream, filePath);
-
-        InputStreamReader inputStreamReader =
-                new InputStreamReader(inputStream, StandardCharsets.UTF_8);
-        return new BufferedReader(inputStreamReader);
-    }
-
     /**
      * Gets a BufferedReader for the given inputStream. The input stream must be UTF-8 encoded.
      *
@@ -271,30 +259,102 @@ public class FileUtils {
         return new PrintWriter(bufferedWriter, false);
     }
 
+    /**
+     * Get an output stream which gzip compresses blocks of the written bytes in parallel, see
+     * {@link ParallelGzipOutputStream}.
+     *
+     * @param outputStream output stream of compressed bytes
+     * @param level compression level, 0-9 or -1 for default
+     * @param blockSize uncompressed bytes of a gzip member
+     * @param parallelism max blocks compressed at a time
+     * @return output stream
+     */
+    public static OutputStream getCompressedOutputStream(OutputStream outputStream, int level,
+            int blockSize, int parallelism) {
+        return new ParallelGzipOutputStream(outputStream, level, blockSize, parallelism);
+    }
+
     private static InputStream getInputStream(File file) throws IOException {
-        InputStream inputStream = new FileInputStream(file);
-        String fileName = file.getName();
-        return getInputStream(inputStream, fileName);
+        return getInputStream(new FileInputStream(file));
     }
 
-    private static InputStream getInputStream(InputStream inputStream, String filePath)
-            throws IOException {
-        if (filePath.endsWith(GZ_EXT)) {
-            inputStream = new GZIPInputStream(inputStream, BUFFER_SIZE);
-        } else if (filePath.endsWith(ZIP_EXT)) {
-            ZipInputStream zipInputStream = new ZipInputStream(inputStream);
-            zipInputStream.getNextEntry();
-            inputStream = zipInputStream;
+    /**
+     * Check if content is compressed, according to its leading bytes rather than the file name, as
+     * exporters write gzip compressed files named e.g. .csv000.
+     *
+     * @param inputStream input stream at start of content, which is read for {@link
+     *        #MAGIC_LENGTH} bytes
+     * @return true if content is gzip or zip compressed
+     * @throws IOException IO exception
+     */
+    public static boolean isCompressed(InputStream inputStream) throws IOException {
+        byte[] magic = new byte[MAGIC_LENGTH];
+        int length = IOUtils.read(inputStream, magic);
+        return isGzip(magic, length) || isZip(magic, length);
+    }
+
+    /**
+     * Get an input stream which decompresses the given input stream according to its leading
+     * bytes, on the reading thread.
+     *
+     * @param inputStream the input stream
+     * @return input stream
+     * @throws IOException IO exception
+     */
+    public static InputStream getInputStream(InputStream inputStream) throws IOException {
+        return getInputStream(inputStream, 1, 0);
+    }
+
+    /**
+     * Get an input stream which decompresses the given input stream according to its leading
+     * bytes. Gzip content of many members is decompressed on a thread pool if parallelism, capped
+     * by available processors, is more than 1, see {@link ParallelGzipInputStream}.
+     *
+     * @param inputStream the input stream
+     * @param decompressionParallelism max chunks of gzip members decompressed at a time
+     * @param decompressionChunkSize min compressed bytes of a chunk
+     * @return input stream
+     * @throws IOException IO exception
+     */
+    public static InputStream getInputStream(InputStream inputStream,
+            int decompressionParallelism, int decompressionChunkSize) throws IOException {
+        PushbackInputStream pushbackInputStream =
+                new PushbackInputStream(inputStream, MAGIC_LENGTH);
+        byte[] magic = new byte[MAGIC_LENGTH];
+        int length = IOUtils.read(pushbackInputStream, magic);
+        pushbackInputStream.unread(magic, 0, length);
+
+        if (isGzip(magic, length)) {
+            int parallelism = Math.min(decompressionParallelism,
+                    Runtime.getRuntime().availableProcessors());
+            if (parallelism > 1) {
+                return new ParallelGzipInputStream(pushbackInputStream, parallelism,
+                        decompressionChunkSize);
+            }
+            return new MultiMemberGzipInputStream(pushbackInputStream);
+        } else if (isZip(magic, length)) {
+            return getZipInputStream(pushbackInputStream);
         }
 
-        return inputStream;
+        return pushbackInputStream;
+    }
+
+    private static boolean isGzip(byte[] magic, int length) {
+        return length >= 2 && (magic[0] & 0xFF) == 0x1F && (magic[1] & 0xFF) == 0x8B;
+    }
+
+    private static boolean isZip(byte[] magic, int length) {
+        // local file header, or end of central directory of an empty archive
+        return length >= 4 && magic[0] == 'P' && magic[1] == 'K'
+                && (magic[2] == 3 && magic[3] == 4 || magic[2] == 5 && magic[3] == 6);
     }
 
     private static OutputStream getOutputStream(File file, boolean append) throws IOException {
         OutputStream outputStream = new FileOutputStream(file, append);
         String fileName = file.getName();
         if (fileName.endsWith(GZ_EXT)) {
-            outputStream = new GZIPOutputStream(outputStream, BUFFER_SIZE);
+            outputStream = getCompressedOutputStream(outputStream, Deflater.DEFAULT_COMPRESSION,
+                    COMPRESSION_BLOCK_SIZE, Runtime.getRuntime().availableProcessors());
         } else if (fileName.endsWith(ZIP_EXT)) {
             ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream);
             fileName = fileName.replace(ZIP_EXT, CSV_EXT);
@@ -0,0 +1,542 @@
+package com.prince.serverless.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.prince.serverless.exception.InvalidFileException;
+
+/**
+ * Parser for input files with {@link Constants#INPUT_FILE_HEADERS} layout, or with {@link
+ * Constants#CHANNELS_INPUT_FILE_HEADERS} layout which adds send flags of push and in-app channels.
+ *
+ * Input is parsed as UTF-8 bytes in a reusable buffer, and the current row is exposed through a
+ * reusable {@link Row} view over that buffer. Send flags are decoded without creating strings, so
+ * rows which are not applicable for any channel can be skipped before any object is created.
+ * Quoted fields are supported, as written by opencsv or Redshift unload.
+ *
+ * @author Prince Raj
+ */
+public class InputFileParser implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int FIELDS_COUNT = Constants.INPUT_FILE_HEADERS.length;
+
+    private static final byte SEPARATOR = ',';
+
+    private static final byte QUOTE = '"';
+
+    private static final byte CR = '\r';
+
+    private static final byte LF = '\n';
+
+    private static final int USER_ID = 0;
+
+    private static final int EMAIL_ID = 1;
+
+    private static final int MOBILE = 2;
+
+    private static final int DATE = 3;
+
+    private static final int SEND_EMAIL = 4;
+
+    private static final int SEND_SMS = 5;
+
+    private static final int SEND_ANDROID_PUSH = 6;
+
+    private static final int SEND_IOS_PUSH = 7;
+
+    private static final int SEND_IN_APP = 8;
+
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private final InputStream inputStream;
+
+    private final Row row = new Row();
+
+    private byte[] buffer = new byte[BUFFER_SIZE];
+
+    // unescaped content of quoted fields of current row
+    private byte[] scratch = new byte[256];
+
+    private int scratchLength;
+
+    private int position;
+
+    private int limit;
+
+    private boolean endOfInput;
+
+    // input offset of buffer[0]
+    private long bufferOffset;
+
+    private long rowNumber;
+
+    /**
+     * @param inputStream input stream, positioned at the given offset
+     * @param startOffset offset of input stream in input file
+     */
+    public InputFileParser(InputStream inputStream, long startOffset) {
+        this(inputStream, startOffset, 0);
+    }
+
+    /**
+     * @param inputStream input stream, positioned at the given offset
+     * @param startOffset offset of input stream in input file
+     * @param startRowNumber number of rows before the given offset, including header
+     */
+    public InputFileParser(InputStream inputStream, long startOffset, long startRowNumber) {
+        this.inputStream = inputStream;
+        this.bufferOffset = startOffset;
+        this.rowNumber = startRowNumber;
+    }
+
+    public InputFileParser(InputStream inputStream) {
+        this(inputStream, 0);
+    }
+
+    /**
+     * Read header row. Should be called once before reading rows, when parsing from start.
+     *
+     * @return header fields, null if input is empty
+     * @throws IOException IO exception
+     */
+    public String[] readHeader() throws IOException {
+        fill();
+        skipByteOrderMark();
+
+        int fieldsCount = parseNextRow();
+        if (fieldsCount < 0) {
+            return null;
+        }
+
+        String[] headers = new String[row.fieldsCount];
+        for (int i = 0; i < headers.length; i++) {
+            headers[i] = row.getString(i);
+        }
+
+        return headers;
+    }
+
+    /**
+     * @param headers header fields
+     * @return true if headers are of a layout supported by the parser
+     */
+    public static boolean isValidHeader(String[] headers) {
+        return Arrays.equals(Constants.INPUT_FILE_HEADERS, headers)
+                || Arrays.equals(Constants.CHANNELS_INPUT_FILE_HEADERS, headers);
+    }
+
+    /**
+     * Advance to next row.
+     *
+     * @return true if there is a row, false at end of input
+     * @throws IOException IO exception
+     */
+    public boolean nextRow() throws IOException {
+        int fieldsCount = parseNextRow();
+        if (fieldsCount < 0) {
+            return false;
+        }
+
+        if (fieldsCount < FIELDS_COUNT) {
+            throw new InvalidFileException("Row: " + rowNumber + " is not in correct format");
+        }
+
+        return true;
+    }
+
+    /**
+     * Current row, valid until next call to {@link #nextRow()}.
+     *
+     * @return row view
+     */
+    public Row getRow() {
+        return row;
+    }
+
+    /**
+     * Offset in input file of the first byte after current row.
+     *
+     * @return offset
+     */
+    public long getOffset() {
+        return bufferOffset + position;
+    }
+
+    /**
+     * Number of rows read so far, including header.
+     *
+     * @return row number
+     */
+    public long getRowNumber() {
+        return rowNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+
+    private void skipByteOrderMark() {
+        if (limit - position >= 3 && (buffer[position] & 0xFF) == 0xEF
+                && (buffer[position + 1] & 0xFF) == 0xBB && (buffer[position + 2] & 0xFF) == 0xBF) {
+            position += 3;
+        }
+    }
+
+    private int parseNextRow() throws IOException {
+        while (true) {
+            int fieldsCount = tryParseRow();
+            if (fieldsCount == 0) {
+                // skip blank line
+                continue;
+            }
+            if (fieldsCount > 0) {
+                rowNumber++;
+                return fieldsCount;
+            }
+            if (endOfInput) {
+                return -1;
+            }
+
+            // row is incomplete in buffer, so read more and parse it again
+            fill();
+        }
+    }
+
+    /**
+     * Parse row starting at current position.
+     *
+     * @return number of fields, 0 for blank line, -1 if row is not complete in buffer
+     */
+    private int tryParseRow() {
+        int index = position;
+        if (index >= limit) {
+            return -1;
+        }
+
+        scratchLength = 0;
+        int fieldsCount = 0;
+
+        if (buffer[index] == LF || buffer[index] == CR) {
+            int end = lineEnd(index);
+            if (end < 0) {
+                return -1;
+            }
+            position = end;
+            return 0;
+        }
+
+        while (true) {
+            final int next;
+            if (index < limit && buffer[index] == QUOTE) {
+                next = parseQuotedField(index + 1, fieldsCount);
+            } else {
+                next = parseField(index, fieldsCount);
+            }
+
+            if (next < 0) {
+                return -1;
+            }
+            fieldsCount++;
+
+            if (next < limit && buffer[next] == SEPARATOR) {
+                index = next + 1;
+                continue;
+            }
+
+            if (next < limit && buffer[next] != LF && buffer[next] != CR) {
+                throw new InvalidFileException("Row: " + (rowNumber + 1)
+                        + " has characters after closing quote");
+            }
+
+            // end of line or end of input
+            int end = lineEnd(next);
+            if (end < 0) {
+                return -1;
+            }
+            position = end;
+            row.fieldsCount = Math.min(fieldsCount, row.starts.length);
+            return fieldsCount;
+        }
+    }
+
+    private int parseField(int index, int fieldIndex) {
+        int start = index;
+        while (index < limit) {
+            byte value = buffer[index];
+            if (value == SEPARATOR || value == LF || value == CR) {
+                row.setField(fieldIndex, buffer, start, index - start);
+                return index;
+            }
+            index++;
+        }
+
+        if (endOfInput) {
+            row.setField(fieldIndex, buffer, start, index - start);
+            return index;
+        }
+
+        return -1;
+    }
+
+    private int parseQuotedField(int index, int fieldIndex) {
+        int start = scratchLength;
+        while (index < limit) {
+            byte value = buffer[index];
+            if (value == QUOTE) {
+                if (index + 1 >= limit && !endOfInput) {
+                    return -1;
+                }
+                if (index + 1 < limit && buffer[index + 1] == QUOTE) {
+                    // escaped quote
+                    appendScratch(QUOTE);
+                    index += 2;
+                    continue;
+                }
+
+                row.setField(fieldIndex, null, start, scratchLength - start);
+                return index + 1;
+            }
+
+            appendScratch(value);
+            index++;
+        }
+
+        if (endOfInput) {
+            throw new InvalidFileException("Row: " + (rowNumber + 1) + " has unterminated quote");
+        }
+
+        return -1;
+    }
+
+    private void appendScratch(byte value) {
+        if (scratchLength == scratch.length) {
+            scratch = Arrays.copyOf(scratch, scratch.length * 2);
+        }
+        scratch[scratchLength++] = value;
+    }
+
+    /**
+     * @return index after line terminator at given index, -1 if terminator is not complete
+     */
+    private int lineEnd(int index) {
+        if (index >= limit) {
+            return endOfInput ? index : -1;
+        }
+        if (buffer[index] == LF) {
+            return index + 1;
+        }
+        if (buffer[index] == CR) {
+            if (index + 1 >= limit) {
+                return endOfInput ? index + 1 : -1;
+            }
+            return buffer[index + 1] == LF ? index + 2 : index + 1;
+        }
+
+        return -1;
+    }
+
+    private void fill() throws IOException {
+        // move unparsed bytes to start of buffer, growing it if a single row doesn't fit
+        int remaining = limit - position;
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+            bufferOffset += position;
+            position = 0;
+            limit = remaining;
+        } else if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+
+        int count = inputStream.read(buffer, limit, buffer.length - limit);
+        if (count < 0) {
+            endOfInput = true;
+        } else {
+            limit += count;
+        }
+    }
+
+    /**
+     * Reusable view of the current row. Field values are decoded lazily, so string values are only
+     * created for fields which are read.
+     */
+    public class Row {
+
+        private final byte[][] arrays = new byte[FIELDS_COUNT * 2][];
+
+        private final int[] starts = new int[FIELDS_COUNT * 2];
+
+        private final int[] lengths = new int[FIELDS_COUNT * 2];
+
+        private int fieldsCount;
+
+        // date is same for most of the rows, so last decoded value is reused
+        private byte[] lastDateBytes = new byte[0];
+
+        private String lastDate;
+
+        private void setField(int index, byte[] array, int start, int length) {
+            if (index >= starts.length) {
+                // extra fields are ignored
+                return;
+            }
+
+            arrays[index] = array;
+            starts[index] = start;
+            lengths[index] = length;
+        }
+
+        public String getUserId() {
+            return getString(USER_ID);
+        }
+
+        public String getEmailId() {
+            return getString(EMAIL_ID);
+        }
+
+        public String getMobileNumber() {
+            return getString(MOBILE);
+        }
+
+        public String getDate() {
+            byte[] array = array(DATE);
+            int start = starts[DATE];
+            int length = lengths[DATE];
+
+            if (lastDate == null || length != lastDateBytes.length || !regionMatches(array, start,
+                    lastDateBytes)) {
+                lastDateBytes = Arrays.copyOfRange(array, start, start + length);
+                lastDate = new String(lastDateBytes, StandardCharsets.UTF_8);
+            }
+
+            return lastDate;
+        }
+
+        public boolean isSendEmail() {
+            return isFlagSet(SEND_EMAIL);
+        }
+
+        public boolean isSendSms() {
+            return isFlagSet(SEND_SMS);
+        }
+
+        public boolean isSendAndroidPush() {
+            return isFlagSet(SEND_ANDROID_PUSH);
+        }
+
+        public boolean isSendIosPush() {
+            return isFlagSet(SEND_IOS_PUSH);
+        }
+
+        public boolean isSendInApp() {
+            return isFlagSet(SEND_IN_APP);
+        }
+
+        boolean hasUserId() {
+            return lengths[USER_ID] > 0;
+        }
+
+        boolean hasEmailId() {
+            return lengths[EMAIL_ID] > 0;
+        }
+
+        boolean hasMobileNumber() {
+            return lengths[MOBILE] > 0;
+        }
+
+        /**
+         * @return 64-bit fingerprint of user id, ignoring spaces
+         */
+        long getUserIdFingerprint() {
+            return getFingerprint(USER_ID, false, false);
+        }
+
+        /**
+         * @return 64-bit fingerprint of email id, ignoring spaces and case of ASCII letters
+         */
+        long getEmailIdFingerprint() {
+            return getFingerprint(EMAIL_ID, true, false);
+        }
+
+        /**
+         * @return 64-bit fingerprint of digits of mobile number, so that formatting is ignored
+         */
+        long getMobileNumberFingerprint() {
+            return getFingerprint(MOBILE, false, true);
+        }
+
+        /**
+         * @return true if notification is to be sent on any channel
+         */
+        public boolean isApplicable() {
+            return (isSendEmail() && hasEmailId()) || (isSendSms() && hasMobileNumber())
+                    || (hasUserId() && (isSendAndroidPush() || isSendIosPush() || isSendInApp()));
+        }
+
+        private boolean isFlagSet(int index) {
+            // flags of push and in-app channels are optional
+            return index < fieldsCount && lengths[index] == 1
+                    && array(index)[starts[index]] == '1';
+        }
+
+        private String getString(int index) {
+            if (index >= fieldsCount) {
+                return null;
+            }
+
+            return new String(array(index), starts[index], lengths[index], StandardCharsets.UTF_8);
+        }
+
+        /**
+         * FNV-1a hash of normalized bytes of a field, with a final avalanche step (from
+         * MurmurHash3), computed without creating a string.
+         */
+        private long getFingerprint(int index, boolean ignoreCase, boolean digitsOnly) {
+            byte[] array = array(index);
+            int start = starts[index];
+            int end = start + lengths[index];
+
+            long hash = FNV_OFFSET_BASIS;
+            for (int i = start; i < end; i++) {
+                int value = array[i] & 0xFF;
+                if (value == ' ' || (digitsOnly && (value < '0' || value > '9'))) {
+                    continue;
+                }
+                if (ignoreCase && value >= 'A' && value <= 'Z') {
+                    value += 'a' - 'A';
+                }
+                hash = (hash ^ value) * FNV_PRIME;
+            }
+
+            hash ^= hash >>> 33;
+            hash *= 0xFF51AFD7ED558CCDL;
+            hash ^= hash >>> 33;
+            hash *= 0xC4CEB9FE1A85EC53L;
+            hash ^= hash >>> 33;
+
+            return hash;
+        }
+
+        private byte[] array(int index) {
+            // quoted fields are unescaped to scratch buffer
+            return arrays[index] == null ? scratch : arrays[index];
+        }
+
+        private boolean regionMatches(byte[] array, int start, byte[] other) {
+            for (int i = 0; i < other.length; i++) {
+                if (array[start + i] != other[i]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+}
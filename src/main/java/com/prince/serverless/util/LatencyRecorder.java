@@ -0,0 +1,61 @@
+package com.prince.serverless.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.prince.serverless.model.LatencyHistogram;
+
+/**
+ * Concurrent counterpart of {@link LatencyHistogram}, which any number of threads can record
+ * latencies to and snapshot. Latencies are bucketed in microseconds, while their total is kept in
+ * nanoseconds so that sub-microsecond latencies add up.
+ *
+ * @author Prince Raj
+ */
+public class LatencyRecorder {
+
+    private final AtomicLongArray bucketCounts = new AtomicLongArray(LatencyHistogram.BUCKETS);
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param latencyNanos latency in nanoseconds
+     */
+    public void record(long latencyNanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(latencyNanos);
+
+        bucketCounts.incrementAndGet(LatencyHistogram.getBucketIndex(micros));
+        totalNanos.add(latencyNanos);
+        maxMicros.accumulate(micros);
+    }
+
+    /**
+     * @return histogram of latencies recorded so far
+     */
+    public LatencyHistogram snapshot() {
+        int length = bucketCounts.length();
+        while (length > 0 && bucketCounts.get(length - 1) == 0) {
+            length--;
+        }
+
+        long[] counts = new long[length];
+        long count = 0;
+        for (int i = 0; i < length; i++) {
+            counts[i] = bucketCounts.get(i);
+            count += counts[i];
+        }
+
+        // count is derived from buckets, so that percentiles are consistent with it
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.setBucketCounts(counts);
+        histogram.setCount(count);
+        histogram.setTotalMicros(TimeUnit.NANOSECONDS.toMicros(totalNanos.sum()));
+        histogram.setMaxMicros(maxMicros.get());
+
+        return histogram;
+    }
+}
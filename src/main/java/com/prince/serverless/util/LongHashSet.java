@@ -0,0 +1,137 @@
+package com.prince.serverless.util;
+
+/**
+ * Set of long values, stored unboxed in a single open addressing table with linear probing, so
+ * a value takes 8 to 21 bytes depending on how full the table is, rather than the 50+ bytes of
+ * a boxed {@link java.util.HashSet} entry. Values are spread by Fibonacci hashing, so they don't
+ * need to be well distributed. Not thread-safe.
+ *
+ * @author Prince Raj
+ */
+public class LongHashSet {
+
+    // 2^64 divided by golden ratio
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    // table slot with no value, zero is tracked separately
+    private static final long EMPTY = 0;
+
+    private long[] table;
+
+    // number of bits of a table index
+    private int indexBits;
+
+    private int size;
+
+    private boolean containsZero;
+
+    /**
+     * @param expectedSize number of values which fit without growing the table
+     */
+    public LongHashSet(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < MAX_CAPACITY && !fits(expectedSize, capacity)) {
+            capacity <<= 1;
+        }
+
+        allocate(capacity);
+    }
+
+    /**
+     * @param value value
+     * @return true if value is added, false if it is already in the set
+     */
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+
+        int mask = table.length - 1;
+        int index = indexOf(value);
+        while (table[index] != EMPTY) {
+            if (table[index] == value) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+
+        table[index] = value;
+        size++;
+        if (!fits(size, table.length)) {
+            grow();
+        }
+
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return containsZero;
+        }
+
+        int mask = table.length - 1;
+        int index = indexOf(value);
+        while (table[index] != EMPTY) {
+            if (table[index] == value) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return bytes taken by the table
+     */
+    public long getTableBytes() {
+        return (long) table.length * Long.BYTES;
+    }
+
+    // table is kept at most 3/4 full, so that probe sequences stay short
+    private static boolean fits(long size, int capacity) {
+        return size * 4 <= (long) capacity * 3;
+    }
+
+    private int indexOf(long value) {
+        return (int) ((value * GOLDEN_RATIO) >>> (Long.SIZE - indexBits));
+    }
+
+    private void allocate(int capacity) {
+        table = new long[capacity];
+        indexBits = Integer.numberOfTrailingZeros(capacity);
+    }
+
+    private void grow() {
+        if (table.length == MAX_CAPACITY) {
+            throw new IllegalStateException("Set is full, size: " + size);
+        }
+
+        long[] oldTable = table;
+        allocate(oldTable.length << 1);
+
+        int mask = table.length - 1;
+        for (long value : oldTable) {
+            if (value != EMPTY) {
+                int index = indexOf(value);
+                while (table[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                table[index] = value;
+            }
+        }
+    }
+}
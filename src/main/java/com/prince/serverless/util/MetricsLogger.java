@@ -0,0 +1,164 @@
+package com.prince.serverless.util;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import com.prince.serverless.config.MetricsConfig;
+import com.prince.serverless.model.LatencyHistogram;
+import com.prince.serverless.model.Stats;
+
+/**
+ * Logs metrics of processed files in CloudWatch embedded metric format, so that CloudWatch
+ * extracts them from the function logs. Metrics are logged by {@link #METRICS_LOGGER}, whose
+ * appender should log messages as they are, a JSON object per line.
+ *
+ * <pre>
+ * {"_aws":{"Timestamp":1561939200000,"CloudWatchMetrics":[{"Namespace":"NotificationService",
+ * "Dimensions":[["FunctionName","Stage"]],"Metrics":[{"Name":"StageCount","Unit":"Count"},...]}]},
+ * "FunctionName":"notification","Stage":"PARSE","FileName":"...","StageCount":10000,...}
+ * </pre>
+ *
+ * @author Prince Raj
+ */
+@Component
+public class MetricsLogger {
+
+    public static final String METRICS_LOGGER = "metrics";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final String COUNT_UNIT = "Count";
+
+    private static final String MILLISECONDS_UNIT = "Milliseconds";
+
+    private static final String MICROSECONDS_UNIT = "Microseconds";
+
+    private final Logger log = LogManager.getLogger(this.getClass());
+
+    private final Logger metricsLog = LogManager.getLogger(METRICS_LOGGER);
+
+    private final MetricsConfig metricsConfig;
+
+    @Autowired
+    public MetricsLogger(MetricsConfig metricsConfig) {
+        this.metricsConfig = metricsConfig;
+    }
+
+    /**
+     * Log metrics of a file: execution time, users and send latency of every channel and timings
+     * of every stage.
+     *
+     * @param functionName function name
+     * @param fileName file name
+     * @param executionTimeMillis execution time of the file
+     * @param channelTypeStatsMap stats of channels
+     * @param stageTimingsMap timings of stages
+     */
+    public void logFileMetrics(String functionName, String fileName, long executionTimeMillis,
+            Map<ChannelType, Stats> channelTypeStatsMap,
+            Map<ProcessingStage, LatencyHistogram> stageTimingsMap) {
+        if (!metricsConfig.isEnabled()) {
+            return;
+        }
+
+        try {
+            long timestamp = System.currentTimeMillis();
+            metricsLog.info(toMetricLine(timestamp, functionName, fileName, null, null,
+                    new String[] {"ExecutionTime"}, new String[] {MILLISECONDS_UNIT},
+                    new double[] {executionTimeMillis}));
+
+            for (Map.Entry<ChannelType, Stats> entry : channelTypeStatsMap.entrySet()) {
+                Stats stats = entry.getValue();
+                LatencyHistogram sendLatency = stats.getSendLatency() != null
+                        ? stats.getSendLatency() : new LatencyHistogram();
+
+                metricsLog.info(toMetricLine(timestamp, functionName, fileName, "Channel",
+                        entry.getKey().name(),
+                        new String[] {"SuccessUsers", "FailedUsers", "DuplicateUsers",
+                                "SuppressedUsers", "SendLatencyP50", "SendLatencyP99"},
+                        new String[] {COUNT_UNIT, COUNT_UNIT, COUNT_UNIT, COUNT_UNIT,
+                                MICROSECONDS_UNIT, MICROSECONDS_UNIT},
+                        new double[] {stats.getSuccessUsers(), stats.getFailedUsers(),
+                                stats.getDuplicateUsers(), stats.getSuppressedUsers(),
+                                sendLatency.getP50Micros(), sendLatency.getP99Micros()}));
+            }
+
+            for (Map.Entry<ProcessingStage, LatencyHistogram> entry : stageTimingsMap.entrySet()) {
+                LatencyHistogram timing = entry.getValue();
+
+                metricsLog.info(toMetricLine(timestamp, functionName, fileName, "Stage",
+                        entry.getKey().name(),
+                        new String[] {"StageCount", "StageTime", "StageP50", "StageP99",
+                                "StageMax"},
+                        new String[] {COUNT_UNIT, MILLISECONDS_UNIT, MICROSECONDS_UNIT,
+                                MICROSECONDS_UNIT, MICROSECONDS_UNIT},
+                        new double[] {timing.getCount(), timing.getTotalMicros() / 1000.0,
+                                timing.getP50Micros(), timing.getP99Micros(),
+                                timing.getMaxMicros()}));
+            }
+        } catch (IOException ex) {
+            log.error("Exception in logging metrics of file: {}", fileName, ex);
+        }
+    }
+
+    private String toMetricLine(long timestamp, String functionName, String fileName,
+            String dimensionName, String dimensionValue, String[] metricNames,
+            String[] metricUnits, double[] metricValues) throws IOException {
+        StringWriter writer = new StringWriter(512);
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            generator.writeStartObject();
+
+            generator.writeObjectFieldStart("_aws");
+            generator.writeNumberField("Timestamp", timestamp);
+            generator.writeArrayFieldStart("CloudWatchMetrics");
+            generator.writeStartObject();
+            generator.writeStringField("Namespace", metricsConfig.getNamespace());
+            generator.writeArrayFieldStart("Dimensions");
+            generator.writeStartArray();
+            generator.writeString("FunctionName");
+            if (dimensionName != null) {
+                generator.writeString(dimensionName);
+            }
+            generator.writeEndArray();
+            generator.writeEndArray();
+            generator.writeArrayFieldStart("Metrics");
+            for (int i = 0; i < metricNames.length; i++) {
+                generator.writeStartObject();
+                generator.writeStringField("Name", metricNames[i]);
+                generator.writeStringField("Unit", metricUnits[i]);
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.writeEndArray();
+            generator.writeEndObject();
+
+            generator.writeStringField("FunctionName", functionName);
+            if (dimensionName != null) {
+                generator.writeStringField(dimensionName, dimensionValue);
+            }
+            generator.writeStringField("FileName", fileName);
+            for (int i = 0; i < metricNames.length; i++) {
+                double value = metricValues[i];
+                if (value == Math.rint(value)) {
+                    generator.writeNumberField(metricNames[i], (long) value);
+                } else {
+                    generator.writeNumberField(metricNames[i], value);
+                }
+            }
+
+            generator.writeEndObject();
+        }
+
+        return writer.toString();
+    }
+}
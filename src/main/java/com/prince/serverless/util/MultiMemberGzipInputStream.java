@@ -0,0 +1,266 @@
+package com.prince.serverless.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Input stream which decompresses gzip content of any number of members, e.g. files written by
+ * parallel exporters which concatenate a member per part. Unlike {@link
+ * java.util.zip.GZIPInputStream}, members after the first are read regardless of {@link
+ * InputStream#available()} of the compressed stream, which is 0 for most network streams. CRC and
+ * size in trailer of each member are verified.
+ *
+ * Bytes after a member which don't start another member are ignored as trailing garbage, as by
+ * {@link java.util.zip.GZIPInputStream}. Not thread-safe.
+ *
+ * @author Prince Raj
+ */
+public class MultiMemberGzipInputStream extends InputStream {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int GZIP_MAGIC_1 = 0x1F;
+
+    private static final int GZIP_MAGIC_2 = 0x8B;
+
+    private static final int DEFLATE_METHOD = 8;
+
+    // header flags
+    private static final int FHCRC = 2;
+
+    private static final int FEXTRA = 4;
+
+    private static final int FNAME = 8;
+
+    private static final int FCOMMENT = 16;
+
+    private final InputStream in;
+
+    private final Inflater inflater = new Inflater(true);
+
+    private final CRC32 crc = new CRC32();
+
+    private final byte[] buffer;
+
+    private final byte[] singleByte = new byte[1];
+
+    // compressed bytes of buffer which are not given to the inflater yet
+    private int position;
+
+    private int limit;
+
+    private int members;
+
+    private boolean inMember;
+
+    private boolean ended;
+
+    private boolean trailingGarbage;
+
+    private boolean closed;
+
+    /**
+     * @param in gzip compressed input stream
+     */
+    public MultiMemberGzipInputStream(InputStream in) {
+        this(in, BUFFER_SIZE);
+    }
+
+    /**
+     * @param in gzip compressed input stream
+     * @param bufferSize size of reads from compressed input stream
+     */
+    public MultiMemberGzipInputStream(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(singleByte, 0, 1) < 0 ? -1 : singleByte[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (closed) {
+            throw new IOException("Stream is closed");
+        }
+        if (length == 0) {
+            return 0;
+        }
+
+        while (!ended) {
+            if (!inMember) {
+                if (!readHeader()) {
+                    ended = true;
+                    break;
+                }
+                inMember = true;
+            }
+
+            int count;
+            try {
+                count = inflater.inflate(bytes, offset, length);
+            } catch (DataFormatException ex) {
+                throw new ZipException("Invalid gzip member: " + members + ", reason: "
+                        + ex.getMessage());
+            }
+            if (count > 0) {
+                crc.update(bytes, offset, count);
+                return count;
+            }
+
+            if (inflater.finished()) {
+                // bytes given to the inflater after the end of the member start the trailer
+                position = limit - inflater.getRemaining();
+                readTrailer();
+                inMember = false;
+            } else if (inflater.needsDictionary()) {
+                throw new ZipException("Invalid gzip member: " + members + ", needs dictionary");
+            } else if (inflater.needsInput()) {
+                if (position >= limit && !fill()) {
+                    throw new EOFException("Unexpected end of gzip member: " + members);
+                }
+                inflater.setInput(buffer, position, limit - position);
+                position = limit;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return number of members read so far, including the one being read
+     */
+    public int getMembers() {
+        return members;
+    }
+
+    /**
+     * @return true if the stream ended at bytes which don't start a member
+     */
+    public boolean hasTrailingGarbage() {
+        return trailingGarbage;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            inflater.end();
+            in.close();
+        }
+    }
+
+    private boolean readHeader() throws IOException {
+        int magic1 = readByte();
+        if (magic1 < 0) {
+            if (members == 0) {
+                throw new EOFException("Empty gzip input");
+            }
+            return false;
+        }
+
+        int magic2 = readByte();
+        if (magic1 != GZIP_MAGIC_1 || magic2 != GZIP_MAGIC_2) {
+            if (members == 0) {
+                throw new ZipException("Not in gzip format");
+            }
+            trailingGarbage = true;
+            return false;
+        }
+
+        if (readRequiredByte() != DEFLATE_METHOD) {
+            throw new ZipException("Unsupported compression method of gzip member: " + members);
+        }
+        int flags = readRequiredByte();
+
+        // modification time, extra flags and operating system
+        skipBytes(6);
+        if ((flags & FEXTRA) != 0) {
+            skipBytes(readRequiredByte() | readRequiredByte() << 8);
+        }
+        if ((flags & FNAME) != 0) {
+            skipZeroTerminated();
+        }
+        if ((flags & FCOMMENT) != 0) {
+            skipZeroTerminated();
+        }
+        if ((flags & FHCRC) != 0) {
+            skipBytes(2);
+        }
+
+        members++;
+        inflater.reset();
+        crc.reset();
+        return true;
+    }
+
+    private void readTrailer() throws IOException {
+        long expectedCrc = readInt();
+        long expectedSize = readInt();
+        if (expectedCrc != crc.getValue()) {
+            throw new ZipException("Corrupt gzip member: " + members + ", crc mismatch");
+        }
+        if (expectedSize != (inflater.getBytesWritten() & 0xFFFFFFFFL)) {
+            throw new ZipException("Corrupt gzip member: " + members + ", size mismatch");
+        }
+    }
+
+    private long readInt() throws IOException {
+        long value = 0;
+        for (int i = 0; i < 4; i++) {
+            value |= (long) readRequiredByte() << (8 * i);
+        }
+
+        return value;
+    }
+
+    private void skipZeroTerminated() throws IOException {
+        while (readRequiredByte() != 0) {
+            // skip
+        }
+    }
+
+    private void skipBytes(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            readRequiredByte();
+        }
+    }
+
+    private int readRequiredByte() throws IOException {
+        int value = readByte();
+        if (value < 0) {
+            throw new EOFException("Unexpected end of gzip member: " + members);
+        }
+
+        return value;
+    }
+
+    private int readByte() throws IOException {
+        if (position >= limit && !fill()) {
+            return -1;
+        }
+
+        return buffer[position++] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        int count;
+        do {
+            count = in.read(buffer, 0, buffer.length);
+        } while (count == 0);
+        if (count < 0) {
+            return false;
+        }
+
+        position = 0;
+        limit = count;
+        return true;
+    }
+}
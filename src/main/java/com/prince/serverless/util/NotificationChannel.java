@@ -0,0 +1,28 @@
+package com.prince.serverless.util;
+
+import com.prince.serverless.model.FileItem;
+
+/**
+ * Channel via which users are notified. Rows are dispatched to each channel they are applicable
+ * for, and every channel sends with its own threads and batches, so a slow or throttled channel
+ * doesn't hold up the others. Adding a channel takes a {@link ChannelType}, its send flag and
+ * recipient in {@link FileItem}, and an implementation registered in {@link NotificationUtils}.
+ *
+ * @author Prince Raj
+ */
+public interface NotificationChannel {
+
+    ChannelType getChannelType();
+
+    /**
+     * @return message group id of notifications of the channel
+     */
+    String getGroupId();
+
+    /**
+     * @param date date of notification
+     * @param recipient recipient as per {@link FileItem#getRecipient(ChannelType)}
+     * @return payload of a notification to a single recipient
+     */
+    String encode(String date, String recipient);
+}
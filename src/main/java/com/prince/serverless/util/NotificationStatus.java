@@ -7,5 +7,11 @@ package com.prince.serverless.util;
  */
 public enum NotificationStatus {
 
-    SUCCESS, FAILURE, NOT_APPLICABLE
+    SUCCESS, FAILURE, NOT_APPLICABLE,
+
+    // not sent, as an earlier row of the file sent it to the same user or address
+    DUPLICATE,
+
+    // not sent, as an earlier file notified the user within suppression window
+    SUPPRESSED
 }
@@ -1,19 +1,20 @@
 package com.prince.serverless.util;
 
-import java.io.StringWriter;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
+import java.util.function.Consumer;
 
-import org.apache.commons.lang3.StringUtils;
-import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.Velocity;
-import org.apache.velocity.runtime.log.NullLogChute;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import com.prince.serverless.accessor.AmazonSQSBatchSender;
 import com.prince.serverless.accessor.AmazonSQSClientAccessor;
+import com.prince.serverless.accessor.AmazonSQSRetryScheduler;
+import com.prince.serverless.config.AmazonSQSClientConfig;
+import com.prince.serverless.config.RateLimitConfig;
 import com.prince.serverless.model.Communication;
 import com.prince.serverless.model.FileItem;
+import com.prince.serverless.model.RateLimitStats;
 
 /**
  * Utility for notification client
@@ -23,72 +24,198 @@ import com.prince.serverless.model.FileItem;
 @Component
 public class NotificationUtils {
 
+    private final AmazonSQSClientConfig sqsClientConfig;
+
     private final AmazonSQSClientAccessor sqsClientAccessor;
 
+    private final TemplateEngine templateEngine;
+
+    private final PayloadEncoder payloadEncoder;
+
+    private final Map<ChannelType, NotificationChannel> channels = new EnumMap<>(ChannelType.class);
+
+    // rate limiters shared by all the files, as quotas are
+    private final Map<ChannelType, TokenBucketRateLimiter> rateLimiters =
+            new EnumMap<>(ChannelType.class);
+
     @Autowired
-    public NotificationUtils(AmazonSQSClientAccessor sqsClientAccessor) {
+    public NotificationUtils(AmazonSQSClientConfig sqsClientConfig,
+            AmazonSQSClientAccessor sqsClientAccessor, TemplateEngine templateEngine,
+            PayloadEncoder payloadEncoder, RateLimitConfig rateLimitConfig) {
+        this.sqsClientConfig = sqsClientConfig;
         this.sqsClientAccessor = sqsClientAccessor;
+        this.templateEngine = templateEngine;
+        this.payloadEncoder = payloadEncoder;
+
+        addChannel(new EmailChannel(payloadEncoder));
+        addChannel(new SmsChannel(payloadEncoder));
+        addChannel(new UserChannel(ChannelType.ANDROID_PUSH, Constants.ANDROID_PUSH_GROUP_ID,
+                payloadEncoder));
+        addChannel(new UserChannel(ChannelType.IOS_PUSH, Constants.IOS_PUSH_GROUP_ID,
+                payloadEncoder));
+        addChannel(new UserChannel(ChannelType.IN_APP, Constants.IN_APP_GROUP_ID,
+                payloadEncoder));
+
+        addRateLimiter(ChannelType.EMAIL, rateLimitConfig.getEmailRate(),
+                rateLimitConfig.getEmailBurst(), rateLimitConfig);
+        addRateLimiter(ChannelType.SMS, rateLimitConfig.getSmsRate(),
+                rateLimitConfig.getSmsBurst(), rateLimitConfig);
+        addRateLimiter(ChannelType.ANDROID_PUSH, rateLimitConfig.getAndroidPushRate(),
+                rateLimitConfig.getAndroidPushBurst(), rateLimitConfig);
+        addRateLimiter(ChannelType.IOS_PUSH, rateLimitConfig.getIosPushRate(),
+                rateLimitConfig.getIosPushBurst(), rateLimitConfig);
+        addRateLimiter(ChannelType.IN_APP, rateLimitConfig.getInAppRate(),
+                rateLimitConfig.getInAppBurst(), rateLimitConfig);
     }
 
-    public NotificationStatus sendEmail(FileItem fileItem) {
-        String emailId = fileItem.getEmailId();
+    /**
+     * Create a batch sender for the given message group. Batch sender buffers messages, so it should
+     * be flushed once all the messages are sent.
+     *
+     * @param groupId message group id
+     * @return batch sender
+     */
+    public AmazonSQSBatchSender createBatchSender(String groupId) {
+        return new AmazonSQSBatchSender(sqsClientAccessor, groupId,
+                sqsClientConfig.getMaxBatchSize(), sqsClientConfig.getMaxBatchAgeMillis());
+    }
 
-        final NotificationStatus status;
-        if (fileItem.isSendEmail() && StringUtils.isNotEmpty(emailId)) {
-            Map<String, Object> dataMap = new HashMap<>();
-            dataMap.put(Constants.DATE, fileItem.getDate());
-            dataMap.put(Constants.EMAIL_ID, emailId);
-
-            String messageBody = JsonUtils.toJson(dataMap);
-
-            boolean success = sqsClientAccessor.sendMessage(messageBody, Constants.EMAIL_GROUP_ID);
-            if (success) {
-                status = NotificationStatus.SUCCESS;
-            } else {
-                status = NotificationStatus.FAILURE;
-            }
+    /**
+     * Create a retry scheduler with its own retry budget, e.g. for a file. Scheduler should be shut
+     * down once all the messages are sent.
+     *
+     * @return retry scheduler
+     */
+    public AmazonSQSRetryScheduler createRetryScheduler() {
+        return new AmazonSQSRetryScheduler(sqsClientConfig.getRetryMaxAttempts(),
+                sqsClientConfig.getRetryInitialDelayMillis(),
+                sqsClientConfig.getRetryMaxDelayMillis(), sqsClientConfig.getRetryMultiplier(),
+                sqsClientConfig.getRetryBudget());
+    }
+
+    /**
+     * Create a sender for recipients of the given channel, which packs recipients into envelopes
+     * if enabled. Sender buffers messages, so it should be flushed once all the messages are sent.
+     *
+     * @param channelType channel type
+     * @param retryScheduler retries messages which are not sent
+     * @param stageTimer times encoding and sending of messages
+     * @return recipient sender
+     */
+    public RecipientSender createRecipientSender(ChannelType channelType,
+            AmazonSQSRetryScheduler retryScheduler, StageTimer stageTimer) {
+        NotificationChannel channel = channels.get(channelType);
+
+        TokenBucketRateLimiter rateLimiter = rateLimiters.get(channelType);
+        Runnable throttleCallback = rateLimiter != null ? rateLimiter::onThrottle : () -> {};
+        AmazonSQSBatchSender batchSender = new AmazonSQSBatchSender(sqsClientAccessor,
+                channel.getGroupId(), sqsClientConfig.getMaxBatchSize(),
+                sqsClientConfig.getMaxBatchAgeMillis(), throttleCallback, retryScheduler, stageTimer);
+
+        final RecipientSender recipientSender;
+        if (sqsClientConfig.isEnvelopeEnabled()) {
+            recipientSender = new EnvelopeSender(batchSender, payloadEncoder, channelType,
+                    sqsClientConfig.getEnvelopeMaxRecipients(),
+                    sqsClientConfig.getEnvelopeMaxBytes(), sqsClientConfig.isEnvelopeCompressed(),
+                    sqsClientConfig.getMaxBatchAgeMillis(), stageTimer);
         } else {
-            status = NotificationStatus.NOT_APPLICABLE;
+            recipientSender = new SingleRecipientSender(batchSender, (date, recipient) -> {
+                long startTime = stageTimer.start();
+                String messageBody = channel.encode(date, recipient);
+                stageTimer.stop(ProcessingStage.ENCODE, startTime);
+                return messageBody;
+            });
         }
 
-        return status;
+        if (rateLimiter != null) {
+            return new RateLimitedRecipientSender(recipientSender, rateLimiter);
+        }
+
+        return recipientSender;
     }
 
-    public NotificationStatus sendSms(FileItem fileItem) {
-        String mobileNumber = fileItem.getMobileNumber();
+    /**
+     * @return current rate limit stats of channels which are rate limited
+     */
+    public Map<ChannelType, RateLimitStats> getRateLimitStats() {
+        Map<ChannelType, RateLimitStats> rateLimitStatsMap = new EnumMap<>(ChannelType.class);
+        for (Map.Entry<ChannelType, TokenBucketRateLimiter> entry : rateLimiters.entrySet()) {
+            rateLimitStatsMap.put(entry.getKey(), entry.getValue().getStats());
+        }
 
-        final NotificationStatus status;
-        if (fileItem.isSendSms() && StringUtils.isNotEmpty(mobileNumber)) {
-            Map<String, String> dataMap = new HashMap<>();
-            dataMap.put(Constants.DATE, fileItem.getDate());
-            dataMap.put(Constants.MOBILE, mobileNumber);
-
-            String messageBody = JsonUtils.toJson(dataMap);
-
-            boolean success = sqsClientAccessor.sendMessage(messageBody, Constants.SMS_GROUP_ID);
-            if (success) {
-                status = NotificationStatus.SUCCESS;
-            } else {
-                status = NotificationStatus.FAILURE;
-            }
-        } else {
-            status = NotificationStatus.NOT_APPLICABLE;
+        return rateLimitStatsMap;
+    }
+
+    /**
+     * @param channelType channel type
+     * @param fileItem row of input file
+     * @return status of the channel of the row which is known without sending, e.g. for a
+     *         duplicate recipient, null if the notification is to be sent
+     */
+    public NotificationStatus getUnsentStatus(ChannelType channelType, FileItem fileItem) {
+        if (fileItem.getRecipient(channelType) == null) {
+            return NotificationStatus.NOT_APPLICABLE;
+        }
+        if (fileItem.isDuplicate(channelType)) {
+            return NotificationStatus.DUPLICATE;
+        }
+        if (fileItem.isSuppressed(channelType)) {
+            return NotificationStatus.SUPPRESSED;
         }
 
-        return status;
+        return null;
+    }
+
+    /**
+     * Send notification of a channel of the row, which has no unsent status on the channel.
+     *
+     * @param channelType channel type
+     * @param fileItem row of input file
+     * @param recipientSender recipient sender of the channel
+     * @param callback called with status once notification is sent or failed
+     * @see #getUnsentStatus(ChannelType, FileItem)
+     */
+    public void send(ChannelType channelType, FileItem fileItem, RecipientSender recipientSender,
+            Consumer<NotificationStatus> callback) {
+        recipientSender.send(fileItem.getDate(), fileItem.getRecipient(channelType),
+                success -> callback.accept(getStatus(success)));
     }
 
     public void sendEmailToAdmin(Communication communication) {
-        Map<String, String> dataMap = new HashMap<>();
+        String messageBody = payloadEncoder.encodeAdminEmail(communication.getTemplateId(),
+                communication.getEmailId(), getSubject(communication), getBody(communication));
+
+        sqsClientAccessor.sendMessage(messageBody, Constants.ADMIN_GROUP_ID);
+    }
 
-        dataMap.put(Constants.TEMPLATE_ID, String.valueOf(communication.getTemplateId()));
-        dataMap.put(Constants.EMAIL_ID, communication.getEmailId());
-        dataMap.put(Constants.SUBJECT, getSubject(communication));
-        dataMap.put(Constants.BODY, getBody(communication));
+    // package-private for benchmarks
+    String getPayload(ChannelType channelType, FileItem fileItem) {
+        return channels.get(channelType).encode(fileItem.getDate(),
+                fileItem.getRecipient(channelType));
+    }
 
-        String messageBody = JsonUtils.toJson(dataMap);
+    private void addChannel(NotificationChannel channel) {
+        channels.put(channel.getChannelType(), channel);
+    }
 
-        sqsClientAccessor.sendMessage(messageBody, Constants.ADMIN_GROUP_ID);
+    private void addRateLimiter(ChannelType channelType, double rate, int burst,
+            RateLimitConfig rateLimitConfig) {
+        if (rate > 0) {
+            rateLimiters.put(channelType, new TokenBucketRateLimiter(rate, burst,
+                    rateLimitConfig.getBackoffFactor(), rateLimitConfig.getRecoveryFraction(),
+                    rateLimitConfig.getMinFraction()));
+        }
+    }
+
+    private NotificationStatus getStatus(boolean success) {
+        final NotificationStatus status;
+        if (success) {
+            status = NotificationStatus.SUCCESS;
+        } else {
+            status = NotificationStatus.FAILURE;
+        }
+
+        return status;
     }
 
     private String getSubject(Communication communication) {
@@ -101,19 +228,8 @@ public class NotificationUtils {
         return populatePlaceholders(template, communication.getDataMap());
     }
 
-    private String populatePlaceholders(String template, final Map<String, String> dataMap) {
-        // disable velocity.log
-        Velocity.setProperty("runtime.log.logsystem.class", NullLogChute.class.getName());
-        Velocity.init();
-
-        final VelocityContext velocityContext = new VelocityContext();
-        for (Map.Entry<String, String> entryMap : dataMap.entrySet()) {
-            velocityContext.put(entryMap.getKey(), entryMap.getValue());
-        }
-
-        StringWriter writer = new StringWriter();
-        Velocity.evaluate(velocityContext, writer, Constants.TEMPLATE_LOG_TAG, template);
-
-        return writer.toString();
+    // package-private for benchmarks
+    String populatePlaceholders(String template, final Map<String, String> dataMap) {
+        return templateEngine.render(template, dataMap);
     }
 }
@@ -0,0 +1,15 @@
+package com.prince.serverless.util;
+
+/**
+ * Ways in which output file can be written to S3
+ *
+ * @author Prince Raj
+ */
+public enum OutputMode {
+
+    // upload parts of output file to S3 while it is being written
+    STREAM,
+
+    // write output file to temp folder and upload it once it is complete
+    TEMP_FILE
+}
@@ -0,0 +1,308 @@
+package com.prince.serverless.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Input stream which decompresses gzip content of many members on a thread pool and returns it in
+ * order. Compressed input is split into chunks of at least {@code chunkSize} bytes at offsets which
+ * look like member headers, and chunks are decompressed independently while the consumer reads
+ * the ones before them.
+ *
+ * A chunk is used only if it decompresses to its end into whole members with verified trailers,
+ * so that a chunk which was split at bytes of deflate data which only look like a header is
+ * detected. The rest of the input is then decompressed by the reading thread, as it is when a
+ * member is larger than the max chunk size, e.g. for a single member file.
+ *
+ * At most {@code parallelism} chunks are decompressed or held in memory at a time, besides the one
+ * being read. Not thread-safe.
+ *
+ * @author Prince Raj
+ */
+public class ParallelGzipInputStream extends InputStream {
+
+    // bytes of member header checked at a split offset
+    private static final int HEADER_LENGTH = 10;
+
+    // chunks not split by then are too large to be held in memory
+    private static final int MAX_CHUNK_SIZE_FACTOR = 32;
+
+    // initial size of decompressed chunk in multiples of compressed size, as for csv files
+    private static final int EXPECTED_COMPRESSION_RATIO = 5;
+
+    private static final int MAX_OS = 13;
+
+    private static final int UNKNOWN_OS = 255;
+
+    private final Logger log = LogManager.getLogger(this.getClass());
+
+    private final InputStream in;
+
+    private final int chunkSize;
+
+    private final int maxChunkSize;
+
+    private final int parallelism;
+
+    private final ExecutorService executorService;
+
+    private final Deque<Chunk> chunks = new ArrayDeque<>();
+
+    private final byte[] singleByte = new byte[1];
+
+    // compressed bytes read after the last chunk, which start at a member header
+    private byte[] pending = new byte[0];
+
+    private boolean inputEnded;
+
+    // false once a member is larger than max chunk size
+    private boolean splittable = true;
+
+    // decompresses the rest of the input on the reading thread, once chunks are not used
+    private InputStream sequentialStream;
+
+    private ByteBuffer currentChunk;
+
+    private boolean closed;
+
+    /**
+     * @param in gzip compressed input stream
+     * @param parallelism max chunks decompressed at a time
+     * @param chunkSize min compressed bytes of a chunk
+     */
+    public ParallelGzipInputStream(InputStream in, int parallelism, int chunkSize) {
+        this.in = in;
+        this.parallelism = Math.max(1, parallelism);
+        this.chunkSize = Math.max(HEADER_LENGTH, chunkSize);
+        this.maxChunkSize = (int) Math.min(Integer.MAX_VALUE - HEADER_LENGTH,
+                (long) this.chunkSize * MAX_CHUNK_SIZE_FACTOR);
+        this.executorService = Executors.newFixedThreadPool(this.parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "gzip-decompress");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(singleByte, 0, 1) < 0 ? -1 : singleByte[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!ensureCurrentChunk()) {
+            return sequentialStream != null ? sequentialStream.read(bytes, offset, length) : -1;
+        }
+
+        int count = Math.min(length, currentChunk.remaining());
+        currentChunk.get(bytes, offset, count);
+
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return currentChunk == null ? 0 : currentChunk.remaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            currentChunk = null;
+            chunks.clear();
+            executorService.shutdownNow();
+            if (sequentialStream != null) {
+                sequentialStream.close();
+            } else {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * @return true if current chunk has bytes to read, false if input ended or is decompressed by
+     *         the sequential stream
+     */
+    private boolean ensureCurrentChunk() throws IOException {
+        if (closed) {
+            throw new IOException("Stream is closed");
+        }
+
+        while (currentChunk == null || !currentChunk.hasRemaining()) {
+            if (sequentialStream != null) {
+                return false;
+            }
+
+            while (chunks.size() < parallelism && splitNextChunk()) {
+                // decompress ahead
+            }
+
+            Chunk chunk = chunks.pollFirst();
+            if (chunk == null) {
+                if (!splittable) {
+                    sequentialStream = new MultiMemberGzipInputStream(new SequenceInputStream(
+                            new ByteArrayInputStream(pending), in));
+                }
+                return false;
+            }
+
+            try {
+                currentChunk = chunk.decompressed.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while decompressing gzip chunk");
+            } catch (ExecutionException ex) {
+                log.info("Decompressing rest of gzip input sequentially, reason: {}",
+                        ex.getCause().getMessage());
+                decompressSequentially(chunk);
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Split the next chunk of compressed input and submit it for decompression.
+     *
+     * @return false if no chunk is left to split
+     */
+    private boolean splitNextChunk() throws IOException {
+        if (!splittable || inputEnded && pending.length == 0) {
+            return false;
+        }
+
+        byte[] bytes = Arrays.copyOf(pending, Math.max(pending.length, chunkSize + chunkSize / 4));
+        int length = pending.length;
+        int scanOffset = chunkSize;
+        while (true) {
+            for (; scanOffset + HEADER_LENGTH <= length; scanOffset++) {
+                if (isMemberHeader(bytes, scanOffset)) {
+                    submit(bytes, scanOffset);
+                    pending = Arrays.copyOfRange(bytes, scanOffset, length);
+                    return true;
+                }
+            }
+
+            if (inputEnded) {
+                submit(bytes, length);
+                pending = new byte[0];
+                return length > 0;
+            }
+            if (length >= maxChunkSize) {
+                log.info("Gzip member is larger than: {} bytes, decompressing rest of input "
+                        + "sequentially", maxChunkSize);
+                pending = Arrays.copyOf(bytes, length);
+                splittable = false;
+                return false;
+            }
+
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes,
+                        (int) Math.min((long) bytes.length * 2, maxChunkSize + HEADER_LENGTH));
+            }
+            int count = in.read(bytes, length, bytes.length - length);
+            if (count < 0) {
+                inputEnded = true;
+            } else {
+                length += count;
+            }
+        }
+    }
+
+    private void submit(byte[] bytes, int length) {
+        if (length > 0) {
+            chunks.addLast(new Chunk(bytes, length,
+                    executorService.submit(() -> decompress(bytes, length))));
+        }
+    }
+
+    private ByteBuffer decompress(byte[] bytes, int length) throws IOException {
+        try (MultiMemberGzipInputStream gzipInputStream = new MultiMemberGzipInputStream(
+                new ByteArrayInputStream(bytes, 0, length))) {
+            byte[] decompressed = new byte[length * EXPECTED_COMPRESSION_RATIO];
+            int count = 0;
+            int read;
+            while ((read = gzipInputStream.read(decompressed, count,
+                    decompressed.length - count)) >= 0) {
+                count += read;
+                if (count == decompressed.length) {
+                    decompressed = Arrays.copyOf(decompressed, decompressed.length * 2);
+                }
+            }
+            if (gzipInputStream.hasTrailingGarbage()) {
+                throw new ZipException("Gzip chunk doesn't end at end of a member");
+            }
+
+            return ByteBuffer.wrap(decompressed, 0, count);
+        }
+    }
+
+    /**
+     * Decompress the rest of the input on the reading thread, from the start of a chunk which
+     * is known to start at a member as chunks before it ended at end of a member.
+     */
+    private void decompressSequentially(Chunk chunk) {
+        List<InputStream> streams = new ArrayList<>();
+        streams.add(new ByteArrayInputStream(chunk.bytes, 0, chunk.length));
+        for (Chunk nextChunk : chunks) {
+            nextChunk.decompressed.cancel(true);
+            streams.add(new ByteArrayInputStream(nextChunk.bytes, 0, nextChunk.length));
+        }
+        chunks.clear();
+        streams.add(new ByteArrayInputStream(pending));
+        streams.add(in);
+
+        splittable = false;
+        sequentialStream = new MultiMemberGzipInputStream(
+                new SequenceInputStream(Collections.enumeration(streams)));
+    }
+
+    private static boolean isMemberHeader(byte[] bytes, int offset) {
+        int flags = bytes[offset + 3] & 0xFF;
+        int extraFlags = bytes[offset + 8] & 0xFF;
+        int os = bytes[offset + 9] & 0xFF;
+
+        return (bytes[offset] & 0xFF) == 0x1F && (bytes[offset + 1] & 0xFF) == 0x8B
+                && bytes[offset + 2] == 8 && (flags & 0xE0) == 0
+                && (extraFlags == 0 || extraFlags == 2 || extraFlags == 4)
+                && (os <= MAX_OS || os == UNKNOWN_OS);
+    }
+
+    private static class Chunk {
+
+        private final byte[] bytes;
+
+        private final int length;
+
+        private final Future<ByteBuffer> decompressed;
+
+        private Chunk(byte[] bytes, int length, Future<ByteBuffer> decompressed) {
+            this.bytes = bytes;
+            this.length = length;
+            this.decompressed = decompressed;
+        }
+    }
+}
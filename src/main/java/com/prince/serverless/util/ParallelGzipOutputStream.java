@@ -0,0 +1,200 @@
+package com.prince.serverless.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Output stream which compresses blocks of the written bytes into gzip members on a thread pool,
+ * and writes the members in order to the underlying stream. Output is a standard multi-member gzip
+ * stream, which any gzip reader decompresses into the written bytes.
+ *
+ * Flushing the stream compresses the bytes written so far into a member, so that the underlying
+ * stream ends at a member boundary, e.g. when output is continued by another stream. At most
+ * {@code parallelism} blocks are compressed or held in memory at a time, besides the one being
+ * filled. Not thread-safe.
+ *
+ * @author Prince Raj
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+    // header of a member without name or modification time, as written by GZIPOutputStream
+    private static final byte[] HEADER = {0x1F, (byte) 0x8B, 8, 0, 0, 0, 0, 0, 0, 0};
+
+    private static final int TRAILER_LENGTH = 8;
+
+    private static final int DEFLATE_BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream out;
+
+    private final int level;
+
+    private final int blockSize;
+
+    private final int parallelism;
+
+    private final ExecutorService executorService;
+
+    private final Deque<Future<byte[]>> members = new ArrayDeque<>();
+
+    private byte[] block;
+
+    private int position;
+
+    private boolean closed;
+
+    /**
+     * @param out output stream of compressed bytes
+     * @param level compression level, 0-9 or {@link Deflater#DEFAULT_COMPRESSION}
+     * @param blockSize uncompressed bytes of a member
+     * @param parallelism max blocks compressed at a time
+     */
+    public ParallelGzipOutputStream(OutputStream out, int level, int blockSize,
+            int parallelism) {
+        this.out = out;
+        this.level = level;
+        this.blockSize = Math.max(1, blockSize);
+        this.parallelism = Math.max(1, parallelism);
+        this.block = new byte[this.blockSize];
+        this.executorService = Executors.newFixedThreadPool(this.parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "gzip-compress");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (position == block.length) {
+            submitBlock();
+        }
+
+        block[position++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        ensureOpen();
+        while (length > 0) {
+            if (position == block.length) {
+                submitBlock();
+            }
+
+            int count = Math.min(length, block.length - position);
+            System.arraycopy(bytes, offset, block, position, count);
+            position += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * Compress the bytes written so far, and write them to the underlying stream.
+     *
+     * @throws IOException IO exception
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        submitBlock();
+        while (!members.isEmpty()) {
+            writeMember();
+        }
+
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        try {
+            flush();
+        } finally {
+            closed = true;
+            block = null;
+            members.clear();
+            executorService.shutdownNow();
+        }
+
+        out.close();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream is closed");
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        if (position == 0) {
+            return;
+        }
+
+        while (members.size() >= parallelism) {
+            writeMember();
+        }
+
+        byte[] bytes = block;
+        int length = position;
+        members.addLast(executorService.submit(() -> compress(bytes, length)));
+
+        block = new byte[blockSize];
+        position = 0;
+    }
+
+    private void writeMember() throws IOException {
+        try {
+            out.write(members.pollFirst().get());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing gzip member");
+        } catch (ExecutionException ex) {
+            throw new IOException("Failed to compress gzip member", ex.getCause());
+        }
+    }
+
+    private byte[] compress(byte[] bytes, int length) {
+        ByteArrayOutputStream member = new ByteArrayOutputStream(length / 4 + HEADER.length
+                + TRAILER_LENGTH);
+        member.write(HEADER, 0, HEADER.length);
+
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(bytes, 0, length);
+            deflater.finish();
+
+            byte[] buffer = new byte[DEFLATE_BUFFER_SIZE];
+            while (!deflater.finished()) {
+                member.write(buffer, 0, deflater.deflate(buffer));
+            }
+        } finally {
+            deflater.end();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, length);
+        writeInt(member, (int) crc.getValue());
+        writeInt(member, length);
+
+        return member.toByteArray();
+    }
+
+    private static void writeInt(ByteArrayOutputStream outputStream, int value) {
+        for (int i = 0; i < 4; i++) {
+            outputStream.write(value >>> (8 * i));
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.prince.serverless.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.output.StringBuilderWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import com.prince.serverless.config.AmazonSQSClientConfig;
+
+/**
+ * Encoder of message payloads. Payloads have fixed fields, so they are written field by field with
+ * a streaming generator to a buffer reused by the thread, instead of building a map and serializing
+ * it with {@link JsonUtils}. Fields are written in alphabetical order, so pretty payloads are the
+ * same as the ones of {@link JsonUtils#toJson(Object)}.
+ *
+ * @author Prince Raj
+ */
+@Component
+public class PayloadEncoder {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    // buffers which grew larger are not kept, e.g. after a long admin email
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private final ThreadLocal<StringBuilderWriter> buffers =
+            ThreadLocal.withInitial(() -> new StringBuilderWriter(INITIAL_BUFFER_SIZE));
+
+    private final boolean pretty;
+
+    @Autowired
+    public PayloadEncoder(AmazonSQSClientConfig sqsClientConfig) {
+        this(sqsClientConfig.isPrettyPayload());
+    }
+
+    /**
+     * @param pretty true to indent payloads, e.g. for debugging
+     */
+    public PayloadEncoder(boolean pretty) {
+        this.pretty = pretty;
+    }
+
+    public String encodeEmail(String date, String emailId) {
+        try {
+            JsonGenerator generator = startPayload();
+            generator.writeStringField(Constants.DATE, date);
+            generator.writeStringField(Constants.EMAIL_ID, emailId);
+
+            return endPayload(generator);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public String encodeSms(String date, String mobileNumber) {
+        try {
+            JsonGenerator generator = startPayload();
+            generator.writeStringField(Constants.DATE, date);
+            generator.writeStringField(Constants.MOBILE, mobileNumber);
+
+            return endPayload(generator);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Encode payload of a channel addressed by user id.
+     *
+     * <pre>
+     * {"channel":"ANDROID_PUSH","date":"01-Jul-2019","userid":"u1"}
+     * </pre>
+     *
+     * @param channelType channel of user
+     * @param date date of notification
+     * @param userId user id
+     * @return payload
+     */
+    public String encodeUser(ChannelType channelType, String date, String userId) {
+        try {
+            JsonGenerator generator = startPayload();
+            generator.writeStringField(Constants.ENVELOPE_CHANNEL, channelType.name());
+            generator.writeStringField(Constants.DATE, date);
+            generator.writeStringField(Constants.USER_ID, userId);
+
+            return endPayload(generator);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public String encodeAdminEmail(Integer templateId, String emailId, String subject,
+            String body) {
+        try {
+            JsonGenerator generator = startPayload();
+            generator.writeStringField(Constants.EMAIL_ID, emailId);
+            generator.writeStringField(Constants.BODY, body);
+            generator.writeStringField(Constants.SUBJECT, subject);
+            generator.writeStringField(Constants.TEMPLATE_ID, String.valueOf(templateId));
+
+            return endPayload(generator);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Encode envelope of recipients of a channel sharing the same date.
+     *
+     * <pre>
+     * {"channel":"EMAIL","date":"01-Jul-2019","recipients":["a@example.com",...],"version":1}
+     * </pre>
+     *
+     * Compressed envelope is gzipped and base64 encoded.
+     *
+     * <pre>
+     * {"encoding":"gzip","envelope":"H4sIAAAAAAAAA...","version":1}
+     * </pre>
+     *
+     * @param channelType channel of recipients
+     * @param date date of notification
+     * @param recipients email ids, mobile numbers or user ids, as per channel
+     * @param compressed true to compress envelope
+     * @return envelope payload
+     * @see EnvelopeDecoder
+     */
+    public String encodeEnvelope(ChannelType channelType, String date, List<String> recipients,
+            boolean compressed) {
+        try {
+            JsonGenerator generator = startPayload();
+            generator.writeStringField(Constants.ENVELOPE_CHANNEL, channelType.name());
+            generator.writeStringField(Constants.DATE, date);
+            generator.writeArrayFieldStart(Constants.ENVELOPE_RECIPIENTS);
+            for (String recipient : recipients) {
+                generator.writeString(recipient);
+            }
+            generator.writeEndArray();
+            generator.writeNumberField(Constants.ENVELOPE_VERSION,
+                    Constants.ENVELOPE_FORMAT_VERSION);
+
+            String envelope = endPayload(generator);
+            if (!compressed) {
+                return envelope;
+            }
+
+            generator = startPayload();
+            generator.writeStringField(Constants.ENVELOPE_ENCODING, Constants.GZIP_ENCODING);
+            generator.writeStringField(Constants.ENVELOPE_DATA, gzipBase64(envelope));
+            generator.writeNumberField(Constants.ENVELOPE_VERSION,
+                    Constants.ENVELOPE_FORMAT_VERSION);
+
+            return endPayload(generator);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String gzipBase64(String value) throws IOException {
+        ByteArrayOutputStream byteStream = new ByteArrayOutputStream(value.length() / 2);
+        try (GZIPOutputStream gzipStream = new GZIPOutputStream(byteStream)) {
+            gzipStream.write(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return Base64.getEncoder().encodeToString(byteStream.toByteArray());
+    }
+
+    private JsonGenerator startPayload() throws IOException {
+        StringBuilderWriter buffer = buffers.get();
+        buffer.getBuilder().setLength(0);
+
+        JsonGenerator generator = JSON_FACTORY.createGenerator(buffer);
+        if (pretty) {
+            generator.useDefaultPrettyPrinter();
+        }
+        generator.writeStartObject();
+
+        return generator;
+    }
+
+    private String endPayload(JsonGenerator generator) throws IOException {
+        generator.writeEndObject();
+        generator.close();
+
+        StringBuilder builder = buffers.get().getBuilder();
+        String payload = builder.toString();
+        if (builder.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+            buffers.remove();
+        }
+
+        return payload;
+    }
+}
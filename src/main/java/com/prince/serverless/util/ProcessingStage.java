@@ -0,0 +1,33 @@
+package com.prince.serverless.util;
+
+/**
+ * Stages of processing a file which are timed
+ *
+ * @author Prince Raj
+ */
+public enum ProcessingStage {
+    // metadata request of input file
+    S3_HEAD,
+    // get request of input file, until its content starts streaming
+    S3_GET,
+    // reading and parsing a row, including waiting for input content
+    PARSE,
+    // encoding message payload of a recipient or an envelope
+    ENCODE,
+    // send request of a message batch, until its response
+    SQS_SEND,
+    // writing an output row, including waiting for output parts to upload
+    CSV_WRITE,
+    // completing upload of output file
+    UPLOAD,
+    // sending stats to admin users
+    ADMIN_EMAIL,
+    // loading bitmaps of users notified by earlier files
+    SUPPRESSION_LOAD,
+    // merging users notified by the file into bitmap of the day
+    SUPPRESSION_SAVE,
+    // splitting input file into shards at row boundaries
+    SHARD_SPLIT,
+    // merging output of shards into output file
+    SHARD_MERGE
+}
@@ -0,0 +1,46 @@
+package com.prince.serverless.util;
+
+import java.util.function.Consumer;
+
+import com.prince.serverless.exception.EngineServiceException;
+
+/**
+ * Sends recipients with a sender once a permit is acquired from the rate limiter of the channel.
+ * Sending blocks while the channel is over its rate, which holds back the rows behind it.
+ *
+ * @author Prince Raj
+ */
+public class RateLimitedRecipientSender implements RecipientSender {
+
+    private final RecipientSender recipientSender;
+
+    private final TokenBucketRateLimiter rateLimiter;
+
+    public RateLimitedRecipientSender(RecipientSender recipientSender,
+            TokenBucketRateLimiter rateLimiter) {
+        this.recipientSender = recipientSender;
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public void send(String date, String recipient, Consumer<Boolean> callback) {
+        try {
+            rateLimiter.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new EngineServiceException("Interrupted while waiting for rate limit", ex);
+        }
+
+        recipientSender.send(date, recipient, callback);
+    }
+
+    @Override
+    public void flushIfExpired() {
+        recipientSender.flushIfExpired();
+    }
+
+    @Override
+    public void flush() {
+        recipientSender.flush();
+    }
+}
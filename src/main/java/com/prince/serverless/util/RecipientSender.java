@@ -0,0 +1,29 @@
+package com.prince.serverless.util;
+
+import java.util.function.Consumer;
+
+/**
+ * Sends notifications of one channel to recipients of a file. Messages may be buffered, so sender
+ * should be flushed once all the recipients are sent.
+ *
+ * @author Prince Raj
+ */
+public interface RecipientSender {
+
+    /**
+     * @param date date of notification
+     * @param recipient email id or mobile number, as per channel
+     * @param callback invoked with true if the message to recipient is accepted by the queue
+     */
+    void send(String date, String recipient, Consumer<Boolean> callback);
+
+    /**
+     * Send buffered messages which are older than the max batch age.
+     */
+    void flushIfExpired();
+
+    /**
+     * Send all the buffered messages.
+     */
+    void flush();
+}
@@ -20,6 +20,14 @@ public enum ReportType {
         this.value = value;
     }
 
+    /**
+     * @param fileName file name
+     * @return true if file is of a supported type
+     */
+    public static boolean isSupported(String fileName) {
+        return fileName.startsWith(INACTIVE.getValue()) || fileName.startsWith(ACTIVE.getValue());
+    }
+
     public static ReportType getReportType(String fileName) {
         final ReportType reportType;
         if (fileName.startsWith(INACTIVE.getValue())) {
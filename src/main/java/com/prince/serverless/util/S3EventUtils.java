@@ -0,0 +1,72 @@
+package com.prince.serverless.util;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Provide utilities to create S3 events, for invocations of the function made by the function
+ * itself
+ *
+ * @author Prince Raj
+ */
+public class S3EventUtils {
+
+    private S3EventUtils() {}
+
+    /**
+     * @param bucketName bucket name
+     * @param region region of the event
+     * @param objectKey s3 object key, encoded as in events sent by S3
+     * @param eventName event name, which tells why the function is invoked
+     * @return json of an S3 event with a single record of the object
+     */
+    public static String toS3EventJson(String bucketName, String region, String objectKey,
+            String eventName) {
+        Map<String, Object> bucket = new HashMap<>();
+        bucket.put("name", bucketName);
+        bucket.put("arn", "arn:aws:s3:::" + bucketName);
+
+        Map<String, Object> object = new HashMap<>();
+        object.put("key", objectKey);
+
+        Map<String, Object> s3 = new HashMap<>();
+        s3.put("s3SchemaVersion", "1.0");
+        s3.put("bucket", bucket);
+        s3.put("object", object);
+
+        Map<String, Object> record = new HashMap<>();
+        record.put("eventVersion", "2.1");
+        record.put("eventSource", "aws:s3");
+        record.put("awsRegion", region);
+        record.put("eventTime", Instant.now().toString());
+        record.put("eventName", eventName);
+        record.put("s3", s3);
+
+        return JsonUtils.toJson(Collections.singletonMap("Records",
+                Collections.singletonList(record)));
+    }
+
+    /**
+     * Encode s3 object key as in events sent by S3, e.g. of an object which is listed.
+     *
+     * @param objectKey s3 object key
+     * @return encoded object key, with forward slashes kept as is
+     * @throws UnsupportedEncodingException if UTF-8 isn't supported
+     */
+    public static String encodeObjectKey(String objectKey) throws UnsupportedEncodingException {
+        String[] names = objectKey.split(Constants.FORWARD_SLASH, -1);
+        StringBuilder encodedKey = new StringBuilder();
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0) {
+                encodedKey.append(Constants.FORWARD_SLASH);
+            }
+            encodedKey.append(URLEncoder.encode(names[i], Constants.UTF_8));
+        }
+
+        return encodedKey.toString();
+    }
+}
@@ -0,0 +1,43 @@
+package com.prince.serverless.util;
+
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+import com.prince.serverless.accessor.AmazonSQSBatchSender;
+
+/**
+ * Sends a message per recipient.
+ *
+ * @author Prince Raj
+ */
+public class SingleRecipientSender implements RecipientSender {
+
+    private final AmazonSQSBatchSender batchSender;
+
+    private final BiFunction<String, String, String> payloadEncoder;
+
+    /**
+     * @param batchSender batch sender of channel message group
+     * @param payloadEncoder encoder of payload from date and recipient
+     */
+    public SingleRecipientSender(AmazonSQSBatchSender batchSender,
+            BiFunction<String, String, String> payloadEncoder) {
+        this.batchSender = batchSender;
+        this.payloadEncoder = payloadEncoder;
+    }
+
+    @Override
+    public void send(String date, String recipient, Consumer<Boolean> callback) {
+        batchSender.send(payloadEncoder.apply(date, recipient), callback);
+    }
+
+    @Override
+    public void flushIfExpired() {
+        batchSender.flushIfExpired();
+    }
+
+    @Override
+    public void flush() {
+        batchSender.flush();
+    }
+}
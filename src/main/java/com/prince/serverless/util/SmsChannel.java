@@ -0,0 +1,30 @@
+package com.prince.serverless.util;
+
+/**
+ * SMS notifications, addressed by mobile number.
+ *
+ * @author Prince Raj
+ */
+public class SmsChannel implements NotificationChannel {
+
+    private final PayloadEncoder payloadEncoder;
+
+    public SmsChannel(PayloadEncoder payloadEncoder) {
+        this.payloadEncoder = payloadEncoder;
+    }
+
+    @Override
+    public ChannelType getChannelType() {
+        return ChannelType.SMS;
+    }
+
+    @Override
+    public String getGroupId() {
+        return Constants.SMS_GROUP_ID;
+    }
+
+    @Override
+    public String encode(String date, String mobileNumber) {
+        return payloadEncoder.encodeSms(date, mobileNumber);
+    }
+}
@@ -0,0 +1,80 @@
+package com.prince.serverless.util;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.prince.serverless.model.LatencyHistogram;
+
+/**
+ * Times stages of processing a file, recording a latency per call of a stage. Any number of
+ * threads can time stages and snapshot the timings concurrently.
+ *
+ * <pre>
+ * long startTime = stageTimer.start();
+ * ...
+ * stageTimer.stop(ProcessingStage.PARSE, startTime);
+ * </pre>
+ *
+ * @author Prince Raj
+ */
+public class StageTimer {
+
+    // timer which doesn't time anything, for callers which don't need timings
+    public static final StageTimer NONE = new StageTimer(false);
+
+    private static final ProcessingStage[] STAGES = ProcessingStage.values();
+
+    private final LatencyRecorder[] latencyRecorders;
+
+    public StageTimer() {
+        this(true);
+    }
+
+    private StageTimer(boolean enabled) {
+        if (enabled) {
+            latencyRecorders = new LatencyRecorder[STAGES.length];
+            for (int i = 0; i < STAGES.length; i++) {
+                latencyRecorders[i] = new LatencyRecorder();
+            }
+        } else {
+            latencyRecorders = null;
+        }
+    }
+
+    /**
+     * @return start time of a stage call
+     */
+    public long start() {
+        return latencyRecorders == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Record latency of a stage call.
+     *
+     * @param stage stage
+     * @param startTime start time returned by {@link #start()}
+     */
+    public void stop(ProcessingStage stage, long startTime) {
+        if (latencyRecorders != null) {
+            latencyRecorders[stage.ordinal()].record(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * @return timings of stages which are called so far
+     */
+    public Map<ProcessingStage, LatencyHistogram> snapshot() {
+        Map<ProcessingStage, LatencyHistogram> stageTimingsMap =
+                new EnumMap<>(ProcessingStage.class);
+        if (latencyRecorders != null) {
+            for (ProcessingStage stage : STAGES) {
+                LatencyHistogram histogram = latencyRecorders[stage.ordinal()].snapshot();
+                if (histogram.getCount() > 0) {
+                    stageTimingsMap.put(stage, histogram);
+                }
+            }
+        }
+
+        return stageTimingsMap;
+    }
+}
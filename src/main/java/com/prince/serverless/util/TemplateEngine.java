@@ -0,0 +1,107 @@
+package com.prince.serverless.util;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.VelocityContext;
+import org.apache.velocity.runtime.RuntimeConstants;
+import org.apache.velocity.runtime.RuntimeInstance;
+import org.apache.velocity.runtime.log.NullLogChute;
+import org.apache.velocity.runtime.parser.ParseException;
+import org.apache.velocity.runtime.parser.node.SimpleNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.prince.serverless.exception.EngineServiceException;
+
+/**
+ * Renders velocity templates. Every template is parsed once and the compiled template is kept in a
+ * LRU cache keyed by template content, so rendering doesn't parse the template again.
+ *
+ * Compiled templates are thread-safe, so they are shared by all the threads rendering them.
+ *
+ * @author Prince Raj
+ */
+@Component
+public class TemplateEngine {
+
+    @Value("${com.example.template.cache.size:64}")
+    private int cacheSize;
+
+    private RuntimeInstance runtimeInstance;
+
+    private Map<String, Template> templateCache;
+
+    @PostConstruct
+    public void init() {
+        runtimeInstance = new RuntimeInstance();
+        // disable velocity.log
+        runtimeInstance.setProperty(RuntimeConstants.RUNTIME_LOG_LOGSYSTEM_CLASS,
+                NullLogChute.class.getName());
+        runtimeInstance.init();
+
+        templateCache = Collections.synchronizedMap(new LinkedHashMap<String, Template>(16, 0.75f,
+                true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Template> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * Render template with placeholders replaced by values of data map.
+     *
+     * @param template template content
+     * @param dataMap data map for placeholders
+     * @return rendered content
+     */
+    public String render(String template, Map<String, String> dataMap) {
+        final VelocityContext velocityContext = new VelocityContext();
+        for (Map.Entry<String, String> entryMap : dataMap.entrySet()) {
+            velocityContext.put(entryMap.getKey(), entryMap.getValue());
+        }
+
+        StringWriter writer = new StringWriter();
+        getTemplate(template).merge(velocityContext, writer);
+
+        return writer.toString();
+    }
+
+    private Template getTemplate(String content) {
+        Template template = templateCache.get(content);
+        if (template == null) {
+            // parsing is done outside the lock, a template compiled twice concurrently is harmless
+            template = compile(content);
+            templateCache.put(content, template);
+        }
+
+        return template;
+    }
+
+    private Template compile(String content) {
+        final SimpleNode node;
+        try {
+            node = runtimeInstance.parse(new StringReader(content), Constants.TEMPLATE_LOG_TAG);
+        } catch (ParseException ex) {
+            throw new EngineServiceException("Template is not valid", ex);
+        }
+
+        Template template = new Template();
+        template.setName(Constants.TEMPLATE_LOG_TAG);
+        template.setRuntimeServices(runtimeInstance);
+        template.setData(node);
+        template.initDocument();
+
+        return template;
+    }
+}
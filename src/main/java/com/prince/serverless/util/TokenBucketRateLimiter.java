@@ -0,0 +1,117 @@
+package com.prince.serverless.util;
+
+import java.util.concurrent.TimeUnit;
+
+import com.prince.serverless.model.RateLimitStats;
+
+/**
+ * Token bucket rate limiter with additive increase and multiplicative decrease of its rate. Rate is
+ * reduced by the backoff factor when a request is throttled, at most once per {@link
+ * #BACKOFF_INTERVAL_NANOS} so that the batches in flight at the time don't compound it, and then
+ * increases linearly back to the configured rate while not throttled.
+ *
+ * @author Prince Raj
+ */
+public class TokenBucketRateLimiter {
+
+    private static final long BACKOFF_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final double maxRate;
+
+    private final double minRate;
+
+    private final double burst;
+
+    private final double backoffFactor;
+
+    // rate added every second while not throttled
+    private final double recoveryRate;
+
+    private double rate;
+
+    private double tokens;
+
+    private long refillTime = System.nanoTime();
+
+    private long backoffTime = refillTime - BACKOFF_INTERVAL_NANOS;
+
+    private long throttleCount;
+
+    /**
+     * @param rate permits per second
+     * @param burst max permits which can be acquired at once after the limiter is idle
+     * @param backoffFactor factor applied to rate when throttled
+     * @param recoveryFraction fraction of rate added every second while not throttled
+     * @param minFraction min fraction of rate which rate is reduced to
+     */
+    public TokenBucketRateLimiter(double rate, int burst, double backoffFactor,
+            double recoveryFraction, double minFraction) {
+        this.maxRate = rate;
+        this.minRate = rate * minFraction;
+        this.burst = Math.max(1, burst);
+        this.backoffFactor = backoffFactor;
+        this.recoveryRate = rate * recoveryFraction;
+        this.rate = rate;
+        this.tokens = this.burst;
+    }
+
+    /**
+     * Acquire a permit, waiting until one is available.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                refill();
+                if (tokens >= 1) {
+                    tokens--;
+                    return;
+                }
+
+                waitNanos = (long) ((1 - tokens) / rate * NANOS_PER_SECOND);
+            }
+
+            TimeUnit.NANOSECONDS.sleep(Math.max(1, waitNanos));
+        }
+    }
+
+    /**
+     * Reduce rate as a request is throttled.
+     */
+    public synchronized void onThrottle() {
+        refill();
+        throttleCount++;
+
+        if (refillTime - backoffTime >= BACKOFF_INTERVAL_NANOS) {
+            rate = Math.max(minRate, rate * backoffFactor);
+            tokens = Math.min(tokens, 0);
+            backoffTime = refillTime;
+        }
+    }
+
+    /**
+     * @return current rate and number of throttled requests so far
+     */
+    public synchronized RateLimitStats getStats() {
+        refill();
+
+        RateLimitStats stats = new RateLimitStats();
+        stats.setRate(rate);
+        stats.setThrottleCount(throttleCount);
+
+        return stats;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        double elapsedSeconds = (now - refillTime) / NANOS_PER_SECOND;
+        refillTime = now;
+
+        rate = Math.min(maxRate, rate + recoveryRate * elapsedSeconds);
+        tokens = Math.min(burst, tokens + rate * elapsedSeconds);
+    }
+}
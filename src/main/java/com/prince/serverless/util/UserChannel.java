@@ -0,0 +1,37 @@
+package com.prince.serverless.util;
+
+/**
+ * Notifications addressed by user id, e.g. push notifications to the devices of the user and
+ * in-app messages. Payloads carry the channel, as recipients of these channels look alike.
+ *
+ * @author Prince Raj
+ */
+public class UserChannel implements NotificationChannel {
+
+    private final ChannelType channelType;
+
+    private final String groupId;
+
+    private final PayloadEncoder payloadEncoder;
+
+    public UserChannel(ChannelType channelType, String groupId, PayloadEncoder payloadEncoder) {
+        this.channelType = channelType;
+        this.groupId = groupId;
+        this.payloadEncoder = payloadEncoder;
+    }
+
+    @Override
+    public ChannelType getChannelType() {
+        return channelType;
+    }
+
+    @Override
+    public String getGroupId() {
+        return groupId;
+    }
+
+    @Override
+    public String encode(String date, String userId) {
+        return payloadEncoder.encodeUser(channelType, date, userId);
+    }
+}
@@ -0,0 +1,198 @@
+package com.prince.serverless.accessor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+
+import com.prince.serverless.local.InMemoryAmazonS3;
+
+/**
+ * Tests of objects uploaded by {@link AmazonS3MultipartOutputStream}, including uploads which span
+ * streams, with a stand-in which counts the multipart requests.
+ *
+ * @author Prince Raj
+ */
+public class AmazonS3MultipartOutputStreamTest {
+
+    private static final String BUCKET_NAME = "bucket";
+
+    private static final String OBJECT_KEY = "output.csv";
+
+    private static final int PART_SIZE = AmazonS3MultipartOutputStream.MIN_PART_SIZE;
+
+    private final AtomicInteger initiatedUploads = new AtomicInteger();
+
+    private final AtomicInteger uploadedParts = new AtomicInteger();
+
+    private final AtomicInteger abortedUploads = new AtomicInteger();
+
+    private final AtomicBoolean failUploads = new AtomicBoolean();
+
+    private final InMemoryAmazonS3 s3Client = new InMemoryAmazonS3() {
+
+        @Override
+        public InitiateMultipartUploadResult initiateMultipartUpload(
+                InitiateMultipartUploadRequest request) {
+            initiatedUploads.incrementAndGet();
+            return super.initiateMultipartUpload(request);
+        }
+
+        @Override
+        public UploadPartResult uploadPart(UploadPartRequest request) {
+            if (failUploads.get()) {
+                throw new AmazonClientException("upload failed");
+            }
+            uploadedParts.incrementAndGet();
+            return super.uploadPart(request);
+        }
+
+        @Override
+        public void abortMultipartUpload(AbortMultipartUploadRequest request) {
+            abortedUploads.incrementAndGet();
+            super.abortMultipartUpload(request);
+        }
+    };
+
+    @Test
+    public void putsOutputSmallerThanPart() throws IOException {
+        byte[] content = createContent(1000);
+
+        try (AmazonS3MultipartOutputStream outputStream = createStream()) {
+            outputStream.write(content);
+        }
+
+        assertArrayEquals(content, s3Client.getObjectBytes(BUCKET_NAME, OBJECT_KEY));
+        assertEquals(0, initiatedUploads.get());
+    }
+
+    @Test
+    public void createsNoObjectIfNothingIsWritten() throws IOException {
+        createStream().close();
+
+        assertNull(s3Client.getObjectBytes(BUCKET_NAME, OBJECT_KEY));
+    }
+
+    @Test
+    public void uploadsOutputInParts() throws IOException {
+        byte[] content = createContent(PART_SIZE * 2 + 1000);
+
+        try (AmazonS3MultipartOutputStream outputStream = createStream()) {
+            for (int offset = 0; offset < content.length; offset += 100000) {
+                outputStream.write(content, offset, Math.min(100000, content.length - offset));
+            }
+        }
+
+        assertArrayEquals(content, s3Client.getObjectBytes(BUCKET_NAME, OBJECT_KEY));
+        assertEquals(1, initiatedUploads.get());
+        assertEquals(3, uploadedParts.get());
+    }
+
+    @Test
+    public void continuesSuspendedUploadInAnotherStream() throws IOException {
+        byte[] content = createContent(PART_SIZE * 2 + 1000);
+        int suspendOffset = PART_SIZE + 1000;
+
+        AmazonS3MultipartOutputStream outputStream = createStream();
+        outputStream.write(content, 0, suspendOffset);
+        String uploadId = outputStream.getUploadId();
+        List<PartETag> partETags = outputStream.awaitUploadedParts();
+        byte[] bufferedBytes = outputStream.getBufferedBytes();
+        outputStream.suspend();
+        outputStream.close();
+
+        assertNotNull(uploadId);
+        assertEquals(1, partETags.size());
+        assertEquals(1000, bufferedBytes.length);
+        assertNull(s3Client.getObjectBytes(BUCKET_NAME, OBJECT_KEY));
+
+        try (AmazonS3MultipartOutputStream restoredStream = createStream()) {
+            restoredStream.restore(uploadId, partETags, bufferedBytes);
+            restoredStream.write(content, suspendOffset, content.length - suspendOffset);
+        }
+
+        assertArrayEquals(content, s3Client.getObjectBytes(BUCKET_NAME, OBJECT_KEY));
+        assertEquals(1, initiatedUploads.get());
+        assertEquals(3, uploadedParts.get());
+    }
+
+    @Test
+    public void continuesSuspendedOutputSmallerThanPart() throws IOException {
+        byte[] content = createContent(2000);
+
+        AmazonS3MultipartOutputStream outputStream = createStream();
+        outputStream.write(content, 0, 1000);
+        byte[] bufferedBytes = outputStream.getBufferedBytes();
+        outputStream.suspend();
+
+        try (AmazonS3MultipartOutputStream restoredStream = createStream()) {
+            restoredStream.restore(outputStream.getUploadId(), outputStream.awaitUploadedParts(),
+                    bufferedBytes);
+            restoredStream.write(content, 1000, 1000);
+        }
+
+        assertArrayEquals(content, s3Client.getObjectBytes(BUCKET_NAME, OBJECT_KEY));
+        assertEquals(0, initiatedUploads.get());
+    }
+
+    @Test
+    public void abortDiscardsUploadedParts() throws IOException {
+        AmazonS3MultipartOutputStream outputStream = createStream();
+        outputStream.write(createContent(PART_SIZE + 1000));
+        outputStream.abort();
+        outputStream.close();
+
+        assertNull(s3Client.getObjectBytes(BUCKET_NAME, OBJECT_KEY));
+        assertEquals(1, abortedUploads.get());
+        try {
+            outputStream.write(1);
+            fail("Write after abort should fail");
+        } catch (IOException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void abortsUploadIfPartFails() throws IOException {
+        failUploads.set(true);
+
+        AmazonS3MultipartOutputStream outputStream = createStream();
+        outputStream.write(createContent(PART_SIZE + 1000));
+        try {
+            outputStream.close();
+            fail("Close should fail");
+        } catch (IOException ex) {
+            // expected
+        }
+
+        assertNull(s3Client.getObjectBytes(BUCKET_NAME, OBJECT_KEY));
+        assertEquals(1, abortedUploads.get());
+    }
+
+    private AmazonS3MultipartOutputStream createStream() {
+        return new AmazonS3MultipartOutputStream(s3Client, BUCKET_NAME, OBJECT_KEY, PART_SIZE, 3);
+    }
+
+    private static byte[] createContent(int length) {
+        byte[] bytes = new byte[length];
+        new Random().nextBytes(bytes);
+        return bytes;
+    }
+}
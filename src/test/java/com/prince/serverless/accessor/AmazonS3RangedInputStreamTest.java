@@ -0,0 +1,128 @@
+package com.prince.serverless.accessor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+
+import com.prince.serverless.config.AmazonS3ClientConfig;
+import com.prince.serverless.local.InMemoryAmazonS3;
+import com.prince.serverless.util.StageTimer;
+
+/**
+ * Tests of objects read in byte range parts, with a stand-in which records the ranged gets.
+ *
+ * @author Prince Raj
+ */
+public class AmazonS3RangedInputStreamTest {
+
+    private static final String BUCKET_NAME = "bucket";
+
+    private static final String OBJECT_KEY = "input.csv";
+
+    private final List<long[]> ranges = new CopyOnWriteArrayList<>();
+
+    private final InMemoryAmazonS3 s3Client = new InMemoryAmazonS3() {
+
+        @Override
+        public S3Object getObject(GetObjectRequest request) {
+            ranges.add(request.getRange());
+            return super.getObject(request);
+        }
+    };
+
+    private final byte[] content = createContent(10000);
+
+    @Test
+    public void readsObjectInOrderOfParts() throws IOException {
+        String eTag = putObject();
+
+        try (InputStream inputStream = new AmazonS3RangedInputStream(s3Client, BUCKET_NAME,
+                OBJECT_KEY, eTag, 100, content.length, 1024, 3)) {
+            assertEquals(content.length - 100, IOUtils.toByteArray(inputStream).length);
+        }
+
+        assertEquals(10, ranges.size());
+        for (long[] range : ranges) {
+            assertTrue(range[1] - range[0] + 1 <= 1024);
+        }
+        try (InputStream inputStream = new AmazonS3RangedInputStream(s3Client, BUCKET_NAME,
+                OBJECT_KEY, eTag, 0, content.length, 1000, 2)) {
+            assertArrayEquals(content, IOUtils.toByteArray(inputStream));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void failsReadOfReplacedObject() throws IOException {
+        String eTag = putObject();
+        s3Client.putObjectBytes(BUCKET_NAME, OBJECT_KEY, createContent(10000));
+
+        try (InputStream inputStream = new AmazonS3RangedInputStream(s3Client, BUCKET_NAME,
+                OBJECT_KEY, eTag, 0, content.length, 1024, 3)) {
+            IOUtils.toByteArray(inputStream);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsLessThanTwoParts() {
+        new AmazonS3RangedInputStream(s3Client, BUCKET_NAME, OBJECT_KEY, null, 0, content.length,
+                1024, 1);
+    }
+
+    @Test
+    public void shrinksPartsWhichDoNotFitInMaxBufferedBytes() throws IOException {
+        String eTag = putObject();
+        AmazonS3ClientConfig s3ClientConfig = new AmazonS3ClientConfig();
+        s3ClientConfig.setBucketName(BUCKET_NAME);
+        s3ClientConfig.setRangedReadEnabled(true);
+        s3ClientConfig.setReadPartSize(4096);
+        s3ClientConfig.setReadParallelism(4);
+        s3ClientConfig.setReadMaxBufferedBytes(3000);
+        AmazonS3ClientAccessor s3ClientAccessor =
+                new AmazonS3ClientAccessor(s3ClientConfig, s3Client);
+        s3ClientAccessor.init();
+
+        try (InputStream inputStream = s3ClientAccessor.getInputStream(OBJECT_KEY, eTag, 0,
+                content.length, StageTimer.NONE)) {
+            assertArrayEquals(content, IOUtils.toByteArray(inputStream));
+        }
+
+        // two parts are buffered at a time, the part being read and the one being fetched
+        assertEquals(7, ranges.size());
+        for (long[] range : ranges) {
+            assertTrue(range[1] - range[0] + 1 <= 1500);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsMaxBufferedBytesWhichFitNoParts() {
+        AmazonS3ClientConfig s3ClientConfig = new AmazonS3ClientConfig();
+        s3ClientConfig.setRangedReadEnabled(true);
+        s3ClientConfig.setReadPartSize(4096);
+        s3ClientConfig.setReadMaxBufferedBytes(1);
+
+        new AmazonS3ClientAccessor(s3ClientConfig, s3Client).init();
+    }
+
+    private String putObject() {
+        s3Client.putObjectBytes(BUCKET_NAME, OBJECT_KEY, content);
+        return s3Client.getObjectMetadata(BUCKET_NAME, OBJECT_KEY).getETag();
+    }
+
+    private static byte[] createContent(int length) {
+        byte[] bytes = new byte[length];
+        new Random().nextBytes(bytes);
+        return bytes;
+    }
+}
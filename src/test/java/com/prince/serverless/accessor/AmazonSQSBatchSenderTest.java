@@ -0,0 +1,144 @@
+package com.prince.serverless.accessor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.prince.serverless.config.AmazonSQSClientConfig;
+import com.prince.serverless.util.StageTimer;
+
+/**
+ * Tests of outcomes of messages sent in batches, with an accessor whose batch sends are given by
+ * each test.
+ *
+ * @author Prince Raj
+ */
+public class AmazonSQSBatchSenderTest {
+
+    private static final String GROUP_ID = "email";
+
+    private final List<List<String>> sentBatches = Collections.synchronizedList(new ArrayList<>());
+
+    private final Map<String, Boolean> outcomes = new ConcurrentHashMap<>();
+
+    private AmazonSQSRetryScheduler retryScheduler;
+
+    @After
+    public void tearDown() {
+        if (retryScheduler != null) {
+            retryScheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void sendsFullBatchesAndReportsOutcomeOfEveryEntry() {
+        AmazonSQSBatchSender sender = createSender(3,
+                bodies -> CompletableFuture.completedFuture(Arrays.asList(true, false, true)));
+
+        for (int i = 0; i < 3; i++) {
+            send(sender, "message" + i);
+        }
+
+        assertEquals(Collections.singletonList(Arrays.asList("message0", "message1", "message2")),
+                sentBatches);
+        assertEquals(outcomes("message0", true, "message1", false, "message2", true), outcomes);
+    }
+
+    @Test
+    public void sendsMessagesLeftInBatchOnFlush() {
+        AmazonSQSBatchSender sender = createSender(10,
+                bodies -> CompletableFuture.completedFuture(Arrays.asList(true, true)));
+
+        send(sender, "message0");
+        send(sender, "message1");
+        assertEquals(0, sentBatches.size());
+
+        sender.flush();
+        assertEquals(outcomes("message0", true, "message1", true), outcomes);
+    }
+
+    @Test
+    public void failsEveryMessageOfBatchWhoseSendFails() {
+        AmazonSQSBatchSender sender = createSender(2, bodies -> {
+            CompletableFuture<List<Boolean>> future = new CompletableFuture<>();
+            future.completeExceptionally(new IllegalStateException("send failed"));
+            return future;
+        });
+
+        send(sender, "message0");
+        send(sender, "message1");
+
+        assertEquals(outcomes("message0", false, "message1", false), outcomes);
+    }
+
+    @Test
+    public void failsEveryMessageOfBatchWhoseSendThrows() {
+        AmazonSQSBatchSender sender = createSender(2, bodies -> {
+            throw new IllegalStateException("send failed");
+        });
+
+        send(sender, "message0");
+        send(sender, "message1");
+
+        assertEquals(outcomes("message0", false, "message1", false), outcomes);
+    }
+
+    @Test
+    public void reportsOutcomeOfOtherMessagesWhenCallbackThrows() {
+        AmazonSQSBatchSender sender = createSender(3,
+                bodies -> CompletableFuture.completedFuture(Arrays.asList(true, true, true)));
+
+        send(sender, "message0");
+        sender.send("message1", status -> {
+            throw new IllegalStateException("callback failed");
+        });
+        send(sender, "message2");
+
+        assertEquals(outcomes("message0", true, "message2", true), outcomes);
+    }
+
+    private void send(AmazonSQSBatchSender sender, String message) {
+        sender.send(message, status -> outcomes.put(message, status));
+    }
+
+    private static Map<String, Boolean> outcomes(Object... messageOutcomes) {
+        Map<String, Boolean> outcomes = new HashMap<>();
+        for (int i = 0; i < messageOutcomes.length; i += 2) {
+            outcomes.put((String) messageOutcomes[i], (Boolean) messageOutcomes[i + 1]);
+        }
+
+        return outcomes;
+    }
+
+    private AmazonSQSBatchSender createSender(int maxBatchSize,
+            Function<List<String>, CompletableFuture<List<Boolean>>> sendBatch) {
+        AmazonSQSClientAccessor sqsClientAccessor =
+                new AmazonSQSClientAccessor(new AmazonSQSClientConfig()) {
+
+                    @Override
+                    public CompletableFuture<List<Boolean>> sendMessageBatchAsync(
+                            List<String> messageBodies, String groupId,
+                            Runnable throttleCallback) {
+                        sentBatches.add(new ArrayList<>(messageBodies));
+                        return sendBatch.apply(messageBodies);
+                    }
+                };
+
+        // retries are exhausted right away, so that outcomes are reported before send returns
+        retryScheduler = new AmazonSQSRetryScheduler(1, 0, 0, 1, 0);
+
+        return new AmazonSQSBatchSender(sqsClientAccessor, GROUP_ID, maxBatchSize, 60000,
+                () -> {}, retryScheduler, StageTimer.NONE);
+    }
+}
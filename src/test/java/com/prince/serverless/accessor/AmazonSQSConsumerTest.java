@@ -0,0 +1,212 @@
+package com.prince.serverless.accessor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.amazonaws.services.sqs.model.Message;
+
+import com.prince.serverless.config.AmazonSQSClientConfig;
+
+/**
+ * Tests of messages consumed by {@link AmazonSQSConsumer}, with an accessor which receives messages
+ * from a local queue and keeps the deletes and visibility changes of the consumer.
+ *
+ * @author Prince Raj
+ */
+public class AmazonSQSConsumerTest {
+
+    private final Queue<Message> queue = new ConcurrentLinkedQueue<>();
+
+    private final Set<String> deletedMessages = ConcurrentHashMap.newKeySet();
+
+    // receipt handle to visibility timeouts the message is changed to
+    private final Map<String, List<Integer>> visibilityTimeouts = new ConcurrentHashMap<>();
+
+    private final Map<String, AtomicInteger> handleCounts = new ConcurrentHashMap<>();
+
+    private final AmazonSQSClientConfig sqsClientConfig = new AmazonSQSClientConfig();
+
+    private AmazonSQSConsumer consumer;
+
+    @After
+    public void tearDown() throws InterruptedException {
+        if (consumer != null) {
+            consumer.stop(1, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void handlesAndDeletesEveryMessage() throws InterruptedException {
+        addMessages(95);
+        consumer = createConsumer(60, message -> true);
+
+        consumer.start();
+        awaitHandled(95);
+
+        assertTrue(consumer.stop(10, TimeUnit.SECONDS));
+        assertEquals(95, consumer.getReceivedCount());
+        assertEquals(95, consumer.getHandledCount());
+        assertEquals(95, consumer.getDeletedCount());
+        assertEquals(95, deletedMessages.size());
+        assertTrue(handleCounts.values().stream().allMatch(count -> count.get() == 1));
+    }
+
+    @Test
+    public void doesNotDeleteFailedMessages() throws InterruptedException {
+        addMessages(20);
+        consumer = createConsumer(60, message -> {
+            int index = Integer.parseInt(message.getBody());
+            if (index % 4 == 1) {
+                throw new IllegalStateException("handler failed");
+            }
+            return index % 4 != 3;
+        });
+
+        consumer.start();
+        awaitHandled(20);
+
+        assertTrue(consumer.stop(10, TimeUnit.SECONDS));
+        assertEquals(10, consumer.getHandledCount());
+        assertEquals(10, consumer.getFailedCount());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i % 2 == 0, deletedMessages.contains(receiptHandle(i)));
+        }
+    }
+
+    @Test
+    public void extendsVisibilityOfSlowMessages() throws InterruptedException {
+        addMessages(1);
+        consumer = createConsumer(1, message -> {
+            Thread.sleep(1500);
+            return true;
+        });
+
+        consumer.start();
+        awaitHandled(1);
+
+        assertTrue(consumer.stop(10, TimeUnit.SECONDS));
+        assertTrue(visibilityTimeouts.get(receiptHandle(0)).contains(1));
+        assertTrue(deletedMessages.contains(receiptHandle(0)));
+    }
+
+    @Test
+    public void releasesUnhandledMessagesOnStop() throws InterruptedException {
+        addMessages(5);
+        CountDownLatch handling = new CountDownLatch(1);
+        consumer = createConsumer(60, message -> {
+            handling.countDown();
+            new CountDownLatch(1).await();
+            return true;
+        });
+
+        consumer.start();
+        assertTrue(handling.await(10, TimeUnit.SECONDS));
+
+        assertFalse(consumer.stop(500, TimeUnit.MILLISECONDS));
+        assertEquals(0, deletedMessages.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Collections.singletonList(0), visibilityTimeouts.get(receiptHandle(i)));
+        }
+    }
+
+    private void addMessages(int count) {
+        for (int i = 0; i < count; i++) {
+            Message message = new Message();
+            message.setMessageId("message" + i);
+            message.setReceiptHandle(receiptHandle(i));
+            message.setBody(String.valueOf(i));
+            queue.add(message);
+        }
+    }
+
+    private static String receiptHandle(int index) {
+        return "handle" + index;
+    }
+
+    private void awaitHandled(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (consumer.getHandledCount() + consumer.getFailedCount() < count) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private AmazonSQSConsumer createConsumer(int visibilityTimeout,
+            AmazonSQSMessageHandler handler) {
+        sqsClientConfig.setConsumerReceiverThreads(2);
+        sqsClientConfig.setConsumerHandlerThreads(4);
+        sqsClientConfig.setConsumerQueueSize(8);
+        sqsClientConfig.setVisibilityTimeout(visibilityTimeout);
+        sqsClientConfig.setMaxBatchAgeMillis(50);
+
+        AmazonSQSClientAccessor sqsClientAccessor =
+                new AmazonSQSClientAccessor(sqsClientConfig) {
+
+                    @Override
+                    public List<Message> receiveMessages() {
+                        List<Message> messages = new ArrayList<>();
+                        Message message;
+                        while (messages.size() < 10 && (message = queue.poll()) != null) {
+                            messages.add(message);
+                        }
+                        if (messages.isEmpty()) {
+                            // long polling of an empty queue
+                            sleep(50);
+                        }
+
+                        return messages;
+                    }
+
+                    @Override
+                    public boolean deleteMessageBatch(List<Message> messages) {
+                        for (Message message : messages) {
+                            deletedMessages.add(message.getReceiptHandle());
+                        }
+
+                        return true;
+                    }
+
+                    @Override
+                    public List<Boolean> changeMessageVisibilityBatch(List<Message> messages,
+                            int visibilityTimeout) {
+                        for (Message message : messages) {
+                            visibilityTimeouts.computeIfAbsent(message.getReceiptHandle(),
+                                    handle -> Collections.synchronizedList(new ArrayList<>()))
+                                    .add(visibilityTimeout);
+                        }
+
+                        return new ArrayList<>(Collections.nCopies(messages.size(), true));
+                    }
+                };
+
+        return new AmazonSQSConsumer(sqsClientAccessor, sqsClientConfig, message -> {
+            handleCounts.computeIfAbsent(message.getReceiptHandle(), handle -> new AtomicInteger())
+                    .incrementAndGet();
+            return handler.handle(message);
+        });
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.prince.serverless.accessor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests of retries scheduled for failed messages, and of messages whose retry doesn't run.
+ *
+ * @author Prince Raj
+ */
+public class AmazonSQSRetrySchedulerTest {
+
+    private final AtomicInteger retries = new AtomicInteger();
+
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private AmazonSQSRetryScheduler retryScheduler;
+
+    @After
+    public void tearDown() {
+        if (retryScheduler != null) {
+            retryScheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void runsRetryOfFailedMessages() throws Exception {
+        retryScheduler = new AmazonSQSRetryScheduler(3, 0, 0, 2, 100);
+        CountDownLatch retried = new CountDownLatch(1);
+
+        assertTrue(retryScheduler.schedule(1, 10, retried::countDown, failures::incrementAndGet));
+
+        assertTrue(retried.await(10, TimeUnit.SECONDS));
+        assertEquals(10, retryScheduler.getRetriedMessages());
+        assertEquals(0, failures.get());
+    }
+
+    @Test
+    public void doesNotRetryOnceAttemptsAreExhausted() {
+        retryScheduler = new AmazonSQSRetryScheduler(3, 0, 0, 2, 100);
+
+        assertFalse(retryScheduler.schedule(3, 10, retries::incrementAndGet,
+                failures::incrementAndGet));
+
+        assertEquals(10, retryScheduler.getExhaustedMessages());
+        assertEquals(0, retryScheduler.getRetriedMessages());
+    }
+
+    @Test
+    public void doesNotRetryOnceBudgetIsExhausted() {
+        retryScheduler = new AmazonSQSRetryScheduler(3, 60000, 60000, 2, 15);
+
+        assertTrue(retryScheduler.schedule(1, 10, retries::incrementAndGet,
+                failures::incrementAndGet));
+        assertFalse(retryScheduler.schedule(1, 10, retries::incrementAndGet,
+                failures::incrementAndGet));
+
+        assertEquals(10, retryScheduler.getRetriedMessages());
+        assertEquals(10, retryScheduler.getExhaustedMessages());
+    }
+
+    @Test
+    public void failsMessagesOfRetryWhichThrows() throws Exception {
+        retryScheduler = new AmazonSQSRetryScheduler(3, 0, 0, 2, 100);
+        CountDownLatch failed = new CountDownLatch(1);
+
+        assertTrue(retryScheduler.schedule(1, 10, () -> {
+            throw new IllegalStateException("retry failed");
+        }, failed::countDown));
+
+        assertTrue(failed.await(10, TimeUnit.SECONDS));
+        assertEquals(10, retryScheduler.getExhaustedMessages());
+    }
+
+    @Test
+    public void failsMessagesOfRetriesDroppedOnShutdown() {
+        retryScheduler = new AmazonSQSRetryScheduler(3, 60000, 60000, 2, 100);
+        retryScheduler.schedule(1, 10, retries::incrementAndGet, failures::incrementAndGet);
+        retryScheduler.schedule(2, 10, retries::incrementAndGet, failures::incrementAndGet);
+
+        retryScheduler.shutdownNow();
+
+        assertEquals(0, retries.get());
+        assertEquals(2, failures.get());
+        assertEquals(20, retryScheduler.getExhaustedMessages());
+
+        // a retry scheduled after shutdown is refused, so the caller fails its messages
+        assertFalse(retryScheduler.schedule(1, 10, retries::incrementAndGet,
+                failures::incrementAndGet));
+        assertEquals(2, failures.get());
+    }
+}
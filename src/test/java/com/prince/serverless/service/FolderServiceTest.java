@@ -0,0 +1,91 @@
+package com.prince.serverless.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.support.GenericApplicationContext;
+
+import com.prince.serverless.local.LocalSpringConfig;
+import com.prince.serverless.model.FolderPart;
+import com.prince.serverless.model.InputFolder;
+
+/**
+ * Tests of folder state written by concurrent invocations.
+ *
+ * @author Prince Raj
+ */
+public class FolderServiceTest {
+
+    private static final int PART_COUNT = 8;
+
+    private static final String MARKER_FILE_PATH = LocalTestSupport.INPUT_FOLDER_PATH + "_SUCCESS";
+
+    private GenericApplicationContext context;
+
+    private FolderService folderService;
+
+    @Before
+    public void setUp() {
+        LocalTestSupport.setProperty("com.example.processing.folder.enabled", true);
+        LocalTestSupport.setProperty("com.example.processing.folder.max.write.attempts", 100);
+        context = LocalTestSupport.createContext(new LocalSpringConfig());
+        folderService = context.getBean(FolderService.class);
+
+        for (int i = 0; i < PART_COUNT; i++) {
+            LocalTestSupport.putInputFile(context,
+                    LocalTestSupport.INPUT_FOLDER_PATH + "ActiveUserFile_20190701.csv00" + i,
+                    LocalTestSupport.createInputFile(10 + i));
+        }
+        LocalTestSupport.putInputFile(context, MARKER_FILE_PATH, new byte[0]);
+    }
+
+    @After
+    public void tearDown() {
+        context.close();
+        LocalTestSupport.clearProperties();
+    }
+
+    @Test
+    public void startsPartsOfFolderOnce() throws Exception {
+        InputFolder inputFolder = folderService.list(MARKER_FILE_PATH);
+
+        assertEquals(PART_COUNT, inputFolder.getParts().size());
+        assertEquals("ActiveUserFile_20190701.csv*", inputFolder.getReportName());
+        assertTrue(folderService.start(inputFolder));
+        assertFalse(folderService.start(folderService.list(MARKER_FILE_PATH)));
+    }
+
+    @Test
+    public void completesLastPartOnce() throws Exception {
+        InputFolder inputFolder = folderService.list(MARKER_FILE_PATH);
+        assertTrue(folderService.start(inputFolder));
+
+        // parts complete at the same time, so conditional puts conflict
+        List<Callable<InputFolder>> tasks = new ArrayList<>();
+        for (FolderPart part : inputFolder.getParts()) {
+            tasks.add(() -> folderService.complete(part));
+        }
+
+        int lastParts = 0;
+        for (InputFolder processedFolder : LocalTestSupport.runConcurrently(tasks)) {
+            if (processedFolder != null) {
+                lastParts++;
+            }
+        }
+        assertEquals(1, lastParts);
+        assertTrue(folderService.load(LocalTestSupport.INPUT_FOLDER_PATH).getParts().stream()
+                .allMatch(FolderPart::isCompleted));
+
+        // a part is completed once
+        assertNull(folderService.complete(inputFolder.getParts().get(0)));
+    }
+}
@@ -0,0 +1,182 @@
+package com.prince.serverless.service;
+
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.context.support.GenericApplicationContext;
+
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+
+import com.prince.serverless.config.AmazonS3ClientConfig;
+import com.prince.serverless.local.InMemoryAWSLambda;
+import com.prince.serverless.local.InMemoryAmazonS3;
+import com.prince.serverless.local.LocalSpringConfig;
+import com.prince.serverless.util.Constants;
+
+/**
+ * Input data, application context with in-memory stand-ins of AWS services, and properties shared
+ * by tests of services. Properties are set as system properties, which take precedence over the
+ * properties file, so they should be set before a context is created.
+ *
+ * @author Prince Raj
+ */
+final class LocalTestSupport {
+
+    static final String INPUT_FOLDER_PATH = Constants.BASE_INPUT_FOLDER_NAME + "20190701/";
+
+    static final String INPUT_FILE_KEY = INPUT_FOLDER_PATH + "ActiveUserFile_20190701.csv000";
+
+    private static final long AWAIT_TIMEOUT_SECONDS = 60;
+
+    private static final List<String> PROPERTY_NAMES = new ArrayList<>();
+
+    private LocalTestSupport() {}
+
+    /**
+     * @param config local spring configuration
+     * @return refreshed application context
+     */
+    static GenericApplicationContext createContext(LocalSpringConfig config) {
+        GenericApplicationContext context = new GenericApplicationContext();
+        config.initialize(context);
+        context.refresh();
+
+        return context;
+    }
+
+    /**
+     * @param name property name, e.g. com.example.processing.shard.enabled
+     * @param value property value
+     */
+    static void setProperty(String name, Object value) {
+        System.setProperty(name, String.valueOf(value));
+        PROPERTY_NAMES.add(name);
+    }
+
+    /**
+     * Clear the properties set so far.
+     */
+    static void clearProperties() {
+        for (String name : PROPERTY_NAMES) {
+            System.clearProperty(name);
+        }
+        PROPERTY_NAMES.clear();
+    }
+
+    /**
+     * Create input file content of distinct users. Every 10th row has no email id and send flags
+     * vary, so that some rows are not applicable on one or both channels.
+     *
+     * @param rows number of rows, excluding header
+     * @return input file content
+     */
+    static byte[] createInputFile(int rows) {
+        StringBuilder builder = new StringBuilder(rows * 64);
+        builder.append(String.join(",", Constants.INPUT_FILE_HEADERS)).append('\n');
+
+        for (int i = 0; i < rows; i++) {
+            builder.append("userid").append(i).append(',')
+                    .append(i % 10 == 9 ? "" : "user" + i + "@example.com").append(',')
+                    .append(9000000000L + i).append(",01-Jul-2019,")
+                    .append(i % 5 == 4 ? 0 : 1).append(',').append(i % 3 == 2 ? 0 : 1)
+                    .append('\n');
+        }
+
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param context application context
+     * @param key s3 object key of input file
+     * @param content content of input file
+     */
+    static void putInputFile(GenericApplicationContext context, String key, byte[] content) {
+        context.getBean(InMemoryAmazonS3.class).putObjectBytes(getBucketName(context), key,
+                content);
+    }
+
+    /**
+     * @param context application context
+     * @param prefix key prefix
+     * @return keys of objects with the prefix
+     */
+    static List<String> listKeys(GenericApplicationContext context, String prefix) {
+        List<String> keys = new ArrayList<>();
+        for (S3ObjectSummary summary : context.getBean(InMemoryAmazonS3.class)
+                .listObjects(getBucketName(context), prefix).getObjectSummaries()) {
+            keys.add(summary.getKey());
+        }
+
+        return keys;
+    }
+
+    /**
+     * @param context application context
+     * @return content of the only output file, null if there is none
+     */
+    static String readOutputFile(GenericApplicationContext context) {
+        List<String> keys = listKeys(context, Constants.BASE_OUTPUT_FOLDER_NAME);
+        if (keys.isEmpty()) {
+            return null;
+        }
+        assertTrue("Output files: " + keys, keys.size() == 1);
+
+        return new String(context.getBean(InMemoryAmazonS3.class)
+                .getObjectBytes(getBucketName(context), keys.get(0)), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Wait until invocations of the local function, and the ones made by them, are done.
+     *
+     * @param context application context
+     * @throws InterruptedException if interrupted while waiting
+     */
+    static void awaitInvocations(GenericApplicationContext context) throws InterruptedException {
+        assertTrue(context.getBean(InMemoryAWSLambda.class).awaitIdle(AWAIT_TIMEOUT_SECONDS,
+                TimeUnit.SECONDS));
+    }
+
+    /**
+     * Run tasks at the same time, each on a thread of its own.
+     *
+     * @param tasks tasks
+     * @return results of the tasks, in order of tasks
+     * @throws Exception if any task fails
+     */
+    static <T> List<T> runConcurrently(List<Callable<T>> tasks) throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(tasks.size());
+        try {
+            CountDownLatch startLatch = new CountDownLatch(1);
+            List<Future<T>> futures = new ArrayList<>();
+            for (Callable<T> task : tasks) {
+                futures.add(executorService.submit(() -> {
+                    startLatch.await();
+                    return task.call();
+                }));
+            }
+            startLatch.countDown();
+
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(AWAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            }
+
+            return results;
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static String getBucketName(GenericApplicationContext context) {
+        return context.getBean(AmazonS3ClientConfig.class).getBucketName();
+    }
+}
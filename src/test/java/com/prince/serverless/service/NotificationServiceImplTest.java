@@ -0,0 +1,223 @@
+package com.prince.serverless.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.support.GenericApplicationContext;
+
+import com.amazonaws.services.s3.event.S3EventNotification;
+import com.amazonaws.services.s3.event.S3EventNotification.S3EventNotificationRecord;
+
+import com.prince.serverless.config.AmazonS3ClientConfig;
+import com.prince.serverless.config.AmazonSQSClientConfig;
+import com.prince.serverless.local.InMemoryAWSLambda;
+import com.prince.serverless.local.InMemoryAmazonS3;
+import com.prince.serverless.local.InMemoryAmazonSQS;
+import com.prince.serverless.local.LocalContext;
+import com.prince.serverless.local.LocalSpringConfig;
+import com.prince.serverless.model.EventResponse;
+import com.prince.serverless.util.Constants;
+
+/**
+ * Tests of files processed across invocations of the local function, which are checked against
+ * output of the same file processed in a single invocation.
+ *
+ * @author Prince Raj
+ */
+public class NotificationServiceImplTest {
+
+    private static final int ROWS = 3000;
+
+    // invocations suspend once less than the margin is left
+    private static final long FUNCTION_TIMEOUT_MILLIS = 1000;
+
+    private static final long DEADLINE_MARGIN_MILLIS = 700;
+
+    private static final long SEND_LATENCY_MICROS = 20000;
+
+    private final byte[] inputFile = LocalTestSupport.createInputFile(ROWS);
+
+    private String expectedOutput;
+
+    private int expectedMessageCount;
+
+    private GenericApplicationContext context;
+
+    @Before
+    public void processInSingleInvocation() throws Exception {
+        GenericApplicationContext singleContext =
+                LocalTestSupport.createContext(new LocalSpringConfig());
+        try {
+            LocalTestSupport.putInputFile(singleContext, LocalTestSupport.INPUT_FILE_KEY,
+                    inputFile);
+            singleContext.getBean(NotificationService.class)
+                    .processFile(LocalTestSupport.INPUT_FILE_KEY);
+
+            expectedOutput = LocalTestSupport.readOutputFile(singleContext);
+            expectedMessageCount = getMessageCount(singleContext);
+        } finally {
+            singleContext.close();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+        LocalTestSupport.clearProperties();
+    }
+
+    @Test
+    public void resumesFileFromCheckpointInNextInvocation() throws Exception {
+        LocalTestSupport.setProperty("com.example.processing.checkpoint.deadline.margin.millis",
+                DEADLINE_MARGIN_MILLIS);
+        LocalTestSupport.setProperty("com.example.processing.checkpoint.max.invocations", 100);
+        LocalSpringConfig config = new LocalSpringConfig(FUNCTION_TIMEOUT_MILLIS);
+        context = createContext(config);
+
+        EventResponse response = context.getBean(NotificationService.class)
+                .processFile(LocalTestSupport.INPUT_FILE_KEY, config.newInvocationContext());
+        assertTrue(response.isContinued());
+        assertNull(LocalTestSupport.readOutputFile(context));
+
+        LocalTestSupport.awaitInvocations(context);
+
+        assertEquals(expectedOutput, LocalTestSupport.readOutputFile(context));
+        assertEquals(expectedMessageCount, getMessageCount(context));
+        assertEquals(0,
+                LocalTestSupport.listKeys(context, Constants.BASE_CHECKPOINT_FOLDER_NAME).size());
+    }
+
+    @Test
+    public void resumesCheckpointInOneOfRacingInvocations() throws Exception {
+        LocalTestSupport.setProperty("com.example.processing.checkpoint.deadline.margin.millis",
+                DEADLINE_MARGIN_MILLIS);
+        LocalSpringConfig config = new LocalSpringConfig(FUNCTION_TIMEOUT_MILLIS);
+        context = createContext(config);
+
+        // continuation is left to the racing invocations
+        AtomicInteger continuations = new AtomicInteger();
+        context.getBean(InMemoryAWSLambda.class).registerFunction(LocalSpringConfig.FUNCTION_NAME,
+                payload -> continuations.incrementAndGet());
+        NotificationService notificationService = context.getBean(NotificationService.class);
+        assertTrue(notificationService.processFile(LocalTestSupport.INPUT_FILE_KEY,
+                config.newInvocationContext()).isContinued());
+
+        // e.g. a continuation and a duplicate event of the file, which don't suspend
+        List<Callable<EventResponse>> tasks = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            tasks.add(() -> notificationService.processFile(LocalTestSupport.INPUT_FILE_KEY,
+                    new LocalContext(LocalSpringConfig.FUNCTION_NAME,
+                            FUNCTION_TIMEOUT_MILLIS * 60)));
+        }
+        LocalTestSupport.runConcurrently(tasks);
+        LocalTestSupport.awaitInvocations(context);
+
+        assertEquals(1, continuations.get());
+        assertEquals(expectedOutput, LocalTestSupport.readOutputFile(context));
+        assertEquals(expectedMessageCount, getMessageCount(context));
+        assertEquals(0,
+                LocalTestSupport.listKeys(context, Constants.BASE_CHECKPOINT_FOLDER_NAME).size());
+    }
+
+    @Test
+    public void discardsCheckpointOfFileWhichFailsItsRetries() throws Exception {
+        LocalTestSupport.setProperty("com.example.processing.checkpoint.deadline.margin.millis",
+                DEADLINE_MARGIN_MILLIS);
+        LocalTestSupport.setProperty("com.example.processing.checkpoint.max.retries", 2);
+        LocalSpringConfig config = new LocalSpringConfig(FUNCTION_TIMEOUT_MILLIS);
+        context = createContext(config);
+
+        // output saved with the checkpoint is lost before every later invocation
+        AtomicInteger invocations = new AtomicInteger();
+        NotificationService notificationService = context.getBean(NotificationService.class);
+        context.getBean(InMemoryAWSLambda.class).registerFunction(LocalSpringConfig.FUNCTION_NAME,
+                payload -> {
+                    invocations.incrementAndGet();
+                    deleteOutputTails();
+                    invoke(notificationService, config, payload);
+                });
+
+        EventResponse response = notificationService.processFile(LocalTestSupport.INPUT_FILE_KEY,
+                config.newInvocationContext());
+        assertTrue(response.isContinued());
+
+        LocalTestSupport.awaitInvocations(context);
+
+        // continuation and its 2 retries
+        assertEquals(3, invocations.get());
+        assertNull(LocalTestSupport.readOutputFile(context));
+        assertEquals(0,
+                LocalTestSupport.listKeys(context, Constants.BASE_CHECKPOINT_FOLDER_NAME).size());
+    }
+
+    @Test
+    public void mergesShardsOfFileInOrder() throws Exception {
+        LocalTestSupport.setProperty("com.example.processing.shard.enabled", true);
+        LocalTestSupport.setProperty("com.example.processing.shard.min.file.size", 1);
+        LocalTestSupport.setProperty("com.example.processing.shard.size", 16 * 1024);
+        LocalSpringConfig config = new LocalSpringConfig(FUNCTION_TIMEOUT_MILLIS * 60, 4);
+        context = createContext(config);
+        context.getBean(InMemoryAmazonSQS.class).setSendLatencyMicros(0);
+
+        EventResponse response = context.getBean(NotificationService.class)
+                .processFile(LocalTestSupport.INPUT_FILE_KEY, config.newInvocationContext());
+        assertTrue(response.getShardCount() > 1);
+
+        LocalTestSupport.awaitInvocations(context);
+
+        assertEquals(expectedOutput, LocalTestSupport.readOutputFile(context));
+        assertEquals(expectedMessageCount, getMessageCount(context));
+        assertEquals(0,
+                LocalTestSupport.listKeys(context, Constants.BASE_SHARD_FOLDER_NAME).size());
+    }
+
+    private GenericApplicationContext createContext(LocalSpringConfig config) {
+        GenericApplicationContext localContext = LocalTestSupport.createContext(config);
+        localContext.getBean(InMemoryAmazonSQS.class).setSendLatencyMicros(SEND_LATENCY_MICROS);
+        LocalTestSupport.putInputFile(localContext, LocalTestSupport.INPUT_FILE_KEY, inputFile);
+
+        return localContext;
+    }
+
+    private void deleteOutputTails() {
+        InMemoryAmazonS3 s3Client = context.getBean(InMemoryAmazonS3.class);
+        String bucketName = context.getBean(AmazonS3ClientConfig.class).getBucketName();
+        for (String key : LocalTestSupport.listKeys(context,
+                Constants.BASE_CHECKPOINT_FOLDER_NAME)) {
+            if (key.endsWith(Constants.CHECKPOINT_TAIL_FILE_EXTENSION)) {
+                s3Client.deleteObject(bucketName, key);
+            }
+        }
+    }
+
+    private static void invoke(NotificationService notificationService, LocalSpringConfig config,
+            String payload) {
+        List<String> objectKeys = new ArrayList<>();
+        for (S3EventNotificationRecord record : S3EventNotification.parseJson(payload)
+                .getRecords()) {
+            objectKeys.add(record.getS3().getObject().getKey());
+        }
+
+        try {
+            notificationService.processFiles(objectKeys, config.newInvocationContext());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static int getMessageCount(GenericApplicationContext context) {
+        return context.getBean(InMemoryAmazonSQS.class)
+                .getMessageCount(context.getBean(AmazonSQSClientConfig.class).getQueueUrl());
+    }
+}
@@ -0,0 +1,229 @@
+package com.prince.serverless.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.context.support.GenericApplicationContext;
+
+import com.amazonaws.services.lambda.runtime.Context;
+
+import com.prince.serverless.local.InMemoryAWSLambda;
+import com.prince.serverless.local.LocalSpringConfig;
+import com.prince.serverless.model.Shard;
+import com.prince.serverless.model.ShardedFile;
+
+/**
+ * Tests of splitting a file into shards and of shard state written by concurrent invocations.
+ * Shard events are counted instead of processed.
+ *
+ * @author Prince Raj
+ */
+public class ShardServiceTest {
+
+    private static final int SHARD_SIZE = 4096;
+
+    private static final String OUTPUT_FILE_PATH = "output.csv";
+
+    private final LocalSpringConfig config = new LocalSpringConfig();
+
+    private final AtomicInteger shardInvocations = new AtomicInteger();
+
+    private GenericApplicationContext context;
+
+    private ShardService shardService;
+
+    @After
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+        LocalTestSupport.clearProperties();
+    }
+
+    @Test
+    public void splitsAtRowBoundaries() throws Exception {
+        // a row longer than a shard leaves no row for the next shard
+        ByteArrayOutputStream inputFile = new ByteArrayOutputStream();
+        inputFile.write(LocalTestSupport.createInputFile(500));
+        StringBuilder longRow = new StringBuilder("userid500,");
+        for (int i = 0; i < SHARD_SIZE * 2; i++) {
+            longRow.append('a');
+        }
+        inputFile.write(longRow.append("@example.com,9000000500,01-Jul-2019,1,1\n").toString()
+                .getBytes(StandardCharsets.UTF_8));
+        String rows = new String(LocalTestSupport.createInputFile(500), StandardCharsets.UTF_8);
+        inputFile.write(rows.substring(rows.indexOf('\n') + 1).getBytes(StandardCharsets.UTF_8));
+        byte[] content = inputFile.toByteArray();
+        createShardService(content);
+
+        ShardedFile shardedFile = split();
+
+        assertNotNull(shardedFile);
+        List<Shard> shards = shardedFile.getShards();
+        assertTrue(shards.size() > 1);
+        assertEquals(new String(content, StandardCharsets.UTF_8).indexOf('\n') + 1,
+                shards.get(0).getStartOffset());
+        assertEquals(content.length, shards.get(shards.size() - 1).getEndOffset());
+        for (int i = 0; i < shards.size(); i++) {
+            Shard shard = shards.get(i);
+            assertTrue(shard.getEndOffset() > shard.getStartOffset());
+            assertEquals('\n', content[(int) shard.getEndOffset() - 1]);
+            if (i > 0) {
+                assertEquals(shards.get(i - 1).getEndOffset(), shard.getStartOffset());
+            }
+        }
+    }
+
+    @Test
+    public void doesNotSplitSmallFile() throws Exception {
+        createShardService(LocalTestSupport.createInputFile(10));
+
+        assertNull(split());
+    }
+
+    @Test
+    public void startsShardsOfFileOnce() throws Exception {
+        createShardService(LocalTestSupport.createInputFile(1000));
+
+        ShardedFile shardedFile = start();
+        assertFalse(shardService.start(LocalTestSupport.INPUT_FILE_KEY,
+                LocalTestSupport.INPUT_FILE_KEY, split(), newContext()));
+
+        LocalTestSupport.awaitInvocations(context);
+        assertEquals(shardedFile.getShards().size(), shardInvocations.get());
+    }
+
+    @Test
+    public void completesLastShardOnce() throws Exception {
+        LocalTestSupport.setProperty("com.example.processing.shard.max.write.attempts", 100);
+        createShardService(LocalTestSupport.createInputFile(1000));
+        ShardedFile shardedFile = start();
+
+        // shards complete at the same time, so conditional puts conflict
+        List<Callable<ShardedFile>> tasks = new ArrayList<>();
+        for (int i = 0; i < shardedFile.getShards().size(); i++) {
+            int index = i;
+            tasks.add(() -> {
+                ShardedFile startedFile = shardService.load(LocalTestSupport.INPUT_FILE_KEY);
+                return shardService.complete(LocalTestSupport.INPUT_FILE_KEY, startedFile,
+                        index, startedFile.getShards().get(index));
+            });
+        }
+
+        int lastShards = 0;
+        for (ShardedFile completedFile : LocalTestSupport.runConcurrently(tasks)) {
+            if (completedFile != null) {
+                lastShards++;
+            }
+        }
+        assertEquals(1, lastShards);
+        assertTrue(shardService.load(LocalTestSupport.INPUT_FILE_KEY).getShards().stream()
+                .allMatch(Shard::isCompleted));
+    }
+
+    @Test
+    public void retriesFailedShardUpToMaxRetries() throws Exception {
+        LocalTestSupport.setProperty("com.example.processing.shard.max.retries", 2);
+        createShardService(LocalTestSupport.createInputFile(1000));
+        int shardCount = start().getShards().size();
+
+        for (int retry = 1; retry <= 3; retry++) {
+            ShardedFile startedFile = shardService.load(LocalTestSupport.INPUT_FILE_KEY);
+            boolean retried = shardService.retry("shard-key", LocalTestSupport.INPUT_FILE_KEY,
+                    startedFile, 0, startedFile.getShards().get(0), newContext());
+
+            assertEquals(retry <= 2, retried);
+        }
+
+        Shard shard = shardService.load(LocalTestSupport.INPUT_FILE_KEY).getShards().get(0);
+        assertEquals(2, shard.getRetryCount());
+        assertFalse(shard.isCompleted());
+
+        LocalTestSupport.awaitInvocations(context);
+        assertEquals(shardCount + 2, shardInvocations.get());
+    }
+
+    @Test
+    public void takesOverStaleShards() throws Exception {
+        LocalTestSupport.setProperty("com.example.processing.shard.lease.millis", 0);
+        createShardService(LocalTestSupport.createInputFile(1000));
+        start();
+        ShardedFile staleFile = shardService.load(LocalTestSupport.INPUT_FILE_KEY);
+
+        Thread.sleep(10);
+        start();
+
+        // a shard of the stale shards doesn't complete the restarted one
+        assertNull(shardService.complete(LocalTestSupport.INPUT_FILE_KEY, staleFile, 0,
+                staleFile.getShards().get(0)));
+        assertFalse(shardService.load(LocalTestSupport.INPUT_FILE_KEY).getShards().get(0)
+                .isCompleted());
+    }
+
+    @Test
+    public void restartsOnlyPendingAndFailedShardsOfStaleShards() throws Exception {
+        LocalTestSupport.setProperty("com.example.processing.shard.lease.millis", 0);
+        createShardService(LocalTestSupport.createInputFile(1000));
+        int shardCount = start().getShards().size();
+
+        ShardedFile startedFile = shardService.load(LocalTestSupport.INPUT_FILE_KEY);
+        shardService.complete(LocalTestSupport.INPUT_FILE_KEY, startedFile, 0,
+                startedFile.getShards().get(0));
+        startedFile = shardService.load(LocalTestSupport.INPUT_FILE_KEY);
+        Shard failedShard = startedFile.getShards().get(1);
+        failedShard.setFailed(true);
+        shardService.complete(LocalTestSupport.INPUT_FILE_KEY, startedFile, 1, failedShard);
+
+        Thread.sleep(10);
+        start();
+
+        List<Shard> shards = shardService.load(LocalTestSupport.INPUT_FILE_KEY).getShards();
+        assertTrue(shards.get(0).isCompleted());
+        assertFalse(shards.get(1).isCompleted());
+        assertFalse(shards.get(1).isFailed());
+
+        // completed shard isn't notified again
+        LocalTestSupport.awaitInvocations(context);
+        assertEquals(shardCount * 2 - 1, shardInvocations.get());
+    }
+
+    private void createShardService(byte[] inputFile) {
+        LocalTestSupport.setProperty("com.example.processing.shard.enabled", true);
+        LocalTestSupport.setProperty("com.example.processing.shard.min.file.size", 1);
+        LocalTestSupport.setProperty("com.example.processing.shard.size", SHARD_SIZE);
+
+        context = LocalTestSupport.createContext(config);
+        context.getBean(InMemoryAWSLambda.class).registerFunction(LocalSpringConfig.FUNCTION_NAME,
+                payload -> shardInvocations.incrementAndGet());
+        LocalTestSupport.putInputFile(context, LocalTestSupport.INPUT_FILE_KEY, inputFile);
+        shardService = context.getBean(ShardService.class);
+    }
+
+    private ShardedFile start() throws Exception {
+        ShardedFile shardedFile = split();
+        assertTrue(shardService.start(LocalTestSupport.INPUT_FILE_KEY,
+                LocalTestSupport.INPUT_FILE_KEY, shardedFile, newContext()));
+
+        return shardedFile;
+    }
+
+    private ShardedFile split() throws Exception {
+        return shardService.split(LocalTestSupport.INPUT_FILE_KEY, OUTPUT_FILE_PATH, newContext());
+    }
+
+    private Context newContext() {
+        return config.newInvocationContext();
+    }
+}
@@ -0,0 +1,87 @@
+package com.prince.serverless.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.junit.Test;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.context.support.GenericApplicationContext;
+
+import com.prince.serverless.config.SuppressionConfig;
+import com.prince.serverless.local.LocalSpringConfig;
+import com.prince.serverless.util.ChannelType;
+
+/**
+ * @author Prince Raj
+ */
+public class SuppressionServiceTest {
+
+    private final SuppressionService suppressionService = createSuppressionService("userid");
+
+    @Test
+    public void userIdsWithPrefixAreKeyedByTheirNumber() {
+        assertEquals(12345, suppressionService.getUserKey("userid12345"));
+        assertEquals(0, suppressionService.getUserKey("userid0"));
+        assertEquals(0xFFFFFFFFL, suppressionService.getUserKey("userid4294967295"));
+    }
+
+    @Test
+    public void userIdsWhichMayCollideAreNotKeyed() {
+        assertEquals(-1, suppressionService.getUserKey("abc12"));
+        assertEquals(-1, suppressionService.getUserKey("xyz12"));
+        assertEquals(-1, suppressionService.getUserKey("userid012"));
+        assertEquals(-1, suppressionService.getUserKey("userid12a"));
+        assertEquals(-1, suppressionService.getUserKey("userid"));
+        assertEquals(-1, suppressionService.getUserKey("userid4294967296"));
+        assertEquals(-1, suppressionService.getUserKey(null));
+    }
+
+    @Test
+    public void userIdsAreNumbersWithoutPrefix() {
+        SuppressionService numericIds = createSuppressionService("");
+
+        assertEquals(12, numericIds.getUserKey("12"));
+        assertEquals(-1, numericIds.getUserKey("012"));
+        assertEquals(-1, numericIds.getUserKey("userid12"));
+    }
+
+    @Test
+    public void mergesUsersOfConcurrentFiles() throws Exception {
+        LocalTestSupport.setProperty("com.example.suppression.max.write.attempts", 100);
+        GenericApplicationContext context = LocalTestSupport.createContext(new LocalSpringConfig());
+        try {
+            SuppressionService localSuppressionService =
+                    context.getBean(SuppressionService.class);
+            LocalDate day = LocalDate.of(2019, 7, 1);
+
+            // files merge into the bitmap of the day at the same time, so conditional puts conflict
+            List<Callable<Boolean>> tasks = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                RoaringBitmap userKeys = new RoaringBitmap();
+                userKeys.add(i * 1000L, (i + 1) * 1000L);
+                tasks.add(() -> localSuppressionService.merge(ChannelType.EMAIL, day, userKeys));
+            }
+
+            for (boolean merged : LocalTestSupport.runConcurrently(tasks)) {
+                assertTrue(merged);
+            }
+            assertEquals(8000,
+                    localSuppressionService.load(ChannelType.EMAIL, day).getCardinality());
+        } finally {
+            context.close();
+            LocalTestSupport.clearProperties();
+        }
+    }
+
+    private static SuppressionService createSuppressionService(String userIdPrefix) {
+        SuppressionConfig suppressionConfig = new SuppressionConfig();
+        suppressionConfig.setUserIdPrefix(userIdPrefix);
+
+        return new SuppressionService(null, suppressionConfig);
+    }
+}
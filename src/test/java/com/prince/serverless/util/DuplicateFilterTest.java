@@ -0,0 +1,78 @@
+package com.prince.serverless.util;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.prince.serverless.model.FileItem;
+
+/**
+ * @author Prince Raj
+ */
+public class DuplicateFilterTest {
+
+    private static final String HEADER = "userid,emailid,mobile,date,sendemail,sendsms\n";
+
+    @Test
+    public void rowsWithoutUserIdAreKeyedByAddress() throws IOException {
+        List<FileItem> fileItems = filter(HEADER
+                + ",a@example.com,9000000001,20190701,1,1\n"
+                + ",b@example.com,9000000002,20190701,1,1\n"
+                + ",a@example.com,9000000003,20190701,1,1\n");
+
+        assertFalse(fileItems.get(0).isDuplicate(ChannelType.EMAIL));
+        assertFalse(fileItems.get(0).isDuplicate(ChannelType.SMS));
+        assertFalse(fileItems.get(1).isDuplicate(ChannelType.EMAIL));
+        assertFalse(fileItems.get(1).isDuplicate(ChannelType.SMS));
+        assertTrue(fileItems.get(2).isDuplicate(ChannelType.EMAIL));
+        assertFalse(fileItems.get(2).isDuplicate(ChannelType.SMS));
+    }
+
+    @Test
+    public void rowsWithUserIdAreKeyedByUserIdAndAddress() throws IOException {
+        List<FileItem> fileItems = filter(HEADER
+                + "u1,a@example.com,9000000001,20190701,1,1\n"
+                + "u1,b@example.com,9000000002,20190701,1,1\n"
+                + "u2,a@example.com,9000000003,20190701,1,0\n"
+                + "u3,c@example.com,9000000004,20190701,1,1\n");
+
+        assertFalse(fileItems.get(0).isDuplicate(ChannelType.EMAIL));
+        assertTrue(fileItems.get(1).isDuplicate(ChannelType.EMAIL));
+        assertTrue(fileItems.get(1).isDuplicate(ChannelType.SMS));
+        assertTrue(fileItems.get(2).isDuplicate(ChannelType.EMAIL));
+        assertFalse(fileItems.get(3).isDuplicate(ChannelType.EMAIL));
+        assertFalse(fileItems.get(3).isDuplicate(ChannelType.SMS));
+    }
+
+    private static List<FileItem> filter(String content) throws IOException {
+        DuplicateFilter duplicateFilter = new DuplicateFilter();
+        List<FileItem> fileItems = new ArrayList<>();
+
+        try (InputFileParser parser = new InputFileParser(
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)))) {
+            parser.readHeader();
+            while (parser.nextRow()) {
+                InputFileParser.Row row = parser.getRow();
+
+                FileItem fileItem = new FileItem();
+                fileItem.setUserId(row.getUserId());
+                fileItem.setEmailId(row.getEmailId());
+                fileItem.setMobileNumber(row.getMobileNumber());
+                fileItem.setSendEmail(row.isSendEmail());
+                fileItem.setSendSms(row.isSendSms());
+
+                duplicateFilter.filter(row, fileItem);
+                fileItems.add(fileItem);
+            }
+        }
+
+        return fileItems;
+    }
+}
@@ -0,0 +1,169 @@
+package com.prince.serverless.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+
+import com.prince.serverless.accessor.AmazonSQSBatchSender;
+import com.prince.serverless.accessor.AmazonSQSClientAccessor;
+import com.prince.serverless.config.AmazonSQSClientConfig;
+import com.prince.serverless.exception.EngineServiceException;
+import com.prince.serverless.model.Envelope;
+
+/**
+ * Tests of envelopes sent by {@link EnvelopeSender} and decoded by {@link EnvelopeDecoder}, with an
+ * accessor which keeps the sent messages.
+ *
+ * @author Prince Raj
+ */
+public class EnvelopeSenderTest {
+
+    private static final String DATE = "01-Jul-2019";
+
+    private final PayloadEncoder payloadEncoder = new PayloadEncoder(false);
+
+    private final List<String> messageBodies = new ArrayList<>();
+
+    private final Map<String, Boolean> outcomes = new ConcurrentHashMap<>();
+
+    private boolean accepted = true;
+
+    @Test
+    public void packsRecipientsOfSameDateIntoEnvelopes() {
+        EnvelopeSender sender = createSender(3, 64 * 1024, false);
+
+        send(sender, DATE, "a@example.com");
+        send(sender, DATE, "b@example.com");
+        send(sender, "02-Jul-2019", "c@example.com");
+        send(sender, "02-Jul-2019", "d@example.com");
+        send(sender, "02-Jul-2019", "e@example.com");
+        send(sender, "02-Jul-2019", "f@example.com");
+        sender.flush();
+
+        List<Envelope> envelopes = decodeMessages();
+        assertEquals(3, envelopes.size());
+        assertEnvelope(envelopes.get(0), DATE, "a@example.com", "b@example.com");
+        assertEnvelope(envelopes.get(1), "02-Jul-2019", "c@example.com", "d@example.com",
+                "e@example.com");
+        assertEnvelope(envelopes.get(2), "02-Jul-2019", "f@example.com");
+        assertEquals(6, outcomes.size());
+        assertTrue(outcomes.values().stream().allMatch(Boolean::booleanValue));
+    }
+
+    @Test
+    public void decodesCompressedEnvelopes() {
+        EnvelopeSender sender = createSender(100, 64 * 1024, true);
+        List<String> recipients = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            recipients.add("user" + i + "@example.com");
+            send(sender, DATE, recipients.get(i));
+        }
+
+        assertTrue(messageBodies.get(0).contains("\"encoding\":\"gzip\""));
+        List<Envelope> envelopes = decodeMessages();
+        assertEquals(1, envelopes.size());
+        assertEnvelope(envelopes.get(0), DATE, recipients.toArray(new String[0]));
+    }
+
+    @Test
+    public void sendsEnvelopeWhichReachesMaxBytes() {
+        EnvelopeSender sender = createSender(1000, 1024, false);
+        for (int i = 0; i < 100; i++) {
+            send(sender, DATE, "user" + i + "@example.com");
+        }
+        sender.flush();
+
+        int recipients = 0;
+        for (Envelope envelope : decodeMessages()) {
+            recipients += envelope.getRecipients().size();
+        }
+        for (String messageBody : messageBodies) {
+            assertTrue(messageBody.length() <= 1024);
+        }
+        assertTrue(messageBodies.size() > 1);
+        assertEquals(100, recipients);
+    }
+
+    @Test
+    public void failsEveryRecipientOfRejectedEnvelope() {
+        accepted = false;
+        EnvelopeSender sender = createSender(2, 64 * 1024, false);
+
+        send(sender, DATE, "a@example.com");
+        send(sender, DATE, "b@example.com");
+
+        assertEquals(2, outcomes.size());
+        assertTrue(outcomes.values().stream().noneMatch(Boolean::booleanValue));
+    }
+
+    @Test
+    public void decodesSingleRecipientPayloads() {
+        Envelope email = EnvelopeDecoder.decode(payloadEncoder.encodeEmail(DATE, "a@example.com"));
+        assertEquals(0, email.getVersion());
+        assertEquals(ChannelType.EMAIL, email.getChannelType());
+        assertEnvelope(email, DATE, "a@example.com");
+
+        Envelope sms = EnvelopeDecoder.decode(payloadEncoder.encodeSms(DATE, "9000000001"));
+        assertEquals(ChannelType.SMS, sms.getChannelType());
+        assertEnvelope(sms, DATE, "9000000001");
+
+        Envelope push = EnvelopeDecoder.decode(
+                payloadEncoder.encodeUser(ChannelType.ANDROID_PUSH, DATE, "u1"));
+        assertEquals(ChannelType.ANDROID_PUSH, push.getChannelType());
+        assertEnvelope(push, DATE, "u1");
+    }
+
+    @Test(expected = EngineServiceException.class)
+    public void rejectsPayloadWithoutRecipient() {
+        EnvelopeDecoder.decode("{\"date\":\"" + DATE + "\"}");
+    }
+
+    private void send(EnvelopeSender sender, String date, String recipient) {
+        sender.send(date, recipient, status -> outcomes.put(recipient, status));
+    }
+
+    private List<Envelope> decodeMessages() {
+        List<Envelope> envelopes = new ArrayList<>();
+        for (String messageBody : messageBodies) {
+            Envelope envelope = EnvelopeDecoder.decode(messageBody);
+            assertEquals(Constants.ENVELOPE_FORMAT_VERSION, envelope.getVersion());
+            assertEquals(ChannelType.EMAIL, envelope.getChannelType());
+            envelopes.add(envelope);
+        }
+
+        return envelopes;
+    }
+
+    private static void assertEnvelope(Envelope envelope, String date, String... recipients) {
+        assertEquals(date, envelope.getDate());
+        assertEquals(Arrays.asList(recipients), envelope.getRecipients());
+    }
+
+    private EnvelopeSender createSender(int maxRecipients, int maxBytes, boolean compressed) {
+        AmazonSQSClientAccessor sqsClientAccessor =
+                new AmazonSQSClientAccessor(new AmazonSQSClientConfig()) {
+
+                    @Override
+                    public List<Boolean> sendMessageBatch(List<String> bodies, String groupId,
+                            Runnable throttleCallback) {
+                        messageBodies.addAll(bodies);
+                        return new ArrayList<>(Collections.nCopies(bodies.size(), accepted));
+                    }
+                };
+
+        // every envelope is sent in a batch of its own
+        AmazonSQSBatchSender batchSender =
+                new AmazonSQSBatchSender(sqsClientAccessor, "email", 1, 60000);
+
+        return new EnvelopeSender(batchSender, payloadEncoder, ChannelType.EMAIL, maxRecipients,
+                maxBytes, compressed, 60000, StageTimer.NONE);
+    }
+}
@@ -0,0 +1,203 @@
+package com.prince.serverless.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.prince.serverless.exception.InvalidFileException;
+
+/**
+ * @author Prince Raj
+ */
+public class InputFileParserTest {
+
+    private static final String HEADER = "userid,emailid,mobile,date,sendemail,sendsms\n";
+
+    @Test
+    public void skipsByteOrderMarkOfHeader() throws IOException {
+        byte[] byteOrderMark = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+        byte[] header = HEADER.getBytes(StandardCharsets.UTF_8);
+        byte[] content = new byte[byteOrderMark.length + header.length];
+        System.arraycopy(byteOrderMark, 0, content, 0, byteOrderMark.length);
+        System.arraycopy(header, 0, content, byteOrderMark.length, header.length);
+
+        try (InputFileParser parser = new InputFileParser(new ByteArrayInputStream(content))) {
+            String[] headers = parser.readHeader();
+
+            assertArrayEquals(Constants.INPUT_FILE_HEADERS, headers);
+            assertTrue(InputFileParser.isValidHeader(headers));
+            assertEquals(content.length, parser.getOffset());
+        }
+    }
+
+    @Test
+    public void readsQuotedFieldsAndLineEndings() throws IOException {
+        try (InputFileParser parser = createParser(HEADER
+                + "\"u1\",\"a,b@example.com\",\"90000\"\"01\",20190701,1,0\r\n"
+                + "\r\n"
+                + "u2,,9000000002,20190701,0,1")) {
+            parser.readHeader();
+
+            assertTrue(parser.nextRow());
+            InputFileParser.Row row = parser.getRow();
+            assertEquals("u1", row.getUserId());
+            assertEquals("a,b@example.com", row.getEmailId());
+            assertEquals("90000\"01", row.getMobileNumber());
+            assertEquals("20190701", row.getDate());
+            assertTrue(row.isSendEmail());
+            assertFalse(row.isSendSms());
+
+            // blank line is skipped, last row has no line terminator
+            assertTrue(parser.nextRow());
+            assertEquals("u2", row.getUserId());
+            assertEquals("", row.getEmailId());
+            assertFalse(row.hasEmailId());
+            assertTrue(row.isSendSms());
+            assertTrue(row.isApplicable());
+
+            assertFalse(parser.nextRow());
+            assertEquals(3, parser.getRowNumber());
+        }
+    }
+
+    @Test
+    public void readsRowLargerThanBuffer() throws IOException {
+        StringBuilder emailId = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            emailId.append('a');
+        }
+        emailId.append("@example.com");
+
+        try (InputFileParser parser = createParser(HEADER
+                + "u1,\"" + emailId + "\",9000000001,20190701,1,1\n"
+                + "u2," + emailId + ",9000000002,20190701,1,1\n")) {
+            parser.readHeader();
+
+            assertTrue(parser.nextRow());
+            assertEquals(emailId.toString(), parser.getRow().getEmailId());
+            assertTrue(parser.nextRow());
+            assertEquals(emailId.toString(), parser.getRow().getEmailId());
+            assertEquals("9000000002", parser.getRow().getMobileNumber());
+        }
+    }
+
+    @Test
+    public void readsChannelFlagsOnlyIfPresent() throws IOException {
+        try (InputFileParser parser = createParser(String.join(",",
+                Constants.CHANNELS_INPUT_FILE_HEADERS) + "\n"
+                + "u1,,,20190701,0,0,1,0,1\n")) {
+            assertTrue(InputFileParser.isValidHeader(parser.readHeader()));
+
+            assertTrue(parser.nextRow());
+            InputFileParser.Row row = parser.getRow();
+            assertTrue(row.isSendAndroidPush());
+            assertFalse(row.isSendIosPush());
+            assertTrue(row.isSendInApp());
+            assertTrue(row.isApplicable());
+        }
+
+        try (InputFileParser parser = createParser(HEADER + "u1,,,20190701,0,0\n")) {
+            parser.readHeader();
+
+            assertTrue(parser.nextRow());
+            assertFalse(parser.getRow().isSendAndroidPush());
+            assertFalse(parser.getRow().isApplicable());
+        }
+    }
+
+    @Test
+    public void fingerprintsIgnoreFormatting() throws IOException {
+        try (InputFileParser parser = createParser(HEADER
+                + "u1,A@Example.com,+91 90000-00001,20190701,1,1\n"
+                + "u 1,a@example.com ,919000000001,20190701,1,1\n"
+                + "u2,b@example.com,919000000002,20190701,1,1\n")) {
+            parser.readHeader();
+
+            parser.nextRow();
+            InputFileParser.Row row = parser.getRow();
+            long userId = row.getUserIdFingerprint();
+            long emailId = row.getEmailIdFingerprint();
+            long mobileNumber = row.getMobileNumberFingerprint();
+
+            parser.nextRow();
+            assertEquals(userId, row.getUserIdFingerprint());
+            assertEquals(emailId, row.getEmailIdFingerprint());
+            assertEquals(mobileNumber, row.getMobileNumberFingerprint());
+
+            parser.nextRow();
+            assertNotEquals(userId, row.getUserIdFingerprint());
+            assertNotEquals(emailId, row.getEmailIdFingerprint());
+            assertNotEquals(mobileNumber, row.getMobileNumberFingerprint());
+        }
+    }
+
+    @Test
+    public void resumesAtOffsetOfRow() throws IOException {
+        String rows = "u1,a@example.com,9000000001,20190701,1,1\n"
+                + "u2,b@example.com,9000000002,20190701,1,1\n";
+        String content = HEADER + rows;
+
+        long offset;
+        try (InputFileParser parser = createParser(content)) {
+            parser.readHeader();
+            parser.nextRow();
+            offset = parser.getOffset();
+        }
+
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        try (InputFileParser parser = new InputFileParser(new ByteArrayInputStream(bytes,
+                (int) offset, bytes.length - (int) offset), offset, 2)) {
+            assertTrue(parser.nextRow());
+            assertEquals("u2", parser.getRow().getUserId());
+            assertEquals(3, parser.getRowNumber());
+            assertEquals(bytes.length, parser.getOffset());
+        }
+    }
+
+    @Test
+    public void emptyInputHasNoHeader() throws IOException {
+        try (InputFileParser parser = createParser("")) {
+            assertNull(parser.readHeader());
+        }
+    }
+
+    @Test(expected = InvalidFileException.class)
+    public void rejectsRowWithMissingFields() throws IOException {
+        try (InputFileParser parser = createParser(HEADER + "u1,a@example.com,9000000001\n")) {
+            parser.readHeader();
+            parser.nextRow();
+        }
+    }
+
+    @Test(expected = InvalidFileException.class)
+    public void rejectsUnterminatedQuote() throws IOException {
+        try (InputFileParser parser = createParser(HEADER
+                + "u1,\"a@example.com,9000000001,20190701,1,1\n")) {
+            parser.readHeader();
+            parser.nextRow();
+        }
+    }
+
+    @Test(expected = InvalidFileException.class)
+    public void rejectsCharactersAfterClosingQuote() throws IOException {
+        try (InputFileParser parser = createParser(HEADER
+                + "u1,\"a@example.com\"x,9000000001,20190701,1,1\n")) {
+            parser.readHeader();
+            parser.nextRow();
+        }
+    }
+
+    private static InputFileParser createParser(String content) {
+        return new InputFileParser(
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,155 @@
+package com.prince.serverless.util;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+/**
+ * @author Prince Raj
+ */
+public class ParallelGzipInputStreamTest {
+
+    private static final int CHUNK_SIZE = 256;
+
+    // bytes which look like a member header, as found in deflate data now and then
+    private static final byte[] FALSE_HEADER = {0x1F, (byte) 0x8B, 8, 0, 0, 0, 0, 0, 0, -1};
+
+    @Test
+    public void decompressesManyMembers() throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        for (int i = 0; i < 200; i++) {
+            byte[] member = createRows(i * 20, 20);
+            content.write(member);
+            compressed.write(gzip(member, Deflater.DEFAULT_COMPRESSION));
+        }
+
+        assertArrayEquals(content.toByteArray(), decompress(compressed.toByteArray()));
+    }
+
+    @Test
+    public void decompressesMemberLargerThanMaxChunkSize() throws IOException {
+        byte[] member = new byte[CHUNK_SIZE * 100];
+        new Random(1).nextBytes(member);
+        byte[] rows = createRows(0, 100);
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.write(rows);
+        content.write(member);
+        content.write(rows);
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        compressed.write(gzip(rows, Deflater.DEFAULT_COMPRESSION));
+        compressed.write(gzip(member, Deflater.DEFAULT_COMPRESSION));
+        compressed.write(gzip(rows, Deflater.DEFAULT_COMPRESSION));
+
+        assertArrayEquals(content.toByteArray(), decompress(compressed.toByteArray()));
+    }
+
+    @Test
+    public void decompressesChunkSplitAtFalseHeader() throws IOException {
+        // stored blocks keep the false header as is, past the first split offset
+        ByteArrayOutputStream member = new ByteArrayOutputStream();
+        member.write(createRows(0, 20));
+        member.write(FALSE_HEADER);
+        member.write(createRows(20, 20));
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.write(member.toByteArray());
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        compressed.write(gzip(member.toByteArray(), Deflater.NO_COMPRESSION));
+        for (int i = 0; i < 50; i++) {
+            byte[] rows = createRows(40 + i * 20, 20);
+            content.write(rows);
+            compressed.write(gzip(rows, Deflater.DEFAULT_COMPRESSION));
+        }
+
+        assertArrayEquals(content.toByteArray(), decompress(compressed.toByteArray()));
+    }
+
+    @Test
+    public void decompressesLaterChunkSplitAtFalseHeader() throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        for (int i = 0; i < 50; i++) {
+            byte[] rows = createRows(i * 20, 20);
+            content.write(rows);
+            compressed.write(gzip(rows, Deflater.DEFAULT_COMPRESSION));
+
+            // every 10th member has a false header
+            if (i % 10 == 5) {
+                ByteArrayOutputStream member = new ByteArrayOutputStream();
+                member.write(createRows(i * 20, 10));
+                member.write(FALSE_HEADER);
+                member.write(createRows(i * 20 + 10, 10));
+
+                content.write(member.toByteArray());
+                compressed.write(gzip(member.toByteArray(), Deflater.NO_COMPRESSION));
+            }
+        }
+
+        assertArrayEquals(content.toByteArray(), decompress(compressed.toByteArray()));
+    }
+
+    @Test
+    public void readsSingleBytes() throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        for (int i = 0; i < 20; i++) {
+            byte[] rows = createRows(i * 20, 20);
+            content.write(rows);
+            compressed.write(gzip(rows, Deflater.DEFAULT_COMPRESSION));
+        }
+
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        try (InputStream inputStream = new ParallelGzipInputStream(
+                new ByteArrayInputStream(compressed.toByteArray()), 4, CHUNK_SIZE)) {
+            int value;
+            while ((value = inputStream.read()) >= 0) {
+                decompressed.write(value);
+            }
+        }
+
+        assertArrayEquals(content.toByteArray(), decompressed.toByteArray());
+    }
+
+    private static byte[] decompress(byte[] compressed) throws IOException {
+        try (InputStream inputStream = new ParallelGzipInputStream(
+                new ByteArrayInputStream(compressed), 4, CHUNK_SIZE)) {
+            return IOUtils.toByteArray(inputStream);
+        }
+    }
+
+    private static byte[] createRows(int start, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = start; i < start + count; i++) {
+            builder.append("userid").append(i).append(",user").append(i)
+                    .append("@example.com,").append(9000000000L + i).append(",01-Jul-2019,1,1\n");
+        }
+
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gzip(byte[] content, int level) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            gzipOutputStream.write(content);
+        }
+
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,130 @@
+package com.prince.serverless.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+/**
+ * @author Prince Raj
+ */
+public class ParallelGzipOutputStreamTest {
+
+    private static final int BLOCK_SIZE = 1024;
+
+    @Test
+    public void compressesBlocksIntoMembersInOrder() throws IOException {
+        byte[] content = createContent(BLOCK_SIZE * 50 + 100);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+        try (ParallelGzipOutputStream outputStream = new ParallelGzipOutputStream(compressed,
+                Deflater.DEFAULT_COMPRESSION, BLOCK_SIZE, 4)) {
+            // writes which don't line up with blocks
+            for (int offset = 0; offset < content.length; offset += 700) {
+                outputStream.write(content, offset, Math.min(700, content.length - offset));
+            }
+        }
+
+        assertArrayEquals(content, gunzip(compressed.toByteArray()));
+        assertEquals(51, countMembers(compressed.toByteArray()));
+    }
+
+    @Test
+    public void writesSingleBytes() throws IOException {
+        byte[] content = createContent(BLOCK_SIZE * 3);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+        try (ParallelGzipOutputStream outputStream =
+                new ParallelGzipOutputStream(compressed, 1, BLOCK_SIZE, 1)) {
+            for (byte value : content) {
+                outputStream.write(value);
+            }
+        }
+
+        assertArrayEquals(content, gunzip(compressed.toByteArray()));
+    }
+
+    @Test
+    public void flushEndsOutputAtMemberBoundary() throws IOException {
+        byte[] content = createContent(BLOCK_SIZE * 2 + 100);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+        ParallelGzipOutputStream outputStream = new ParallelGzipOutputStream(compressed,
+                Deflater.DEFAULT_COMPRESSION, BLOCK_SIZE, 4);
+        outputStream.write(content, 0, BLOCK_SIZE + 100);
+        outputStream.flush();
+
+        // output written so far is a complete gzip stream of the bytes written so far
+        byte[] firstOutput = compressed.toByteArray();
+        byte[] expected = new byte[BLOCK_SIZE + 100];
+        System.arraycopy(content, 0, expected, 0, expected.length);
+        assertArrayEquals(expected, gunzip(firstOutput));
+
+        // output continued by another stream is appended as more members
+        ByteArrayOutputStream continued = new ByteArrayOutputStream();
+        continued.write(firstOutput);
+        outputStream.close();
+        try (ParallelGzipOutputStream continuedStream = new ParallelGzipOutputStream(continued,
+                Deflater.DEFAULT_COMPRESSION, BLOCK_SIZE, 4)) {
+            continuedStream.write(content, expected.length, content.length - expected.length);
+        }
+
+        assertArrayEquals(content, gunzip(continued.toByteArray()));
+    }
+
+    @Test
+    public void writesNothingForEmptyOutput() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+        new ParallelGzipOutputStream(compressed, Deflater.DEFAULT_COMPRESSION, BLOCK_SIZE, 4)
+                .close();
+
+        assertEquals(0, compressed.size());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsWriteAfterClose() throws IOException {
+        ParallelGzipOutputStream outputStream = new ParallelGzipOutputStream(
+                new ByteArrayOutputStream(), Deflater.DEFAULT_COMPRESSION, BLOCK_SIZE, 4);
+        outputStream.close();
+
+        outputStream.write(1);
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        return IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed)));
+    }
+
+    private static int countMembers(byte[] compressed) {
+        int members = 0;
+        for (int i = 0; i + 10 <= compressed.length; i++) {
+            if (compressed[i] == 0x1F && compressed[i + 1] == (byte) 0x8B && compressed[i + 2] == 8
+                    && compressed[i + 3] == 0 && compressed[i + 9] == 0) {
+                members++;
+            }
+        }
+
+        return members;
+    }
+
+    private static byte[] createContent(int length) {
+        // rows of text, so that blocks compress as output files do
+        StringBuilder rows = new StringBuilder();
+        Random random = new Random(1);
+        while (rows.length() < length) {
+            rows.append("userid").append(random.nextInt(100000)).append(",user@example.com,")
+                    .append(9000000000L + random.nextInt(100000)).append(",01-Jul-2019,1,1\n");
+        }
+
+        return rows.substring(0, length).getBytes(StandardCharsets.UTF_8);
+    }
+}
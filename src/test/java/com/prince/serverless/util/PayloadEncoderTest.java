@@ -0,0 +1,73 @@
+package com.prince.serverless.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * @author Prince Raj
+ */
+public class PayloadEncoderTest {
+
+    private static final String DATE = "01-Jul-2019";
+
+    private final PayloadEncoder payloadEncoder = new PayloadEncoder(false);
+
+    @Test
+    public void encodesCompactPayloads() {
+        assertEquals("{\"date\":\"01-Jul-2019\",\"email\":\"a@example.com\"}",
+                payloadEncoder.encodeEmail(DATE, "a@example.com"));
+        assertEquals("{\"date\":\"01-Jul-2019\",\"mobile\":\"9000000001\"}",
+                payloadEncoder.encodeSms(DATE, "9000000001"));
+        assertEquals("{\"channel\":\"IN_APP\",\"date\":\"01-Jul-2019\",\"userid\":\"u1\"}",
+                payloadEncoder.encodeUser(ChannelType.IN_APP, DATE, "u1"));
+    }
+
+    @Test
+    public void prettyPayloadsAreSameAsSerializedMaps() {
+        PayloadEncoder prettyEncoder = new PayloadEncoder(true);
+
+        Map<String, Object> email = new HashMap<>();
+        email.put(Constants.DATE, DATE);
+        email.put(Constants.EMAIL_ID, "a@example.com");
+        assertEquals(JsonUtils.toJson(email), prettyEncoder.encodeEmail(DATE, "a@example.com"));
+
+        Map<String, Object> adminEmail = new HashMap<>();
+        adminEmail.put(Constants.EMAIL_ID, "admin@example.com");
+        adminEmail.put(Constants.BODY, "<p>body</p>");
+        adminEmail.put(Constants.SUBJECT, "subject");
+        adminEmail.put(Constants.TEMPLATE_ID, "7");
+        assertEquals(JsonUtils.toJson(adminEmail),
+                prettyEncoder.encodeAdminEmail(7, "admin@example.com", "subject", "<p>body</p>"));
+    }
+
+    @Test
+    public void escapesFieldValues() {
+        String emailId = "\"quoted\"\\name\n\u00e9@example.com";
+
+        Map<String, Object> payload = JsonUtils.fromJson(payloadEncoder.encodeEmail(DATE, emailId),
+                Map.class);
+        assertEquals(emailId, payload.get(Constants.EMAIL_ID));
+    }
+
+    @Test
+    public void reusedBufferHoldsOnlyCurrentPayload() {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            body.append('a');
+        }
+
+        // buffer grows past the retained size for a long admin email, and is not kept
+        Map<String, Object> adminEmail = JsonUtils.fromJson(payloadEncoder.encodeAdminEmail(7,
+                "admin@example.com", "subject", body.toString()), Map.class);
+        assertEquals(body.toString(), adminEmail.get(Constants.BODY));
+
+        assertEquals("{\"date\":\"01-Jul-2019\",\"mobile\":\"9000000001\"}",
+                payloadEncoder.encodeSms(DATE, "9000000001"));
+        assertEquals("{\"date\":\"01-Jul-2019\",\"mobile\":\"9000000002\"}",
+                payloadEncoder.encodeSms(DATE, "9000000002"));
+    }
+}
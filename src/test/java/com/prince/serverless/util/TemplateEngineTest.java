@@ -0,0 +1,104 @@
+package com.prince.serverless.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.support.GenericApplicationContext;
+
+import com.prince.serverless.exception.EngineServiceException;
+import com.prince.serverless.local.LocalSpringConfig;
+
+/**
+ * Tests of templates rendered by {@link TemplateEngine}, with a cache smaller than the templates
+ * rendered, so that templates are evicted and compiled again.
+ *
+ * @author Prince Raj
+ */
+public class TemplateEngineTest {
+
+    private static final String CACHE_SIZE_PROPERTY = "com.example.template.cache.size";
+
+    private static GenericApplicationContext context;
+
+    private static TemplateEngine templateEngine;
+
+    @BeforeClass
+    public static void setUp() {
+        System.setProperty(CACHE_SIZE_PROPERTY, "2");
+        context = new GenericApplicationContext();
+        new LocalSpringConfig().initialize(context);
+        context.refresh();
+        templateEngine = context.getBean(TemplateEngine.class);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        context.close();
+        System.clearProperty(CACHE_SIZE_PROPERTY);
+    }
+
+    @Test
+    public void replacesPlaceholdersWithData() {
+        Map<String, String> dataMap = new HashMap<>();
+        dataMap.put("fileType", "Email");
+        dataMap.put("date", "01-Jul-2019");
+
+        assertEquals("Email Notification Activity - 01-Jul-2019", templateEngine.render(
+                Constants.NOTIFICATION_ACTIVITY_SUBJECT_TEMPLATE, dataMap));
+    }
+
+    @Test
+    public void rendersCachedTemplateWithDataOfEveryCall() {
+        String template = "#if($count == \"1\")one#else${count}#end row(s) of $name";
+
+        assertEquals("one row(s) of a.csv", templateEngine.render(template, data("1", "a.csv")));
+        assertEquals("2 row(s) of b.csv", templateEngine.render(template, data("2", "b.csv")));
+        assertEquals("$count row(s) of $name",
+                templateEngine.render("$count row(s) of $name", new HashMap<>()));
+    }
+
+    @Test(expected = EngineServiceException.class)
+    public void rejectsInvalidTemplate() {
+        templateEngine.render("#if($count", data("1", "a.csv"));
+    }
+
+    @Test
+    public void rendersTemplatesConcurrently() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> renders = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                // more templates than the cache holds
+                int index = i;
+                renders.add(executorService.submit(() -> templateEngine.render(
+                        "template" + (index % 5) + ": $count of $name",
+                        data(String.valueOf(index), "file" + index))));
+            }
+
+            for (int i = 0; i < renders.size(); i++) {
+                assertEquals("template" + (i % 5) + ": " + i + " of file" + i,
+                        renders.get(i).get());
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static Map<String, String> data(String count, String name) {
+        Map<String, String> dataMap = new HashMap<>();
+        dataMap.put("count", count);
+        dataMap.put("name", name);
+
+        return dataMap;
+    }
+}
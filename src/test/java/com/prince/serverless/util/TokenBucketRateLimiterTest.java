@@ -0,0 +1,92 @@
+package com.prince.serverless.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.prince.serverless.model.RateLimitStats;
+
+/**
+ * @author Prince Raj
+ */
+public class TokenBucketRateLimiterTest {
+
+    @Test
+    public void acquiresBurstAtOnceAndThenAtRate() throws InterruptedException {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(100, 10, 0.5, 0, 0.1);
+
+        long startTime = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            rateLimiter.acquire();
+        }
+        assertTrue(elapsedMillis(startTime) < 50);
+
+        startTime = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            rateLimiter.acquire();
+        }
+        assertTrue(elapsedMillis(startTime) >= 90);
+    }
+
+    @Test
+    public void backsOffOncePerIntervalWhenThrottled() {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(1000, 10, 0.5, 0, 0.1);
+
+        // batches in flight are throttled together, which is a single backoff
+        rateLimiter.onThrottle();
+        rateLimiter.onThrottle();
+        rateLimiter.onThrottle();
+
+        RateLimitStats stats = rateLimiter.getStats();
+        assertEquals(500, stats.getRate(), 0.001);
+        assertEquals(3, stats.getThrottleCount());
+    }
+
+    @Test
+    public void backsOffAgainAfterIntervalDownToMinRate() throws InterruptedException {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(1000, 10, 0.5, 0, 0.3);
+
+        rateLimiter.onThrottle();
+        Thread.sleep(600);
+        rateLimiter.onThrottle();
+        assertEquals(300, rateLimiter.getStats().getRate(), 0.001);
+    }
+
+    @Test
+    public void recoversLinearlyUpToRate() throws InterruptedException {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(1000, 10, 0.5, 1, 0.1);
+
+        rateLimiter.onThrottle();
+        double backoffRate = rateLimiter.getStats().getRate();
+        assertTrue(backoffRate < 600);
+
+        Thread.sleep(200);
+        double recoveringRate = rateLimiter.getStats().getRate();
+        assertTrue(recoveringRate >= backoffRate + 150);
+        assertTrue(recoveringRate < 1000);
+
+        Thread.sleep(600);
+        assertEquals(1000, rateLimiter.getStats().getRate(), 0.001);
+    }
+
+    @Test
+    public void waitsForTokensAfterBackoff() throws InterruptedException {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(200, 10, 0.5, 0, 0.1);
+
+        // tokens left in the bucket are dropped, so the backed off rate applies right away
+        rateLimiter.onThrottle();
+
+        long startTime = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            rateLimiter.acquire();
+        }
+        assertTrue(elapsedMillis(startTime) >= 45);
+    }
+
+    private static long elapsedMillis(long startTime) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+    }
+}